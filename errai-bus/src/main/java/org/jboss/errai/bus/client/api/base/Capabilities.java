@@ -39,6 +39,13 @@ public enum Capabilities {
    */
   WebSockets,
 
+  /**
+   * This message bus accepts and sends messages using the compact wire encoding, in which type names are replaced by
+   * references into a per-message type dictionary. A client advertises it when connecting to its queue, and the
+   * server confirms it in the capabilities notice if it is enabled.
+   */
+  CompactWireEncoding,
+
   /**
    * This message bus is just a proxy for another bus. All messages are
    * forwarded on to another bus for processing.
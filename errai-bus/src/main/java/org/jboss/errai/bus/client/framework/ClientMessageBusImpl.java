@@ -98,6 +98,12 @@ public class ClientMessageBusImpl implements ClientMessageBus {
   private String webSocketToken;
   private Object webSocketChannel;
 
+  /**
+   * True if the server advertised the compact wire encoding in response to the handshake, in which case outgoing
+   * messages are sent using it.
+   */
+  private boolean compactWireEncoding = false;
+
   public final MessageCallback remoteCallback = new RemoteMessageCallback();
 
   /**
@@ -559,13 +565,13 @@ public class ClientMessageBusImpl implements ClientMessageBus {
           @Override
           public void run() {
             if (!initialized) return;
-            transmitRemote(BusTools.encodeMessages(toSendBuffer), new ArrayList<Message>(toSendBuffer));
+            transmitRemote(BusTools.encodeMessages(toSendBuffer, compactWireEncoding), new ArrayList<Message>(toSendBuffer));
           }
         }.schedule(150);
       }
     }
     else {
-      transmitRemote(BusTools.encodeMessage(message), Collections.singletonList(message));
+      transmitRemote(BusTools.encodeMessage(message, compactWireEncoding), Collections.singletonList(message));
     }
   }
 
@@ -947,6 +953,8 @@ public class ClientMessageBusImpl implements ClientMessageBus {
           LogUtil.log("received capabilities notice from server. supported capabilities of remote: "
                   + message.get(String.class, MessageParts.CapabilitiesFlags));
 
+          compactWireEncoding = false;
+
           for (final String capability : message.get(String.class, MessageParts.CapabilitiesFlags).split(",")) {
             switch (Capabilities.valueOf(capability)) {
             case WebSockets:
@@ -968,6 +976,10 @@ public class ClientMessageBusImpl implements ClientMessageBus {
                 POLL_FREQUENCY = 500;
               }
               break;
+            case CompactWireEncoding:
+              LogUtil.log("using compact wire encoding");
+              compactWireEncoding = true;
+              break;
             case Proxy:
               break;
             }
@@ -1356,6 +1368,7 @@ public class ClientMessageBusImpl implements ClientMessageBus {
     }
 
     setState(State.CONNECTING);
+    compactWireEncoding = false;
 
     try {
       LogUtil.log("sending initial handshake to remote bus");
@@ -1366,7 +1379,8 @@ public class ClientMessageBusImpl implements ClientMessageBus {
       // ConnectToQueue. We should look at making the server message bus not require it.
       Map<String, String> connectHeader = Collections.singletonMap("phase", "connection");
       sendOutboundRequest(
-              "{\"CommandType\":\"ConnectToQueue\",\"ToSubject\":\"ServerBus\", \"PriorityProcessing\":\"1\"}",
+              "{\"CommandType\":\"ConnectToQueue\",\"ToSubject\":\"ServerBus\", \"PriorityProcessing\":\"1\", "
+                  + "\"CapabilitiesFlags\":\"" + Capabilities.CompactWireEncoding.name() + "\"}",
               connectHeader, new RequestCallback() {
                 @Override
                 public void onResponseReceived(final Request request, final Response response) {
@@ -48,15 +48,27 @@ public class BusTools {
   }
   
   public static String encodeMessage(final Message message) {
+    return encodeMessage(message, false);
+  }
+
+  /**
+   * Encodes the given message, using the compact wire encoding if <tt>compact</tt> is true. Messages that carry
+   * their encoded form already are returned as they are.
+   */
+  public static String encodeMessage(final Message message, final boolean compact) {
     if (message instanceof HasEncoded) {
       return ((HasEncoded) message).getEncoded();
     }
     else {
-      return ErraiProtocol.encodePayload(message.getParts());
+      return ErraiProtocol.encodePayload(message.getParts(), compact);
     }
   }
-  
+
   public static String encodeMessages(final Queue<Message> messages) {
+    return encodeMessages(messages, false);
+  }
+
+  public static String encodeMessages(final Queue<Message> messages, final boolean compact) {
     final StringBuilder sbuf = new StringBuilder("[");
     boolean first = true;
     Message m;
@@ -64,7 +76,7 @@ public class BusTools {
       if (!first) {
         sbuf.append(',');
       }
-      sbuf.append(encodeMessage(m));
+      sbuf.append(encodeMessage(m, compact));
       first = false;
     }
     return sbuf.append("]").toString();
@@ -75,6 +75,8 @@ public class MessageQueueImpl implements MessageQueue {
   private volatile boolean useDirectSocketChannel = false;
   private QueueChannel directSocketChannel;
 
+  private volatile boolean compactWireEncoding = false;
+
   private final Object activationLock = new Object();
   private final AtomicInteger messageCount = new AtomicInteger();
 
@@ -150,7 +152,7 @@ public class MessageQueueImpl implements MessageQueue {
 
     if (useDirectSocketChannel && directSocketChannel.isConnected()) {
       try {
-        directSocketChannel.write("[" + ServerBusTools.encodeMessage(message) + "]");
+        directSocketChannel.write("[" + ServerBusTools.encodeMessage(message, compactWireEncoding) + "]");
       }
       catch (Throwable e) {
         log.info("error writing to socket for queue " + session.getSessionId());
@@ -166,7 +168,7 @@ public class MessageQueueImpl implements MessageQueue {
           try {
             synchronized (pageLock) {
               if (pagedOut) {
-                writeToPageFile(ServerBusTools.encodeMessageToByteArrayInputStream(message), true);
+                writeToPageFile(ServerBusTools.encodeMessageToByteArrayInputStream(message, compactWireEncoding), true);
                 return true;
               }
             }
@@ -183,7 +185,7 @@ public class MessageQueueImpl implements MessageQueue {
           }
         }
 
-        BufferHelper.encodeAndWrite(buffer, bufferColor, message);
+        BufferHelper.encodeAndWrite(buffer, bufferColor, message, compactWireEncoding);
 
         if (messageCount.incrementAndGet() > 10
                 && !lastTransmissionWithin(secs(10))) {
@@ -449,6 +451,19 @@ public class MessageQueueImpl implements MessageQueue {
     }
   }
 
+  /**
+   * Sets whether messages to this queue's client are written using the compact wire encoding. This must only be
+   * enabled if the client advertised the {@link org.jboss.errai.bus.client.api.base.Capabilities#CompactWireEncoding}
+   * capability when it connected.
+   */
+  public void setCompactWireEncoding(final boolean compactWireEncoding) {
+    this.compactWireEncoding = compactWireEncoding;
+  }
+
+  public boolean isCompactWireEncoding() {
+    return compactWireEncoding;
+  }
+
   @Override
   public String toString() {
     return "MessageQueueImpl{" +
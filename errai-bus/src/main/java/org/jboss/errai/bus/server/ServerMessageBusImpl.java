@@ -116,6 +116,7 @@ public class ServerMessageBusImpl implements ServerMessageBus {
 
   private final boolean webSocketServlet;
   private final boolean webSocketServer;
+  private final boolean compactWireEncoding;
 
   /**
    * Sets up the <tt>ServerMessageBusImpl</tt> with the configuration supplied. Also, initializes the bus' callback
@@ -134,6 +135,8 @@ public class ServerMessageBusImpl implements ServerMessageBus {
 
     webSocketServlet = ErraiConfigAttribs.WEBSOCKET_SERVLET_ENABLED.getBoolean(config);
 
+    compactWireEncoding = ErraiConfigAttribs.COMPACT_WIRE_ENCODING.getBoolean(config);
+
     if (webSocketServlet) {
       webSocketPath = ErraiConfigAttribs.WEBSOCKET_SERVLET_CONTEXT_PATH.get(config);
       webSocketPort = -1;
@@ -275,6 +278,8 @@ public class ServerMessageBusImpl implements ServerMessageBus {
                 }
 
                 queue = new MessageQueueImpl(transmissionbuffer, session);
+                queue.setCompactWireEncoding(compactWireEncoding
+                    && hasCapability(message, Capabilities.CompactWireEncoding));
 
                 addQueue(session, queue);
 
@@ -337,6 +342,10 @@ public class ServerMessageBusImpl implements ServerMessageBus {
                 msg.set(MessageParts.WebSocketToken, WebSocketTokenManager.getNewOneTimeToken(session));
               }
 
+              if (queue.isCompactWireEncoding()) {
+                capabilitiesBuffer.append(',').append(Capabilities.CompactWireEncoding.name());
+              }
+
               msg.set(MessageParts.CapabilitiesFlags, capabilitiesBuffer.toString());
 
               send(msg, false);
@@ -1245,6 +1254,18 @@ public class ServerMessageBusImpl implements ServerMessageBus {
     return message.getResource(QueueSession.class, Resources.Session.name());
   }
 
+  private static boolean hasCapability(final Message message, final Capabilities capability) {
+    final String flags = message.get(String.class, MessageParts.CapabilitiesFlags);
+    if (flags == null) return false;
+
+    for (final String flag : flags.split(",")) {
+      if (capability.name().equals(flag.trim())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   private MessageQueue getQueueByMessage(final Message message) {
     final MessageQueue queue = getQueue(getSession(message));
     if (queue == null) {
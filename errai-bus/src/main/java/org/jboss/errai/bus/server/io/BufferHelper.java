@@ -67,7 +67,13 @@ public final class BufferHelper {
   public static void encodeAndWrite(final Buffer buffer, final BufferColor bufferColor, final Message message)
           throws IOException {
 
-    buffer.write(encodePayloadToByteArrayInputStream(message.getParts()), bufferColor);
+    encodeAndWrite(buffer, bufferColor, message, false);
+  }
+
+  public static void encodeAndWrite(final Buffer buffer, final BufferColor bufferColor, final Message message,
+                                    final boolean compact) throws IOException {
+
+    buffer.write(encodePayloadToByteArrayInputStream(message.getParts(), compact), bufferColor);
   }
 
   private static final byte[] NOOP_ARRAY = new byte[0];
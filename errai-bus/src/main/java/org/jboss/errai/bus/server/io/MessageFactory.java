@@ -20,11 +20,12 @@ import org.jboss.errai.bus.client.api.Message;
 import org.jboss.errai.bus.client.api.QueueSession;
 import org.jboss.errai.bus.client.framework.RoutingFlag;
 import org.jboss.errai.common.client.protocols.MessageParts;
+import org.jboss.errai.marshalling.client.MarshallingSessionProviderFactory;
+import org.jboss.errai.marshalling.client.api.MarshallingSession;
 import org.jboss.errai.marshalling.client.api.json.EJArray;
 import org.jboss.errai.marshalling.client.api.json.EJValue;
 import org.jboss.errai.marshalling.client.marshallers.ErraiProtocolEnvelopeMarshaller;
 import org.jboss.errai.marshalling.client.marshallers.MapMarshaller;
-import org.jboss.errai.marshalling.server.DecodingSession;
 import org.jboss.errai.marshalling.server.JSONDecoder;
 import org.jboss.errai.marshalling.server.JSONStreamDecoder;
 import org.jboss.errai.marshalling.server.MappingContextSingleton;
@@ -76,8 +77,16 @@ public class MessageFactory {
   public static Message createCommandMessage(QueueSession session, String json) {
     if (json.length() == 0) return null;
 
-    Message msg = createWithParts(MapMarshaller.INSTANCE.demarshall(JSONDecoder.decode(json),
-            new DecodingSession(MappingContextSingleton.get())))
+    final MarshallingSession decodingSession = getDecodingSession();
+    final Map parts;
+    try {
+      parts = MapMarshaller.INSTANCE.demarshall(JSONDecoder.decode(json), decodingSession);
+    }
+    finally {
+      MarshallingSessionProviderFactory.release(decodingSession);
+    }
+
+    Message msg = createWithParts(parts)
             .setResource("Session", session)
             .setResource("SessionID", session.getSessionId());
 
@@ -105,9 +114,20 @@ public class MessageFactory {
     }
   }
 
+  private static MarshallingSession getDecodingSession() {
+    // loading the mapping context registers the server's session provider
+    MappingContextSingleton.get();
+    return MarshallingSessionProviderFactory.getDecoding();
+  }
+
   private static Map getParts(EJValue value) {
-    return ErraiProtocolEnvelopeMarshaller.INSTANCE.demarshall(value,
-            new DecodingSession(MappingContextSingleton.get()));
+    final MarshallingSession session = getDecodingSession();
+    try {
+      return ErraiProtocolEnvelopeMarshaller.INSTANCE.demarshall(value, session);
+    }
+    finally {
+      MarshallingSessionProviderFactory.release(session);
+    }
   }
 
   @SuppressWarnings("unchecked")
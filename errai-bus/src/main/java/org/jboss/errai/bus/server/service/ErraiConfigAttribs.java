@@ -60,6 +60,15 @@ public enum ErraiConfigAttribs {
 
   WEBSOCKET_SERVLET_ENABLED("errai.bus.websocket.servlet.enabled", "false"),
   WEBSOCKET_SERVLET_CONTEXT_PATH("errai.bus.websocket.servlet.path", "in.erraiBusWebSocket"),
+
+  /**
+   * Enables the compact wire encoding, in which the type names of each message are sent once in a per-message type
+   * dictionary and referenced by index. It is only used for clients that advertise the capability when connecting to
+   * their queue; those clients are told to use it through the capabilities notice sent during the bus handshake.
+   * <p/>
+   * Default value: false
+   */
+  COMPACT_WIRE_ENCODING("errai.bus.compact_wire_encoding", "false"),
 //
 //  MAXIMUM_MESSAGE_BACKLOG("errai.bus.queue.maximum_message_backlog", "25"),
 //  MAXIMUM_TIME_BACKLOG("errai.bus.queue.maximum_time_backlog_secs", "10"),
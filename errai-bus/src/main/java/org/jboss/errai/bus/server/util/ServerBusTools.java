@@ -27,8 +27,12 @@ import org.jboss.errai.bus.client.util.BusTools;
  */
 public class ServerBusTools extends BusTools {
   public static ByteArrayInputStream encodeMessageToByteArrayInputStream(Message message) {
+    return encodeMessageToByteArrayInputStream(message, false);
+  }
+
+  public static ByteArrayInputStream encodeMessageToByteArrayInputStream(Message message, boolean compact) {
     try {
-      return new ByteArrayInputStream(encodeMessage(message).getBytes("UTF-8"));
+      return new ByteArrayInputStream(encodeMessage(message, compact).getBytes("UTF-8"));
     } catch (UnsupportedEncodingException e) {
       throw new AssertionError("UTF-8 appears not to be supported by this JRE, but that's impossible");
     }
@@ -43,8 +43,22 @@ public abstract class AbstractCDIEventCallback<T> implements MessageCallback {
   @SuppressWarnings("unchecked")
   @Override
   public final void callback(final Message message) {
-    Set<String> msgQualifiers = message.get(Set.class, CDIProtocol.Qualifiers);
+    if (isObserverOf(message.get(Set.class, CDIProtocol.Qualifiers), message.hasPart(CDIProtocol.FromClient))) {
+      deliver(message);
+    }
+  }
 
+  /**
+   * Tests if an event fired with the given qualifiers has to be delivered to
+   * this observer.
+   *
+   * @param msgQualifiers
+   *     the qualifiers of the event. Null is treated as no qualifiers.
+   * @param fromClient
+   *     true if the event was fired on the client; false if it came from the
+   *     server.
+   */
+  public boolean isObserverOf(Set<String> msgQualifiers, final boolean fromClient) {
     if (msgQualifiers == null) {
       msgQualifiers = Collections.emptySet();
     }
@@ -57,18 +71,24 @@ public abstract class AbstractCDIEventCallback<T> implements MessageCallback {
     // TODO: CDI 1.1 allows EventObservers to know what qualifiers were associated with firing the event
     //       a future version of Errai should be able to use containsAll() from the server as well, when
     //       Errai switches to CDI 1.1.
-    if (message.hasPart(CDIProtocol.FromClient)) {
-      if (isDefault() || msgQualifiers.containsAll(qualifierSet)) {
-        fireEvent((T) message.get(Object.class, CDIProtocol.BeanReference));
-      }
+    if (fromClient) {
+      return isDefault() || msgQualifiers.containsAll(qualifierSet);
     }
     else {
-      if (msgQualifiers.equals(qualifierSet)) {
-        fireEvent((T) message.get(Object.class, CDIProtocol.BeanReference));
-      }
+      return msgQualifiers.equals(qualifierSet);
     }
   }
 
+  /**
+   * Delivers the event carried by the given message to this observer without
+   * looking at the message's qualifiers. Callers are expected to have checked
+   * them with {@link #isObserverOf(Set, boolean)}.
+   */
+  @SuppressWarnings("unchecked")
+  public final void deliver(final Message message) {
+    fireEvent((T) message.get(Object.class, CDIProtocol.BeanReference));
+  }
+
   protected boolean isDefault() {
     return qualifierSet.size() == 1 && qualifierSet.contains(Any.class.getName());
   }
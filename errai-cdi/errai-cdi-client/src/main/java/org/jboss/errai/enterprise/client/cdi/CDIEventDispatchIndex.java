@@ -0,0 +1,240 @@
+/*
+ * Copyright 2012 JBoss, by Red Hat, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.errai.enterprise.client.cdi;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps track of the client-side CDI event observers, and answers the question
+ * "which observers does an event of this type with these qualifiers go to?"
+ * with a precomputed array.
+ * <p>
+ * The answer for a given event type, qualifier set and event origin (client
+ * or server) takes the event type's supertypes and the observers' qualifiers
+ * into account. When an observer is added, the answers for unqualified events
+ * of its type and of all its known subtypes are computed right away; answers
+ * for other qualifier sets are computed the first time such an event is
+ * dispatched. All answers are kept up to date as observers are added and
+ * removed: only the answers that involve the event type of the added or
+ * removed observer are recomputed. Dispatching an event is then a couple of
+ * map lookups followed by a walk over a flat array.
+ * <p>
+ * This class is used by {@link org.jboss.errai.enterprise.client.cdi.api.CDI}
+ * and is not intended to be used directly.
+ */
+public class CDIEventDispatchIndex {
+  private static final AbstractCDIEventCallback<?>[] NO_OBSERVERS = new AbstractCDIEventCallback<?>[0];
+
+  /**
+   * The observers of each event type, in the order they were added.
+   */
+  private final Map<String, List<AbstractCDIEventCallback<?>>> observers
+      = new HashMap<String, List<AbstractCDIEventCallback<?>>>();
+
+  /**
+   * Maps event types to their supertypes.
+   */
+  private Map<String, Collection<String>> typeLookup = Collections.emptyMap();
+
+  /**
+   * The dispatch entries of the event types that are observed (directly or
+   * through one of their supertypes) or have been dispatched.
+   */
+  private final Map<String, DispatchEntry> entries = new HashMap<String, DispatchEntry>();
+
+  /**
+   * Replaces the map from event types to their supertypes. Rebuilds all
+   * precomputed dispatch entries, since they depend on the type hierarchy.
+   */
+  public void setTypeLookup(final Map<String, Collection<String>> typeLookup) {
+    this.typeLookup = typeLookup;
+    entries.clear();
+    for (final String observedType : observers.keySet()) {
+      addEntriesObserving(observedType);
+    }
+  }
+
+  /**
+   * Removes all observers and forgets the type hierarchy.
+   */
+  public void clear() {
+    observers.clear();
+    typeLookup = Collections.emptyMap();
+    entries.clear();
+  }
+
+  public boolean hasObservers(final String eventType) {
+    return observers.containsKey(eventType);
+  }
+
+  /**
+   * Adds an observer for events of the given type and its subtypes.
+   */
+  public void addObserver(final String eventType, final AbstractCDIEventCallback<?> callback) {
+    List<AbstractCDIEventCallback<?>> typeObservers = observers.get(eventType);
+    if (typeObservers == null) {
+      observers.put(eventType, typeObservers = new ArrayList<AbstractCDIEventCallback<?>>());
+    }
+    typeObservers.add(callback);
+    updateEntriesObserving(eventType);
+    addEntriesObserving(eventType);
+  }
+
+  /**
+   * Removes an observer that was added for the given event type. Has no effect
+   * if the observer is not registered for that type.
+   */
+  public void removeObserver(final String eventType, final AbstractCDIEventCallback<?> callback) {
+    final List<AbstractCDIEventCallback<?>> typeObservers = observers.get(eventType);
+    if (typeObservers == null || !typeObservers.remove(callback)) {
+      return;
+    }
+    if (typeObservers.isEmpty()) {
+      observers.remove(eventType);
+    }
+    updateEntriesObserving(eventType);
+  }
+
+  /**
+   * Returns the observers that an event with the given type and qualifiers
+   * has to be delivered to. Each observer appears only once, even if it
+   * observes more than one of the event's types.
+   *
+   * @param eventType
+   *     the fully qualified class name of the event object.
+   * @param qualifiers
+   *     the qualifiers the event was fired with. Null is treated as no
+   *     qualifiers.
+   * @param fromClient
+   *     true if the event was fired on the client; false if it came from the
+   *     server. See {@link AbstractCDIEventCallback#isObserverOf(Set, boolean)}.
+   *
+   * @return the observers to deliver the event to, in the order they should be
+   *         notified. The caller must not modify the returned array.
+   */
+  public AbstractCDIEventCallback<?>[] getObservers(final String eventType,
+                                                    Set<String> qualifiers,
+                                                    final boolean fromClient) {
+    if (qualifiers == null) {
+      qualifiers = Collections.emptySet();
+    }
+
+    final DispatchEntry entry = getOrCreateEntry(eventType);
+    final Map<Set<String>, AbstractCDIEventCallback<?>[]> byQualifiers = fromClient ? entry.fromClient : entry.fromServer;
+    AbstractCDIEventCallback<?>[] result = byQualifiers.get(qualifiers);
+    if (result == null) {
+      final Set<String> key = Collections.unmodifiableSet(new HashSet<String>(qualifiers));
+      byQualifiers.put(key, result = computeObservers(entry, key, fromClient));
+    }
+    return result;
+  }
+
+  /**
+   * Recomputes the precomputed observer arrays of all event types that are
+   * subtypes of (or the same as) the given type.
+   */
+  private void updateEntriesObserving(final String eventType) {
+    for (final DispatchEntry entry : entries.values()) {
+      if (entry.observedTypes.contains(eventType)) {
+        for (final Map.Entry<Set<String>, AbstractCDIEventCallback<?>[]> e : entry.fromClient.entrySet()) {
+          e.setValue(computeObservers(entry, e.getKey(), true));
+        }
+        for (final Map.Entry<Set<String>, AbstractCDIEventCallback<?>[]> e : entry.fromServer.entrySet()) {
+          e.setValue(computeObservers(entry, e.getKey(), false));
+        }
+      }
+    }
+  }
+
+  /**
+   * Creates the dispatch entries that are still missing for the given type and
+   * all of its known subtypes.
+   */
+  private void addEntriesObserving(final String eventType) {
+    getOrCreateEntry(eventType);
+    for (final Map.Entry<String, Collection<String>> type : typeLookup.entrySet()) {
+      if (type.getValue() != null && type.getValue().contains(eventType)) {
+        getOrCreateEntry(type.getKey());
+      }
+    }
+  }
+
+  /**
+   * Returns the dispatch entry for the given event type, creating it (with the
+   * observers of unqualified events already computed) if it doesn't exist yet.
+   */
+  private DispatchEntry getOrCreateEntry(final String eventType) {
+    DispatchEntry entry = entries.get(eventType);
+    if (entry == null) {
+      entries.put(eventType, entry = new DispatchEntry(eventType, typeLookup.get(eventType)));
+      final Set<String> noQualifiers = Collections.emptySet();
+      entry.fromClient.put(noQualifiers, computeObservers(entry, noQualifiers, true));
+      entry.fromServer.put(noQualifiers, computeObservers(entry, noQualifiers, false));
+    }
+    return entry;
+  }
+
+  private AbstractCDIEventCallback<?>[] computeObservers(final DispatchEntry entry,
+                                                         final Set<String> qualifiers,
+                                                         final boolean fromClient) {
+    final Map<AbstractCDIEventCallback<?>, Boolean> seen = new IdentityHashMap<AbstractCDIEventCallback<?>, Boolean>();
+    final List<AbstractCDIEventCallback<?>> result = new ArrayList<AbstractCDIEventCallback<?>>();
+    for (final String observedType : entry.observedTypes) {
+      final List<AbstractCDIEventCallback<?>> typeObservers = observers.get(observedType);
+      if (typeObservers == null) continue;
+
+      for (final AbstractCDIEventCallback<?> callback : typeObservers) {
+        if (!seen.containsKey(callback) && callback.isObserverOf(qualifiers, fromClient)) {
+          seen.put(callback, Boolean.TRUE);
+          result.add(callback);
+        }
+      }
+    }
+    return result.isEmpty() ? NO_OBSERVERS : result.toArray(new AbstractCDIEventCallback<?>[result.size()]);
+  }
+
+  /**
+   * The precomputed observers of one event type.
+   */
+  private static class DispatchEntry {
+    /**
+     * The event type itself, followed by its supertypes.
+     */
+    final List<String> observedTypes;
+
+    final Map<Set<String>, AbstractCDIEventCallback<?>[]> fromClient
+        = new HashMap<Set<String>, AbstractCDIEventCallback<?>[]>();
+
+    final Map<Set<String>, AbstractCDIEventCallback<?>[]> fromServer
+        = new HashMap<Set<String>, AbstractCDIEventCallback<?>[]>();
+
+    DispatchEntry(final String eventType, final Collection<String> superTypes) {
+      observedTypes = new ArrayList<String>();
+      observedTypes.add(eventType);
+      if (superTypes != null) {
+        observedTypes.addAll(superTypes);
+      }
+    }
+  }
+}
@@ -17,7 +17,6 @@ package org.jboss.errai.enterprise.client.cdi.api;
 
 import java.lang.annotation.Annotation;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -40,6 +39,7 @@ import org.jboss.errai.common.client.protocols.MessageParts;
 import org.jboss.errai.common.client.util.LogUtil;
 import org.jboss.errai.enterprise.client.cdi.AbstractCDIEventCallback;
 import org.jboss.errai.enterprise.client.cdi.CDICommands;
+import org.jboss.errai.enterprise.client.cdi.CDIEventDispatchIndex;
 import org.jboss.errai.enterprise.client.cdi.CDIEventTypeLookup;
 import org.jboss.errai.enterprise.client.cdi.CDIProtocol;
 
@@ -61,8 +61,7 @@ public class CDI {
   private static final List<DeferredEvent> deferredEvents = new ArrayList<DeferredEvent>();
   private static final List<Runnable> postInitTasks = new ArrayList<Runnable>();
 
-  private static Map<String, List<MessageCallback>> eventObservers = new HashMap<String, List<MessageCallback>>();
-  private static Map<String, Collection<String>> lookupTable = Collections.emptyMap();
+  private static final CDIEventDispatchIndex dispatchIndex = new CDIEventDispatchIndex();
 
   public static final MessageCallback ROUTING_CALLBACK = new MessageCallback() {
     @Override
@@ -89,12 +88,11 @@ public class CDI {
     active = false;
     deferredEvents.clear();
     postInitTasks.clear();
-    eventObservers.clear();
-    lookupTable = Collections.emptyMap();
+    dispatchIndex.clear();
   }
 
   public void initLookupTable(final CDIEventTypeLookup lookup) {
-    lookupTable = lookup.getTypeLookupMap();
+    dispatchIndex.setTypeLookup(lookup.getTypeLookupMap());
   }
 
   /**
@@ -162,10 +160,7 @@ public class CDI {
   }
 
   public static Subscription subscribeLocal(final String eventType, final AbstractCDIEventCallback callback) {
-    if (!eventObservers.containsKey(eventType)) {
-      eventObservers.put(eventType, new ArrayList<MessageCallback>());
-    }
-    eventObservers.get(eventType).add(callback);
+    dispatchIndex.addObserver(eventType, callback);
 
     return new Subscription() {
       @Override
@@ -191,11 +186,8 @@ public class CDI {
   }
 
   private static void unsubscribe(final String eventType, final AbstractCDIEventCallback callback) {
-    if (eventObservers.containsKey(eventType)) {
-      eventObservers.get(eventType).remove(callback);
-      if (eventObservers.get(eventType).isEmpty()) {
-        eventObservers.remove(eventType);
-      }
+    if (dispatchIndex.hasObservers(eventType)) {
+      dispatchIndex.removeObserver(eventType, callback);
 
       if (isRemoteCommunicationEnabled()) {
         MessageBuilder.createMessage()
@@ -209,35 +201,56 @@ public class CDI {
   }
 
 
+  @SuppressWarnings("unchecked")
   public static void consumeEventFromMessage(final Message message) {
-    final String beanType = message.get(String.class, CDIProtocol.BeanType);
+    final AbstractCDIEventCallback<?>[] observers = dispatchIndex.getObservers(
+        message.get(String.class, CDIProtocol.BeanType),
+        message.get(Set.class, CDIProtocol.Qualifiers),
+        message.hasPart(CDIProtocol.FromClient));
 
-    _fireEvent(beanType, message);
-
-    if (lookupTable.containsKey(beanType)) {
-      for (final String superType : lookupTable.get(beanType)) {
-        _fireEvent(superType, message);
-      }
-    }
+    fireIfNotFired(observers, message);
   }
 
-  private static void _fireEvent(final String beanType, final Message message) {
-    if (eventObservers.containsKey(beanType)) {
-      for (final MessageCallback callback : eventObservers.get(beanType)) {
-        fireIfNotFired(callback, message);
+  /**
+   * Delivers the message to the given observers, skipping any observer the same
+   * message was already delivered to. The same message is consumed more than
+   * once when it is routed over the subjects of several of the event's types.
+   */
+  @SuppressWarnings("unchecked")
+  private static void fireIfNotFired(final AbstractCDIEventCallback<?>[] observers, final Message message) {
+    if (observers.length == 0) return;
+
+    List<AbstractCDIEventCallback<?>[]> alreadyFired = message.getResource(List.class, CLIENT_ALREADY_FIRED_RESOURCE);
+    if (alreadyFired == null) {
+      alreadyFired = new ArrayList<AbstractCDIEventCallback<?>[]>(1);
+      message.setResource(CLIENT_ALREADY_FIRED_RESOURCE, alreadyFired);
+    }
+    else {
+      for (final AbstractCDIEventCallback<?>[] fired : alreadyFired) {
+        if (fired == observers) return;
       }
     }
-  }
 
-  @SuppressWarnings("unchecked")
-  private static void fireIfNotFired(final MessageCallback callback, final Message message) {
-    if (!message.hasResource(CLIENT_ALREADY_FIRED_RESOURCE)) {
-      message.setResource(CLIENT_ALREADY_FIRED_RESOURCE, new IdentityHashMap<Object, Object>());
+    if (alreadyFired.isEmpty()) {
+      alreadyFired.add(observers);
+      for (final AbstractCDIEventCallback<?> observer : observers) {
+        observer.deliver(message);
+      }
     }
-
-    if (!message.getResource(Map.class, CLIENT_ALREADY_FIRED_RESOURCE).containsKey(callback)) {
-      callback.callback(message);
-      message.getResource(Map.class, CLIENT_ALREADY_FIRED_RESOURCE).put(callback, "");
+    else {
+      // the observers have changed since the message was first consumed
+      final Map<Object, Object> fired = new IdentityHashMap<Object, Object>();
+      for (final AbstractCDIEventCallback<?>[] firedObservers : alreadyFired) {
+        for (final AbstractCDIEventCallback<?> observer : firedObservers) {
+          fired.put(observer, "");
+        }
+      }
+      alreadyFired.add(observers);
+      for (final AbstractCDIEventCallback<?> observer : observers) {
+        if (!fired.containsKey(observer)) {
+          observer.deliver(message);
+        }
+      }
     }
   }
 
@@ -1,14 +1,18 @@
 package org.jboss.errai.cdi.event.client.test;
 
+import java.util.ArrayList;
 import java.util.List;
 
+import org.jboss.errai.bus.client.framework.Subscription;
 import org.jboss.errai.cdi.client.event.DataBoundEvent;
 import org.jboss.errai.cdi.client.event.LocalEventA;
 import org.jboss.errai.cdi.event.client.LocalEventTestModule;
 import org.jboss.errai.common.client.api.extension.InitVotes;
 import org.jboss.errai.databinding.client.BindableProxy;
 import org.jboss.errai.databinding.client.api.DataBinder;
+import org.jboss.errai.enterprise.client.cdi.AbstractCDIEventCallback;
 import org.jboss.errai.enterprise.client.cdi.AbstractErraiCDITest;
+import org.jboss.errai.enterprise.client.cdi.api.CDI;
 import org.jboss.errai.ioc.client.container.IOC;
 
 /**
@@ -90,5 +94,33 @@ public class LocalEventIntegrationTest extends AbstractErraiCDITest {
       }
     });
   }
-}
 
+  public void testObserversAddedAndRemovedAfterDispatch() {
+    delayTestFinish(60000);
+
+    InitVotes.registerOneTimeInitCallback(new Runnable() {
+      @Override
+      public void run() {
+        final List<String> observed = new ArrayList<String>();
+
+        CDI.fireEvent(new LocalEventA("before"));
+
+        final Subscription subscription = CDI.subscribeLocal(LocalEventA.class.getName(),
+            new AbstractCDIEventCallback<LocalEventA>() {
+              @Override
+              protected void fireEvent(final LocalEventA event) {
+                observed.add(event.getMessage());
+              }
+            });
+
+        CDI.fireEvent(new LocalEventA("during"));
+        subscription.remove();
+        CDI.fireEvent(new LocalEventA("after"));
+
+        assertEquals(1, observed.size());
+        assertEquals("during", observed.get(0));
+        finishTest();
+      }
+    });
+  }
+}
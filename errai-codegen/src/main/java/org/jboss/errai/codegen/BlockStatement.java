@@ -16,18 +16,20 @@
 
 package org.jboss.errai.codegen;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
 import org.jboss.errai.codegen.builder.ClosedBlock;
 import org.jboss.errai.codegen.util.EmptyStatement;
+import org.jboss.errai.codegen.util.GenUtil;
 
 /**
  * Represents a code block (e.g. a loop body).
  *
  * @author Christian Sadilek <csadilek@redhat.com>
  */
-public class BlockStatement extends AbstractStatement {
+public class BlockStatement extends AbstractStatement implements Renderable {
   public static final BlockStatement EMPTY_BLOCK = new BlockStatement() {
     @Override
     public BlockStatement addStatement(final Statement statement) {
@@ -69,31 +71,40 @@ public class BlockStatement extends AbstractStatement {
   @Override
   public String generate(final Context context) {
     if (generatedCache != null) return generatedCache;
-    
-    final StringBuilder buf = new StringBuilder(512);
+
+    return generatedCache = GenUtil.renderToString(this, context, 512);
+  }
+
+  @Override
+  public void renderTo(final Appendable appendable, final Context context) throws IOException {
+    if (generatedCache != null) {
+      appendable.append(generatedCache);
+      return;
+    }
+
+    final TailTrackingAppendable buf = new TailTrackingAppendable(appendable);
 
     boolean isLastBlock = false;
     for (final Statement statement : statements) {
-      if (buf.length() != 0 && !(statement instanceof EmptyStatement)) {
-        buf.append("\n");
+      if (buf.hasOutput() && !(statement instanceof EmptyStatement)) {
+        buf.append('\n');
       }
 
-      buf.append(statement.generate(context));
-
-      if (!(statement instanceof Comment) && !(statement instanceof EmptyStatement)
-              && !buf.toString().endsWith(";") && !buf.toString().endsWith(":") && !buf.toString().endsWith("}")) {
+      GenUtil.renderTo(statement, buf, context);
 
-        buf.append(";");
+      if (!(statement instanceof Comment) && !(statement instanceof EmptyStatement)) {
+        final char last = buf.getLastChar();
+        if (last != ';' && last != ':' && last != '}') {
+          buf.append(';');
+        }
       }
 
       isLastBlock = statement instanceof ClosedBlock;
     }
 
-    if (buf.length() != 0 && buf.charAt(buf.length() - 1) != ';' && !isLastBlock) {
+    if (buf.hasOutput() && buf.getLastChar() != ';' && !isLastBlock) {
       buf.append(';');
     }
-
-    return generatedCache = buf.toString();
   }
 
   /**
@@ -109,4 +120,51 @@ public class BlockStatement extends AbstractStatement {
   public boolean isEmpty() {
     return statements.isEmpty();
   }
+
+  /**
+   * Delegates to another appendable while remembering the last character written, so that the block can decide
+   * whether a statement needs to be terminated without inspecting the (possibly very large) output buffer.
+   */
+  private static class TailTrackingAppendable implements Appendable {
+    private final Appendable delegate;
+    private boolean hasOutput;
+    private char lastChar;
+
+    private TailTrackingAppendable(final Appendable delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public Appendable append(final CharSequence csq) throws IOException {
+      final CharSequence seq = csq == null ? "null" : csq;
+      return append(seq, 0, seq.length());
+    }
+
+    @Override
+    public Appendable append(final CharSequence csq, final int start, final int end) throws IOException {
+      final CharSequence seq = csq == null ? "null" : csq;
+      if (end > start) {
+        delegate.append(seq, start, end);
+        hasOutput = true;
+        lastChar = seq.charAt(end - 1);
+      }
+      return this;
+    }
+
+    @Override
+    public Appendable append(final char c) throws IOException {
+      delegate.append(c);
+      hasOutput = true;
+      lastChar = c;
+      return this;
+    }
+
+    public boolean hasOutput() {
+      return hasOutput;
+    }
+
+    public char getLastChar() {
+      return lastChar;
+    }
+  }
 }
@@ -16,6 +16,8 @@
 
 package org.jboss.errai.codegen;
 
+import java.io.IOException;
+
 import org.jboss.errai.codegen.meta.MetaClass;
 import org.jboss.errai.codegen.meta.impl.build.BuildMetaClass;
 
@@ -24,7 +26,7 @@ import org.jboss.errai.codegen.meta.impl.build.BuildMetaClass;
  *  
  * @author Christian Sadilek <csadilek@redhat.com>
  */
-public class InnerClass {
+public class InnerClass implements Renderable {
 
   private BuildMetaClass clazz = null;
   
@@ -37,6 +39,12 @@ public class InnerClass {
     clazz.setContext(Context.create(context));
     return clazz.toJavaString();
   }
+
+  @Override
+  public void renderTo(final Appendable appendable, final Context context) throws IOException {
+    clazz.setContext(Context.create(context));
+    clazz.renderTo(appendable, clazz.getContext());
+  }
   
   public MetaClass getType() {
     return clazz;
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2012 JBoss, by Red Hat, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.codegen;
+
+import java.io.IOException;
+
+/**
+ * Implemented by statements and builders which are able to write their generated source directly to an
+ * {@link Appendable}, instead of returning it as a String to be concatenated by the enclosing element. This allows
+ * large classes to be rendered in a single pass into one buffer.
+ */
+public interface Renderable {
+  /**
+   * Writes the generated source to the specified appendable.
+   *
+   * @param appendable
+   *     the target of the generated source.
+   * @param context
+   *     the context in which the source is generated.
+   *
+   * @throws IOException
+   *     if the appendable throws an IOException.
+   */
+  public void renderTo(Appendable appendable, Context context) throws IOException;
+}
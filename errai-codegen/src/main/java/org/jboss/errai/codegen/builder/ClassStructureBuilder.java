@@ -16,6 +16,8 @@
 
 package org.jboss.errai.codegen.builder;
 
+import java.io.IOException;
+
 import org.jboss.errai.codegen.meta.impl.build.BuildMetaClass;
 
 /**
@@ -31,4 +33,9 @@ public interface ClassStructureBuilder<T extends ClassStructureBuilder<T>> exten
    * @return an instance of {@link BuildMetaClass}
    */
   public BuildMetaClass getClassDefinition();
+
+  /**
+   * Writes the source of the class directly to the specified appendable, without materializing it as a String first.
+   */
+  public void renderTo(Appendable appendable) throws IOException;
 }
\ No newline at end of file
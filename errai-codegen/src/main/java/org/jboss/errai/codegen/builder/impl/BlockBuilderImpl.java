@@ -19,11 +19,13 @@ package org.jboss.errai.codegen.builder.impl;
 import org.jboss.errai.codegen.BlockStatement;
 import org.jboss.errai.codegen.Context;
 import org.jboss.errai.codegen.InnerClass;
+import org.jboss.errai.codegen.Renderable;
 import org.jboss.errai.codegen.Statement;
 import org.jboss.errai.codegen.builder.BlockBuilder;
 import org.jboss.errai.codegen.builder.BuildCallback;
 import org.jboss.errai.codegen.meta.MetaClass;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
@@ -57,18 +59,7 @@ public class BlockBuilderImpl<T> implements BlockBuilder<T> {
 
   @Override
   public void insertBefore(final InnerClass innerClass) {
-    insertBefore(new Statement() {
-
-      @Override
-      public String generate(final Context context) {
-        return innerClass.generate(context);
-      }
-
-      @Override
-      public MetaClass getType() {
-        return innerClass.getType();
-      }
-    });
+    insertBefore(new InnerClassStatement(innerClass));
   }
 
   @Override
@@ -79,18 +70,7 @@ public class BlockBuilderImpl<T> implements BlockBuilder<T> {
 
   @Override
   public BlockBuilder<T> append(final InnerClass innerClass) {
-    blockStatement.addStatement(new Statement() {
-
-      @Override
-      public String generate(final Context context) {
-        return innerClass.generate(context);
-      }
-
-      @Override
-      public MetaClass getType() {
-        return innerClass.getType();
-      }
-    });
+    blockStatement.addStatement(new InnerClassStatement(innerClass));
     return this;
   }
 
@@ -137,4 +117,30 @@ public class BlockBuilderImpl<T> implements BlockBuilder<T> {
     }
     return null;
   }
+
+  /**
+   * Declares an inner class in a block. The class is written straight into the enclosing block's output.
+   */
+  private static class InnerClassStatement implements Statement, Renderable {
+    private final InnerClass innerClass;
+
+    private InnerClassStatement(final InnerClass innerClass) {
+      this.innerClass = innerClass;
+    }
+
+    @Override
+    public String generate(final Context context) {
+      return innerClass.generate(context);
+    }
+
+    @Override
+    public void renderTo(final Appendable appendable, final Context context) throws IOException {
+      innerClass.renderTo(appendable, context);
+    }
+
+    @Override
+    public MetaClass getType() {
+      return innerClass.getType();
+    }
+  }
 }
\ No newline at end of file
@@ -43,6 +43,7 @@ import org.jboss.errai.codegen.meta.impl.build.BuildMetaField;
 import org.jboss.errai.codegen.meta.impl.build.BuildMetaMethod;
 import org.jboss.errai.codegen.util.GenUtil;
 
+import java.io.IOException;
 import java.lang.annotation.Annotation;
 import java.util.List;
 
@@ -499,4 +500,17 @@ public class ClassBuilder<T extends ClassStructureBuilder<T>> implements
       return null;
     }
   }
+
+  @Override
+  public void renderTo(final Appendable appendable) throws IOException {
+    try {
+      classDefinition.renderTo(appendable, classDefinition.getContext());
+    }
+    catch (IOException e) {
+      throw e;
+    }
+    catch (Throwable t) {
+      GenUtil.throwIfUnhandled("error generating class: " + classDefinition.getFullyQualifiedName(), t);
+    }
+  }
 }
\ No newline at end of file
@@ -29,7 +29,6 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 import javax.enterprise.util.TypeLiteral;
 
@@ -40,6 +39,7 @@ import org.jboss.errai.codegen.Parameter;
 import org.jboss.errai.codegen.Statement;
 import org.jboss.errai.codegen.ThrowsDeclaration;
 import org.jboss.errai.codegen.builder.callstack.LoadClassReference;
+import org.jboss.errai.codegen.meta.impl.AbstractMetaClass;
 import org.jboss.errai.codegen.meta.impl.build.BuildMetaClass;
 import org.jboss.errai.codegen.meta.impl.build.BuildMetaConstructor;
 import org.jboss.errai.codegen.meta.impl.build.BuildMetaField;
@@ -49,6 +49,7 @@ import org.jboss.errai.codegen.meta.impl.build.ShadowBuildMetaField;
 import org.jboss.errai.codegen.meta.impl.build.ShadowBuildMetaMethod;
 import org.jboss.errai.codegen.meta.impl.java.JavaReflectionClass;
 import org.jboss.errai.codegen.util.ClassChangeUtil;
+import org.jboss.errai.codegen.util.ConcurrentCache;
 import org.jboss.errai.codegen.util.EmptyStatement;
 import org.jboss.errai.codegen.util.GenUtil;
 import org.jboss.errai.common.metadata.RebindUtils;
@@ -59,8 +60,16 @@ import org.mvel2.DataConversion;
  * @author Mike Brock <cbrock@redhat.com>
  */
 public final class MetaClassFactory {
-  private static final Map<String, MetaClass> PRIMARY_CLASS_CACHE = new ConcurrentHashMap<String, MetaClass>(1000);
-  private static final Map<String, MetaClass> ERASED_CLASS_CACHE = new ConcurrentHashMap<String, MetaClass>(1000);
+  /**
+   * The maximum number of erased class entries to retain. Unbounded if not specified. The primary class cache is never
+   * bounded as it is used to enumerate all known classes (see {@link #getAllCachedClasses()}).
+   */
+  public static final String ERASED_CACHE_SIZE_PROPERTY = "errai.codegen.erased_class_cache_size";
+
+  private static final ConcurrentCache<String, MetaClass> PRIMARY_CLASS_CACHE
+      = new ConcurrentCache<String, MetaClass>("PrimaryClassCache");
+  private static final ConcurrentCache<String, MetaClass> ERASED_CLASS_CACHE
+      = new ConcurrentCache<String, MetaClass>("ErasedClassCache", Integer.getInteger(ERASED_CACHE_SIZE_PROPERTY, 0));
 
   static {
     DataConversion.addConversionHandler(Class.class, new ConversionHandler() {
@@ -185,25 +194,27 @@ public final class MetaClassFactory {
   }
 
   private static MetaClass createOrGet(final String fullyQualifiedClassName) {
-    if (!ERASED_CLASS_CACHE.containsKey(fullyQualifiedClassName)) {
+    final MetaClass cached = ERASED_CLASS_CACHE.get(fullyQualifiedClassName);
+    if (cached == null) {
       return createOrGet(fullyQualifiedClassName, false);
     }
 
-    return ERASED_CLASS_CACHE.get(fullyQualifiedClassName);
+    return cached;
   }
 
   private static MetaClass createOrGet(final TypeLiteral type) {
     if (type == null)
       return null;
 
-    if (!ERASED_CLASS_CACHE.containsKey(type.toString())) {
+    final MetaClass cached = ERASED_CLASS_CACHE.get(type.toString());
+    if (cached == null) {
       final MetaClass gwtClass = JavaReflectionClass.newUncachedInstance(type);
 
       addLookups(type, gwtClass);
       return gwtClass;
     }
 
-    return ERASED_CLASS_CACHE.get(type.toString());
+    return cached;
   }
 
   private static MetaClass createOrGet(final String clsName, final boolean erased) {
@@ -214,13 +225,15 @@ public final class MetaClassFactory {
     if (erased) {
       mCls = ERASED_CLASS_CACHE.get(clsName);
       if (mCls == null) {
-        ERASED_CLASS_CACHE.put(clsName, mCls = JavaReflectionClass.newUncachedInstance(loadClass(clsName), erased));
+        mCls = ERASED_CLASS_CACHE.putIfAbsent(clsName,
+            JavaReflectionClass.newUncachedInstance(loadClass(clsName), erased));
       }
     }
     else {
       mCls = PRIMARY_CLASS_CACHE.get(clsName);
       if (mCls == null) {
-        PRIMARY_CLASS_CACHE.put(clsName, mCls = JavaReflectionClass.newUncachedInstance(loadClass(clsName), erased));
+        mCls = PRIMARY_CLASS_CACHE.putIfAbsent(clsName,
+            JavaReflectionClass.newUncachedInstance(loadClass(clsName), erased));
       }
     }
     return mCls;
@@ -235,19 +248,20 @@ public final class MetaClassFactory {
         return JavaReflectionClass.newUncachedInstance(cls, type);
       }
 
-      if (!ERASED_CLASS_CACHE.containsKey(cls.getName())) {
+      final MetaClass cached = ERASED_CLASS_CACHE.get(cls.getName());
+      if (cached == null) {
         final MetaClass javaReflectionClass = JavaReflectionClass.newUncachedInstance(cls, type);
         addLookups(cls, javaReflectionClass);
         return javaReflectionClass;
       }
 
-      return ERASED_CLASS_CACHE.get(cls.getName());
+      return cached;
     }
     else {
       MetaClass mCls;
       mCls = PRIMARY_CLASS_CACHE.get(cls.getName());
       if (mCls == null) {
-        PRIMARY_CLASS_CACHE.put(cls.getName(), mCls = JavaReflectionClass.newUncachedInstance(cls));
+        mCls = PRIMARY_CLASS_CACHE.putIfAbsent(cls.getName(), JavaReflectionClass.newUncachedInstance(cls));
       }
       return mCls;
     }
@@ -515,9 +529,21 @@ public final class MetaClassFactory {
   public static void emptyCache() {
     PRIMARY_CLASS_CACHE.clear();
     ERASED_CLASS_CACHE.clear();
+    PRIMARY_CLASS_CACHE.resetStatistics();
+    ERASED_CLASS_CACHE.resetStatistics();
+    AbstractMetaClass.resetAssignabilityCacheStatistics();
   }
 
   public static Collection<MetaClass> getAllCachedClasses() {
-    return Collections.unmodifiableCollection(PRIMARY_CLASS_CACHE.values());
+    return PRIMARY_CLASS_CACHE.values();
+  }
+
+  /**
+   * Returns a human readable summary of the size of the meta class caches, and their hit rate if
+   * {@value ConcurrentCache#STATISTICS_PROPERTY} is enabled, suitable for logging at the end of a generator run.
+   */
+  public static String getCacheStatistics() {
+    final String assignability = AbstractMetaClass.getAssignabilityCacheStatistics();
+    return PRIMARY_CLASS_CACHE + ", " + ERASED_CLASS_CACHE + (assignability.length() == 0 ? "" : ", " + assignability);
   }
 }
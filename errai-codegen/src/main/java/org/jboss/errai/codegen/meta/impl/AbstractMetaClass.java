@@ -21,7 +21,6 @@ import static org.jboss.errai.codegen.util.GenUtil.getArrayDimensions;
 
 import java.beans.Introspector;
 import java.lang.annotation.Annotation;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -29,6 +28,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.jboss.errai.codegen.meta.BeanDescriptor;
 import org.jboss.errai.codegen.meta.MetaClass;
@@ -40,6 +40,7 @@ import org.jboss.errai.codegen.meta.MetaParameter;
 import org.jboss.errai.codegen.meta.MetaParameterizedType;
 import org.jboss.errai.codegen.meta.MetaType;
 import org.jboss.errai.codegen.meta.MetaWildcardType;
+import org.jboss.errai.codegen.util.ConcurrentCache;
 import org.jboss.errai.codegen.util.GenUtil;
 import org.mvel2.util.NullType;
 import org.mvel2.util.ReflectionUtil;
@@ -284,52 +285,6 @@ public abstract class AbstractMetaClass<T> extends MetaClass {
     return staticMethodCache = methods.toArray(new MetaMethod[methods.size()]);
   }
 
-  private static final Map<MetaMethod[], Method[]> METAMETHOD_TO_METHOD_CACHE = new HashMap<MetaMethod[], Method[]>();
-
-  private static Method[] fromMetaMethod(final MetaMethod[] methods) {
-    Method[] result = METAMETHOD_TO_METHOD_CACHE.get(methods);
-    if (result == null) {
-
-      if (methods == null || methods.length == 0) {
-        return new Method[0];
-      }
-
-      final List<Method> staticMethods = new ArrayList<Method>();
-
-      for (final MetaMethod m : methods) {
-        final Method javaMethod = getJavaMethodFromMetaMethod(m);
-        if (javaMethod != null)
-          staticMethods.add(javaMethod);
-      }
-
-      result = staticMethods.toArray(new Method[staticMethods.size()]);
-      METAMETHOD_TO_METHOD_CACHE.put(methods, result);
-    }
-    return result;
-  }
-
-  private static Method getJavaMethodFromMetaMethod(final MetaMethod method) {
-    final Class<?> declaring = method.getDeclaringClass().asClass();
-    final Class<?>[] parms = getParmTypes(method.getParameters());
-
-    try {
-      return declaring.getMethod(method.getName(), parms);
-    }
-    catch (NoSuchMethodException e) {
-      return null;
-    }
-  }
-
-  private static Class<?>[] getParmTypes(final MetaParameter[] parameters) {
-    final List<Class<?>> parmTypes = new ArrayList<Class<?>>();
-
-    for (final MetaParameter parameter : parameters) {
-      parmTypes.add(parameter.getType().asClass());
-    }
-
-    return parmTypes.toArray(new Class<?>[parmTypes.size()]);
-  }
-
   @Override
   public MetaConstructor getBestMatchingConstructor(final Class... parameters) {
     return getBestMatchingConstructor(MetaClassFactory.fromClassArray(parameters));
@@ -433,13 +388,72 @@ public abstract class AbstractMetaClass<T> extends MetaClass {
     return _hashString;
   }
 
-  private final Map<MetaClass, Boolean> ASSIGNABLE_CACHE = new HashMap<MetaClass, Boolean>();
+  /**
+   * The maximum number of assignability results each meta class retains. Without a bound, the caches of all classes in
+   * a large module can grow to O(types&sup2;) entries. Defaults to 256.
+   */
+  public static final String ASSIGNABLE_CACHE_SIZE_PROPERTY = "errai.codegen.assignable_cache_size";
+
+  private static final int ASSIGNABLE_CACHE_SIZE = Integer.getInteger(ASSIGNABLE_CACHE_SIZE_PROPERTY, 256);
+
+  /**
+   * The caches of the individual meta classes never record statistics themselves. If statistics are enabled, the hits
+   * and misses of all of them are added up here instead.
+   */
+  private final ConcurrentCache<MetaClass, Boolean> ASSIGNABLE_CACHE
+      = new ConcurrentCache<MetaClass, Boolean>("AssignabilityCache", ASSIGNABLE_CACHE_SIZE, false, 16);
+
+  private static volatile boolean assignableCacheStatistics = Boolean.getBoolean(ConcurrentCache.STATISTICS_PROPERTY);
+  private static final AtomicLong ASSIGNABLE_CACHE_HITS = new AtomicLong();
+  private static final AtomicLong ASSIGNABLE_CACHE_MISSES = new AtomicLong();
+
+  /**
+   * Turns the recording of assignability cache hits and misses on or off. Recording is off by default, unless the
+   * {@value ConcurrentCache#STATISTICS_PROPERTY} system property is set to true.
+   */
+  public static void setAssignabilityCacheStatisticsEnabled(final boolean enabled) {
+    assignableCacheStatistics = enabled;
+  }
+
+  public static boolean isAssignabilityCacheStatisticsEnabled() {
+    return assignableCacheStatistics;
+  }
+
+  public static long getAssignabilityCacheHitCount() {
+    return ASSIGNABLE_CACHE_HITS.get();
+  }
+
+  public static long getAssignabilityCacheMissCount() {
+    return ASSIGNABLE_CACHE_MISSES.get();
+  }
+
+  public static void resetAssignabilityCacheStatistics() {
+    ASSIGNABLE_CACHE_HITS.set(0);
+    ASSIGNABLE_CACHE_MISSES.set(0);
+  }
+
+  /**
+   * Returns a summary of the hit rate of the assignability caches of all meta classes, or an empty string if
+   * statistics are not recorded.
+   */
+  public static String getAssignabilityCacheStatistics() {
+    if (!assignableCacheStatistics) {
+      return "";
+    }
+    final long hits = ASSIGNABLE_CACHE_HITS.get();
+    final long total = hits + ASSIGNABLE_CACHE_MISSES.get();
+    return "AssignabilityCache [hits=" + hits + ", misses=" + (total - hits)
+        + ", hitRate=" + (total == 0 ? 0d : Math.round(hits * 1000d / total) / 10d) + "%]";
+  }
 
   private static final MetaClass NULL_TYPE = MetaClassFactory.get(NullType.class);
 
   @Override
   public boolean isAssignableFrom(final MetaClass clazz) {
     Boolean assignable = ASSIGNABLE_CACHE.get(clazz);
+    if (assignableCacheStatistics) {
+      (assignable == null ? ASSIGNABLE_CACHE_MISSES : ASSIGNABLE_CACHE_HITS).incrementAndGet();
+    }
     if (assignable != null) {
       return assignable;
     }
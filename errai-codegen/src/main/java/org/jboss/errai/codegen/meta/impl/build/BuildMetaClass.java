@@ -16,6 +16,7 @@
 
 package org.jboss.errai.codegen.meta.impl.build;
 
+import java.io.IOException;
 import java.lang.annotation.Annotation;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -28,6 +29,7 @@ import org.jboss.errai.codegen.Comment;
 import org.jboss.errai.codegen.Context;
 import org.jboss.errai.codegen.DefParameters;
 import org.jboss.errai.codegen.InnerClass;
+import org.jboss.errai.codegen.Renderable;
 import org.jboss.errai.codegen.Variable;
 import org.jboss.errai.codegen.builder.Builder;
 import org.jboss.errai.codegen.builder.callstack.LoadClassReference;
@@ -47,7 +49,7 @@ import org.jboss.errai.codegen.util.PrettyPrinter;
 /**
  * @author Mike Brock <cbrock@redhat.com>
  */
-public class BuildMetaClass extends AbstractMetaClass<Object> implements Builder {
+public class BuildMetaClass extends AbstractMetaClass<Object> implements Builder, Renderable {
   private Context context;
 
   private final String className;
@@ -567,7 +569,22 @@ public class BuildMetaClass extends AbstractMetaClass<Object> implements Builder
   public String toJavaString(final Context context) {
     if (generatedCache != null) return generatedCache;
 
-    final StringBuilder buf = new StringBuilder(512);
+    return generatedCache = GenUtil.renderToString(this, context, 4096);
+  }
+
+  /**
+   * Writes the source of this class to the specified appendable. All members are rendered into a single buffer which
+   * is then formatted directly into the appendable. Unlike {@link #toJavaString(Context)}, the rendered source is not
+   * retained by this class.
+   */
+  @Override
+  public void renderTo(final Appendable appendable, final Context context) throws IOException {
+    if (generatedCache != null) {
+      appendable.append(generatedCache);
+      return;
+    }
+
+    final StringBuilder buf = new StringBuilder(4096);
 
     if (classComment != null) {
       buf.append(new Comment(classComment).generate(null)).append("\n");
@@ -661,7 +678,7 @@ public class BuildMetaClass extends AbstractMetaClass<Object> implements Builder
       buf.append("\n}\n");
     }
 
-    buf.append(membersToString());
+    appendMembers(buf);
 
     final StringBuilder headerBuffer = new StringBuilder(128);
 
@@ -689,7 +706,7 @@ public class BuildMetaClass extends AbstractMetaClass<Object> implements Builder
       }
     }
 
-    return generatedCache = PrettyPrinter.prettyPrintJava(headerBuffer.toString() + buf.append("}\n").toString());
+    PrettyPrinter.prettyPrintJava(buf.insert(0, headerBuffer).append("}\n"), appendable);
   }
 
   private List<Builder> diffList(final List<? extends Builder> original,
@@ -702,6 +719,16 @@ public class BuildMetaClass extends AbstractMetaClass<Object> implements Builder
 
   public String membersToString() {
     final StringBuilder buf = new StringBuilder(512);
+    try {
+      appendMembers(buf);
+    }
+    catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    return buf.toString();
+  }
+
+  private void appendMembers(final StringBuilder buf) throws IOException {
 
     List<Builder> toBuild = new ArrayList<Builder>(fields);
     final List<Builder> toIterate = new ArrayList<Builder>(toBuild);
@@ -739,23 +766,23 @@ public class BuildMetaClass extends AbstractMetaClass<Object> implements Builder
       }
     }
 
-    buf.append(fieldRenderBuffer.toString());
+    buf.append(fieldRenderBuffer);
 
     if (!fields.isEmpty())
       buf.append("\n");
 
     final Iterator<InnerClass> innerClassIterator = innerClasses.iterator();
     while (innerClassIterator.hasNext()) {
-      buf.append(innerClassIterator.next().generate(context));
+      innerClassIterator.next().renderTo(buf, context);
       if (innerClassIterator.hasNext()) buf.append("\n");
     }
 
     if (!innerClasses.isEmpty())
       buf.append("\n");
 
-    final Iterator<? extends Builder> constructorIterator = constructors.iterator();
+    final Iterator<BuildMetaConstructor> constructorIterator = constructors.iterator();
     while (constructorIterator.hasNext()) {
-      buf.append(constructorIterator.next().toJavaString());
+      constructorIterator.next().renderTo(buf, context);
       if (constructorIterator.hasNext())
         buf.append("\n");
     }
@@ -763,13 +790,12 @@ public class BuildMetaClass extends AbstractMetaClass<Object> implements Builder
     if (!constructors.isEmpty())
       buf.append("\n");
 
-    final Iterator<? extends Builder> methodsIterator = methods.iterator();
+    final Iterator<BuildMetaMethod> methodsIterator = methods.iterator();
     while (methodsIterator.hasNext()) {
-      buf.append(methodsIterator.next().toJavaString());
+      methodsIterator.next().renderTo(buf, context);
       if (methodsIterator.hasNext())
         buf.append("\n");
     }
-    return buf.toString();
   }
 
 
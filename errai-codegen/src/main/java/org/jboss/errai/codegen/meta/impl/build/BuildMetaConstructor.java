@@ -20,6 +20,7 @@ import org.jboss.errai.codegen.Comment;
 import org.jboss.errai.codegen.Context;
 import org.jboss.errai.codegen.DefParameters;
 import org.jboss.errai.codegen.Parameter;
+import org.jboss.errai.codegen.Renderable;
 import org.jboss.errai.codegen.Statement;
 import org.jboss.errai.codegen.Variable;
 import org.jboss.errai.codegen.builder.Builder;
@@ -32,6 +33,7 @@ import org.jboss.errai.codegen.meta.MetaType;
 import org.jboss.errai.codegen.meta.MetaTypeVariable;
 import org.jboss.errai.codegen.util.GenUtil;
 
+import java.io.IOException;
 import java.lang.annotation.Annotation;
 import java.util.ArrayList;
 import java.util.List;
@@ -40,7 +42,7 @@ import java.util.List;
  * @author Mike Brock <cbrock@redhat.com>
  * @author Christian Sadilek <csadilek@redhat.com>
  */
-public class BuildMetaConstructor extends MetaConstructor implements Builder {
+public class BuildMetaConstructor extends MetaConstructor implements Builder, Renderable {
   private final BuildMetaClass declaringClass;
   private Statement body;
 
@@ -259,7 +261,17 @@ public class BuildMetaConstructor extends MetaConstructor implements Builder {
   public String toJavaString() {
     if (generatedCache != null) return generatedCache;
 
-    final Context context = Context.create(declaringClass.getContext());
+    return generatedCache = GenUtil.renderToString(this, declaringClass.getContext(), 512);
+  }
+
+  @Override
+  public void renderTo(final Appendable appendable, final Context parentContext) throws IOException {
+    if (generatedCache != null) {
+      appendable.append(generatedCache);
+      return;
+    }
+
+    final Context context = Context.create(parentContext);
     
     for (final Parameter p : defParameters.getParameters()) {
       context.addVariable(Variable.create(p.getName(), p.getType()));
@@ -271,13 +283,13 @@ public class BuildMetaConstructor extends MetaConstructor implements Builder {
       build.append(new Comment(constructorComment).generate(null)).append('\n');
     }
 
-    return generatedCache =
-            build.append(scope.getCanonicalName())
+    appendable.append(build.append(scope.getCanonicalName())
             .append(" ")
             .append(declaringClass.getName())
             .append(defParameters.generate(context))
-            .append(" {\n").append(body.generate(context)).append("\n}\n")
-            .toString();
+            .append(" {\n"));
+    GenUtil.renderTo(body, appendable, context);
+    appendable.append("\n}\n");
   }
 
   @Override
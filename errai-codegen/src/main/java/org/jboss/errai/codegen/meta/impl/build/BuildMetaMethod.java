@@ -23,6 +23,7 @@ import org.jboss.errai.codegen.DefModifiers;
 import org.jboss.errai.codegen.DefParameters;
 import org.jboss.errai.codegen.Modifier;
 import org.jboss.errai.codegen.Parameter;
+import org.jboss.errai.codegen.Renderable;
 import org.jboss.errai.codegen.ThrowsDeclaration;
 import org.jboss.errai.codegen.Variable;
 import org.jboss.errai.codegen.builder.Builder;
@@ -35,7 +36,9 @@ import org.jboss.errai.codegen.meta.MetaMethod;
 import org.jboss.errai.codegen.meta.MetaParameter;
 import org.jboss.errai.codegen.meta.MetaType;
 import org.jboss.errai.codegen.meta.MetaTypeVariable;
+import org.jboss.errai.codegen.util.GenUtil;
 
+import java.io.IOException;
 import java.lang.annotation.Annotation;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -45,7 +48,7 @@ import java.util.List;
  * @author Mike Brock <cbrock@redhat.com>
  * @author Christian Sadilek <csadilek@redhat.com>
  */
-public class BuildMetaMethod extends MetaMethod implements Builder {
+public class BuildMetaMethod extends MetaMethod implements Builder, Renderable {
   private BuildMetaClass declaringClass;
   private BlockStatement body;
 
@@ -303,7 +306,12 @@ public class BuildMetaMethod extends MetaMethod implements Builder {
 
   @Override
   public String toJavaString() {
-    final Context context = Context.create(declaringClass.getContext());
+    return GenUtil.renderToString(this, declaringClass.getContext(), 256);
+  }
+
+  @Override
+  public void renderTo(final Appendable appendable, final Context parentContext) throws IOException {
+    final Context context = Context.create(parentContext);
 
     for (final Parameter p : defParameters.getParameters()) {
       context.addVariable(Variable.create(p.getName(), p.getType()));
@@ -335,16 +343,18 @@ public class BuildMetaMethod extends MetaMethod implements Builder {
     }
 
     if (modifiers.hasModifier(Modifier.Abstract) || getDeclaringClass().isInterface()) {
-      buf.append(";");
+      appendable.append(buf.append(";"));
     }
     else if (modifiers.hasModifier(Modifier.JSNI)) {
-      buf.append(" /*-{\n").append(body.generate(context)).append("\n}-*/;\n");
+      appendable.append(buf.append(" /*-{\n"));
+      GenUtil.renderTo(body, appendable, context);
+      appendable.append("\n}-*/;\n");
     }
     else {
-      buf.append(" {\n").append(body.generate(context)).append("\n}\n");
+      appendable.append(buf.append(" {\n"));
+      GenUtil.renderTo(body, appendable, context);
+      appendable.append("\n}\n");
     }
-
-    return buf.toString();
   }
 
   public String toString() {
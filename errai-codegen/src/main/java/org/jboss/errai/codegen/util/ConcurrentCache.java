@@ -0,0 +1,242 @@
+/*
+ * Copyright 2012 JBoss, by Red Hat, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.codegen.util;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A thread-safe cache used by the code generator meta model. The cache is unbounded by default. If a maximum size is
+ * specified, the oldest entries are evicted in insertion order once the bound is exceeded.
+ * <p>
+ * Hit, miss and eviction counts are only recorded if requested, or if the {@value #STATISTICS_PROPERTY} system
+ * property is set to true, so that lookups don't contend on shared counters in normal generator runs.
+ */
+public class ConcurrentCache<K, V> {
+  /**
+   * Enables the recording of hit, miss and eviction counts for all caches that don't specify otherwise.
+   */
+  public static final String STATISTICS_PROPERTY = "errai.codegen.cache_statistics";
+
+  private static final boolean STATISTICS_ENABLED = Boolean.getBoolean(STATISTICS_PROPERTY);
+
+  private final String name;
+  private final int maximumSize;
+  private final ConcurrentMap<K, V> cache;
+  private final Queue<K> insertionOrder;
+
+  /**
+   * Null if statistics are not recorded.
+   */
+  private final AtomicLong hits;
+  private final AtomicLong misses;
+  private final AtomicLong evictions;
+
+  /**
+   * Creates an unbounded cache.
+   *
+   * @param name
+   *     the name of the cache, used for reporting.
+   */
+  public ConcurrentCache(final String name) {
+    this(name, 0);
+  }
+
+  /**
+   * @param name
+   *     the name of the cache, used for reporting.
+   * @param maximumSize
+   *     the maximum number of entries to retain, or a value less than 1 for an unbounded cache.
+   */
+  public ConcurrentCache(final String name, final int maximumSize) {
+    this(name, maximumSize, STATISTICS_ENABLED);
+  }
+
+  /**
+   * @param name
+   *     the name of the cache, used for reporting.
+   * @param maximumSize
+   *     the maximum number of entries to retain, or a value less than 1 for an unbounded cache.
+   * @param recordStatistics
+   *     true if hit, miss and eviction counts should be recorded.
+   */
+  public ConcurrentCache(final String name, final int maximumSize, final boolean recordStatistics) {
+    this(name, maximumSize, recordStatistics, 256);
+  }
+
+  /**
+   * @param name
+   *     the name of the cache, used for reporting.
+   * @param maximumSize
+   *     the maximum number of entries to retain, or a value less than 1 for an unbounded cache.
+   * @param recordStatistics
+   *     true if hit, miss and eviction counts should be recorded.
+   * @param initialCapacity
+   *     the initial capacity of the cache.
+   */
+  public ConcurrentCache(final String name, final int maximumSize, final boolean recordStatistics,
+                         final int initialCapacity) {
+    this.name = name;
+    this.maximumSize = maximumSize < 1 ? 0 : maximumSize;
+    this.cache = new ConcurrentHashMap<K, V>(this.maximumSize == 0 ? initialCapacity
+        : Math.min(this.maximumSize, initialCapacity));
+    this.insertionOrder = this.maximumSize == 0 ? null : new ConcurrentLinkedQueue<K>();
+    this.hits = recordStatistics ? new AtomicLong() : null;
+    this.misses = recordStatistics ? new AtomicLong() : null;
+    this.evictions = recordStatistics ? new AtomicLong() : null;
+  }
+
+  /**
+   * Returns the value cached for the specified key, recording a hit or a miss if statistics are enabled.
+   */
+  public V get(final K key) {
+    final V value = cache.get(key);
+    if (hits != null) {
+      if (value == null) {
+        misses.incrementAndGet();
+      }
+      else {
+        hits.incrementAndGet();
+      }
+    }
+    return value;
+  }
+
+  /**
+   * Returns true if a value is cached for the specified key. Does not affect the statistics.
+   */
+  public boolean containsKey(final K key) {
+    return cache.containsKey(key);
+  }
+
+  public void put(final K key, final V value) {
+    if (cache.put(key, value) == null) {
+      recordInsertion(key);
+    }
+  }
+
+  /**
+   * Caches the specified value unless a value is already cached for the key.
+   *
+   * @return the value that is cached for the key after this call completes.
+   */
+  public V putIfAbsent(final K key, final V value) {
+    final V existing = cache.putIfAbsent(key, value);
+    if (existing != null) {
+      return existing;
+    }
+    recordInsertion(key);
+    return value;
+  }
+
+  private void recordInsertion(final K key) {
+    if (insertionOrder == null)
+      return;
+
+    insertionOrder.add(key);
+    while (cache.size() > maximumSize) {
+      final K eldest = insertionOrder.poll();
+      if (eldest == null)
+        break;
+
+      if (cache.remove(eldest) != null && evictions != null) {
+        evictions.incrementAndGet();
+      }
+    }
+  }
+
+  public Collection<V> values() {
+    return Collections.unmodifiableCollection(cache.values());
+  }
+
+  public int size() {
+    return cache.size();
+  }
+
+  public void clear() {
+    cache.clear();
+    if (insertionOrder != null) {
+      insertionOrder.clear();
+    }
+  }
+
+  public void resetStatistics() {
+    if (hits != null) {
+      hits.set(0);
+      misses.set(0);
+      evictions.set(0);
+    }
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public int getMaximumSize() {
+    return maximumSize;
+  }
+
+  public boolean isRecordingStatistics() {
+    return hits != null;
+  }
+
+  /**
+   * @return the number of lookups that found a value, or 0 if statistics are not recorded.
+   */
+  public long getHitCount() {
+    return hits == null ? 0 : hits.get();
+  }
+
+  /**
+   * @return the number of lookups that found no value, or 0 if statistics are not recorded.
+   */
+  public long getMissCount() {
+    return misses == null ? 0 : misses.get();
+  }
+
+  /**
+   * @return the number of evicted entries, or 0 if statistics are not recorded.
+   */
+  public long getEvictionCount() {
+    return evictions == null ? 0 : evictions.get();
+  }
+
+  /**
+   * @return the ratio of hits to total lookups, or 0 if there were no lookups or statistics are not recorded.
+   */
+  public double getHitRate() {
+    final long h = getHitCount();
+    final long total = h + getMissCount();
+    return total == 0 ? 0d : (double) h / total;
+  }
+
+  @Override
+  public String toString() {
+    return name + " [size=" + size()
+        + (maximumSize == 0 ? "" : ", max=" + maximumSize)
+        + (hits == null ? "" : ", hits=" + hits.get()
+        + ", misses=" + misses.get()
+        + ", evictions=" + evictions.get()
+        + ", hitRate=" + Math.round(getHitRate() * 1000d) / 10d + "%")
+        + "]";
+  }
+}
@@ -19,6 +19,7 @@ package org.jboss.errai.codegen.util;
 import org.jboss.errai.codegen.Context;
 import org.jboss.errai.codegen.DefModifiers;
 import org.jboss.errai.codegen.Modifier;
+import org.jboss.errai.codegen.Renderable;
 import org.jboss.errai.codegen.Statement;
 import org.jboss.errai.codegen.Variable;
 import org.jboss.errai.codegen.VariableReference;
@@ -42,6 +43,7 @@ import org.jboss.errai.codegen.meta.impl.java.JavaReflectionClass;
 import org.mvel2.DataConversion;
 import org.mvel2.util.NullType;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
@@ -684,4 +686,35 @@ public class GenUtil {
     outerBlame.setStackTrace(outerStackTrace.toArray(new StackTraceElement[outerStackTrace.size()]));
     innerBlame.initCause(outerBlame);
   }
-}
\ No newline at end of file
+
+  /**
+   * Writes the generated source of the specified statement to the appendable. Statements which implement
+   * {@link Renderable} write to the appendable directly; all others are rendered with
+   * {@link Statement#generate(Context)}.
+   */
+  public static void renderTo(final Statement statement, final Appendable appendable, final Context context)
+      throws IOException {
+    if (statement instanceof Renderable) {
+      ((Renderable) statement).renderTo(appendable, context);
+    }
+    else {
+      appendable.append(statement.generate(context));
+    }
+  }
+
+  /**
+   * Renders a {@link Renderable} into a String. Used to implement <tt>generate()</tt> and <tt>toJavaString()</tt> in
+   * terms of <tt>renderTo()</tt>.
+   */
+  public static String renderToString(final Renderable renderable, final Context context, final int sizeHint) {
+    final StringBuilder buf = new StringBuilder(sizeHint);
+    try {
+      renderable.renderTo(buf, context);
+    }
+    catch (IOException e) {
+      // cannot happen: StringBuilder does not throw IOException.
+      throw new RuntimeException(e);
+    }
+    return buf.toString();
+  }
+}
@@ -16,17 +16,42 @@
 
 package org.jboss.errai.codegen.util;
 
+import java.io.IOException;
+
 import org.mvel2.util.ParseTools;
 
 /**
  * @author Mike Brock <cbrock@redhat.com>
  */
 public class PrettyPrinter {
+  private static final char[] PADDING = new char[128];
+
+  static {
+    for (int i = 0; i < PADDING.length; i++) {
+      PADDING[i] = ' ';
+    }
+  }
+
   public static String prettyPrintJava(final String input) {
-    final StringBuilder out = new StringBuilder(2048);
-    StringBuilder lineBuffer = new StringBuilder(120);
+    final StringBuilder out = new StringBuilder(input.length() + (input.length() >> 2));
+    try {
+      prettyPrintJava(input, out);
+    }
+    catch (IOException e) {
+      // cannot happen: StringBuilder does not throw IOException.
+      throw new RuntimeException(e);
+    }
+    return out.toString();
+  }
 
-    final char[] expr = input.toCharArray();
+  /**
+   * Formats the specified Java source and writes the result to the specified appendable. This avoids materializing the
+   * formatted source as a String, which matters for very large generated classes.
+   */
+  public static void prettyPrintJava(final CharSequence input, final Appendable appendable) throws IOException {
+    final char[] expr = toCharArray(input);
+    final StringBuilder out = new StringBuilder(expr.length + (expr.length >> 2));
+    final StringBuilder lineBuffer = new StringBuilder(120);
 
     int indentLevel = 0;
     final int statementIndent = 0;
@@ -35,12 +60,13 @@ public class PrettyPrinter {
       switch (expr[i]) {
         case '{':
           writeToBuffer(out, lineBuffer.append("{ "), indentLevel++, statementIndent);
-          lineBuffer = new StringBuilder(120);
+          lineBuffer.setLength(0);
           break;
 
         case '}':
           writeToBuffer(out, lineBuffer, --indentLevel, statementIndent);
-          lineBuffer = new StringBuilder(120).append(" }");
+          lineBuffer.setLength(0);
+          lineBuffer.append(" }");
           break;
 
         case '"':
@@ -53,7 +79,7 @@ public class PrettyPrinter {
         case '\n':
           writeToBuffer(out, lineBuffer, indentLevel, statementIndent);
           out.append('\n');
-          lineBuffer = new StringBuilder(120);
+          lineBuffer.setLength(0);
           break;
 
         case ',':
@@ -76,22 +102,44 @@ public class PrettyPrinter {
       writeToBuffer(out, lineBuffer, indentLevel, statementIndent);
     }
 
-    return compactinate(out.toString());
+    compactinate(out, appendable);
+  }
+
+  private static char[] toCharArray(final CharSequence input) {
+    if (input instanceof String) {
+      return ((String) input).toCharArray();
+    }
+    else if (input instanceof StringBuilder) {
+      final char[] chars = new char[input.length()];
+      ((StringBuilder) input).getChars(0, chars.length, chars, 0);
+      return chars;
+    }
+    else {
+      return input.toString().toCharArray();
+    }
   }
 
   private static void writeToBuffer(final StringBuilder out, final StringBuilder lineBuffer,
                                     final int indentLevel, final int statementIndent) {
-    final String trimmedLineBuffer = lineBuffer.toString().trim();
+    int start = 0;
+    int end = lineBuffer.length();
+    while (start < end && lineBuffer.charAt(start) <= ' ') {
+      start++;
+    }
+    while (end > start && lineBuffer.charAt(end - 1) <= ' ') {
+      end--;
+    }
 
-    if (trimmedLineBuffer.isEmpty()) {
+    if (start == end) {
       return;
     }
 
-    out.append(pad((indentLevel + statementIndent) * 2)).append(trimmedLineBuffer);
+    pad(out, (indentLevel + statementIndent) * 2);
+    out.append(lineBuffer, start, end);
   }
 
-  private static String compactinate(final String str) {
-    final char[] expr = str.toCharArray();
+  private static void compactinate(final StringBuilder str, final Appendable appendable) throws IOException {
+    final char[] expr = toCharArray(str);
     final StringBuilder buf = new StringBuilder(expr.length);
     boolean newLine = false;
     for (int i = 0; i < expr.length; i++) {
@@ -119,17 +167,24 @@ public class PrettyPrinter {
           }
       }
     }
-    return buf.toString().trim();
-  }
 
-  private static String pad(final int amount) {
-    if (amount <= 0) return "";
+    int start = 0;
+    int end = buf.length();
+    while (start < end && buf.charAt(start) <= ' ') {
+      start++;
+    }
+    while (end > start && buf.charAt(end - 1) <= ' ') {
+      end--;
+    }
+    appendable.append(buf, start, end);
+  }
 
-    final char[] pad = new char[amount];
-    for (int i = 0; i < amount; i++) {
-      pad[i] = ' ';
+  private static void pad(final StringBuilder out, int amount) {
+    while (amount > 0) {
+      final int n = Math.min(amount, PADDING.length);
+      out.append(PADDING, 0, n);
+      amount -= n;
     }
-    return new String(pad);
   }
 
   public static int skipWhitespace(final char[] expr, int cursor) {
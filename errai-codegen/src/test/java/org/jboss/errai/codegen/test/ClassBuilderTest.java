@@ -20,6 +20,7 @@ import static org.jboss.errai.codegen.test.ClassBuilderTestResult.*;
 import static org.junit.Assert.fail;
 
 import java.io.Serializable;
+import java.io.StringWriter;
 import java.lang.annotation.Annotation;
 
 import org.jboss.errai.codegen.InnerClass;
@@ -94,6 +95,47 @@ public class ClassBuilderTest extends AbstractCodegenTest {
             CLASS_WITH_METHOD_USING_INNER_CLASS, cls);
   }
 
+  @Test
+  public void testRenderClassImplementingInterfaceToWriter() throws Exception {
+    final StringWriter writer = new StringWriter();
+    ClassBuilder.define("org.foo.Bar")
+            .publicScope()
+            .implementsInterface(Serializable.class)
+            .body()
+            .privateField("name", String.class)
+            .finish()
+            .renderTo(writer);
+
+    assertEquals("failed to render class definition implementing an interface",
+            CLASS_IMPLEMENTING_INTERFACE, writer.toString());
+  }
+
+  @Test
+  public void testRenderClassWithMethodUsingInnerClassToWriter() throws Exception {
+    final ClassStructureBuilder<?> innerClass = ClassBuilder.define("Inner")
+            .packageScope()
+            .implementsInterface(Serializable.class)
+            .body()
+            .privateField("name", String.class)
+            .finish()
+            .publicMethod(void.class, "setName", Parameter.of(String.class, "name", true))
+            .append(Stmt.loadClassMember("name").assignValue(Variable.get("name")))
+            .finish();
+
+    final StringWriter writer = new StringWriter();
+    ClassBuilder.define("foo.bar.Baz")
+            .publicScope()
+            .body()
+            .publicMethod(void.class, "someMethod")
+            .append(new InnerClass(innerClass.getClassDefinition()))
+            .append(Stmt.newObject(innerClass.getClassDefinition()))
+            .finish()
+            .renderTo(writer);
+
+    assertEquals("failed to render class with method using inner class",
+            CLASS_WITH_METHOD_USING_INNER_CLASS, writer.toString());
+  }
+
   @Test
   public void testDefineClassWithAccessorMethods() {
     final String cls = ClassBuilder.define("org.foo.Foo")
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2012 JBoss, by Red Hat, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.codegen.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Serializable;
+
+import org.jboss.errai.codegen.meta.MetaClass;
+import org.jboss.errai.codegen.meta.MetaClassFactory;
+import org.jboss.errai.codegen.meta.impl.AbstractMetaClass;
+import org.jboss.errai.codegen.util.ConcurrentCache;
+import org.junit.Test;
+
+public class ConcurrentCacheTest {
+
+  @Test
+  public void testHitAndMissStatistics() {
+    final ConcurrentCache<String, String> cache = new ConcurrentCache<String, String>("test", 0, true);
+
+    assertNull(cache.get("a"));
+    cache.put("a", "A");
+    assertEquals("A", cache.get("a"));
+    assertEquals("A", cache.get("a"));
+
+    assertEquals(2, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+    assertEquals(2d / 3d, cache.getHitRate(), 0.0001d);
+  }
+
+  @Test
+  public void testPutIfAbsentReturnsExistingValue() {
+    final ConcurrentCache<String, String> cache = new ConcurrentCache<String, String>("test");
+    final String first = new String("first");
+
+    assertSame(first, cache.putIfAbsent("k", first));
+    assertSame(first, cache.putIfAbsent("k", "second"));
+    assertEquals(1, cache.size());
+  }
+
+  @Test
+  public void testBoundedCacheEvictsOldestEntries() {
+    final ConcurrentCache<Integer, Integer> cache = new ConcurrentCache<Integer, Integer>("test", 3, true);
+
+    for (int i = 0; i < 5; i++) {
+      cache.put(i, i);
+    }
+
+    assertEquals(3, cache.size());
+    assertEquals(2, cache.getEvictionCount());
+    assertFalse(cache.containsKey(0));
+    assertFalse(cache.containsKey(1));
+    assertTrue(cache.containsKey(4));
+  }
+
+  @Test
+  public void testUnboundedCacheNeverEvicts() {
+    final ConcurrentCache<Integer, Integer> cache = new ConcurrentCache<Integer, Integer>("test", 0, true);
+
+    for (int i = 0; i < 5000; i++) {
+      cache.put(i, i);
+    }
+
+    assertEquals(5000, cache.size());
+    assertEquals(0, cache.getEvictionCount());
+  }
+
+  @Test
+  public void testStatisticsAreNotRecordedUnlessRequested() {
+    final ConcurrentCache<String, String> cache = new ConcurrentCache<String, String>("test", 1, false);
+
+    cache.put("a", "A");
+    assertEquals("A", cache.get("a"));
+    assertNull(cache.get("b"));
+    cache.put("b", "B");
+
+    assertFalse(cache.isRecordingStatistics());
+    assertEquals(0, cache.getHitCount());
+    assertEquals(0, cache.getMissCount());
+    assertEquals(0, cache.getEvictionCount());
+    assertEquals(1, cache.size());
+  }
+
+  @Test
+  public void testAssignabilityCacheStatisticsCanBeEnabled() {
+    final boolean wasEnabled = AbstractMetaClass.isAssignabilityCacheStatisticsEnabled();
+    AbstractMetaClass.setAssignabilityCacheStatisticsEnabled(true);
+    try {
+      AbstractMetaClass.resetAssignabilityCacheStatistics();
+      final MetaClass serializable = MetaClassFactory.get(Serializable.class);
+      final MetaClass integer = MetaClassFactory.get(Integer.class);
+
+      final boolean first = serializable.isAssignableFrom(integer);
+      final long missesAfterFirst = AbstractMetaClass.getAssignabilityCacheMissCount();
+      final long hitsAfterFirst = AbstractMetaClass.getAssignabilityCacheHitCount();
+      assertTrue(missesAfterFirst > 0);
+
+      assertEquals(first, serializable.isAssignableFrom(integer));
+      assertEquals(hitsAfterFirst + 1, AbstractMetaClass.getAssignabilityCacheHitCount());
+      assertEquals(missesAfterFirst, AbstractMetaClass.getAssignabilityCacheMissCount());
+      assertTrue(MetaClassFactory.getCacheStatistics().contains("AssignabilityCache [hits="));
+
+      AbstractMetaClass.setAssignabilityCacheStatisticsEnabled(false);
+      serializable.isAssignableFrom(integer);
+      assertEquals(hitsAfterFirst + 1, AbstractMetaClass.getAssignabilityCacheHitCount());
+      assertFalse(MetaClassFactory.getCacheStatistics().contains("AssignabilityCache"));
+    }
+    finally {
+      AbstractMetaClass.setAssignabilityCacheStatisticsEnabled(wasEnabled);
+    }
+  }
+}
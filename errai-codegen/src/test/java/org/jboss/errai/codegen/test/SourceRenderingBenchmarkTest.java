@@ -0,0 +1,151 @@
+/*
+ * Copyright 2012 JBoss, by Red Hat, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.codegen.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jboss.errai.codegen.Parameter;
+import org.jboss.errai.codegen.Statement;
+import org.jboss.errai.codegen.builder.BlockBuilder;
+import org.jboss.errai.codegen.builder.ClassStructureBuilder;
+import org.jboss.errai.codegen.builder.impl.ClassBuilder;
+import org.jboss.errai.codegen.meta.impl.build.BuildMetaClass;
+import org.jboss.errai.codegen.util.Bool;
+import org.jboss.errai.codegen.util.Stmt;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Renders a large synthetic class (many methods with deeply nested blocks, similar in shape to the generated IOC
+ * bootstrapper) into a target buffer, once by appending the result of {@link BuildMetaClass#toJavaString()} and once
+ * through {@link BuildMetaClass#renderTo(Appendable, org.jboss.errai.codegen.Context)}, and compares the output, the
+ * time taken and the memory allocated by both.
+ */
+public class SourceRenderingBenchmarkTest extends AbstractCodegenTest {
+  private static final Logger log = LoggerFactory.getLogger(SourceRenderingBenchmarkTest.class);
+
+  private static final int METHODS = Integer.getInteger("errai.codegen.benchmark.methods", 200);
+  private static final int DEPTH = Integer.getInteger("errai.codegen.benchmark.depth", 8);
+  private static final int ROUNDS = Integer.getInteger("errai.codegen.benchmark.rounds", 5);
+
+  @Test
+  public void testRenderToMatchesToJavaStringAndAllocatesLess() throws IOException {
+    // warm up both paths, so neither is measured while it is being compiled
+    for (int i = 0; i < 2; i++) {
+      renderWithToJavaString(buildLargeClass(), new StringBuilder());
+      final BuildMetaClass warmUpClass = buildLargeClass();
+      warmUpClass.renderTo(new StringBuilder(), warmUpClass.getContext());
+    }
+
+    long stringTime = 0, streamTime = 0;
+    long stringAllocation = 0, streamAllocation = 0;
+    String stringOutput = null, streamOutput = null;
+
+    for (int round = 0; round < ROUNDS; round++) {
+      final BuildMetaClass stringClass = buildLargeClass();
+      final StringBuilder stringTarget = new StringBuilder();
+      long allocated = allocatedBytes();
+      long time = System.nanoTime();
+      renderWithToJavaString(stringClass, stringTarget);
+      stringTime += System.nanoTime() - time;
+      stringAllocation += allocatedBytes() - allocated;
+
+      final BuildMetaClass streamClass = buildLargeClass();
+      final StringBuilder streamTarget = new StringBuilder();
+      allocated = allocatedBytes();
+      time = System.nanoTime();
+      streamClass.renderTo(streamTarget, streamClass.getContext());
+      streamTime += System.nanoTime() - time;
+      streamAllocation += allocatedBytes() - allocated;
+
+      stringOutput = stringTarget.toString();
+      streamOutput = streamTarget.toString();
+      assertEquals("renderTo() must produce the same source as toJavaString()", stringOutput, streamOutput);
+    }
+
+    assertTrue(streamOutput.contains("public void method" + (METHODS - 1) + "(String input)"));
+
+    log.info("rendered synthetic class (" + METHODS + " methods, nesting depth " + DEPTH + ", "
+        + streamOutput.length() + " chars) " + ROUNDS + " times: toJavaString() in " + stringTime / 1000000
+        + "ms allocating " + stringAllocation / 1024 + "KB, renderTo() in " + streamTime / 1000000
+        + "ms allocating " + streamAllocation / 1024 + "KB");
+
+    if (isAllocationMeasurable()) {
+      // appending toJavaString() copies the whole source into a String and from there into the target, which
+      // renderTo() does not
+      assertTrue("renderTo() allocated " + streamAllocation + " bytes, toJavaString() " + stringAllocation,
+          streamAllocation + ROUNDS * streamOutput.length() * 2L <= stringAllocation);
+    }
+  }
+
+  private static void renderWithToJavaString(final BuildMetaClass metaClass, final StringBuilder target) {
+    target.append(metaClass.toJavaString());
+  }
+
+  private static BuildMetaClass buildLargeClass() {
+    final ClassStructureBuilder<?> classBuilder = ClassBuilder.define("org.foo.LargeGeneratedClass")
+        .publicScope().body();
+
+    classBuilder.privateField("values", List.class).initializesWith(Stmt.newObject(ArrayList.class)).finish();
+
+    for (int m = 0; m < METHODS; m++) {
+      final BlockBuilder<?> method
+          = classBuilder.publicMethod(void.class, "method" + m, Parameter.of(String.class, "input"));
+      method.append(nestedBlock("method" + m, DEPTH));
+      method.finish();
+    }
+
+    return classBuilder.getClassDefinition();
+  }
+
+  private static Statement nestedBlock(final String prefix, final int depth) {
+    final Statement add = Stmt.loadClassMember("values").invoke("add", prefix + "_" + depth);
+    if (depth == 0) {
+      return add;
+    }
+
+    return Stmt.if_(Bool.expr(Stmt.loadVariable("input").invoke("startsWith", prefix + "_" + depth)))
+        .append(add)
+        .append(nestedBlock(prefix, depth - 1))
+        .finish()
+        .else_()
+        .append(Stmt.loadClassMember("values").invoke("remove", Stmt.loadVariable("input")))
+        .finish();
+  }
+
+  private static boolean isAllocationMeasurable() {
+    final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    return bean instanceof com.sun.management.ThreadMXBean
+        && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()
+        && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemoryEnabled();
+  }
+
+  private static long allocatedBytes() {
+    if (!isAllocationMeasurable()) {
+      return 0;
+    }
+    return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+        .getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+}
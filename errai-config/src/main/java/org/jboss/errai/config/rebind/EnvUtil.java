@@ -19,7 +19,7 @@ package org.jboss.errai.config.rebind;
 import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
 import java.net.URL;
 import java.util.Collection;
 import java.util.Collections;
@@ -47,6 +47,7 @@ import org.jboss.errai.config.util.ClassScanner;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.io.ByteStreams;
 import com.google.gwt.core.ext.GeneratorContext;
 
 /**
@@ -296,9 +297,15 @@ public abstract class EnvUtil {
     _environmentConfigCache = null;
   }
 
+  /**
+   * Caches the result of the reachability analysis of each module for the current generator context. A result is
+   * discarded when the number of types in the module changes or when the source of one of the analysed compilation
+   * units is modified, so it is recomputed after a dev mode refresh that changed the module.
+   */
   static class ReachabilityCache {
-    private volatile GeneratorContext _lastContext;
+    private volatile WeakReference<GeneratorContext> _lastContext;
     private final Map<String, ReachableTypes> moduleToReachableTypes = new ConcurrentHashMap<String, ReachableTypes>();
+    private final Map<String, Integer> moduleToTypeCount = new ConcurrentHashMap<String, Integer>();
 
     public boolean isCacheValid(final GeneratorContext context) {
       return isCacheValid(context, RebindUtils.getModuleName(context));
@@ -306,13 +313,18 @@ public abstract class EnvUtil {
     }
 
     public boolean isCacheValid(final GeneratorContext context, final String moduleName) {
-      return _lastContext == context && moduleToReachableTypes.containsKey(moduleName);
+      final WeakReference<GeneratorContext> lastContext = _lastContext;
+      final String key = keyOf(moduleName);
+      return lastContext != null && lastContext.get() == context
+          && moduleToReachableTypes.containsKey(key)
+          && Integer.valueOf(typeCountOf(context)).equals(moduleToTypeCount.get(key))
+          && ReachabilityIndex.forModule(moduleName).isUpToDate();
     }
 
     public ReachableTypes getCache(final GeneratorContext context) {
       final String moduleName = RebindUtils.getModuleName(context);
       if (isCacheValid(context, moduleName)) {
-        return moduleToReachableTypes.get(moduleName);
+        return moduleToReachableTypes.get(keyOf(moduleName));
       }
       else {
         return null;
@@ -320,20 +332,34 @@ public abstract class EnvUtil {
     }
 
     public void putCache(final GeneratorContext context, final ReachableTypes reachableTypes) {
-      if (_lastContext == null) {
-        _lastContext = context;
-      }
-      else if (_lastContext != context) {
-        _lastContext = context;
+      final WeakReference<GeneratorContext> lastContext = _lastContext;
+      if (lastContext == null || lastContext.get() != context) {
+        _lastContext = new WeakReference<GeneratorContext>(context);
         moduleToReachableTypes.clear();
+        moduleToTypeCount.clear();
       }
 
-      moduleToReachableTypes.put(RebindUtils.getModuleName(context), reachableTypes);
+      final String key = keyOf(RebindUtils.getModuleName(context));
+      moduleToReachableTypes.put(key, reachableTypes);
+      moduleToTypeCount.put(key, typeCountOf(context));
+    }
+
+    private static String keyOf(final String moduleName) {
+      return moduleName == null ? "" : moduleName;
+    }
+
+    private static int typeCountOf(final GeneratorContext context) {
+      try {
+        return context.getTypeOracle().getTypes().length;
+      }
+      catch (Throwable t) {
+        return -1;
+      }
     }
   }
 
 
-  private static volatile SoftReference<ReachabilityCache> reachabilityCache = null;
+  private static final ReachabilityCache reachabilityCache = new ReachabilityCache();
 
   private static final Set<String> reachabilityExclusionNegative = new HashSet<String>();
   private static final Set<String> reachabilityClassExclusionList = new HashSet<String>() {
@@ -391,19 +417,19 @@ public abstract class EnvUtil {
       return ReachableTypes.EVERYTHING_REACHABLE_INSTANCE;
     }
 
-    ReachabilityCache cache;
-    if (reachabilityCache == null || (cache = reachabilityCache.get()) == null) {
-      reachabilityCache = new SoftReference<ReachabilityCache>(cache = new ReachabilityCache());
-    }
-
-    if (cache.isCacheValid(context)) {
-      return cache.getCache(context);
+    final ReachabilityCache cache = reachabilityCache;
+    final ReachableTypes cachedReachableTypes = cache.getCache(context);
+    if (cachedReachableTypes != null) {
+      return cachedReachableTypes;
     }
 
     final EnvironmentConfig config = getEnvironmentConfig();
 
     long time = System.currentTimeMillis();
 
+    final ReachabilityIndex index = ReachabilityIndex.forModule(RebindUtils.getModuleName(context));
+    index.beginAnalysis();
+
     final Set<String> packages = new HashSet<String>();
 
     if (isJUnitTest()) {
@@ -467,19 +493,38 @@ public abstract class EnvUtil {
           continue;
         }
 
+        if (index.isVisited(fullyQualifiedName)) {
+          // an outer class and its nested classes share one compilation unit
+          continue;
+        }
+
         final URL resource = classLoader.getResource(fullyQualifiedName.replaceAll("\\.", "/") + ".java");
+        index.visit(fullyQualifiedName, resource);
 
         if (resource != null) {
+          final Set<String> unchangedDependencies = index.getUnchangedDependencies(fullyQualifiedName);
+          if (unchangedDependencies != null) {
+            allDependencies.addAll(unchangedDependencies);
+            continue;
+          }
+
           InputStream stream = null;
           try {
             stream = new BufferedInputStream(resource.openStream());
-            final byte[] readBuffer = new byte[stream.available()];
-            stream.read(readBuffer);
+            final byte[] readBuffer = ByteStreams.toByteArray(stream);
+            final String fingerprint = ReachabilityIndex.fingerprint(readBuffer);
+
+            final Set<String> indexedDependencies = index.getDependencies(fullyQualifiedName, fingerprint);
+            if (indexedDependencies != null) {
+              allDependencies.addAll(indexedDependencies);
+              continue;
+            }
 
             if (log.isDebugEnabled()) {
               log.debug("scanning " + fullyQualifiedName + " for reachable types ...");
             }
-            executor.execute(new ReachabilityRunnable(readBuffer, allDependencies));
+            executor.execute(
+                new ReachabilityRunnable(fullyQualifiedName, fingerprint, readBuffer, allDependencies, index));
           }
           catch (IOException e) {
             log.warn("could not open resource: " + resource.getFile());
@@ -509,14 +554,18 @@ public abstract class EnvUtil {
       return ReachableTypes.EVERYTHING_REACHABLE_INSTANCE;
     }
 
+    time = System.currentTimeMillis() - time;
+    index.endAnalysis(time);
+
+    log.info("reachability analysis of " + index.getModuleName() + " completed in " + time + "ms ("
+        + index.getReusedUnitCount() + " compilation unit(s) from index, "
+        + index.getScannedUnitCount() + " scanned)");
+
     if (log.isDebugEnabled()) {
       log.debug("*** REACHABILITY ANALYSIS (production mode: " + EnvUtil.isProdMode() + ") ***");
       for (final String s : allDependencies) {
         log.debug(" -> " + s);
       }
-
-      time = System.currentTimeMillis() - time;
-
       log.debug("*** END OF REACHABILITY ANALYSIS (" + time + "ms) *** ");
     }
 
@@ -526,17 +575,29 @@ public abstract class EnvUtil {
   }
 
   private static class ReachabilityRunnable implements Runnable {
+    private final String unitName;
+    private final String fingerprint;
     private final byte[] sourceBuffer;
     private final Set<String> results;
-
-    private ReachabilityRunnable(final byte[] sourceBuffer, final Set<String> results) {
+    private final ReachabilityIndex index;
+
+    private ReachabilityRunnable(final String unitName,
+                                 final String fingerprint,
+                                 final byte[] sourceBuffer,
+                                 final Set<String> results,
+                                 final ReachabilityIndex index) {
+      this.unitName = unitName;
+      this.fingerprint = fingerprint;
       this.sourceBuffer = sourceBuffer;
       this.results = results;
+      this.index = index;
     }
 
     @Override
     public void run() {
-      results.addAll(QuickDeps.getQuickTypeDependencyList(new String(sourceBuffer), null));
+      final Set<String> dependencies = QuickDeps.getQuickTypeDependencyList(new String(sourceBuffer), null);
+      index.putDependencies(unitName, fingerprint, dependencies);
+      results.addAll(dependencies);
     }
   }
 }
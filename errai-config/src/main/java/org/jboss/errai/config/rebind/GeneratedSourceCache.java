@@ -0,0 +1,380 @@
+/*
+ * Copyright 2012 JBoss, by Red Hat, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.config.rebind;
+
+import java.io.File;
+import java.io.UnsupportedEncodingException;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.errai.codegen.meta.MetaClass;
+import org.jboss.errai.codegen.meta.MetaClassFactory;
+import org.jboss.errai.codegen.meta.MetaConstructor;
+import org.jboss.errai.codegen.meta.MetaField;
+import org.jboss.errai.codegen.meta.MetaMethod;
+import org.jboss.errai.codegen.meta.MetaParameter;
+import org.jboss.errai.common.metadata.RebindUtils;
+import org.jboss.errai.config.rebind.ReachabilityIndex.SourceStamp;
+import org.jboss.errai.config.util.ClassScanner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An on-disk cache of generated sources which survives across compiles and dev mode sessions. Each generator computes
+ * a {@link Fingerprint} of its inputs (the relevant types, their signatures and any configuration) and, if the
+ * fingerprint matches the one recorded with the cached source, emits the cached source instead of generating it again.
+ * <p>
+ * The cache is disabled by default and can be enabled by setting the system property {@value #ENABLE_PROPERTY} to
+ * true. It is always disabled if <tt>errai.devel.nocache</tt> is set.
+ * <p>
+ * Files a generator writes besides its source (such as the graphs rendered into the Errai cache directory) can be
+ * recorded with the source and are restored whenever the cached source is used. The number of hits and misses of each
+ * generator is counted, see {@link #getHitCount(String)} and {@link #getMissCount(String)}.
+ */
+public final class GeneratedSourceCache {
+  public static final String ENABLE_PROPERTY = "errai.devel.generator_cache";
+
+  private static final Logger log = LoggerFactory.getLogger(GeneratedSourceCache.class);
+
+  private static final ConcurrentMap<String, AtomicInteger> hits = new ConcurrentHashMap<String, AtomicInteger>();
+  private static final ConcurrentMap<String, AtomicInteger> misses = new ConcurrentHashMap<String, AtomicInteger>();
+
+  private GeneratedSourceCache() {
+  }
+
+  public static boolean isEnabled() {
+    return Boolean.getBoolean(ENABLE_PROPERTY) && !Boolean.getBoolean("errai.devel.nocache");
+  }
+
+  /**
+   * Returns the cached source for the specified generator if it was generated from inputs with the same fingerprint.
+   * On a hit, the cached copies of the specified artifacts are restored as well.
+   *
+   * @param generatorName
+   *     a unique name for the generated output (typically the simple name of the generated class).
+   * @param fingerprint
+   *     the fingerprint of the generator's current inputs.
+   * @param artifacts
+   *     the files the generator writes besides its source, as passed to
+   *     {@link #putCachedSource(String, String, String, File...)}.
+   *
+   * @return the cached source, or null if the cache is disabled or there is no matching entry.
+   */
+  public static String getCachedSource(final String generatorName, final String fingerprint, final File... artifacts) {
+    if (!isEnabled()) {
+      return null;
+    }
+
+    final File fingerprintFile = getFingerprintFile(generatorName);
+    final File sourceFile = getSourceFile(generatorName);
+
+    if (fingerprintFile.exists() && sourceFile.exists()
+        && fingerprint.equals(RebindUtils.readFileToString(fingerprintFile))) {
+      for (final File artifact : artifacts) {
+        final File cachedArtifact = getArtifactFile(generatorName, artifact);
+        if (cachedArtifact.exists()) {
+          RebindUtils.writeStringToFile(artifact, RebindUtils.readFileToString(cachedArtifact));
+        }
+      }
+
+      counterOf(hits, generatorName).incrementAndGet();
+      log.info("using cached source for " + generatorName + " (inputs unchanged)");
+      return RebindUtils.readFileToString(sourceFile);
+    }
+
+    counterOf(misses, generatorName).incrementAndGet();
+    log.debug("no cached source for " + generatorName + " matches the current inputs");
+    return null;
+  }
+
+  /**
+   * Records the generated source for the specified generator along with the fingerprint of the inputs it was generated
+   * from, and a copy of each of the specified artifacts that exists.
+   */
+  public static void putCachedSource(final String generatorName, final String fingerprint, final String source,
+                                     final File... artifacts) {
+    if (!isEnabled()) {
+      return;
+    }
+
+    final File fingerprintFile = getFingerprintFile(generatorName);
+
+    // remove the old fingerprint first, so an interrupted write can never pair a stale fingerprint with new output.
+    //noinspection ResultOfMethodCallIgnored
+    fingerprintFile.delete();
+    RebindUtils.writeStringToFile(getSourceFile(generatorName), source);
+    for (final File artifact : artifacts) {
+      final File cachedArtifact = getArtifactFile(generatorName, artifact);
+      if (artifact.exists()) {
+        RebindUtils.writeStringToFile(cachedArtifact, RebindUtils.readFileToString(artifact));
+      }
+      else {
+        //noinspection ResultOfMethodCallIgnored
+        cachedArtifact.delete();
+      }
+    }
+    RebindUtils.writeStringToFile(fingerprintFile, fingerprint);
+  }
+
+  /**
+   * Returns the number of times the cached source of the specified generator was used since the last call to
+   * {@link #resetStatistics()}.
+   */
+  public static int getHitCount(final String generatorName) {
+    final AtomicInteger count = hits.get(generatorName);
+    return count == null ? 0 : count.get();
+  }
+
+  /**
+   * Returns the number of times the specified generator found no cached source matching its inputs since the last call
+   * to {@link #resetStatistics()}.
+   */
+  public static int getMissCount(final String generatorName) {
+    final AtomicInteger count = misses.get(generatorName);
+    return count == null ? 0 : count.get();
+  }
+
+  public static void resetStatistics() {
+    hits.clear();
+    misses.clear();
+  }
+
+  private static AtomicInteger counterOf(final ConcurrentMap<String, AtomicInteger> counters,
+                                         final String generatorName) {
+    AtomicInteger count = counters.get(generatorName);
+    if (count == null) {
+      final AtomicInteger newCount = new AtomicInteger();
+      count = counters.putIfAbsent(generatorName, newCount);
+      if (count == null) {
+        count = newCount;
+      }
+    }
+    return count;
+  }
+
+  public static Fingerprint fingerprint() {
+    return new Fingerprint();
+  }
+
+  static File getFingerprintFile(final String generatorName) {
+    return RebindUtils.getCacheFile(generatorName + ".fingerprint");
+  }
+
+  static File getSourceFile(final String generatorName) {
+    return RebindUtils.getCacheFile(generatorName + ".cached.java");
+  }
+
+  static File getArtifactFile(final String generatorName, final File artifact) {
+    return RebindUtils.getCacheFile(generatorName + ".cached." + artifact.getName());
+  }
+
+  /**
+   * Accumulates the inputs of a generator into a digest. Types are fingerprinted by their signatures (modifiers,
+   * super types, annotations and declared members), not by their method bodies, as this is all a generator can observe
+   * through the meta model.
+   */
+  public static class Fingerprint {
+    private final MessageDigest digest;
+
+    private Fingerprint() {
+      try {
+        digest = MessageDigest.getInstance("SHA-1");
+      }
+      catch (NoSuchAlgorithmException e) {
+        throw new RuntimeException("could not create digest for generator fingerprint", e);
+      }
+    }
+
+    public Fingerprint add(final String key, final Object value) {
+      update(key);
+      update(String.valueOf(value));
+      return this;
+    }
+
+    public Fingerprint addType(final MetaClass type) {
+      update(signatureOf(type));
+      return this;
+    }
+
+    /**
+     * Adds the specified types in a deterministic order, irrespective of the iteration order of the collection.
+     */
+    public Fingerprint addTypes(final Collection<MetaClass> types) {
+      final List<String> signatures = new ArrayList<String>(types.size());
+      for (final MetaClass type : types) {
+        signatures.add(signatureOf(type));
+      }
+      Collections.sort(signatures);
+      for (final String signature : signatures) {
+        update(signature);
+      }
+      return this;
+    }
+
+    public Fingerprint addTypesAnnotatedWith(final Class<? extends Annotation> annotation,
+                                             final Set<String> packages) {
+      add("annotatedWith", annotation.getName());
+      return addTypes(ClassScanner.getTypesAnnotatedWith(annotation, packages));
+    }
+
+    public Fingerprint addTypesAnnotatedWith(final Class<? extends Annotation> annotation) {
+      add("annotatedWith", annotation.getName());
+      return addTypes(ClassScanner.getTypesAnnotatedWith(annotation));
+    }
+
+    /**
+     * Adds the last modification time and length of the source of each of the specified types, in the order of their
+     * names. The source of a type is looked up on the context class loader the same way as by the reachability
+     * analysis; types without source (or without a top-level class file) are fingerprinted by name only.
+     *
+     * @param typeNames
+     *     the fully qualified names of top-level types.
+     */
+    public Fingerprint addSourceStamps(final Collection<String> typeNames) {
+      final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+      for (final String typeName : new TreeSet<String>(typeNames)) {
+        final String path = typeName.replace('.', '/');
+        URL source = classLoader.getResource(path + ".java");
+        if (source == null) {
+          source = classLoader.getResource(path + ".class");
+        }
+        add(typeName, SourceStamp.of(source));
+      }
+      return this;
+    }
+
+    /**
+     * Adds all <tt>errai.*</tt> system properties, all properties configured in ErraiApp.properties, and the last
+     * modification time and length of every ErraiApp.properties file on the classpath.
+     */
+    public Fingerprint addConfiguration() {
+      final Map<String, String> props = new TreeMap<String, String>();
+      for (final Map.Entry<Object, Object> entry : System.getProperties().entrySet()) {
+        final String key = String.valueOf(entry.getKey());
+        if (key.startsWith("errai.")) {
+          props.put(key, String.valueOf(entry.getValue()));
+        }
+      }
+      props.putAll(EnvUtil.getEnvironmentConfig().getFrameworkProperties());
+      add("configuration", props);
+
+      final Map<String, SourceStamp> configFiles = new TreeMap<String, SourceStamp>();
+      try {
+        final Enumeration<URL> urls = Thread.currentThread().getContextClassLoader().getResources("ErraiApp.properties");
+        while (urls.hasMoreElements()) {
+          final URL url = urls.nextElement();
+          configFiles.put(url.toExternalForm(), SourceStamp.of(url));
+        }
+      }
+      catch (IOException e) {
+        throw new RuntimeException("could not locate ErraiApp.properties", e);
+      }
+      add("configurationFiles", configFiles);
+      return this;
+    }
+
+    public String toHash() {
+      return RebindUtils.hashToHexString(digest.digest());
+    }
+
+    private void update(final String value) {
+      try {
+        digest.update(value.getBytes("UTF-8"));
+        digest.update((byte) 0);
+      }
+      catch (UnsupportedEncodingException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    private static String signatureOf(final MetaClass type) {
+      final StringBuilder sb = new StringBuilder(256);
+      sb.append(type.getFullyQualifiedNameWithTypeParms())
+          .append(type.isAbstract() ? " abstract" : "")
+          .append(type.isInterface() ? " interface" : "")
+          .append(type.isFinal() ? " final" : "")
+          .append(type.isPublic() ? " public" : "");
+
+      if (type.getSuperClass() != null) {
+        sb.append(" extends ").append(type.getSuperClass().getFullyQualifiedNameWithTypeParms());
+      }
+      for (final MetaClass iface : type.getInterfaces()) {
+        sb.append(" implements ").append(iface.getFullyQualifiedNameWithTypeParms());
+      }
+      sb.append(annotationsOf(type.getAnnotations()));
+
+      final List<String> members = new ArrayList<String>();
+      for (final MetaField field : type.getDeclaredFields()) {
+        members.add("field " + (field.isStatic() ? "static " : "") + (field.isTransient() ? "transient " : "")
+            + (field.isFinal() ? "final " : "") + field.getType().getFullyQualifiedNameWithTypeParms() + " "
+            + field.getName() + annotationsOf(field.getAnnotations()));
+      }
+      for (final MetaConstructor constructor : type.getDeclaredConstructors()) {
+        members.add("ctor " + (constructor.isPublic() ? "public" : "") + parametersOf(constructor.getParameters())
+            + annotationsOf(constructor.getAnnotations()));
+      }
+      for (final MetaMethod method : type.getDeclaredMethods()) {
+        members.add("method " + (method.isStatic() ? "static " : "") + (method.isPublic() ? "public " : "")
+            + method.getReturnType().getFullyQualifiedNameWithTypeParms() + " " + method.getName()
+            + parametersOf(method.getParameters()) + annotationsOf(method.getAnnotations()));
+      }
+      Collections.sort(members);
+
+      for (final String member : members) {
+        sb.append('\n').append(member);
+      }
+      return sb.toString();
+    }
+
+    private static String parametersOf(final MetaParameter[] parameters) {
+      final StringBuilder sb = new StringBuilder("(");
+      for (final MetaParameter parameter : parameters) {
+        sb.append(parameter.getType().getFullyQualifiedNameWithTypeParms())
+            .append(annotationsOf(parameter.getAnnotations())).append(',');
+      }
+      return sb.append(')').toString();
+    }
+
+    private static String annotationsOf(final Annotation[] annotations) {
+      if (annotations == null || annotations.length == 0) {
+        return "";
+      }
+
+      final List<String> annos = new ArrayList<String>(annotations.length);
+      for (final Annotation annotation : annotations) {
+        annos.add(annotation.toString());
+      }
+      Collections.sort(annos);
+      return annos.toString();
+    }
+  }
+}
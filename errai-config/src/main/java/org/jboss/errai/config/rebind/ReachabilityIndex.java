@@ -0,0 +1,408 @@
+/*
+ * Copyright 2012 JBoss, by Red Hat, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.config.rebind;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLConnection;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.errai.common.metadata.RebindUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A persistent index of the types referenced by each compilation unit of a GWT module, used by the reachability
+ * analysis in {@link EnvUtil}. Each entry records the last modification time and length of the unit's source and a
+ * fingerprint of its contents. A unit whose modification time and length are unchanged is not read at all; a unit
+ * whose source was touched is read and hashed, and only scanned again if its contents have changed.
+ * <p>
+ * The index is kept in memory for the lifetime of the JVM and is written to the Errai cache directory after every
+ * analysis which changed it, so it also survives restarts of dev mode. Persistence is disabled if
+ * <tt>errai.devel.nocache</tt> is set.
+ */
+public final class ReachabilityIndex {
+  private static final Logger log = LoggerFactory.getLogger(ReachabilityIndex.class);
+
+  private static final String INDEX_HEADER = "# errai reachability index v2";
+  private static final ConcurrentMap<String, ReachabilityIndex> indexes
+      = new ConcurrentHashMap<String, ReachabilityIndex>();
+
+  private final String moduleName;
+  private final File indexFile;
+  private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+  /**
+   * The compilation units visited in the current (or last) pass, and the location and stamp of their sources.
+   */
+  private final Set<String> visitedUnits = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+  private final ConcurrentMap<String, URL> visitedSources = new ConcurrentHashMap<String, URL>();
+  private final ConcurrentMap<String, SourceStamp> visitedStamps = new ConcurrentHashMap<String, SourceStamp>();
+  private volatile boolean dirty;
+
+  private final AtomicInteger reusedUnits = new AtomicInteger();
+  private final AtomicInteger scannedUnits = new AtomicInteger();
+  private volatile long lastAnalysisTime = -1;
+
+  private static class Entry {
+    private final String fingerprint;
+    private final SourceStamp stamp;
+    private final Set<String> dependencies;
+
+    private Entry(final String fingerprint, final SourceStamp stamp, final Set<String> dependencies) {
+      this.fingerprint = fingerprint;
+      this.stamp = stamp;
+      this.dependencies = dependencies;
+    }
+  }
+
+  /**
+   * The last modification time and length of a source. Both are -1 if they could not be determined, in which case
+   * the stamp never matches and the source is always read and hashed.
+   */
+  static final class SourceStamp {
+    private static final SourceStamp UNKNOWN = new SourceStamp(-1, -1);
+
+    private final long lastModified;
+    private final long length;
+
+    SourceStamp(final long lastModified, final long length) {
+      this.lastModified = lastModified;
+      this.length = length;
+    }
+
+    static SourceStamp of(final URL source) {
+      if (source == null) {
+        return UNKNOWN;
+      }
+
+      try {
+        if ("file".equals(source.getProtocol())) {
+          final File file = new File(source.toURI());
+          return file.exists() ? new SourceStamp(file.lastModified(), file.length()) : UNKNOWN;
+        }
+
+        // for jar entries this reads the entry's time and size from the jar's directory
+        final URLConnection connection = source.openConnection();
+        final long lastModified = connection.getLastModified();
+        return lastModified == 0 ? UNKNOWN : new SourceStamp(lastModified, connection.getContentLength());
+      }
+      catch (Exception e) {
+        return UNKNOWN;
+      }
+    }
+
+    boolean isKnown() {
+      return lastModified != -1;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (!(o instanceof SourceStamp)) return false;
+      final SourceStamp other = (SourceStamp) o;
+      return isKnown() && lastModified == other.lastModified && length == other.length;
+    }
+
+    @Override
+    public int hashCode() {
+      return (int) (lastModified ^ (lastModified >>> 32)) * 31 + (int) length;
+    }
+
+    @Override
+    public String toString() {
+      return lastModified + ":" + length;
+    }
+  }
+
+  ReachabilityIndex(final String moduleName, final File indexFile) {
+    this.moduleName = moduleName;
+    this.indexFile = indexFile;
+    load();
+  }
+
+  /**
+   * Returns the index of the specified module, loading it from the Errai cache directory if necessary.
+   */
+  public static ReachabilityIndex forModule(final String moduleName) {
+    final String name = moduleName == null ? "default" : moduleName;
+    ReachabilityIndex index = indexes.get(name);
+    if (index == null) {
+      final ReachabilityIndex newIndex = new ReachabilityIndex(name,
+          isPersistent() ? RebindUtils.getCacheFile("reachability-" + name + ".idx") : null);
+      index = indexes.putIfAbsent(name, newIndex);
+      if (index == null) {
+        index = newIndex;
+      }
+    }
+    return index;
+  }
+
+  private static boolean isPersistent() {
+    return !Boolean.getBoolean("errai.devel.nocache");
+  }
+
+  /**
+   * Computes the fingerprint of the source of a compilation unit.
+   */
+  public static String fingerprint(final byte[] source) {
+    try {
+      return RebindUtils.hashToHexString(MessageDigest.getInstance("SHA-1").digest(source));
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException("could not create digest for reachability index", e);
+    }
+  }
+
+  /**
+   * Marks the beginning of an analysis pass and resets the statistics of the previous pass.
+   */
+  public void beginAnalysis() {
+    visitedUnits.clear();
+    visitedSources.clear();
+    visitedStamps.clear();
+    reusedUnits.set(0);
+    scannedUnits.set(0);
+  }
+
+  /**
+   * Marks the specified compilation unit as visited in the current pass. A compilation unit is visited once for each
+   * of the types it declares (e.g. for an outer class and each of its nested classes), but must only be processed
+   * once.
+   *
+   * @param unitName
+   *     the name of the compilation unit (the fully qualified name of its outer class).
+   * @param source
+   *     the location of the unit's source, or null if the source could not be found.
+   *
+   * @return true if this is the first visit of the unit in the current pass; false if it has already been visited.
+   */
+  public boolean visit(final String unitName, final URL source) {
+    if (!visitedUnits.add(unitName)) {
+      return false;
+    }
+    if (source != null) {
+      visitedSources.put(unitName, source);
+      visitedStamps.put(unitName, SourceStamp.of(source));
+    }
+    return true;
+  }
+
+  /**
+   * @return true if the specified compilation unit has already been visited in the current pass.
+   */
+  public boolean isVisited(final String unitName) {
+    return visitedUnits.contains(unitName);
+  }
+
+  /**
+   * Returns the indexed dependencies of the specified compilation unit, if its source has not been modified since
+   * they were recorded. The source is not read.
+   *
+   * @return the type names referenced by the compilation unit, or null if its source must be read.
+   */
+  public Set<String> getUnchangedDependencies(final String unitName) {
+    final Entry entry = entries.get(unitName);
+    if (entry != null && entry.stamp.equals(visitedStamps.get(unitName))) {
+      reusedUnits.incrementAndGet();
+      return entry.dependencies;
+    }
+    return null;
+  }
+
+  /**
+   * Returns the indexed dependencies of the specified compilation unit, if they were recorded for a source with the
+   * same fingerprint.
+   *
+   * @return the type names referenced by the compilation unit, or null if the unit must be scanned.
+   */
+  public Set<String> getDependencies(final String unitName, final String fingerprint) {
+    final Entry entry = entries.get(unitName);
+    if (entry != null && entry.fingerprint.equals(fingerprint)) {
+      reusedUnits.incrementAndGet();
+
+      // the source was touched but not changed: remember the new stamp so it is not read again next time
+      final SourceStamp stamp = stampOf(unitName);
+      if (!stamp.equals(entry.stamp)) {
+        entries.put(unitName, new Entry(fingerprint, stamp, entry.dependencies));
+        dirty = true;
+      }
+      return entry.dependencies;
+    }
+    return null;
+  }
+
+  /**
+   * Records the dependencies of a compilation unit which has been scanned.
+   */
+  public void putDependencies(final String unitName, final String fingerprint, final Set<String> dependencies) {
+    scannedUnits.incrementAndGet();
+    entries.put(unitName, new Entry(fingerprint, stampOf(unitName),
+        Collections.unmodifiableSet(new HashSet<String>(dependencies))));
+    dirty = true;
+  }
+
+  /**
+   * Marks the end of an analysis pass. Entries for compilation units which were not visited are dropped and the index
+   * is written to disk if it has changed.
+   *
+   * @param time
+   *     the duration of the analysis in milliseconds.
+   */
+  public void endAnalysis(final long time) {
+    if (entries.keySet().retainAll(visitedUnits)) {
+      dirty = true;
+    }
+    lastAnalysisTime = time;
+
+    if (dirty) {
+      save();
+    }
+  }
+
+  /**
+   * Checks whether the sources of all compilation units visited in the last pass are unchanged. Only the modification
+   * time and length of each source are checked.
+   *
+   * @return true if the result of the last analysis still holds for the visited units.
+   */
+  public boolean isUpToDate() {
+    if (lastAnalysisTime == -1) {
+      return false;
+    }
+
+    for (final Map.Entry<String, URL> unit : visitedSources.entrySet()) {
+      final Entry entry = entries.get(unit.getKey());
+      if (entry != null && !entry.stamp.equals(SourceStamp.of(unit.getValue()))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private SourceStamp stampOf(final String unitName) {
+    final SourceStamp stamp = visitedStamps.get(unitName);
+    return stamp == null ? SourceStamp.UNKNOWN : stamp;
+  }
+
+  private void load() {
+    if (indexFile == null || !indexFile.exists()) {
+      return;
+    }
+
+    try {
+      final String[] lines = RebindUtils.readFileToString(indexFile).split("\n");
+      if (lines.length == 0 || !INDEX_HEADER.equals(lines[0])) {
+        log.info("ignoring reachability index with unknown format: " + indexFile.getAbsolutePath());
+        return;
+      }
+
+      for (int i = 1; i < lines.length; i++) {
+        final String[] parts = lines[i].split("\t", -1);
+        if (parts.length != 5) {
+          continue;
+        }
+
+        final Set<String> deps = new HashSet<String>();
+        for (final String dep : parts[4].split(" ")) {
+          if (dep.length() != 0) {
+            deps.add(dep);
+          }
+        }
+        final SourceStamp stamp = new SourceStamp(Long.parseLong(parts[2]), Long.parseLong(parts[3]));
+        entries.put(parts[0], new Entry(parts[1], stamp, Collections.unmodifiableSet(deps)));
+      }
+      log.debug("loaded reachability index for " + moduleName + " (" + entries.size() + " compilation units)");
+    }
+    catch (Throwable t) {
+      log.warn("could not read reachability index: " + indexFile.getAbsolutePath(), t);
+      entries.clear();
+    }
+  }
+
+  private void save() {
+    if (indexFile == null) {
+      return;
+    }
+
+    final Map<String, Entry> sorted = new TreeMap<String, Entry>(entries);
+    final StringBuilder sb = new StringBuilder(sorted.size() * 256);
+    sb.append(INDEX_HEADER).append('\n');
+    for (final Map.Entry<String, Entry> entry : sorted.entrySet()) {
+      final Entry value = entry.getValue();
+      sb.append(entry.getKey()).append('\t').append(value.fingerprint).append('\t')
+          .append(value.stamp.lastModified).append('\t').append(value.stamp.length).append('\t');
+      for (final String dep : value.dependencies) {
+        sb.append(dep).append(' ');
+      }
+      sb.append('\n');
+    }
+
+    try {
+      RebindUtils.writeStringToFile(indexFile, sb.toString());
+      dirty = false;
+    }
+    catch (Throwable t) {
+      log.warn("could not write reachability index: " + indexFile.getAbsolutePath(), t);
+    }
+  }
+
+  public String getModuleName() {
+    return moduleName;
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * @return the number of compilation units whose dependencies were taken from the index in the last pass.
+   */
+  public int getReusedUnitCount() {
+    return reusedUnits.get();
+  }
+
+  /**
+   * @return the number of compilation units which had to be scanned in the last pass.
+   */
+  public int getScannedUnitCount() {
+    return scannedUnits.get();
+  }
+
+  /**
+   * @return the duration of the last analysis pass in milliseconds, or -1 if no analysis has completed.
+   */
+  public long getLastAnalysisTime() {
+    return lastAnalysisTime;
+  }
+
+  @Override
+  public String toString() {
+    return "reachability index for " + moduleName + " [units=" + size()
+        + ", reused=" + reusedUnits.get()
+        + ", scanned=" + scannedUnits.get()
+        + ", time=" + lastAnalysisTime + "ms]";
+  }
+}
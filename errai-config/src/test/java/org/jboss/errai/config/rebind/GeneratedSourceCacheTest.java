@@ -0,0 +1,207 @@
+/*
+ * Copyright 2012 JBoss, by Red Hat, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.config.rebind;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+
+import org.jboss.errai.codegen.builder.impl.ClassBuilder;
+import org.jboss.errai.codegen.meta.MetaClass;
+import org.jboss.errai.common.metadata.RebindUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class GeneratedSourceCacheTest {
+  private static final String GENERATOR = "GeneratedSourceCacheTestOutput";
+  private static final String CONFIG_PROPERTY = "errai.test.generated_source_cache.setting";
+
+  private File cacheDir;
+
+  @Before
+  public void setUp() throws Exception {
+    cacheDir = File.createTempFile("errai-source-cache", "");
+    assertTrue(cacheDir.delete());
+    System.setProperty("errai.devel.debugCacheDir", cacheDir.getAbsolutePath());
+    System.setProperty(GeneratedSourceCache.ENABLE_PROPERTY, "true");
+    GeneratedSourceCache.resetStatistics();
+  }
+
+  @After
+  public void tearDown() {
+    System.clearProperty("errai.devel.debugCacheDir");
+    System.clearProperty(GeneratedSourceCache.ENABLE_PROPERTY);
+    System.clearProperty(CONFIG_PROPERTY);
+
+    delete(cacheDir);
+  }
+
+  @Test
+  public void testHitWhenInputsAreUnchanged() {
+    final String fingerprint = fingerprintOf(beanWithField(String.class));
+    GeneratedSourceCache.putCachedSource(GENERATOR, fingerprint, "class Generated {}");
+
+    assertEquals(fingerprint, fingerprintOf(beanWithField(String.class)));
+    assertEquals("class Generated {}", GeneratedSourceCache.getCachedSource(GENERATOR, fingerprint));
+  }
+
+  @Test
+  public void testMissWhenTypeSignatureChanges() {
+    GeneratedSourceCache.putCachedSource(GENERATOR, fingerprintOf(beanWithField(String.class)), "class Generated {}");
+
+    final String changedFingerprint = fingerprintOf(beanWithField(Integer.class));
+    assertNull(GeneratedSourceCache.getCachedSource(GENERATOR, changedFingerprint));
+  }
+
+  @Test
+  public void testMissWhenConfigurationChanges() {
+    System.setProperty(CONFIG_PROPERTY, "a");
+    final String fingerprint = GeneratedSourceCache.fingerprint().addConfiguration().toHash();
+    GeneratedSourceCache.putCachedSource(GENERATOR, fingerprint, "class Generated {}");
+
+    System.setProperty(CONFIG_PROPERTY, "b");
+    final String changedFingerprint = GeneratedSourceCache.fingerprint().addConfiguration().toHash();
+    assertFalse(fingerprint.equals(changedFingerprint));
+    assertNull(GeneratedSourceCache.getCachedSource(GENERATOR, changedFingerprint));
+  }
+
+  @Test
+  public void testMissAfterInterruptedWrite() {
+    final String fingerprint = fingerprintOf(beanWithField(String.class));
+    GeneratedSourceCache.putCachedSource(GENERATOR, fingerprint, "class Generated {}");
+
+    // simulate a compile that was interrupted after the new source was written, but before its fingerprint was
+    assertTrue(GeneratedSourceCache.getFingerprintFile(GENERATOR).delete());
+    RebindUtils.writeStringToFile(GeneratedSourceCache.getSourceFile(GENERATOR), "class Generated { int x; }");
+
+    assertNull(GeneratedSourceCache.getCachedSource(GENERATOR, fingerprint));
+    assertNull(GeneratedSourceCache.getCachedSource(GENERATOR, fingerprintOf(beanWithField(Integer.class))));
+  }
+
+  @Test
+  public void testHitsAndMissesAreCountedPerGenerator() {
+    final String fingerprint = fingerprintOf(beanWithField(String.class));
+    assertNull(GeneratedSourceCache.getCachedSource(GENERATOR, fingerprint));
+    GeneratedSourceCache.putCachedSource(GENERATOR, fingerprint, "class Generated {}");
+    assertEquals("class Generated {}", GeneratedSourceCache.getCachedSource(GENERATOR, fingerprint));
+    assertEquals("class Generated {}", GeneratedSourceCache.getCachedSource(GENERATOR, fingerprint));
+
+    assertEquals(2, GeneratedSourceCache.getHitCount(GENERATOR));
+    assertEquals(1, GeneratedSourceCache.getMissCount(GENERATOR));
+    assertEquals(0, GeneratedSourceCache.getHitCount("OtherGenerator"));
+    assertEquals(0, GeneratedSourceCache.getMissCount("OtherGenerator"));
+
+    GeneratedSourceCache.resetStatistics();
+    assertEquals(0, GeneratedSourceCache.getHitCount(GENERATOR));
+    assertEquals(0, GeneratedSourceCache.getMissCount(GENERATOR));
+  }
+
+  @Test
+  public void testMissAfterSourceUnitChanges() throws Exception {
+    final File sourceDir = File.createTempFile("errai-source-units", "");
+    assertTrue(sourceDir.delete());
+    final File beanSource = new File(sourceDir, "org/foo/Bean.java");
+    assertTrue(beanSource.getParentFile().mkdirs());
+    RebindUtils.writeStringToFile(beanSource, "package org.foo; public class Bean {}");
+    RebindUtils.writeStringToFile(new File(sourceDir, "org/foo/Other.java"), "package org.foo; class Other {}");
+    assertTrue(beanSource.setLastModified(1000000000L));
+
+    final ClassLoader oldClassLoader = Thread.currentThread().getContextClassLoader();
+    Thread.currentThread().setContextClassLoader(new URLClassLoader(new URL[] { sourceDir.toURI().toURL() }));
+    try {
+      final String fingerprint = fingerprintOfUnits("org.foo.Bean", "org.foo.Other");
+      assertEquals("source units must be fingerprinted in a stable order",
+          fingerprint, fingerprintOfUnits("org.foo.Other", "org.foo.Bean"));
+      GeneratedSourceCache.putCachedSource(GENERATOR, fingerprint, "class Generated {}");
+      assertEquals("class Generated {}",
+          GeneratedSourceCache.getCachedSource(GENERATOR, fingerprintOfUnits("org.foo.Bean", "org.foo.Other")));
+
+      RebindUtils.writeStringToFile(beanSource, "package org.foo; public class Bean { String value; }");
+      assertTrue(beanSource.setLastModified(2000000000L));
+
+      assertNull(GeneratedSourceCache.getCachedSource(GENERATOR, fingerprintOfUnits("org.foo.Bean", "org.foo.Other")));
+      assertEquals(1, GeneratedSourceCache.getHitCount(GENERATOR));
+      assertEquals(1, GeneratedSourceCache.getMissCount(GENERATOR));
+    }
+    finally {
+      Thread.currentThread().setContextClassLoader(oldClassLoader);
+      delete(sourceDir);
+    }
+  }
+
+  @Test
+  public void testArtifactsAreRestoredOnHit() {
+    assertTrue(cacheDir.mkdirs());
+    final File artifact = new File(cacheDir, "graph.gv");
+    RebindUtils.writeStringToFile(artifact, "digraph G {}");
+
+    final String fingerprint = fingerprintOf(beanWithField(String.class));
+    GeneratedSourceCache.putCachedSource(GENERATOR, fingerprint, "class Generated {}", artifact);
+    assertTrue(artifact.delete());
+
+    assertNull(GeneratedSourceCache.getCachedSource(GENERATOR, fingerprintOf(beanWithField(Integer.class)), artifact));
+    assertFalse(artifact.exists());
+
+    assertEquals("class Generated {}", GeneratedSourceCache.getCachedSource(GENERATOR, fingerprint, artifact));
+    assertEquals("digraph G {}", RebindUtils.readFileToString(artifact));
+  }
+
+  @Test
+  public void testDisabledCacheNeverHits() {
+    final String fingerprint = fingerprintOf(beanWithField(String.class));
+    GeneratedSourceCache.putCachedSource(GENERATOR, fingerprint, "class Generated {}");
+
+    System.setProperty(GeneratedSourceCache.ENABLE_PROPERTY, "false");
+    assertNull(GeneratedSourceCache.getCachedSource(GENERATOR, fingerprint));
+  }
+
+  private static String fingerprintOf(final MetaClass type) {
+    return GeneratedSourceCache.fingerprint().add("target", GENERATOR).addType(type).toHash();
+  }
+
+  private static String fingerprintOfUnits(final String... typeNames) {
+    return GeneratedSourceCache.fingerprint().add("target", GENERATOR).addSourceStamps(Arrays.asList(typeNames))
+        .toHash();
+  }
+
+  private static void delete(final File file) {
+    final File[] files = file.listFiles();
+    if (files != null) {
+      for (final File child : files) {
+        delete(child);
+      }
+    }
+    //noinspection ResultOfMethodCallIgnored
+    file.delete();
+  }
+
+  private static MetaClass beanWithField(final Class<?> fieldType) {
+    return ClassBuilder.define("org.foo.Bean")
+        .publicScope()
+        .body()
+        .privateField("value", fieldType)
+        .finish()
+        .getClassDefinition();
+  }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2012 JBoss, by Red Hat, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.config.rebind;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.jboss.errai.common.metadata.RebindUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ReachabilityIndexTest {
+  private static final String UNIT = "org.foo.Outer";
+  private static final Set<String> DEPENDENCIES = new HashSet<String>(Arrays.asList("org.foo.Bar", "java.lang.String"));
+
+  private File source;
+  private File indexFile;
+
+  @Before
+  public void setUp() throws Exception {
+    source = File.createTempFile("Outer", ".java");
+    indexFile = File.createTempFile("reachability", ".idx");
+    assertTrue(indexFile.delete());
+    writeSource("class Outer { Bar bar; }", 1000000L);
+  }
+
+  @After
+  public void tearDown() {
+    //noinspection ResultOfMethodCallIgnored
+    source.delete();
+    //noinspection ResultOfMethodCallIgnored
+    indexFile.delete();
+  }
+
+  @Test
+  public void testUnchangedSourceIsNotReadAgain() throws Exception {
+    final ReachabilityIndex index = new ReachabilityIndex("test", null);
+    scan(index);
+
+    index.beginAnalysis();
+    assertTrue(index.visit(UNIT, sourceUrl()));
+    assertEquals(DEPENDENCIES, index.getUnchangedDependencies(UNIT));
+    index.endAnalysis(0);
+
+    assertEquals(1, index.getReusedUnitCount());
+    assertEquals(0, index.getScannedUnitCount());
+  }
+
+  @Test
+  public void testTouchedSourceWithSameContentIsReusedByFingerprint() throws Exception {
+    final ReachabilityIndex index = new ReachabilityIndex("test", null);
+    scan(index);
+    assertTrue(source.setLastModified(2000000L));
+
+    index.beginAnalysis();
+    index.visit(UNIT, sourceUrl());
+    assertNull(index.getUnchangedDependencies(UNIT));
+    assertEquals(DEPENDENCIES, index.getDependencies(UNIT, fingerprintOfSource()));
+    index.endAnalysis(0);
+
+    // the new modification time was recorded, so the source does not have to be read again
+    index.beginAnalysis();
+    index.visit(UNIT, sourceUrl());
+    assertEquals(DEPENDENCIES, index.getUnchangedDependencies(UNIT));
+  }
+
+  @Test
+  public void testChangedSourceMustBeScanned() throws Exception {
+    final ReachabilityIndex index = new ReachabilityIndex("test", null);
+    scan(index);
+    writeSource("class Outer { Baz baz; }", 2000000L);
+
+    index.beginAnalysis();
+    index.visit(UNIT, sourceUrl());
+    assertNull(index.getUnchangedDependencies(UNIT));
+    assertNull(index.getDependencies(UNIT, fingerprintOfSource()));
+  }
+
+  @Test
+  public void testCompilationUnitIsOnlyVisitedOncePerPass() throws Exception {
+    final ReachabilityIndex index = new ReachabilityIndex("test", null);
+
+    index.beginAnalysis();
+    assertFalse(index.isVisited(UNIT));
+    assertTrue(index.visit(UNIT, sourceUrl()));
+    assertTrue(index.isVisited(UNIT));
+    assertFalse("a nested class must not visit its compilation unit again", index.visit(UNIT, sourceUrl()));
+    index.putDependencies(UNIT, fingerprintOfSource(), DEPENDENCIES);
+    index.endAnalysis(0);
+
+    assertEquals(1, index.getScannedUnitCount());
+
+    index.beginAnalysis();
+    assertTrue(index.visit(UNIT, sourceUrl()));
+  }
+
+  @Test
+  public void testUnitsNotVisitedAreDropped() throws Exception {
+    final ReachabilityIndex index = new ReachabilityIndex("test", null);
+    index.beginAnalysis();
+    index.visit(UNIT, sourceUrl());
+    index.putDependencies(UNIT, fingerprintOfSource(), DEPENDENCIES);
+    index.visit("org.foo.Removed", null);
+    index.putDependencies("org.foo.Removed", "0", Collections.<String>emptySet());
+    index.endAnalysis(0);
+    assertEquals(2, index.size());
+
+    index.beginAnalysis();
+    index.visit(UNIT, sourceUrl());
+    index.getUnchangedDependencies(UNIT);
+    index.endAnalysis(0);
+    assertEquals(1, index.size());
+  }
+
+  @Test
+  public void testIndexIsPersisted() throws Exception {
+    scan(new ReachabilityIndex("test", indexFile));
+    assertTrue(indexFile.exists());
+
+    final ReachabilityIndex reloaded = new ReachabilityIndex("test", indexFile);
+    assertEquals(1, reloaded.size());
+
+    reloaded.beginAnalysis();
+    reloaded.visit(UNIT, sourceUrl());
+    assertEquals(DEPENDENCIES, reloaded.getUnchangedDependencies(UNIT));
+  }
+
+  @Test
+  public void testIsUpToDateUntilSourceChanges() throws Exception {
+    final ReachabilityIndex index = new ReachabilityIndex("test", null);
+    assertFalse("no analysis has completed", index.isUpToDate());
+
+    scan(index);
+    assertTrue(index.isUpToDate());
+
+    writeSource("class Outer { Baz baz; }", 2000000L);
+    assertFalse(index.isUpToDate());
+  }
+
+  private void scan(final ReachabilityIndex index) throws Exception {
+    index.beginAnalysis();
+    assertTrue(index.visit(UNIT, sourceUrl()));
+    assertNull(index.getUnchangedDependencies(UNIT));
+    index.putDependencies(UNIT, fingerprintOfSource(), DEPENDENCIES);
+    index.endAnalysis(0);
+  }
+
+  private void writeSource(final String contents, final long lastModified) {
+    RebindUtils.writeStringToFile(source, contents);
+    assertTrue(source.setLastModified(lastModified));
+  }
+
+  private String fingerprintOfSource() throws Exception {
+    return ReachabilityIndex.fingerprint(RebindUtils.readFileToString(source).getBytes("UTF-8"));
+  }
+
+  private URL sourceUrl() throws Exception {
+    return source.toURI().toURL();
+  }
+}
@@ -20,6 +20,7 @@ import org.jboss.errai.ioc.client.container.CreationalCallback;
 import org.jboss.errai.ioc.client.container.CreationalContext;
 import org.jboss.errai.ioc.client.container.IOC;
 import org.jboss.errai.ioc.client.container.IOCBeanManager;
+import org.jboss.errai.ioc.client.container.LazySingleton;
 
 import javax.enterprise.context.ApplicationScoped;
 import java.lang.annotation.Annotation;
@@ -67,6 +68,18 @@ public class BootstrapperInjectionContext {
     manager.addBean(type, beanType, callback, instance, qualifiers, name, concrete);
   }
 
+  @SuppressWarnings("unchecked")
+  public void addLazySingletonBean(final Class type,
+                                   final Class beanType,
+                                   final CreationalCallback callback,
+                                   final LazySingleton lazyInstance,
+                                   final Annotation[] qualifiers,
+                                   final String name,
+                                   final boolean concrete) {
+
+    manager.addLazySingletonBean(type, beanType, callback, lazyInstance, qualifiers, name, concrete);
+  }
+
   public CreationalContext getRootContext() {
     return rootContext;
   }
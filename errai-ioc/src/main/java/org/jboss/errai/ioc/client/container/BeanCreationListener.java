@@ -0,0 +1,36 @@
+/*
+ * Copyright 2012 JBoss, by Red Hat, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.errai.ioc.client.container;
+
+/**
+ * A debugging hook which is notified every time the container creates a bean on demand, either because a lazily
+ * created singleton was used for the first time, or because a dependent bean was obtained from the
+ * {@link IOCBeanManager}. A listener is registered with {@link IOCBeanManager#setBeanCreationListener(BeanCreationListener)}.
+ * <p/>
+ * When no listener is registered, no timing information is gathered.
+ */
+public interface BeanCreationListener {
+  /**
+   * Called after a bean has been created and wired.
+   *
+   * @param beanType
+   *     the type of the bean which was created.
+   * @param durationMillis
+   *     the time in milliseconds it took to create the bean, including any dependencies that were created along
+   *     with it.
+   */
+  public void beanCreated(Class<?> beanType, long durationMillis);
+}
@@ -20,11 +20,14 @@ package org.jboss.errai.ioc.client.container;
 import org.jboss.errai.ioc.client.BootstrapperInjectionContext;
 
 import java.lang.annotation.Annotation;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -44,27 +47,61 @@ public class CreationalContext {
 
   private final IOCBeanManager beanManager;
 
-  private final List<Tuple<Object, InitializationCallback>> initializationCallbacks =
-      new ArrayList<Tuple<Object, InitializationCallback>>();
+  /**
+   * Contexts holding more beans than this are looked up through a hash index rather than a linear scan.
+   */
+  private static final int INDEX_THRESHOLD = 8;
+
+  // the following are only allocated once the context needs them, as most contexts of dependent beans hold a
+  // handful of beans and no callbacks or proxies at all.
+  private List<Tuple<Object, InitializationCallback>> initializationCallbacks;
+  private List<Tuple<Object, DestructionCallback>> destructionCallbacks;
+  private Map<BeanRef, List<ProxyResolver>> unresolvedProxies;
 
-  private final List<Tuple<Object, DestructionCallback>> destructionCallbacks
-      = new ArrayList<Tuple<Object, DestructionCallback>>();
+  /**
+   * The beans wired within this context in the order they were added, with their instances at the same index.
+   */
+  private BeanRef[] wiredRefs;
+  private Object[] wiredInstances;
+  private int wiredCount;
+  private Map<BeanRef, Object> wiredIndex;
 
-  private final Map<BeanRef, List<ProxyResolver>> unresolvedProxies
-      = new LinkedHashMap<BeanRef, List<ProxyResolver>>();
+  private Collection<Object> wiredInstancesView;
 
-  private final Map<BeanRef, Object> wired = new LinkedHashMap<BeanRef, Object>();
+  /**
+   * True if the context was handed out by the bean manager and may be reused once it has been destroyed.
+   */
+  private boolean recyclable;
 
   public CreationalContext(final IOCBeanManager beanManager, final String scopeName) {
-    this.beanManager = beanManager;
-    this.immutableContext = false;
-    this.scopeName = scopeName;
+    this(false, beanManager, scopeName, INDEX_THRESHOLD);
   }
 
   public CreationalContext(final boolean immutableContext, final IOCBeanManager beanManager, final String scopeName) {
+    this(immutableContext, beanManager, scopeName, INDEX_THRESHOLD);
+  }
+
+  /**
+   * Creates a creational context with storage pre-sized for the specified number of beans.
+   *
+   * @param immutableContext
+   *     true if the context cannot be destroyed.
+   * @param beanManager
+   *     the bean manager
+   * @param scopeName
+   *     the name of the scope of the context
+   * @param expectedBeans
+   *     the number of beans expected to be created within the context
+   */
+  public CreationalContext(final boolean immutableContext,
+                           final IOCBeanManager beanManager,
+                           final String scopeName,
+                           final int expectedBeans) {
     this.immutableContext = immutableContext;
     this.beanManager = beanManager;
     this.scopeName = scopeName;
+    this.wiredRefs = new BeanRef[Math.max(1, expectedBeans)];
+    this.wiredInstances = new Object[wiredRefs.length];
   }
 
   /**
@@ -77,6 +114,9 @@ public class CreationalContext {
    *     the instance of the {@link InitializationCallback}
    */
   public void addInitializationCallback(final Object beanInstance, final InitializationCallback callback) {
+    if (initializationCallbacks == null) {
+      initializationCallbacks = new ArrayList<Tuple<Object, InitializationCallback>>();
+    }
     initializationCallbacks.add(Tuple.of(beanInstance, callback));
   }
 
@@ -91,6 +131,9 @@ public class CreationalContext {
    *     the instance of the {@link DestructionCallback}
    */
   public void addDestructionCallback(final Object beanInstance, final DestructionCallback callback) {
+    if (destructionCallbacks == null) {
+      destructionCallbacks = new ArrayList<Tuple<Object, DestructionCallback>>();
+    }
     destructionCallbacks.add(Tuple.of(beanInstance, callback));
   }
 
@@ -148,18 +191,97 @@ public class CreationalContext {
    *     the instance of the bean
    */
   public void addBean(final BeanRef ref, final Object instance) {
-    if (!wired.containsKey(ref)) {
-      wired.put(ref, instance);
+    if (isWired(ref)) {
+      return;
+    }
+
+    if (wiredCount == wiredRefs.length) {
+      resize(wiredCount * 2);
+    }
+
+    wiredRefs[wiredCount] = ref;
+    wiredInstances[wiredCount] = instance;
+    wiredCount++;
+
+    if (wiredIndex != null) {
+      wiredIndex.put(ref, instance);
+    }
+    else if (wiredCount > INDEX_THRESHOLD) {
+      wiredIndex = new HashMap<BeanRef, Object>(wiredCount * 4);
+      for (int i = 0; i < wiredCount; i++) {
+        wiredIndex.put(wiredRefs[i], wiredInstances[i]);
+      }
     }
   }
 
+  private void resize(final int newLength) {
+    final BeanRef[] newRefs = new BeanRef[newLength];
+    System.arraycopy(wiredRefs, 0, newRefs, 0, wiredCount);
+    wiredRefs = newRefs;
+
+    final Object[] newInstances = new Object[newLength];
+    System.arraycopy(wiredInstances, 0, newInstances, 0, wiredCount);
+    wiredInstances = newInstances;
+  }
+
+  /**
+   * Grows the storage of this context, if necessary, so that the specified number of beans can be added without
+   * further copying.
+   *
+   * @param expectedBeans
+   *     the number of beans expected to be created within the context
+   */
+  void ensureCapacity(final int expectedBeans) {
+    if (expectedBeans > wiredRefs.length) {
+      resize(expectedBeans);
+    }
+  }
+
+  private int indexOfWired(final BeanRef ref) {
+    for (int i = 0; i < wiredCount; i++) {
+      if (wiredRefs[i].equals(ref)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private Object getWired(final BeanRef ref) {
+    if (wiredIndex != null) {
+      return wiredIndex.get(ref);
+    }
+
+    final int index = indexOfWired(ref);
+    return index == -1 ? null : wiredInstances[index];
+  }
+
+  private boolean isWired(final BeanRef ref) {
+    if (wiredIndex != null) {
+      return wiredIndex.containsKey(ref);
+    }
+    return indexOfWired(ref) != -1;
+  }
+
+  /**
+   * Returns the number of beans which have been created within this creational context.
+   *
+   * @return the number of beans in this creational context.
+   */
+  public int getCreatedBeanCount() {
+    return wiredCount;
+  }
+
   /**
    * Returns a list of all created beans within this creational context.
    *
    * @return An unmodifiable set of all the created beans within this creational context.
    */
   public Set<BeanRef> getAllCreatedBeans() {
-    return Collections.unmodifiableSet(wired.keySet());
+    final Set<BeanRef> refs = new LinkedHashSet<BeanRef>(wiredCount * 2);
+    for (int i = 0; i < wiredCount; i++) {
+      refs.add(wiredRefs[i]);
+    }
+    return Collections.unmodifiableSet(refs);
   }
 
   /**
@@ -168,7 +290,23 @@ public class CreationalContext {
    * @return An unmodifiable collection of every bean instance within the creational context.
    */
   public Collection<Object> getAllCreatedBeanInstances() {
-    return Collections.unmodifiableCollection(wired.values());
+    if (wiredInstancesView == null) {
+      wiredInstancesView = new AbstractList<Object>() {
+        @Override
+        public Object get(final int index) {
+          if (index >= wiredCount) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+          }
+          return wiredInstances[index];
+        }
+
+        @Override
+        public int size() {
+          return wiredCount;
+        }
+      };
+    }
+    return wiredInstancesView;
   }
 
   /**
@@ -185,7 +323,7 @@ public class CreationalContext {
    */
   @SuppressWarnings("unchecked")
   public <T> T getBeanInstance(final Class<T> beanType, final Annotation[] qualifiers) {
-    final T t = (T) wired.get(getBeanReference(beanType, qualifiers));
+    final T t = (T) getWired(getBeanReference(beanType, qualifiers));
     if (t == null) {
       // see if the instance is available in the bean manager
       final Collection<IOCBeanDef<T>> beanList
@@ -201,6 +339,25 @@ public class CreationalContext {
     return t;
   }
 
+  /**
+   * Returns the instance of a bean of the specified type within this creational context, without consulting the
+   * bean manager.
+   *
+   * @param beanType
+   *     the type of the bean
+   *
+   * @return the instance of the bean, or null if no bean of the specified type has been added to this creational
+   *         context.
+   */
+  Object getWiredInstance(final Class<?> beanType) {
+    for (int i = 0; i < wiredCount; i++) {
+      if (wiredRefs[i].getClazz().equals(beanType)) {
+        return wiredInstances[i];
+      }
+    }
+    return null;
+  }
+
   /**
    * Returns the instance of the specified bean of matching type and qualifiers, or if there is no matching bean within
    * the context, the specified {@link CreationalCallback} is called to instantiate and add the bean to the context.
@@ -224,8 +381,8 @@ public class CreationalContext {
                                 final Annotation[] qualifiers) {
     final BeanRef ref = getBeanReference(beanType, qualifiers);
 
-    if (wired.containsKey(ref)) {
-      return (T) wired.get(ref);
+    if (isWired(ref)) {
+      return (T) getWired(ref);
     }
     else {
       return callback.getInstance(this);
@@ -297,11 +454,16 @@ public class CreationalContext {
 
     final BeanRef ref = getBeanReference(beanType, qualifiers);
 
-    if (!unresolvedProxies.containsKey(ref)) {
-      unresolvedProxies.put(ref, new ArrayList<ProxyResolver>());
+    if (unresolvedProxies == null) {
+      unresolvedProxies = new LinkedHashMap<BeanRef, List<ProxyResolver>>();
     }
 
-    unresolvedProxies.get(ref).add(proxyResolver);
+    List<ProxyResolver> resolvers = unresolvedProxies.get(ref);
+    if (resolvers == null) {
+      unresolvedProxies.put(ref, resolvers = new ArrayList<ProxyResolver>(2));
+    }
+
+    resolvers.add(proxyResolver);
   }
 
   /**
@@ -319,70 +481,74 @@ public class CreationalContext {
    */
   @SuppressWarnings("unchecked")
   private void fireAllInitCallbacks() {
+    if (initializationCallbacks == null) {
+      return;
+    }
+
     for (final Tuple<Object, InitializationCallback> entry : initializationCallbacks) {
-      entry.getValue().init(entry.getKey());
+      if (entry != null) {
+        entry.getValue().init(entry.getKey());
+      }
     }
   }
 
   /**
-   * Resolves all proxies which were opened during creation of the beans.
+   * Resolves all proxies which were opened during creation of the beans. Beans which have to be obtained from the
+   * bean manager to close a proxy may open further proxies of their own; these are resolved in the same pass.
    */
   @SuppressWarnings("unchecked")
   private void resolveAllProxies() {
-    boolean beansResolved = false;
-
-    final Iterator<Map.Entry<BeanRef, List<ProxyResolver>>> unresolvedIterator
-        = new LinkedHashMap<BeanRef, List<ProxyResolver>>(unresolvedProxies).entrySet().iterator();
+    if (unresolvedProxies == null) {
+      return;
+    }
 
-    final int initialSize = unresolvedProxies.size();
+    while (!unresolvedProxies.isEmpty()) {
+      final Iterator<Map.Entry<BeanRef, List<ProxyResolver>>> iterator = unresolvedProxies.entrySet().iterator();
+      final Map.Entry<BeanRef, List<ProxyResolver>> entry = iterator.next();
+      final BeanRef ref = entry.getKey();
+      final List<ProxyResolver> resolvers = entry.getValue();
+      iterator.remove();
 
-    while (unresolvedIterator.hasNext()) {
-      final Map.Entry<BeanRef, List<ProxyResolver>> entry = unresolvedIterator.next();
-      if (wired.containsKey(entry.getKey())) {
-        final Object wiredInst = wired.get(entry.getKey());
-        for (final ProxyResolver pr : entry.getValue()) {
-          pr.resolve(wiredInst);
+      final Object wiredInst;
+      if (isWired(ref)) {
+        wiredInst = getWired(ref);
+      }
+      else {
+        final IOCBeanDef<?> iocBeanDef;
+        try {
+          iocBeanDef = IOC.getBeanManager().lookupBean(ref.getClazz(), ref.getAnnotations());
         }
-
-        final Iterator<Tuple<Object, InitializationCallback>> initCallbacks = initializationCallbacks.iterator();
-        while (initCallbacks.hasNext()) {
-          final Tuple<Object, InitializationCallback> tuple = initCallbacks.next();
-          if (tuple.getKey() == wiredInst) {
-            tuple.getValue().init(tuple.getKey());
-            initCallbacks.remove();
-          }
+        catch (IOCResolutionException e) {
+          throw new RuntimeException("unresolved proxy: " + ref, e);
         }
+        addBean(ref, wiredInst = iocBeanDef.getInstance(this));
+      }
 
-        unresolvedIterator.remove();
+      for (final ProxyResolver pr : resolvers) {
+        pr.resolve(wiredInst);
       }
-      else {
-        final IOCBeanDef<?> iocBeanDef =
-            IOC.getBeanManager().lookupBean(entry.getKey().getClazz(), entry.getKey().getAnnotations());
 
-        if (iocBeanDef != null) {
-          if (!wired.containsKey(entry.getKey())) {
-            addBean(getBeanReference(entry.getKey().getClazz(), entry.getKey().getAnnotations()), iocBeanDef.getInstance(this));
+      // the proxied bean is now in service, so it can be initialized ahead of the rest of the context
+      if (initializationCallbacks != null) {
+        for (int i = 0; i < initializationCallbacks.size(); i++) {
+          final Tuple<Object, InitializationCallback> tuple = initializationCallbacks.get(i);
+          if (tuple != null && tuple.getKey() == wiredInst) {
+            initializationCallbacks.set(i, null);
+            tuple.getValue().init(tuple.getKey());
           }
-
-          beansResolved = true;
         }
       }
     }
 
-    if (beansResolved) {
-      resolveAllProxies();
-    }
-    else if (!unresolvedProxies.isEmpty() && initialSize != unresolvedProxies.size()) {
-      throw new RuntimeException("unresolved proxy: " + unresolvedProxies.entrySet().iterator().next().getKey());
-    }
+    unresolvedProxies = null;
   }
 
   /**
    * Registers all created beans with the bean manager.
    */
   private void registerAllBeans() {
-    for (final Object ref : getAllCreatedBeanInstances()) {
-      beanManager.addBeanToContext(ref, this);
+    for (int i = 0; i < wiredCount; i++) {
+      beanManager.addBeanToContext(wiredInstances[i], this);
     }
   }
 
@@ -396,8 +562,34 @@ public class CreationalContext {
       throw new IllegalStateException("scope [" + scopeName + "] is an immutable scope and cannot be destroyed");
     }
 
-    for (final Tuple<Object, DestructionCallback> tuple : destructionCallbacks) {
-      tuple.getValue().destroy(tuple.getKey());
+    if (destructionCallbacks != null) {
+      for (final Tuple<Object, DestructionCallback> tuple : destructionCallbacks) {
+        tuple.getValue().destroy(tuple.getKey());
+      }
+    }
+  }
+
+  /**
+   * Clears all state from a destroyed context so that it may be reused for the creation of another bean.
+   */
+  void reset() {
+    for (int i = 0; i < wiredCount; i++) {
+      wiredRefs[i] = null;
+      wiredInstances[i] = null;
     }
+    wiredCount = 0;
+    wiredIndex = null;
+
+    initializationCallbacks = null;
+    destructionCallbacks = null;
+    unresolvedProxies = null;
+  }
+
+  boolean isRecyclable() {
+    return recyclable;
+  }
+
+  void setRecyclable(final boolean recyclable) {
+    this.recyclable = recyclable;
   }
 }
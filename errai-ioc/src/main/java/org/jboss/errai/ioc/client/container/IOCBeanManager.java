@@ -16,6 +16,7 @@
 
 package org.jboss.errai.ioc.client.container;
 
+import javax.enterprise.context.Dependent;
 import java.lang.annotation.Annotation;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -67,6 +68,53 @@ public class IOCBeanManager {
   private final Set<String> concreteBeans
       = new HashSet<String>();
 
+  /**
+   * A list of all beans managed by the bean manager, in registration order. Used to satisfy lookups of
+   * <tt>java.lang.Object</tt> without copying every list in the {@link #beanMap}.
+   */
+  private final List<IOCBeanDef> allBeans
+      = new ArrayList<IOCBeanDef>();
+
+  /**
+   * The types under which beans of each bean class are registered, keyed by the name of the bean class. Used to find
+   * the memoized lookups affected when a bean class becomes concrete.
+   */
+  private final Map<String, Set<Class<?>>> typesByBeanClass
+      = new HashMap<String, Set<Class<?>>>();
+
+  /**
+   * Memoized results of {@link #lookupBeans(Class)}, keyed by type. The result for a type is discarded when a bean of
+   * that type is registered.
+   */
+  private final Map<Class<?>, List<IOCBeanDef>> typeLookupCache
+      = new HashMap<Class<?>, List<IOCBeanDef>>();
+
+  /**
+   * Memoized results of {@link #lookupBeans(Class, java.lang.annotation.Annotation...)}, keyed by type and then by
+   * the {@link QualifierSignature} of the requested qualifiers. When a bean is registered, only the results for its
+   * type whose qualifiers it matches are discarded.
+   */
+  private final Map<Class<?>, Map<QualifierSignature, List<IOCBeanDef>>> qualifiedLookupCache
+      = new HashMap<Class<?>, Map<QualifierSignature, List<IOCBeanDef>>>();
+
+  /**
+   * The creational context of the lazily created singleton currently being wired, if any.
+   */
+  private CreationalContext lazyCreationalContext;
+
+  private BeanCreationListener beanCreationListener;
+
+  /**
+   * The maximum number of destroyed dependent contexts kept for reuse.
+   */
+  private static final int MAX_POOLED_CONTEXTS = 32;
+
+  /**
+   * Destroyed {@link CreationalContext}s of dependent beans, ready to be reused.
+   */
+  private final List<CreationalContext> contextPool
+      = new ArrayList<CreationalContext>();
+
   public IOCBeanManager() {
     // java.lang.Object is "special" in that it is treated like a concrete bean type for the purpose of
     // lookups. This modifies the lookup behavior to exclude other non-concrete types from qualified matching.
@@ -209,7 +257,7 @@ public class IOCBeanManager {
                       final boolean concreteType) {
 
     if (concreteType) {
-      concreteBeans.add(type.getName());
+      addConcreteBean(type.getName());
     }
 
     if (instance != null) {
@@ -221,6 +269,65 @@ public class IOCBeanManager {
   }
 
 
+  /**
+   * Register a singleton bean which is created the first time it is looked up or injected. This is called by the
+   * generated bootstrapper when lazy singleton creation is enabled.
+   *
+   * @param type
+   *     the bean type
+   * @param beanType
+   *     the actual type of the bean
+   * @param callback
+   *     the creational callback used to construct the bean
+   * @param lazyInstance
+   *     the holder which creates and holds the instance of the bean
+   * @param qualifiers
+   *     any qualifiers
+   * @param name
+   *     the name of the bean
+   * @param concreteType
+   *     true if bean should be treated as concrete (ie. not an interface or abstract type).
+   */
+  public void addLazySingletonBean(final Class<Object> type,
+                                   final Class<?> beanType,
+                                   final CreationalCallback<Object> callback,
+                                   final LazySingleton<Object> lazyInstance,
+                                   final Annotation[] qualifiers,
+                                   final String name,
+                                   final boolean concreteType) {
+
+    if (concreteType) {
+      addConcreteBean(type.getName());
+    }
+
+    _registerNamedBean(name,
+        registerBean(IOCSingletonBean.newLazyBean(this, type, beanType, qualifiers, name, concreteType, callback,
+            lazyInstance)));
+  }
+
+  /**
+   * Sets a {@link BeanCreationListener} to be notified of the time taken to create beans on demand. This is intended
+   * for debugging and profiling the startup of an application.
+   *
+   * @param listener
+   *     the listener, or null to stop gathering timings.
+   */
+  public void setBeanCreationListener(final BeanCreationListener listener) {
+    this.beanCreationListener = listener;
+  }
+
+  BeanCreationListener getBeanCreationListener() {
+    return beanCreationListener;
+  }
+
+  CreationalContext getLazyCreationalContext() {
+    return lazyCreationalContext;
+  }
+
+  void setLazyCreationalContext(final CreationalContext lazyCreationalContext) {
+    this.lazyCreationalContext = lazyCreationalContext;
+  }
+
   /**
    * Destroy a bean and all other beans associated with its creational context in the bean manager.
    *
@@ -242,6 +349,34 @@ public class IOCBeanManager {
       proxyLookupForManagedBeans.remove(inst);
       proxyLookupForManagedBeans.values().remove(inst);
     }
+
+    if (creationalContext.isRecyclable() && contextPool.size() < MAX_POOLED_CONTEXTS) {
+      creationalContext.reset();
+      contextPool.add(creationalContext);
+    }
+  }
+
+  /**
+   * Returns a {@link CreationalContext} for creating a dependent bean, reusing the context of a previously destroyed
+   * bean if one is available. A reused context is grown to hold the expected number of beans.
+   *
+   * @param expectedBeans
+   *     the number of beans expected to be created within the context
+   *
+   * @return a dependent scoped creational context.
+   */
+  CreationalContext newDependentContext(final int expectedBeans) {
+    final int pooled = contextPool.size();
+    if (pooled != 0) {
+      final CreationalContext context = contextPool.remove(pooled - 1);
+      context.ensureCapacity(expectedBeans);
+      return context;
+    }
+
+    final CreationalContext context
+        = new CreationalContext(false, this, Dependent.class.getName(), expectedBeans);
+    context.setRecyclable(true);
+    return context;
   }
 
   /**
@@ -326,9 +461,102 @@ public class IOCBeanManager {
       beanMap.put(bean.getType(), new ArrayList<IOCBeanDef>());
     }
     beanMap.get(bean.getType()).add(bean);
+    allBeans.add(bean);
+
+    if (bean.getBeanClass() != null) {
+      final String beanClassName = bean.getBeanClass().getName();
+      if (!typesByBeanClass.containsKey(beanClassName)) {
+        typesByBeanClass.put(beanClassName, new HashSet<Class<?>>());
+      }
+      typesByBeanClass.get(beanClassName).add(bean.getType());
+    }
+
+    invalidateLookupsMatching(bean.getType(), bean);
+    invalidateLookupsMatching(Object.class, bean);
     return bean;
   }
 
+  /**
+   * Discards the memoized lookups of the specified type which the specified newly registered bean is a candidate for.
+   */
+  private void invalidateLookupsMatching(final Class<?> type, final IOCBeanDef<?> bean) {
+    typeLookupCache.remove(type);
+
+    final Map<QualifierSignature, List<IOCBeanDef>> resultsByQualifiers = qualifiedLookupCache.get(type);
+    if (resultsByQualifiers != null) {
+      final Iterator<QualifierSignature> signatures = resultsByQualifiers.keySet().iterator();
+      while (signatures.hasNext()) {
+        if (bean.matches(signatures.next().toSet())) {
+          signatures.remove();
+        }
+      }
+    }
+  }
+
+  /**
+   * Records that beans of the specified type are concrete. Qualified lookups which matched more than one bean filter
+   * the candidates by this, so the memoized lookups of the type itself, and those lookups of other types which a bean
+   * of this bean class is a candidate for, are discarded.
+   */
+  private void addConcreteBean(final String typeName) {
+    if (!concreteBeans.add(typeName)) {
+      return;
+    }
+
+    final Iterator<Class<?>> types = qualifiedLookupCache.keySet().iterator();
+    while (types.hasNext()) {
+      if (types.next().getName().equals(typeName)) {
+        types.remove();
+      }
+    }
+
+    final Set<Class<?>> typesOfBeanClass = typesByBeanClass.get(typeName);
+    if (typesOfBeanClass != null) {
+      for (final Class<?> type : typesOfBeanClass) {
+        invalidateLookupsMatchingBeanClass(type, typeName);
+      }
+      invalidateLookupsMatchingBeanClass(Object.class, typeName);
+    }
+  }
+
+  /**
+   * Discards the memoized qualified lookups of the specified type which a bean of the specified bean class is a
+   * candidate for.
+   */
+  private void invalidateLookupsMatchingBeanClass(final Class<?> type, final String beanClassName) {
+    final Map<QualifierSignature, List<IOCBeanDef>> resultsByQualifiers = qualifiedLookupCache.get(type);
+    if (resultsByQualifiers == null) {
+      return;
+    }
+
+    for (final IOCBeanDef bean : getBeansOfType(type)) {
+      if (bean.getBeanClass() == null || !bean.getBeanClass().getName().equals(beanClassName)) {
+        continue;
+      }
+
+      final Iterator<QualifierSignature> signatures = resultsByQualifiers.keySet().iterator();
+      while (signatures.hasNext()) {
+        if (bean.matches(signatures.next().toSet())) {
+          signatures.remove();
+        }
+      }
+    }
+  }
+
+  private void invalidateLookupCaches() {
+    typeLookupCache.clear();
+    qualifiedLookupCache.clear();
+  }
+
+  private List<IOCBeanDef> getBeansOfType(final Class<?> type) {
+    if (type.getName().equals("java.lang.Object")) {
+      return allBeans;
+    }
+    else {
+      return beanMap.get(type);
+    }
+  }
+
   /**
    * Looks up all beans with the specified bean name as specified by {@link javax.inject.Named}.
    *
@@ -357,27 +585,22 @@ public class IOCBeanManager {
    */
   @SuppressWarnings("unchecked")
   public <T> Collection<IOCBeanDef<T>> lookupBeans(final Class<T> type) {
-    final List<IOCBeanDef> beanList;
+    List<IOCBeanDef> matching = typeLookupCache.get(type);
 
-    if (type.getName().equals("java.lang.Object")) {
-      beanList = new ArrayList<IOCBeanDef>();
-      for (final List<IOCBeanDef> list : beanMap.values()) {
-        beanList.addAll(list);
-      }
-    }
-    else {
-      beanList = beanMap.get(type);
-    }
-
-    final List<IOCBeanDef<T>> matching = new ArrayList<IOCBeanDef<T>>();
+    if (matching == null) {
+      final List<IOCBeanDef> beanList = getBeansOfType(type);
 
-    if (beanList != null) {
-      for (final IOCBeanDef<T> beanDef : beanList) {
-        matching.add(beanDef);
+      if (beanList == null) {
+        matching = Collections.emptyList();
       }
+      else {
+        matching = Collections.unmodifiableList(new ArrayList<IOCBeanDef>(beanList));
+      }
+
+      typeLookupCache.put(type, matching);
     }
 
-    return Collections.unmodifiableList(matching);
+    return (Collection) matching;
   }
 
   /**
@@ -394,26 +617,36 @@ public class IOCBeanManager {
    */
   @SuppressWarnings("unchecked")
   public <T> Collection<IOCBeanDef<T>> lookupBeans(final Class<T> type, final Annotation... qualifiers) {
-    final List<IOCBeanDef> beanList;
-
-    if (type.getName().equals("java.lang.Object")) {
-      beanList = new ArrayList<IOCBeanDef>();
-      for (final List<IOCBeanDef> list : beanMap.values()) {
-        beanList.addAll(list);
-      }
-    }
-    else {
-      beanList = beanMap.get(type);
-    }
+    final List<IOCBeanDef> beanList = getBeansOfType(type);
 
     if (beanList == null) {
       return Collections.emptyList();
     }
     else if (beanList.size() == 1) {
-      return Collections.singletonList((IOCBeanDef<T>) beanList.iterator().next());
+      return Collections.singletonList((IOCBeanDef<T>) beanList.get(0));
+    }
+
+    Map<QualifierSignature, List<IOCBeanDef>> resultsByQualifiers = qualifiedLookupCache.get(type);
+    if (resultsByQualifiers == null) {
+      qualifiedLookupCache.put(type, resultsByQualifiers = new HashMap<QualifierSignature, List<IOCBeanDef>>());
+    }
+
+    final QualifierSignature signature = new QualifierSignature(qualifiers);
+    List<IOCBeanDef> matching = resultsByQualifiers.get(signature);
+
+    if (matching == null) {
+      matching = Collections.unmodifiableList(resolveBeans(type, beanList, qualifiers));
+      resultsByQualifiers.put(signature, matching);
     }
 
-    final List<IOCBeanDef<T>> matching = new ArrayList<IOCBeanDef<T>>();
+    return (Collection) matching;
+  }
+
+  private List<IOCBeanDef> resolveBeans(final Class<?> type,
+                                        final List<IOCBeanDef> beanList,
+                                        final Annotation[] qualifiers) {
+
+    final List<IOCBeanDef> matching = new ArrayList<IOCBeanDef>();
 
     final Set<Annotation> qualifierSet = new HashSet<Annotation>(qualifiers.length * 2);
     Collections.addAll(qualifierSet, qualifiers);
@@ -424,13 +657,9 @@ public class IOCBeanManager {
       }
     }
 
-    if (matching.size() == 1) {
-      return Collections.unmodifiableList(matching);
-    }
-
     if (matching.size() > 1) {
       // perform second pass
-      final Iterator<IOCBeanDef<T>> secondIterator = matching.iterator();
+      final Iterator<IOCBeanDef> secondIterator = matching.iterator();
 
       if (concreteBeans.contains(type.getName())) {
         while (secondIterator.hasNext()) {
@@ -446,7 +675,7 @@ public class IOCBeanManager {
       }
     }
 
-    return Collections.unmodifiableList(matching);
+    return matching;
   }
 
   /**
@@ -507,5 +736,9 @@ public class IOCBeanManager {
   void destroyAllBeans() {
     namedBeans.clear();
     beanMap.clear();
+    allBeans.clear();
+    typesByBeanClass.clear();
+    invalidateLookupCaches();
+    contextPool.clear();
   }
 }
@@ -30,6 +30,11 @@ public class IOCDependentBean<T> extends AbstractIOCBean<T> {
   protected final IOCBeanManager beanManager;
   protected final CreationalCallback<T> creationalCallback;
 
+  /**
+   * The number of beans created along with the last instance of this bean, used to size the next context.
+   */
+  private int expectedBeans = 1;
+
   protected IOCDependentBean(final IOCBeanManager beanManager,
                              final Class<T> type,
                              final Class<?> beanType,
@@ -65,23 +70,37 @@ public class IOCDependentBean<T> extends AbstractIOCBean<T> {
 
   @Override
   public T newInstance() {
-    final CreationalContext context = new CreationalContext(beanManager, Dependent.class.getName());
+    final BeanCreationListener listener = beanManager.getBeanCreationListener();
+    final long start = listener == null ? 0 : System.currentTimeMillis();
+
+    final CreationalContext context = beanManager.newDependentContext(expectedBeans);
     try {
       return creationalCallback.getInstance(context);
     }
     finally {
       context.finish();
+      expectedBeans = Math.max(expectedBeans, context.getCreatedBeanCount());
+      if (listener != null) {
+        listener.beanCreated(beanType, System.currentTimeMillis() - start);
+      }
     }
   }
 
   @Override
   public T getInstance() {
-    final CreationalContext context = new CreationalContext(beanManager, Dependent.class.getName());
+    final BeanCreationListener listener = beanManager.getBeanCreationListener();
+    final long start = listener == null ? 0 : System.currentTimeMillis();
+
+    final CreationalContext context = beanManager.newDependentContext(expectedBeans);
     try {
       return getInstance(context);
     }
     finally {
       context.finish();
+      expectedBeans = Math.max(expectedBeans, context.getCreatedBeanCount());
+      if (listener != null) {
+        listener.beanCreated(beanType, System.currentTimeMillis() - start);
+      }
     }
   }
 
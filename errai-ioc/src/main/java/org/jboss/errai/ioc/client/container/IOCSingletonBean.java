@@ -26,6 +26,7 @@ import java.lang.annotation.Annotation;
  */
 public class IOCSingletonBean<T> extends IOCDependentBean<T> {
   private final T instance;
+  private final LazySingleton<T> lazyInstance;
 
   private IOCSingletonBean(final IOCBeanManager beanManager,
                            final Class<T> type,
@@ -34,10 +35,12 @@ public class IOCSingletonBean<T> extends IOCDependentBean<T> {
                            final String name,
                            final boolean concrete,
                            final CreationalCallback<T> callback,
-                           final T instance) {
+                           final T instance,
+                           final LazySingleton<T> lazyInstance) {
 
     super(beanManager, type, beanType, qualifiers, name, concrete, callback);
     this.instance = instance;
+    this.lazyInstance = lazyInstance;
   }
 
   /**
@@ -65,11 +68,43 @@ public class IOCSingletonBean<T> extends IOCDependentBean<T> {
                                           final CreationalCallback<T> callback,
                                           final T instance) {
 
-    return new IOCSingletonBean<T>(beanManager, type, beanType, qualifiers, name, concrete, callback, instance);
+    return new IOCSingletonBean<T>(beanManager, type, beanType, qualifiers, name, concrete, callback, instance, null);
+  }
+
+  /**
+   * Creates a new IOC Bean reference for a singleton which is created the first time it is used.
+   *
+   * @param type
+   *     The type of a bean
+   * @param qualifiers
+   *     The qualifiers of the bean.
+   * @param name
+   *     The name of the bean
+   * @param lazyInstance
+   *     The holder which creates the instance of the bean on first use.
+   * @param <T>
+   *     The type of the bean
+   *
+   * @return A new instance of <tt>IOCSingletonBean</tt>
+   */
+  public static <T> IOCBeanDef<T> newLazyBean(final IOCBeanManager beanManager,
+                                              final Class<T> type,
+                                              final Class<?> beanType,
+                                              final Annotation[] qualifiers,
+                                              final String name,
+                                              final boolean concrete,
+                                              final CreationalCallback<T> callback,
+                                              final LazySingleton<T> lazyInstance) {
+
+    return new IOCSingletonBean<T>(beanManager, type, beanType, qualifiers, name, concrete, callback, null,
+        lazyInstance);
   }
 
   @Override
   public T getInstance(final CreationalContext context) {
+    if (lazyInstance != null) {
+      return lazyInstance.getInstance();
+    }
     return instance;
   }
 
@@ -85,6 +120,9 @@ public class IOCSingletonBean<T> extends IOCDependentBean<T> {
 
   @Override
   public String toString() {
-    return "IOCSingletonBean [instance=" + instance + "]";
+    if (lazyInstance != null && !lazyInstance.isCreated()) {
+      return "IOCSingletonBean [instance=<not yet created>]";
+    }
+    return "IOCSingletonBean [instance=" + getInstance() + "]";
   }
 }
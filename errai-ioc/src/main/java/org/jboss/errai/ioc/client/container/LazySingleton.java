@@ -0,0 +1,105 @@
+/*
+ * Copyright 2012 JBoss, by Red Hat, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.errai.ioc.client.container;
+
+import javax.enterprise.context.ApplicationScoped;
+
+/**
+ * Holds a singleton bean which is created the first time it is looked up or injected, rather than when the container
+ * is bootstrapped. The generated bootstrapper declares one instance of this class for each lazily created singleton
+ * and shares it between every bean definition and injection point of the bean.
+ * <p/>
+ * Singletons which are created while another lazily created singleton is being wired join the creational context of
+ * the outermost bean, so their initialization callbacks run together once the whole graph is wired. A cycle back to a
+ * bean which is still being wired is satisfied with the already constructed instance, exactly as it would be within a
+ * single creational context.
+ */
+public class LazySingleton<T> {
+  private final Class<T> beanType;
+  private final CreationalCallback<T> callback;
+
+  private T instance;
+  private boolean creating;
+
+  public LazySingleton(final Class<T> beanType,
+                       final CreationalCallback<T> callback) {
+    this.beanType = beanType;
+    this.callback = callback;
+  }
+
+  /**
+   * Returns the singleton instance, creating it if it does not yet exist.
+   *
+   * @return the instance of the bean.
+   */
+  @SuppressWarnings("unchecked")
+  public T getInstance() {
+    if (instance != null) {
+      return instance;
+    }
+
+    final IOCBeanManager beanManager = IOC.getBeanManager();
+    CreationalContext context = beanManager.getLazyCreationalContext();
+
+    if (creating) {
+      final T wired = context == null ? null : (T) context.getWiredInstance(beanType);
+      if (wired == null) {
+        throw new IOCResolutionException("cannot resolve the cyclic dependency on " + beanType.getName()
+            + ": the bean is required before it has been constructed");
+      }
+      return wired;
+    }
+
+    final boolean outermost = context == null;
+    if (outermost) {
+      context = new CreationalContext(true, beanManager, ApplicationScoped.class.getName());
+      beanManager.setLazyCreationalContext(context);
+    }
+
+    final BeanCreationListener listener = beanManager.getBeanCreationListener();
+    final long start = listener == null ? 0 : System.currentTimeMillis();
+
+    creating = true;
+    try {
+      instance = callback.getInstance(context);
+    }
+    finally {
+      creating = false;
+      if (outermost) {
+        beanManager.setLazyCreationalContext(null);
+      }
+    }
+
+    if (outermost) {
+      context.finish();
+    }
+
+    if (listener != null) {
+      listener.beanCreated(beanType, System.currentTimeMillis() - start);
+    }
+
+    return instance;
+  }
+
+  /**
+   * Returns true if the singleton instance has been created.
+   *
+   * @return true if the bean has been created.
+   */
+  public boolean isCreated() {
+    return instance != null;
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2012 JBoss, by Red Hat, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.ioc.client.container;
+
+import org.jboss.errai.ioc.client.QualifierUtil;
+
+import java.lang.annotation.Annotation;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * An order-insensitive key for a set of qualifiers, used by the {@link IOCBeanManager} to memoize bean lookups.
+ * Qualifiers are compared and hashed through {@link QualifierUtil}, so two signatures built from distinct but equal
+ * annotation instances (e.g. annotation literals created for each lookup) are equal.
+ */
+final class QualifierSignature {
+  private final Annotation[] qualifiers;
+  private final int hashCode;
+
+  QualifierSignature(final Annotation[] qualifiers) {
+    // the signature is kept as a key, so it must not see later changes to the caller's varargs array
+    this.qualifiers = new Annotation[qualifiers.length];
+    System.arraycopy(qualifiers, 0, this.qualifiers, 0, qualifiers.length);
+
+    int hash = qualifiers.length;
+    for (final Annotation qualifier : qualifiers) {
+      hash += QualifierUtil.hashCodeOf(qualifier);
+    }
+    this.hashCode = hash;
+  }
+
+  /**
+   * Returns the qualifiers of this signature as a set, as matched by {@link IOCBeanDef#matches(java.util.Set)}.
+   */
+  Set<Annotation> toSet() {
+    final Set<Annotation> qualifierSet = new HashSet<Annotation>(qualifiers.length * 2);
+    Collections.addAll(qualifierSet, qualifiers);
+    return qualifierSet;
+  }
+
+  @Override
+  public boolean equals(final Object o) {
+    if (this == o) return true;
+    if (!(o instanceof QualifierSignature)) return false;
+
+    final QualifierSignature that = (QualifierSignature) o;
+    if (hashCode != that.hashCode || qualifiers.length != that.qualifiers.length) {
+      return false;
+    }
+
+    return containsAll(qualifiers, that.qualifiers) && containsAll(that.qualifiers, qualifiers);
+  }
+
+  @Override
+  public int hashCode() {
+    return hashCode;
+  }
+
+  private static boolean containsAll(final Annotation[] in, final Annotation[] allOf) {
+    Search:
+    for (final Annotation a : allOf) {
+      for (final Annotation b : in) {
+        if (QualifierUtil.isSameType(a, b) && QualifierUtil.isEqual(a, b)) {
+          continue Search;
+        }
+      }
+      return false;
+    }
+    return true;
+  }
+}
@@ -20,6 +20,7 @@ package org.jboss.errai.ioc.rebind.ioc.bootstrapper;
 import static org.jboss.errai.codegen.util.Stmt.loadVariable;
 
 import java.io.File;
+import java.io.IOException;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
@@ -32,6 +33,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.TreeSet;
 
 import javax.enterprise.context.Dependent;
 import javax.enterprise.context.NormalScope;
@@ -70,6 +72,7 @@ import org.jboss.errai.common.metadata.MetaDataScanner;
 import org.jboss.errai.common.metadata.RebindUtils;
 import org.jboss.errai.common.metadata.ScannerSingleton;
 import org.jboss.errai.config.rebind.EnvUtil;
+import org.jboss.errai.config.rebind.GeneratedSourceCache;
 import org.jboss.errai.config.rebind.ReachableTypes;
 import org.jboss.errai.config.util.ClassScanner;
 import org.jboss.errai.config.util.ThreadUtil;
@@ -114,6 +117,7 @@ public class IOCBootstrapGenerator {
 
   public static final String QUALIFYING_METADATA_FACTORY_PROPERTY = "errai.ioc.QualifyingMetaDataFactory";
   public static final String ENABLED_ALTERNATIVES_PROPERTY = "errai.ioc.enabled.alternatives";
+  public static final String LAZY_SINGLETONS_PROPERTY = "errai.ioc.lazy_singletons";
   public static final String EXPERIMENTAL_INFER_DEPENDENT_BY_REACHABILITY
       = "errai.ioc.experimental.infer_dependent_by_reachability";
 
@@ -152,11 +156,44 @@ public class IOCBootstrapGenerator {
         GWTUtil.populateMetaClassFactoryFromTypeOracle(context, logger);
       }
 
-      log.info("generating IOC bootstrapping class...");
-      final long st = System.currentTimeMillis();
-      gen = _generate(packageName, className);
-      log.info("generated IOC bootstrapping class in " + (System.currentTimeMillis() - st) + "ms "
-          + "(" + MetaClassFactory.getAllCachedClasses().size() + " beans processed)");
+      final String fingerprint;
+      final String cachedSource;
+      // context == null during some tests, in which case there are no source units to fingerprint
+      if (context != null && GeneratedSourceCache.isEnabled()) {
+        fingerprint = GeneratedSourceCache.fingerprint()
+            .add("target", packageName + "." + className)
+            .add("packages", new TreeSet<String>(packages))
+            .add("useReflectionStubs", useReflectionStubs)
+            .add("testMode", IOCGenerator.isTestMode)
+            .addConfiguration()
+            .addSourceStamps(getSourceUnits())
+            .toHash();
+        cachedSource = GeneratedSourceCache.getCachedSource(className, fingerprint,
+            IOCProcessorFactory.getBeanGraphFile());
+      }
+      else {
+        fingerprint = null;
+        cachedSource = null;
+      }
+
+      if (cachedSource != null) {
+        // the extension configurators and bootstrap tasks validate the environment and may have effects beyond the
+        // generated source, so they run even if the source is reused.
+        _generate(packageName, className, true);
+        gen = cachedSource;
+      }
+      else {
+        log.info("generating IOC bootstrapping class...");
+        final long st = System.currentTimeMillis();
+        gen = _generate(packageName, className, false);
+        log.info("generated IOC bootstrapping class in " + (System.currentTimeMillis() - st) + "ms "
+            + "(" + MetaClassFactory.getAllCachedClasses().size() + " beans processed)");
+        log.debug("meta class cache statistics: " + MetaClassFactory.getCacheStatistics());
+
+        if (fingerprint != null) {
+          GeneratedSourceCache.putCachedSource(className, fingerprint, gen, IOCProcessorFactory.getBeanGraphFile());
+        }
+      }
 
       ThreadUtil.execute(new Runnable() {
         @Override
@@ -171,7 +208,26 @@ public class IOCBootstrapGenerator {
     }
   }
 
-  private String _generate(final String packageName, final String className) {
+  /**
+   * Returns the names of the top-level types in the packages scanned by this generator.
+   */
+  private Set<String> getSourceUnits() {
+    final Set<String> units = new TreeSet<String>();
+    for (final JClassType type : context.getTypeOracle().getTypes()) {
+      if (type.getEnclosingType() == null && packages.contains(type.getPackage().getName())) {
+        units.add(type.getQualifiedSourceName());
+      }
+    }
+    return units;
+  }
+
+  /**
+   * Generates the bootstrapper.
+   *
+   * @param configureOnly
+   *     if true, only the extensions are processed and null is returned.
+   */
+  private String _generate(final String packageName, final String className, final boolean configureOnly) {
     final ReachableTypes allDeps = EnvUtil.getAllReachableClasses(context);
 
     final ClassStructureBuilder<?> classStructureBuilder =
@@ -310,6 +366,10 @@ public class IOCBootstrapGenerator {
             injectionContextBuilder.enabledAlternative(alternative.trim());
           }
       }
+
+      for (final String prop : props.get(LAZY_SINGLETONS_PROPERTY)) {
+        injectionContextBuilder.lazySingletons(Boolean.parseBoolean(prop.trim()));
+      }
     }
 
     iocProcContextBuilder.packages(packages);
@@ -325,16 +385,25 @@ public class IOCBootstrapGenerator {
     // generator constructor source code
     final IOCProcessorFactory procFactory = new IOCProcessorFactory(injectionContext);
     processExtensions(context, procContext, injectionContext, procFactory, beforeTasks, afterTasks);
-    generateExtensions(procContext, procFactory, injectionContext, sourceWriter, classStructureBuilder, blockBuilder);
+    if (configureOnly) {
+      return null;
+    }
+    generateExtensions(procContext, procFactory, injectionContext, classStructureBuilder, blockBuilder);
 
-    // close generated class
-    return sourceWriter.toString();
+    // render the generated class (including the proxies and other inner classes) into a single buffer
+    final StringBuilder out = new StringBuilder(64 * 1024);
+    try {
+      classStructureBuilder.renderTo(out);
+    }
+    catch (IOException e) {
+      throw new RuntimeException("could not render IOC bootstrapper", e);
+    }
+    return out.toString();
   }
 
   private void generateExtensions(final IOCProcessingContext procContext,
                                   final IOCProcessorFactory procFactory,
                                   final InjectionContext injectionContext,
-                                  final SourceWriter sourceWriter,
                                   final ClassStructureBuilder<?> classBuilder,
                                   final BlockBuilder<?> blockBuilder) {
 
@@ -394,8 +463,6 @@ public class IOCBootstrapGenerator {
     blockBuilder.append(loadVariable(procContext.getContextVariableReference()).returnValue());
 
     blockBuilder.finish();
-
-    sourceWriter.print(classBuilder.toJavaString());
   }
 
   private static void _doRunnableTasks(final Collection<MetaClass> classes, final BlockBuilder<?> blockBuilder) {
@@ -512,30 +512,16 @@ public class IOCProcessorFactory {
     while (!processingTasksStack.isEmpty());
 
     final List<SortUnit> toSort = injectionContext.getGraphBuilder().build();
-    final List<SortUnit> list = GraphSort.sortGraph(toSort);
+    final Set<String> typesWithCycles = new HashSet<String>();
+    final List<SortUnit> list = GraphSort.sortGraph(toSort, typesWithCycles);
 
-    final File dotFile = new File(RebindUtils.getErraiCacheDir().getAbsolutePath() + "/beangraph.gv");
-
-    RebindUtils.writeStringToFile(dotFile,
+    RebindUtils.writeStringToFile(getBeanGraphFile(),
         "//\n" +
             "// Generated IOC bean dependency graph in GraphViz DOT format.\n" +
             "//\n\n" +
             GraphBuilder.toDOTRepresentation(list));
 
-    for (final SortUnit unit : list) {
-      if (unit.isCyclicGraph()) {
-        final Set<String> knownCycles = new HashSet<String>();
-        knownCycles.add(unit.getType().getFullyQualifiedName());
-
-        for (final SortUnit dep : unit.getDependencies()) {
-          if (dep.isCyclicGraph()) {
-            knownCycles.add(dep.getType().getFullyQualifiedName());
-          }
-        }
-
-        injectionContext.addKnownTypesWithCycles(knownCycles);
-      }
-    }
+    injectionContext.addKnownTypesWithCycles(typesWithCycles);
 
     for (final SortUnit unit : list) {
       for (final Object item : unit.getItems()) {
@@ -546,6 +532,13 @@ public class IOCProcessorFactory {
     }
   }
 
+  /**
+   * Returns the file the bean dependency graph is rendered to in GraphViz DOT format.
+   */
+  public static File getBeanGraphFile() {
+    return new File(RebindUtils.getErraiCacheDir().getAbsolutePath() + "/beangraph.gv");
+  }
+
   @SuppressWarnings("unchecked")
   private void handleType(final ProcessingEntry entry,
                           final DependencyControl dependencyControl,
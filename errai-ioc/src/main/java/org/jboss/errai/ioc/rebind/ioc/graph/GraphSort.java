@@ -16,15 +16,12 @@
 
 package org.jboss.errai.ioc.rebind.ioc.graph;
 
-import org.jboss.errai.codegen.meta.MetaClass;
-
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.IdentityHashMap;
-import java.util.LinkedHashMap;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -41,6 +38,10 @@ public final class GraphSort {
 
   /**
    * Performs of a topological sort and returns a new list of sorted {@link SortUnit}s.
+   * <p>
+   * The result is the same as ordering the topologically sorted units by their natural ordering (see
+   * {@link SortUnit#compareTo(SortUnit)}), but the strongly connected components and depths of the units are computed
+   * once up front, rather than walking the graph again for each comparison.
    *
    * @param in
    *         a list of sort units to be sorted.
@@ -49,10 +50,46 @@ public final class GraphSort {
    */
   public static List<SortUnit> sortGraph(final Collection<SortUnit> in) {
     final List<SortUnit> sortUnitList = topologicalSort(new ArrayList<SortUnit>(in));
-    Collections.sort(sortUnitList);
+    Collections.sort(sortUnitList, new CycleDepthComparator(sortUnitList));
     return sortUnitList;
   }
 
+  /**
+   * Performs a topological sort like {@link #sortGraph(Collection)}, and also collects the types that are part of a
+   * dependency cycle.
+   *
+   * @param in
+   *         a list of sort units to be sorted.
+   * @param typesWithCyclesOut
+   *         the set that the fully qualified names of all types with dependency cycles are added to.
+   *
+   * @return a new sorted list
+   */
+  public static List<SortUnit> sortGraph(final Collection<SortUnit> in, final Set<String> typesWithCyclesOut) {
+    final List<SortUnit> sorted = sortGraph(in);
+    typesWithCyclesOut.addAll(findTypesWithCycles(sorted));
+    return sorted;
+  }
+
+  /**
+   * Returns the fully qualified names of the types of all cyclic sort units, and of their cyclic direct dependencies.
+   */
+  public static Set<String> findTypesWithCycles(final Collection<SortUnit> units) {
+    final Set<String> types = new HashSet<String>();
+    for (final SortUnit unit : units) {
+      if (unit.isCyclicGraph()) {
+        types.add(unit.getType().getFullyQualifiedName());
+
+        for (final SortUnit dep : unit.getDependencies()) {
+          if (dep.isCyclicGraph()) {
+            types.add(dep.getType().getFullyQualifiedName());
+          }
+        }
+      }
+    }
+    return types;
+  }
+
   private static List<SortUnit> topologicalSort(final List<SortUnit> toSort) {
     final Set<String> visited = new HashSet<String>();
     final List<SortUnit> sorted = new ArrayList<SortUnit>();
@@ -74,4 +111,72 @@ public final class GraphSort {
       sorted.add(n);
     }
   }
+
+  /**
+   * Orders sort units like {@link SortUnit#compareTo(SortUnit)}: two units that depend on each other (directly or
+   * indirectly) are ordered by descending depth, and all other pairs are considered equal. Two distinct units depend on
+   * each other exactly if they are in the same strongly connected component of the graph, so the components (found
+   * with Tarjan's algorithm) and the depths are computed once, when the comparator is created.
+   */
+  private static class CycleDepthComparator implements Comparator<SortUnit> {
+    private final Map<SortUnit, Integer> componentIds = new HashMap<SortUnit, Integer>();
+    private final Map<SortUnit, Integer> depths = new HashMap<SortUnit, Integer>();
+
+    private final Map<SortUnit, Integer> indexes = new HashMap<SortUnit, Integer>();
+    private final Map<SortUnit, Integer> lowLinks = new HashMap<SortUnit, Integer>();
+    private final List<SortUnit> stack = new ArrayList<SortUnit>();
+    private final Set<SortUnit> onStack = new HashSet<SortUnit>();
+
+    private CycleDepthComparator(final Collection<SortUnit> units) {
+      for (final SortUnit unit : units) {
+        if (!indexes.containsKey(unit)) {
+          strongConnect(unit);
+        }
+      }
+    }
+
+    private void strongConnect(final SortUnit unit) {
+      final int index = indexes.size();
+      indexes.put(unit, index);
+      lowLinks.put(unit, index);
+      stack.add(unit);
+      onStack.add(unit);
+
+      for (final SortUnit dep : unit.getDependencies()) {
+        if (!indexes.containsKey(dep)) {
+          strongConnect(dep);
+          lowLinks.put(unit, Math.min(lowLinks.get(unit), lowLinks.get(dep)));
+        }
+        else if (onStack.contains(dep)) {
+          lowLinks.put(unit, Math.min(lowLinks.get(unit), indexes.get(dep)));
+        }
+      }
+
+      if (lowLinks.get(unit) == index) {
+        SortUnit member;
+        do {
+          member = stack.remove(stack.size() - 1);
+          onStack.remove(member);
+          componentIds.put(member, index);
+        }
+        while (!member.equals(unit));
+      }
+    }
+
+    private int getDepth(final SortUnit unit) {
+      Integer depth = depths.get(unit);
+      if (depth == null) {
+        depths.put(unit, depth = unit.getDepth());
+      }
+      return depth;
+    }
+
+    @Override
+    public int compare(final SortUnit a, final SortUnit b) {
+      if (a.equals(b) || !componentIds.get(a).equals(componentIds.get(b))) {
+        return 0;
+      }
+      return getDepth(b) - getDepth(a);
+    }
+  }
 }
@@ -48,6 +48,7 @@ public abstract class AbstractInjector implements Injector {
   private boolean created;
   private boolean rendered;
   protected boolean singleton;
+  protected boolean lazy;
   protected boolean replaceable;
   protected boolean provider;
   protected boolean basic;
@@ -80,6 +81,11 @@ public abstract class AbstractInjector implements Injector {
     return singleton;
   }
 
+  @Override
+  public boolean isLazy() {
+    return lazy;
+  }
+
   @Override
   public boolean isDependent() {
     return !singleton;
@@ -222,7 +228,12 @@ public abstract class AbstractInjector implements Injector {
     if (InjectUtil.checkIfTypeNeedsAddingToBeanStore(context, this)) {
       _registerCache = new RegisterCache(context, valueRef);
       final ContextualStatementBuilder statement;
-      if (beanName == null) {
+      if (isLazy()) {
+        statement = loadVariable(context.getProcessingContext().getContextVariableReference())
+            .invoke("addLazySingletonBean", getInjectedType(), getInjectedType(),
+                Refs.get(getCreationalCallbackVarName()), valueRef, qualifyingMetadata.render(), beanName, true);
+      }
+      else if (beanName == null) {
         statement = loadVariable(context.getProcessingContext().getContextVariableReference())
             .invoke("addBean", getInjectedType(), getInjectedType(), Refs.get(getCreationalCallbackVarName()),
                 isSingleton() ? valueRef : null, qualifyingMetadata.render(), null, true);
@@ -62,6 +62,14 @@ public interface Injector {
    */
   boolean isSingleton();
 
+  /**
+   * Checks if the injector is for a singleton bean which is created on first use rather than when the container
+   * is bootstrapped.
+   *
+   * @return true if the injector handles a lazily created singleton bean.
+   */
+  boolean isLazy();
+
   /**
    * Check if the injector if of the dependent scope.
    * @return true if the injector is of a dependent scope.
@@ -76,6 +76,11 @@ public class QualifiedTypeInjectorDelegate extends AbstractInjector {
     return delegate.isPseudo();
   }
 
+  @Override
+  public boolean isLazy() {
+    return delegate.isLazy();
+  }
+
   @Override
   public String getInstanceVarName() {
     return delegate.getInstanceVarName();
@@ -137,10 +142,18 @@ public class QualifiedTypeInjectorDelegate extends AbstractInjector {
 
     if (InjectUtil.checkIfTypeNeedsAddingToBeanStore(context, this)) {
       final QualifyingMetadata md = delegate.getQualifyingMetadata();
-      context.getProcessingContext().appendToEnd(
-          Stmt.loadVariable(context.getProcessingContext().getContextVariableReference())
-              .invoke("addBean", type, delegate.getInjectedType(), Refs.get(getCreationalCallbackVarName()),
-                  isSingleton() ? valueRef : null, md.render(), null, false));
+      if (isLazy()) {
+        context.getProcessingContext().appendToEnd(
+            Stmt.loadVariable(context.getProcessingContext().getContextVariableReference())
+                .invoke("addLazySingletonBean", type, delegate.getInjectedType(),
+                    Refs.get(getCreationalCallbackVarName()), valueRef, md.render(), null, false));
+      }
+      else {
+        context.getProcessingContext().appendToEnd(
+            Stmt.loadVariable(context.getProcessingContext().getContextVariableReference())
+                .invoke("addBean", type, delegate.getInjectedType(), Refs.get(getCreationalCallbackVarName()),
+                    isSingleton() ? valueRef : null, md.render(), null, false));
+      }
 
       for (final RegistrationHook hook : registrationHooks) {
         hook.onRegister(context, valueRef);
@@ -24,16 +24,24 @@ import static org.jboss.errai.codegen.util.Stmt.load;
 import static org.jboss.errai.codegen.util.Stmt.loadVariable;
 import static org.jboss.errai.ioc.rebind.ioc.injector.InjectUtil.getConstructionStrategy;
 
+import org.jboss.errai.bus.server.annotations.Service;
 import org.jboss.errai.codegen.Modifier;
 import org.jboss.errai.codegen.Parameter;
 import org.jboss.errai.codegen.Statement;
 import org.jboss.errai.codegen.builder.AnonymousClassStructureBuilder;
 import org.jboss.errai.codegen.builder.BlockBuilder;
+import org.jboss.errai.codegen.meta.HasAnnotations;
 import org.jboss.errai.codegen.meta.MetaClass;
+import org.jboss.errai.codegen.meta.MetaField;
+import org.jboss.errai.codegen.meta.MetaMethod;
+import org.jboss.errai.codegen.meta.MetaParameter;
 import org.jboss.errai.codegen.util.Refs;
+import org.jboss.errai.codegen.util.Stmt;
+import org.jboss.errai.ioc.client.api.EntryPoint;
 import org.jboss.errai.ioc.client.api.qualifiers.BuiltInQualifiers;
 import org.jboss.errai.ioc.client.container.CreationalCallback;
 import org.jboss.errai.ioc.client.container.CreationalContext;
+import org.jboss.errai.ioc.client.container.LazySingleton;
 import org.jboss.errai.ioc.rebind.ioc.bootstrapper.IOCProcessingContext;
 import org.jboss.errai.ioc.rebind.ioc.exception.InjectionFailure;
 import org.jboss.errai.ioc.rebind.ioc.injector.api.ConstructionStatusCallback;
@@ -41,10 +49,12 @@ import org.jboss.errai.ioc.rebind.ioc.injector.api.InjectableInstance;
 import org.jboss.errai.ioc.rebind.ioc.injector.api.InjectionContext;
 import org.jboss.errai.ioc.rebind.ioc.injector.api.WiringElementType;
 
+import javax.annotation.PostConstruct;
 import javax.enterprise.inject.Specializes;
 import javax.inject.Named;
 import java.lang.annotation.Annotation;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -59,6 +69,7 @@ import java.util.Set;
 public class TypeInjector extends AbstractInjector {
   protected final MetaClass type;
   protected String instanceVarName;
+  protected String lazyInstanceVarName;
 
   public TypeInjector(final MetaClass type, final InjectionContext context) {
     this.type = type;
@@ -107,7 +118,7 @@ public class TypeInjector extends AbstractInjector {
   @Override
   public Statement getBeanInstance(final InjectableInstance injectableInstance) {
     final Statement val = _getType(injectableInstance);
-    registerWithBeanManager(injectableInstance.getInjectionContext(), val);
+    registerWithBeanManager(injectableInstance.getInjectionContext(), isLazy() ? Refs.get(lazyInstanceVarName) : val);
     return val;
   }
 
@@ -118,9 +129,10 @@ public class TypeInjector extends AbstractInjector {
 
         /*
         if this bean is a singleton bean and there is no @New qualifier on the site we're injecting
-        into, we merely return a reference to the singleton instance variable from the bootstrapper.
+        into, we merely return a reference to the singleton instance variable from the bootstrapper,
+        or obtain the instance from its holder if the singleton is created lazily.
         */
-        return Refs.get(instanceVarName);
+        return isLazy() ? getLazyInstance() : Refs.get(instanceVarName);
       }
       else if (creationalCallbackVarName != null) {
 
@@ -135,6 +147,8 @@ public class TypeInjector extends AbstractInjector {
     final InjectionContext injectContext = injectableInstance.getInjectionContext();
     final IOCProcessingContext ctx = injectContext.getProcessingContext();
 
+    lazy = isSingleton() && injectContext.isLazySingletons() && !requiresEagerCreation(injectContext);
+
     /*
     get a parameterized version of the CreationalCallback class, parameterized with the type of
     bean it produces.
@@ -190,7 +204,20 @@ public class TypeInjector extends AbstractInjector {
 
     final Statement retVal;
 
-    if (isSingleton()) {
+    if (isSingleton() && isLazy()) {
+      /*
+       if the singleton is created lazily, we create a variable to hold a LazySingleton in the bootstrapper, which
+       calls the CreationalCallback the first time the instance is required.
+       */
+      final MetaClass lazySingletonRef = parameterizedAs(LazySingleton.class, typeParametersOf(type));
+      lazyInstanceVarName = instanceVarName.concat("_lazy");
+
+      ctx.getBootstrapBuilder().privateField(lazyInstanceVarName, lazySingletonRef).modifiers(Modifier.Final)
+          .initializesWith(Stmt.newObject(lazySingletonRef, load(type), loadVariable(creationalCallbackVarName))).finish();
+
+      retVal = getLazyInstance();
+    }
+    else if (isSingleton()) {
       /*
        if the injector is for a singleton, we create a variable to hold the singleton reference in the bootstrapper
        method and assign it with CreationalContext.getInstance().
@@ -226,6 +253,49 @@ public class TypeInjector extends AbstractInjector {
     return retVal;
   }
 
+  private Statement getLazyInstance() {
+    return Stmt.castTo(type, loadVariable(lazyInstanceVarName).invoke("getInstance"));
+  }
+
+  /**
+   * Determines whether a singleton must be created when the container is bootstrapped, even if lazy singleton
+   * creation is enabled: entry points, services, beans with a {@link PostConstruct} method and any bean with decorated
+   * members (such as event observers) have side effects that must be in place before the application starts.
+   */
+  private boolean requiresEagerCreation(final InjectionContext context) {
+    if (type.isAnnotationPresent(EntryPoint.class) || type.isAnnotationPresent(Service.class)) {
+      return true;
+    }
+
+    final Collection<Class<? extends Annotation>> decorators = context.getDecoratorAnnotations();
+
+    MetaClass cls = type;
+    do {
+      for (final MetaField field : cls.getDeclaredFields()) {
+        if (hasAnyOf(field, decorators)) return true;
+      }
+
+      for (final MetaMethod method : cls.getDeclaredMethods()) {
+        if (method.isAnnotationPresent(PostConstruct.class) || hasAnyOf(method, decorators)) return true;
+
+        for (final MetaParameter parameter : method.getParameters()) {
+          if (hasAnyOf(parameter, decorators)) return true;
+        }
+      }
+    }
+    while ((cls = cls.getSuperClass()) != null && !cls.getFullyQualifiedName().equals(Object.class.getName()));
+
+    return false;
+  }
+
+  private static boolean hasAnyOf(final HasAnnotations hasAnnotations,
+                                  final Collection<Class<? extends Annotation>> annotations) {
+    for (final Class<? extends Annotation> annotation : annotations) {
+      if (hasAnnotations.isAnnotationPresent(annotation)) return true;
+    }
+    return false;
+  }
+
   private Set<Annotation> makeSpecialized(final InjectionContext context) {
     final MetaClass type = getInjectedType();
 
@@ -276,4 +346,8 @@ public class TypeInjector extends AbstractInjector {
   public String getCreationalCallbackVarName() {
     return creationalCallbackVarName;
   }
+
+  public String getLazyInstanceVarName() {
+    return lazyInstanceVarName;
+  }
 }
@@ -72,6 +72,7 @@ public class InjectionContext {
   private final ReachableTypes reachableTypes;
 
   private final Set<String> enabledAlternatives;
+  private final boolean lazySingletons;
 
   private final Multimap<Class<? extends Annotation>, IOCDecoratorExtension> decorators = HashMultimap.create();
   private final Multimap<ElementType, Class<? extends Annotation>> decoratorsByElementType = HashMultimap.create();
@@ -98,12 +99,14 @@ public class InjectionContext {
     this.processingContext = builder.processingContext;
     this.enabledAlternatives = Collections.unmodifiableSet(new HashSet<String>(builder.enabledAlternatives));
     this.reachableTypes = Assert.notNull(builder.reachableTypes);
+    this.lazySingletons = builder.lazySingletons;
   }
 
   public static class Builder {
     private IOCProcessingContext processingContext;
     private ReachableTypes reachableTypes = ReachableTypes.EVERYTHING_REACHABLE_INSTANCE;
     private final HashSet<String> enabledAlternatives = new HashSet<String>();
+    private boolean lazySingletons;
 
     public static Builder create() {
       return new Builder();
@@ -124,6 +127,11 @@ public class InjectionContext {
       return this;
     }
 
+    public Builder lazySingletons(final boolean lazySingletons) {
+      this.lazySingletons = lazySingletons;
+      return this;
+    }
+
 
     public InjectionContext build() {
       Assert.notNull("the processingContext cannot be null", processingContext);
@@ -703,6 +711,16 @@ public class InjectionContext {
     return reachableTypes.toCollection();
   }
 
+  /**
+   * Returns true if singleton beans which are not required at bootstrap time should be created on first use rather
+   * than when the container is bootstrapped.
+   *
+   * @return true if lazy singleton creation is enabled.
+   */
+  public boolean isLazySingletons() {
+    return lazySingletons;
+  }
+
   public void setAttribute(final String name, final Object value) {
     attributeMap.put(name, value);
   }
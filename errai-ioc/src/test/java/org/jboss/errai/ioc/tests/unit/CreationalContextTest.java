@@ -0,0 +1,175 @@
+package org.jboss.errai.ioc.tests.unit;
+
+import junit.framework.TestCase;
+import org.jboss.errai.ioc.client.container.CreationalCallback;
+import org.jboss.errai.ioc.client.container.CreationalContext;
+import org.jboss.errai.ioc.client.container.DestructionCallback;
+import org.jboss.errai.ioc.client.container.IOCBeanManager;
+import org.jboss.errai.ioc.client.container.InitializationCallback;
+import org.jboss.errai.ioc.client.container.ProxyResolver;
+
+import javax.enterprise.context.Dependent;
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.List;
+
+public class CreationalContextTest extends TestCase {
+  private static final Annotation[] NO_QUALIFIERS = new Annotation[0];
+
+  public static class Widget {
+    final int id;
+    Object proxied;
+
+    Widget(final int id) {
+      this.id = id;
+    }
+  }
+
+  public void testBeansAreFoundBeyondInitialCapacity() {
+    final CreationalContext context = new CreationalContext(false, new IOCBeanManager(), Dependent.class.getName(), 1);
+    final List<Class<?>> types = new ArrayList<Class<?>>();
+    for (final Class<?> type : new Class<?>[] { String.class, Integer.class, Long.class, Short.class, Byte.class,
+        Double.class, Float.class, Character.class, Boolean.class, Object.class, Number.class }) {
+      types.add(type);
+      context.addBean(type, NO_QUALIFIERS, type.getName());
+    }
+
+    // a bean which is already present is not replaced
+    context.addBean(String.class, NO_QUALIFIERS, "replacement");
+
+    assertEquals(types.size(), context.getCreatedBeanCount());
+    assertEquals(types.size(), context.getAllCreatedBeans().size());
+    assertEquals(types.size(), context.getAllCreatedBeanInstances().size());
+
+    int i = 0;
+    for (final Object instance : context.getAllCreatedBeanInstances()) {
+      assertEquals(types.get(i++).getName(), instance);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  public void testProxiesAreResolvedBeforeInitialization() {
+    final CreationalContext context = new CreationalContext(false, new IOCBeanManager(), Dependent.class.getName(), 2);
+    final List<String> events = new ArrayList<String>();
+
+    final Widget first = new Widget(1);
+    final Widget second = new Widget(2);
+
+    context.addUnresolvedProxy(new ProxyResolver<Widget>() {
+      @Override
+      public void resolve(final Widget widget) {
+        first.proxied = widget;
+        events.add("resolved " + widget.id);
+      }
+    }, Widget.class, NO_QUALIFIERS);
+
+    final InitializationCallback<Widget> init = new InitializationCallback<Widget>() {
+      @Override
+      public void init(final Widget widget) {
+        events.add("init " + widget.id);
+      }
+    };
+
+    context.addBean(Object.class, NO_QUALIFIERS, first);
+    context.addInitializationCallback(first, init);
+    context.addBean(Widget.class, NO_QUALIFIERS, second);
+    context.addInitializationCallback(second, init);
+
+    context.finish();
+
+    assertSame(second, first.proxied);
+    assertEquals(3, events.size());
+    assertEquals("resolved 2", events.get(0));
+    assertEquals("init 2", events.get(1));
+    assertEquals("init 1", events.get(2));
+  }
+
+  @SuppressWarnings("unchecked")
+  public void testDestroyedDependentContextsAreReused() {
+    final IOCBeanManager beanManager = new IOCBeanManager();
+    final List<CreationalContext> contexts = new ArrayList<CreationalContext>();
+    final List<Widget> destroyed = new ArrayList<Widget>();
+
+    beanManager.addBean((Class) Widget.class, Widget.class, new CreationalCallback<Object>() {
+      @Override
+      public Object getInstance(final CreationalContext context) {
+        final Widget widget = new Widget(contexts.size());
+        contexts.add(context);
+        context.addBean(Widget.class, NO_QUALIFIERS, widget);
+        context.addDestructionCallback(widget, new DestructionCallback<Widget>() {
+          @Override
+          public void destroy(final Widget widget) {
+            destroyed.add(widget);
+          }
+        });
+        return widget;
+      }
+    }, null, NO_QUALIFIERS);
+
+    final Object first = beanManager.lookupBean(Widget.class).getInstance();
+    assertTrue(beanManager.isManaged(first));
+
+    beanManager.destroyBean(first);
+    assertFalse(beanManager.isManaged(first));
+    assertEquals(1, destroyed.size());
+
+    final Object second = beanManager.lookupBean(Widget.class).getInstance();
+    assertNotSame(first, second);
+    assertSame(contexts.get(0), contexts.get(1));
+    assertEquals(1, contexts.get(1).getCreatedBeanCount());
+    assertTrue(beanManager.isManaged(second));
+
+    beanManager.destroyBean(second);
+    assertEquals(2, destroyed.size());
+    assertSame(second, destroyed.get(1));
+  }
+
+  @SuppressWarnings("unchecked")
+  public void testUnresolvableProxyIsReported() {
+    final CreationalContext context = new CreationalContext(false, new IOCBeanManager(), Dependent.class.getName(), 1);
+    context.addUnresolvedProxy(new ProxyResolver<Runnable>() {
+      @Override
+      public void resolve(final Runnable runnable) {
+        fail("there is no bean to resolve the proxy with");
+      }
+    }, Runnable.class, NO_QUALIFIERS);
+
+    try {
+      context.finish();
+      fail("the proxy should not have been resolved");
+    }
+    catch (RuntimeException e) {
+      assertTrue(e.getMessage(), e.getMessage().startsWith("unresolved proxy: "));
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  public void testReusedDependentContextHoldsMoreBeans() {
+    final IOCBeanManager beanManager = new IOCBeanManager();
+    final List<CreationalContext> contexts = new ArrayList<CreationalContext>();
+
+    beanManager.addBean((Class) Widget.class, Widget.class, new CreationalCallback<Object>() {
+      @Override
+      public Object getInstance(final CreationalContext context) {
+        contexts.add(context);
+        final Widget widget = new Widget(contexts.size());
+        context.addBean(Widget.class, NO_QUALIFIERS, widget);
+        if (contexts.size() > 1) {
+          for (final Class<?> type : new Class<?>[] { String.class, Integer.class, Long.class, Short.class,
+              Byte.class, Double.class, Float.class, Character.class, Boolean.class, Number.class }) {
+            context.addBean(type, NO_QUALIFIERS, type.getName());
+          }
+        }
+        return widget;
+      }
+    }, null, NO_QUALIFIERS);
+
+    beanManager.destroyBean(beanManager.lookupBean(Widget.class).getInstance());
+    final Object second = beanManager.lookupBean(Widget.class).getInstance();
+
+    assertSame(contexts.get(0), contexts.get(1));
+    assertEquals(11, contexts.get(1).getCreatedBeanCount());
+    assertSame(second, contexts.get(1).getBeanInstance(Widget.class, NO_QUALIFIERS));
+    assertEquals(Number.class.getName(), contexts.get(1).getBeanInstance(Number.class, NO_QUALIFIERS));
+  }
+}
@@ -0,0 +1,155 @@
+package org.jboss.errai.ioc.tests.unit;
+
+import junit.framework.TestCase;
+import org.jboss.errai.codegen.builder.impl.ClassBuilder;
+import org.jboss.errai.codegen.meta.MetaClass;
+import org.jboss.errai.codegen.meta.MetaClassFactory;
+import org.jboss.errai.ioc.rebind.ioc.graph.Dependency;
+import org.jboss.errai.ioc.rebind.ioc.graph.GraphBuilder;
+import org.jboss.errai.ioc.rebind.ioc.graph.GraphSort;
+import org.jboss.errai.ioc.rebind.ioc.graph.SortUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+public class GraphSortTest extends TestCase {
+  private static final Logger log = LoggerFactory.getLogger(GraphSortTest.class);
+
+
+  public void testCyclesAreFound() {
+    final GraphBuilder builder = new GraphBuilder();
+    // a cycle: String -> Integer -> Long -> String
+    builder.addItem(MetaClassFactory.get(String.class), "string");
+    builder.addItem(MetaClassFactory.get(Integer.class), "integer");
+    builder.addItem(MetaClassFactory.get(Long.class), "long");
+    builder.addDependency(MetaClassFactory.get(String.class), Dependency.on(Integer.class));
+    builder.addDependency(MetaClassFactory.get(Integer.class), Dependency.on(Long.class));
+    builder.addDependency(MetaClassFactory.get(Long.class), Dependency.on(String.class));
+    // an acyclic chain: ArrayList -> List -> Collection
+    builder.addItem(MetaClassFactory.get(ArrayList.class), "arrayList");
+    builder.addItem(MetaClassFactory.get(List.class), "list");
+    builder.addItem(MetaClassFactory.get(java.util.Collection.class), "collection");
+    builder.addDependency(MetaClassFactory.get(ArrayList.class), Dependency.on(List.class));
+    builder.addDependency(MetaClassFactory.get(List.class), Dependency.on(java.util.Collection.class));
+    // an isolated bean
+    builder.addItem(MetaClassFactory.get(Thread.class), "thread");
+
+    final List<SortUnit> units = builder.build();
+
+    final Set<String> typesWithCycles = new HashSet<String>();
+    final List<SortUnit> sorted = GraphSort.sortGraph(units, typesWithCycles);
+
+    assertEquals(unsortedNames(GraphSort.sortGraph(units)), unsortedNames(sorted));
+    assertEquals(new HashSet<String>(names("java.lang.String", "java.lang.Integer", "java.lang.Long")),
+        typesWithCycles);
+
+    final List<String> order = unsortedNames(sorted);
+    assertTrue(order.indexOf("java.util.Collection") < order.indexOf("java.util.List"));
+    assertTrue(order.indexOf("java.util.List") < order.indexOf("java.util.ArrayList"));
+  }
+
+  public void testSortMatchesNaturalOrderingOfSortUnits() {
+    final List<SortUnit> units = buildLargeGraph(10, 60);
+
+    assertEquals(unsortedNames(sortByNaturalOrdering(units)), unsortedNames(GraphSort.sortGraph(units)));
+  }
+
+  /**
+   * Compares the time it takes to sort a large graph with the time it takes to order the same graph by the natural
+   * ordering of its sort units, which walks the graph for every comparison.
+   */
+  public void testSortBenchmark() {
+    final List<SortUnit> units = buildLargeGraph(20, 100);
+
+    // warm up
+    for (int i = 0; i < 3; i++) {
+      GraphSort.sortGraph(units);
+      sortByNaturalOrdering(units);
+    }
+
+    long sortTime = Long.MAX_VALUE;
+    long naturalOrderingTime = Long.MAX_VALUE;
+    for (int i = 0; i < 5; i++) {
+      long start = System.nanoTime();
+      GraphSort.sortGraph(units);
+      sortTime = Math.min(sortTime, System.nanoTime() - start);
+
+      start = System.nanoTime();
+      sortByNaturalOrdering(units);
+      naturalOrderingTime = Math.min(naturalOrderingTime, System.nanoTime() - start);
+    }
+
+    log.info("sorted " + units.size() + " sort units in " + sortTime / 1000 + "us, ordering them by their natural "
+        + "ordering took " + naturalOrderingTime / 1000 + "us");
+    assertTrue("sorting took " + sortTime / 1000 + "us, but ordering by natural ordering only took "
+        + naturalOrderingTime / 1000 + "us", sortTime < naturalOrderingTime);
+  }
+
+  /**
+   * Builds a graph of the given number of unrelated components. Within each component, every bean depends on two
+   * earlier beans, and every seventh bean is depended on by an earlier one, which closes a cycle.
+   */
+  private static List<SortUnit> buildLargeGraph(final int components, final int componentSize) {
+    final GraphBuilder builder = new GraphBuilder();
+    final Random random = new Random(42);
+    for (int c = 0; c < components; c++) {
+      final MetaClass[] types = new MetaClass[componentSize];
+      for (int i = 0; i < componentSize; i++) {
+        types[i] = ClassBuilder.define("org.jboss.errai.ioc.tests.graph.Component" + c + "Bean" + i)
+            .publicScope().body().getClassDefinition();
+        builder.addItem(types[i], "bean" + i);
+      }
+      for (int i = 1; i < componentSize; i++) {
+        builder.addDependency(types[i], Dependency.on(types[random.nextInt(i)]));
+        builder.addDependency(types[i], Dependency.on(types[random.nextInt(i)]));
+        if (i % 7 == 0) {
+          builder.addDependency(types[random.nextInt(i)], Dependency.on(types[i]));
+        }
+      }
+    }
+    return builder.build();
+  }
+
+  /**
+   * Topologically sorts the units and then orders them by their natural ordering, the way GraphSort did before it
+   * precomputed the strongly connected components of the graph.
+   */
+  private static List<SortUnit> sortByNaturalOrdering(final List<SortUnit> units) {
+    final Set<String> visited = new HashSet<String>();
+    final List<SortUnit> sorted = new ArrayList<SortUnit>();
+    for (final SortUnit unit : units) {
+      visit(visited, sorted, unit);
+    }
+    Collections.sort(sorted);
+    return sorted;
+  }
+
+  private static void visit(final Set<String> visited, final List<SortUnit> sorted, final SortUnit unit) {
+    if (visited.add(unit.getType().getFullyQualifiedName())) {
+      for (final SortUnit dep : unit.getDependencies()) {
+        visit(visited, sorted, dep);
+      }
+      sorted.add(unit);
+    }
+  }
+
+  private static List<String> unsortedNames(final List<SortUnit> units) {
+    final List<String> list = new ArrayList<String>();
+    for (final SortUnit unit : units) {
+      list.add(unit.getType().getFullyQualifiedName());
+    }
+    return list;
+  }
+
+  private static List<String> names(final String... names) {
+    final List<String> list = new ArrayList<String>();
+    Collections.addAll(list, names);
+    return list;
+  }
+}
@@ -0,0 +1,270 @@
+package org.jboss.errai.ioc.tests.unit;
+
+import junit.framework.TestCase;
+import org.jboss.errai.ioc.client.QualifierEqualityFactory;
+import org.jboss.errai.ioc.client.QualifierEqualityFactoryProvider;
+import org.jboss.errai.ioc.client.QualifierUtil;
+import org.jboss.errai.ioc.client.container.IOCBeanDef;
+import org.jboss.errai.ioc.client.container.IOCBeanManager;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Named;
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class IOCBeanManagerLookupTest extends TestCase {
+  private static final Logger log = LoggerFactory.getLogger(IOCBeanManagerLookupTest.class);
+
+  public interface Shape {
+  }
+
+  public static class Circle implements Shape {
+  }
+
+  public static class Square implements Shape {
+  }
+
+  public static class Triangle implements Shape {
+  }
+
+  @Named("circle") private Shape circleQualified;
+  @Named("square") private Shape squareQualified;
+  @Named("triangle") private Shape triangleQualified;
+
+  private Annotation circle;
+  private Annotation square;
+  private Annotation triangle;
+
+  private IOCBeanManager beanManager;
+
+  @Override
+  protected void setUp() throws Exception {
+    QualifierUtil.initFromFactoryProvider(new QualifierEqualityFactoryProvider() {
+      @Override
+      public QualifierEqualityFactory provide() {
+        return new QualifierEqualityFactory() {
+          @Override
+          public boolean isEqual(final Annotation a1, final Annotation a2) {
+            return a1.equals(a2);
+          }
+
+          @Override
+          public int hashCodeOf(final Annotation a1) {
+            return a1.hashCode();
+          }
+        };
+      }
+    });
+
+    circle = qualifierOf("circleQualified");
+    square = qualifierOf("squareQualified");
+    triangle = qualifierOf("triangleQualified");
+
+    beanManager = new IOCBeanManager();
+    addShape(Circle.class, new Circle(), circle);
+    addShape(Square.class, new Square(), square);
+  }
+
+  public void testQualifiedLookup() {
+    assertEquals(Circle.class, beanManager.lookupBean(Shape.class, circle).getBeanClass());
+    assertEquals(Square.class, beanManager.lookupBean(Shape.class, square).getBeanClass());
+    assertTrue(beanManager.lookupBeans(Shape.class, triangle).isEmpty());
+  }
+
+  public void testUnqualifiedLookupReturnsAllCandidates() {
+    assertEquals(2, beanManager.lookupBeans(Shape.class).size());
+    assertEquals(2, beanManager.lookupBeans(Shape.class, new Annotation[0]).size());
+    assertEquals(4, beanManager.lookupBeans(Object.class).size());
+    assertTrue(beanManager.lookupBeans(Runnable.class).isEmpty());
+  }
+
+  public void testLookupWithEqualQualifierInstances() throws Exception {
+    // a distinct but equal annotation instance must resolve to the memoized result
+    final Annotation otherCircle = IOCBeanManagerLookupTest.class.getDeclaredField("circleQualified")
+        .getAnnotation(Named.class);
+
+    final Collection<IOCBeanDef<Shape>> first = beanManager.lookupBeans(Shape.class, circle);
+    final Collection<IOCBeanDef<Shape>> second = beanManager.lookupBeans(Shape.class, otherCircle);
+    assertEquals(1, second.size());
+    assertSame(first.iterator().next(), second.iterator().next());
+  }
+
+  public void testResultsAreUnmodifiable() {
+    final Collection<IOCBeanDef<Shape>> beans = beanManager.lookupBeans(Shape.class, circle);
+    try {
+      beans.clear();
+      fail("lookup results should be unmodifiable");
+    }
+    catch (UnsupportedOperationException e) {
+      // expected
+    }
+    assertEquals(1, beanManager.lookupBeans(Shape.class, circle).size());
+  }
+
+  public void testRegistrationInvalidatesLookups() {
+    assertTrue(beanManager.lookupBeans(Shape.class, triangle).isEmpty());
+    assertEquals(2, beanManager.lookupBeans(Shape.class).size());
+    assertEquals(4, beanManager.lookupBeans(Object.class).size());
+
+    addShape(Triangle.class, new Triangle(), triangle);
+
+    assertEquals(Triangle.class, beanManager.lookupBean(Shape.class, triangle).getBeanClass());
+    assertEquals(3, beanManager.lookupBeans(Shape.class).size());
+    assertEquals(6, beanManager.lookupBeans(Object.class).size());
+  }
+
+  @SuppressWarnings("unchecked")
+  public void testQualifiedLookupAmongManyCandidates() {
+    for (int i = 0; i < 64; i++) {
+      beanManager.addBean((Class) Shape.class, Shape.class, null, new Circle(),
+          new Annotation[] { qualifierOf("triangleQualified") }, null, false);
+    }
+
+    for (int i = 0; i < 1000; i++) {
+      final Collection<IOCBeanDef<Shape>> beans = beanManager.lookupBeans(Shape.class, (i & 1) == 0 ? circle : square);
+      assertEquals(1, beans.size());
+      assertEquals((i & 1) == 0 ? Circle.class : Square.class, beans.iterator().next().getBeanClass());
+    }
+    assertEquals(66, beanManager.lookupBeans(Shape.class).size());
+  }
+
+  public void testRegistrationKeepsUnaffectedLookups() {
+    final Collection<IOCBeanDef<Shape>> circles = beanManager.lookupBeans(Shape.class, circle);
+    final Collection<IOCBeanDef<Object>> objects = beanManager.lookupBeans(Object.class, circle);
+
+    addShape(Triangle.class, new Triangle(), triangle);
+
+    // the new bean does not match the qualifiers of these lookups, so their memoized results are still valid
+    assertSame(circles, beanManager.lookupBeans(Shape.class, circle));
+    assertSame(objects, beanManager.lookupBeans(Object.class, circle));
+    assertEquals(Triangle.class, beanManager.lookupBean(Shape.class, triangle).getBeanClass());
+  }
+
+  @SuppressWarnings("unchecked")
+  public void testRegistrationInvalidatesMatchingLookups() {
+    final Collection<IOCBeanDef<Shape>> circles = beanManager.lookupBeans(Shape.class, circle);
+    assertEquals(1, circles.size());
+
+    // a second circle, whose bean class is not (yet) known to be concrete
+    beanManager.addBean((Class) Shape.class, Triangle.class, null, new Triangle(), new Annotation[] { circle }, null,
+        false);
+    assertNotSame(circles, beanManager.lookupBeans(Shape.class, circle));
+    assertEquals(Circle.class, beanManager.lookupBean(Shape.class, circle).getBeanClass());
+
+    // once the bean class is concrete, both circles are candidates
+    beanManager.addBean((Class) Triangle.class, Triangle.class, null, new Triangle(), new Annotation[] { triangle },
+        null, true);
+    assertEquals(2, beanManager.lookupBeans(Shape.class, circle).size());
+  }
+
+  /**
+   * Compares qualified lookups through the bean manager with resolving the same lookups by matching the qualifiers of
+   * every candidate, which is how lookups were resolved before they were indexed.
+   */
+  @SuppressWarnings("unchecked")
+  public void testQualifiedLookupBenchmark() {
+    final int candidates = 256;
+    final int iterations = 200000;
+
+    final Annotation[] qualifiers = new Annotation[candidates];
+    for (int i = 0; i < candidates; i++) {
+      qualifiers[i] = named("shape" + i);
+      beanManager.addBean((Class) Shape.class, Circle.class, null, new Circle(), new Annotation[] { qualifiers[i] },
+          null, false);
+    }
+
+    // warm up both paths, so neither is measured while it is being compiled
+    for (int i = 0; i < iterations / 10; i++) {
+      beanManager.lookupBean(Shape.class, named("shape" + (i % candidates)));
+      resolveByScanning(Shape.class, named("shape" + (i % candidates)));
+    }
+
+    long start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      assertSame(qualifiers[i % candidates],
+          beanManager.lookupBean(Shape.class, named("shape" + (i % candidates))).getQualifiers().iterator().next());
+    }
+    final long indexedTime = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      assertSame(qualifiers[i % candidates],
+          resolveByScanning(Shape.class, named("shape" + (i % candidates))).getQualifiers().iterator().next());
+    }
+    final long scanningTime = System.nanoTime() - start;
+
+    log.info(iterations + " qualified lookups among " + candidates + " candidates: indexed in "
+        + indexedTime / 1000000 + "ms, by scanning in " + scanningTime / 1000000 + "ms");
+    assertTrue("indexed lookups took " + indexedTime / 1000000 + "ms, scanning lookups " + scanningTime / 1000000
+        + "ms", indexedTime < scanningTime);
+  }
+
+  private IOCBeanDef<?> resolveByScanning(final Class<?> type, final Annotation... qualifiers) {
+    final Set<Annotation> qualifierSet = new HashSet<Annotation>(qualifiers.length * 2);
+    Collections.addAll(qualifierSet, qualifiers);
+
+    final List<IOCBeanDef<?>> matching = new ArrayList<IOCBeanDef<?>>();
+    for (final IOCBeanDef<?> bean : beanManager.lookupBeans(type)) {
+      if (bean.matches(qualifierSet)) {
+        matching.add(bean);
+      }
+    }
+    assertEquals(1, matching.size());
+    return matching.get(0);
+  }
+
+  public void testChangingTheQualifierArrayDoesNotAffectMemoizedLookups() {
+    final Annotation[] qualifiers = { circle };
+    assertEquals(Circle.class, beanManager.lookupBeans(Shape.class, qualifiers).iterator().next().getBeanClass());
+
+    qualifiers[0] = square;
+    assertEquals(Square.class, beanManager.lookupBeans(Shape.class, qualifiers).iterator().next().getBeanClass());
+    assertEquals(Circle.class, beanManager.lookupBeans(Shape.class, circle).iterator().next().getBeanClass());
+  }
+
+  @SuppressWarnings("unchecked")
+  private void addShape(final Class<? extends Shape> beanType, final Shape instance, final Annotation qualifier) {
+    beanManager.addBean((Class) Shape.class, beanType, null, instance, new Annotation[] { qualifier }, null, false);
+    beanManager.addBean((Class) beanType, beanType, null, instance, new Annotation[] { qualifier }, null, true);
+  }
+
+  private static Named named(final String value) {
+    return new Named() {
+      @Override
+      public String value() {
+        return value;
+      }
+
+      @Override
+      public Class<? extends Annotation> annotationType() {
+        return Named.class;
+      }
+
+      @Override
+      public boolean equals(final Object o) {
+        return o instanceof Named && value.equals(((Named) o).value());
+      }
+
+      @Override
+      public int hashCode() {
+        return (127 * "value".hashCode()) ^ value.hashCode();
+      }
+    };
+  }
+
+  private static Annotation qualifierOf(final String fieldName) {
+    try {
+      return IOCBeanManagerLookupTest.class.getDeclaredField(fieldName).getAnnotation(Named.class);
+    }
+    catch (NoSuchFieldException e) {
+      throw new RuntimeException(e);
+    }
+  }
+}
@@ -0,0 +1,114 @@
+package org.jboss.errai.ioc.tests.unit;
+
+import com.google.gwt.core.ext.TreeLogger;
+import com.google.gwt.user.rebind.StringSourceWriter;
+import junit.framework.TestCase;
+import org.jboss.errai.codegen.Context;
+import org.jboss.errai.codegen.builder.ClassStructureBuilder;
+import org.jboss.errai.codegen.builder.impl.ClassBuilder;
+import org.jboss.errai.codegen.meta.MetaClass;
+import org.jboss.errai.codegen.meta.MetaClassFactory;
+import org.jboss.errai.codegen.util.Stmt;
+import org.jboss.errai.ioc.client.api.EntryPoint;
+import org.jboss.errai.ioc.rebind.ioc.bootstrapper.IOCProcessingContext;
+import org.jboss.errai.ioc.rebind.ioc.injector.TypeInjector;
+import org.jboss.errai.ioc.rebind.ioc.injector.api.InjectableInstance;
+import org.jboss.errai.ioc.rebind.ioc.injector.api.InjectionContext;
+import org.jboss.errai.ioc.rebind.ioc.injector.api.WiringElementType;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.lang.annotation.Annotation;
+import java.util.Collections;
+
+public class LazySingletonGenerationTest extends TestCase {
+  @Singleton
+  public static class PlainSingleton {
+  }
+
+  @Singleton
+  public static class PostConstructSingleton {
+    @PostConstruct
+    void init() {
+    }
+  }
+
+  public static class InheritedPostConstructSingleton extends PostConstructSingleton {
+  }
+
+  @EntryPoint
+  public static class EntryPointSingleton {
+  }
+
+  public void testPlainSingletonIsCreatedLazily() {
+    final TypeInjector injector = generate(PlainSingleton.class, true);
+    assertTrue(injector.isLazy());
+    assertNotNull(injector.getLazyInstanceVarName());
+  }
+
+  public void testSingletonWithPostConstructIsCreatedEagerly() {
+    final TypeInjector injector = generate(PostConstructSingleton.class, true);
+    assertFalse(injector.isLazy());
+    assertNull(injector.getLazyInstanceVarName());
+  }
+
+  public void testSingletonWithInheritedPostConstructIsCreatedEagerly() {
+    assertFalse(generate(InheritedPostConstructSingleton.class, true).isLazy());
+  }
+
+  public void testEntryPointIsCreatedEagerly() {
+    assertFalse(generate(EntryPointSingleton.class, true).isLazy());
+  }
+
+  public void testSingletonsAreCreatedEagerlyByDefault() {
+    assertFalse(generate(PlainSingleton.class, false).isLazy());
+  }
+
+  private static TypeInjector generate(final Class<?> beanType, final boolean lazySingletons) {
+    final ClassStructureBuilder<? extends ClassStructureBuilder<?>> structureBuilder
+        = ClassBuilder.define("my.FakeBootstrapper").publicScope().body();
+
+    final IOCProcessingContext processingContext = IOCProcessingContext.Builder.create()
+        .logger(
+            new TreeLogger() {
+              @Override
+              public TreeLogger branch(Type type, String msg, Throwable caught, HelpInfo helpInfo) {
+                return this;
+              }
+
+              @Override
+              public boolean isLoggable(Type type) {
+                return false;
+              }
+
+              @Override
+              public void log(Type type, String msg, Throwable caught, HelpInfo helpInfo) {
+              }
+            })
+        .sourceWriter(new StringSourceWriter())
+        .context(Context.create())
+        .bootstrapClassInstance(structureBuilder.getClassDefinition())
+        .bootstrapBuilder(structureBuilder)
+        .blockBuilder(Stmt.do_())
+        .packages(Collections.singleton(beanType.getPackage().getName()))
+        .build();
+
+    final InjectionContext ctx = InjectionContext.Builder.create().processingContext(processingContext)
+        .lazySingletons(lazySingletons).build();
+    ctx.mapElementType(WiringElementType.SingletonBean, Singleton.class);
+    ctx.mapElementType(WiringElementType.SingletonBean, EntryPoint.class);
+    ctx.mapElementType(WiringElementType.InjectionPoint, Inject.class);
+
+    final MetaClass type = MetaClassFactory.get(beanType);
+    final TypeInjector injector = new TypeInjector(type, ctx);
+    injector.getBeanInstance(InjectableInstance.getInjectedInstance(new Inject() {
+      @Override
+      public Class<? extends Annotation> annotationType() {
+        return Inject.class;
+      }
+    }, type, injector, ctx));
+
+    return injector;
+  }
+}
@@ -0,0 +1,126 @@
+package org.jboss.errai.ioc.tests.unit;
+
+import junit.framework.TestCase;
+import org.jboss.errai.ioc.client.container.BeanCreationListener;
+import org.jboss.errai.ioc.client.container.CreationalCallback;
+import org.jboss.errai.ioc.client.container.CreationalContext;
+import org.jboss.errai.ioc.client.container.IOC;
+import org.jboss.errai.ioc.client.container.IOCResolutionException;
+import org.jboss.errai.ioc.client.container.InitializationCallback;
+import org.jboss.errai.ioc.client.container.LazySingleton;
+
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.List;
+
+public class LazySingletonTest extends TestCase {
+  public static class Foo {
+    Bar bar;
+    boolean initialized;
+  }
+
+  public static class Bar {
+    Foo foo;
+  }
+
+  private final List<Class<?>> created = new ArrayList<Class<?>>();
+
+  private LazySingleton<Foo> foo;
+  private LazySingleton<Bar> bar;
+
+  @Override
+  protected void setUp() throws Exception {
+    IOC.getBeanManager().setBeanCreationListener(new BeanCreationListener() {
+      @Override
+      public void beanCreated(final Class<?> beanType, final long durationMillis) {
+        assertTrue(durationMillis >= 0);
+        created.add(beanType);
+      }
+    });
+
+    foo = new LazySingleton<Foo>(Foo.class, new CreationalCallback<Foo>() {
+      @Override
+      public Foo getInstance(final CreationalContext context) {
+        final Foo inst = new Foo();
+        context.addBean(Foo.class, new Annotation[0], inst);
+        context.addInitializationCallback(inst, new InitializationCallback<Foo>() {
+          @Override
+          public void init(final Foo foo) {
+            // the whole graph is wired before any initialization callback runs
+            assertNotNull(foo.bar);
+            assertSame(foo, foo.bar.foo);
+            foo.initialized = true;
+          }
+        });
+        inst.bar = bar.getInstance();
+        return inst;
+      }
+    });
+
+    bar = new LazySingleton<Bar>(Bar.class, new CreationalCallback<Bar>() {
+      @Override
+      public Bar getInstance(final CreationalContext context) {
+        final Bar inst = new Bar();
+        context.addBean(Bar.class, new Annotation[0], inst);
+        inst.foo = foo.getInstance();
+        return inst;
+      }
+    });
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    IOC.getBeanManager().setBeanCreationListener(null);
+  }
+
+  public void testCreatedOnFirstUse() {
+    assertFalse(foo.isCreated());
+    assertFalse(bar.isCreated());
+
+    final Foo inst = foo.getInstance();
+
+    assertTrue(foo.isCreated());
+    assertTrue(bar.isCreated());
+    assertSame(inst, foo.getInstance());
+    assertSame(inst.bar, bar.getInstance());
+  }
+
+  public void testCycleIsResolvedWithinOneContext() {
+    final Foo inst = foo.getInstance();
+
+    assertSame(inst, inst.bar.foo);
+    assertTrue(inst.initialized);
+  }
+
+  public void testCreationIsReported() {
+    foo.getInstance();
+    foo.getInstance();
+
+    // beans are reported innermost first and only once
+    assertEquals(2, created.size());
+    assertEquals(Bar.class, created.get(0));
+    assertEquals(Foo.class, created.get(1));
+  }
+
+  @SuppressWarnings("unchecked")
+  public void testCycleBeforeConstructionFails() {
+    final LazySingleton<Foo>[] self = new LazySingleton[1];
+    self[0] = new LazySingleton<Foo>(Foo.class, new CreationalCallback<Foo>() {
+      @Override
+      public Foo getInstance(final CreationalContext context) {
+        // simulates constructor injection of the bean into itself
+        self[0].getInstance();
+        return new Foo();
+      }
+    });
+
+    try {
+      self[0].getInstance();
+      fail("expected the cycle to be rejected");
+    }
+    catch (IOCResolutionException e) {
+      // expected
+    }
+    assertFalse(self[0].isCreated());
+  }
+}
@@ -33,6 +33,7 @@ import org.jboss.errai.codegen.meta.MetaClass;
 import org.jboss.errai.codegen.meta.impl.gwt.GWTUtil;
 import org.jboss.errai.codegen.util.Stmt;
 import org.jboss.errai.common.metadata.RebindUtils;
+import org.jboss.errai.config.rebind.GeneratedSourceCache;
 import org.jboss.errai.config.util.ClassScanner;
 import org.jboss.errai.enterprise.client.jaxrs.JaxrsProxyLoader;
 import org.slf4j.Logger;
@@ -89,9 +90,27 @@ public class JaxrsProxyLoaderGenerator extends Generator {
     File fileCacheDir = RebindUtils.getErraiCacheDir();
     File cacheFile = new File(fileCacheDir.getAbsolutePath() + "/" + className + ".java");
     
+    String fingerprint = null;
+    if (GeneratedSourceCache.isEnabled()) {
+      fingerprint = GeneratedSourceCache.fingerprint()
+          .add("target", className)
+          .addConfiguration()
+          .addTypesAnnotatedWith(Path.class, RebindUtils.findTranslatablePackages(context))
+          .toHash();
+
+      String cached = GeneratedSourceCache.getCachedSource(className, fingerprint);
+      if (cached != null) {
+        return cached;
+      }
+    }
+
     log.info("generating jax-rs proxy loader class.");
     String gen = generate(context);
     RebindUtils.writeStringToFile(cacheFile, gen);
+
+    if (fingerprint != null) {
+      GeneratedSourceCache.putCachedSource(className, fingerprint, gen);
+    }
     
     return gen;
   }
@@ -16,12 +16,17 @@
 
 package org.jboss.errai.jaxrs;
 
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
-import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.Iterator;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.Produces;
@@ -34,9 +39,16 @@ import javax.ws.rs.ext.Provider;
 
 import org.jboss.errai.marshalling.server.MappingContextSingleton;
 import org.jboss.errai.marshalling.server.ServerMarshalling;
+import org.jboss.errai.marshalling.server.util.CloseableIterator;
 
 /**
  * Provider for serialization/deserialization of Errai objects.
+ * <p>
+ * Entity bodies of type {@link Iterator Iterator&lt;T&gt;} or {@link Iterable Iterable&lt;T&gt;} are read lazily,
+ * demarshalling one element at a time as the resource consumes them. Both also implement {@link Closeable}; a resource
+ * that stops iterating before the end should close them. Iterables which are not collections, and large
+ * collections, are written element by element. This way, large arrays of portable objects can be transferred without
+ * holding the complete payload in memory.
  *
  * @author Christian Sadilek <csadilek@redhat.com>
  */
@@ -45,18 +57,51 @@ import org.jboss.errai.marshalling.server.ServerMarshalling;
 @Consumes("application/*+json")
 public class ErraiProvider implements MessageBodyReader<Object>, MessageBodyWriter<Object> {
 
+  /**
+   * Collections with more elements than this are written element by element.
+   */
+  private static final int STREAMING_THRESHOLD = 1024;
+
+  /**
+   * The size of the buffer between the marshallers and the entity stream.
+   */
+  private static final int BUFFER_SIZE = 8192;
+
+  private static volatile ProviderMetrics metrics;
+
   static {
     MappingContextSingleton.get();
   }
 
+  /**
+   * Installs the {@link ProviderMetrics} to report the entity bodies written by all instances of this provider to.
+   *
+   * @param providerMetrics
+   *          the metrics to report to, or null to stop reporting.
+   */
+  public static void setMetrics(ProviderMetrics providerMetrics) {
+    metrics = providerMetrics;
+  }
+
   @Override
   public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+    if (type == Iterator.class || type == Iterable.class) {
+      final Class<?> elementType = getElementType(genericType);
+      return elementType != null && ServerMarshalling.canHandle(elementType);
+    }
     return ServerMarshalling.canHandle(type);
   }
 
   @Override
   public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
-    return ServerMarshalling.canHandle(type);
+    if (ServerMarshalling.canHandle(type)) {
+      return true;
+    }
+    if (Iterable.class.isAssignableFrom(type)) {
+      final Class<?> elementType = getElementType(genericType);
+      return elementType != null && ServerMarshalling.canHandle(elementType);
+    }
+    return false;
   }
 
   @Override
@@ -69,13 +114,96 @@ public class ErraiProvider implements MessageBodyReader<Object>, MessageBodyWrit
       MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException,
       WebApplicationException {
 
-    entityStream.write(ServerMarshalling.toJSON(t).getBytes(Charset.forName("UTF-8")));
+    final ProviderMetrics providerMetrics = metrics;
+    final long start = providerMetrics == null ? 0 : System.nanoTime();
+    final CountingOutputStream out = new CountingOutputStream(new BufferedOutputStream(entityStream, BUFFER_SIZE));
+
+    if (t instanceof Iterable && (!(t instanceof Collection) || ((Collection<?>) t).size() > STREAMING_THRESHOLD)) {
+      ServerMarshalling.toJSONElements(out, (Iterable<?>) t);
+    }
+    else {
+      ServerMarshalling.toJSON(out, t);
+    }
+    out.flush();
+
+    if (providerMetrics != null) {
+      providerMetrics.entityWritten(t == null ? type : t.getClass(), out.count, System.nanoTime() - start);
+    }
   }
 
   @Override
   public Object readFrom(Class<Object> type, Type genericType, Annotation[] annotations, MediaType mediaType,
       MultivaluedMap<String, String> httpHeaders, InputStream entityStream) throws IOException, WebApplicationException {
 
+    if (Iterator.class.equals(type) || Iterable.class.equals(type)) {
+      final CloseableIterator<?> elements = ServerMarshalling.fromJSONElements(entityStream, getElementType(genericType));
+      if (Iterator.class.equals(type)) {
+        return elements;
+      }
+      return new StreamedIterable(elements);
+    }
+
     return ServerMarshalling.fromJSON(entityStream, type);
   }
+
+  /**
+   * An entity body of type {@link Iterable} that is read while it is iterated, and can therefore only be iterated once.
+   * Closing it releases the resources of an iteration that was abandoned early.
+   */
+  private static class StreamedIterable implements Iterable<Object>, Closeable {
+    private final CloseableIterator<?> elements;
+    private boolean iterated;
+
+    private StreamedIterable(CloseableIterator<?> elements) {
+      this.elements = elements;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Iterator<Object> iterator() {
+      if (iterated) {
+        throw new IllegalStateException("a streamed entity body can only be iterated once");
+      }
+      iterated = true;
+      return (Iterator<Object>) elements;
+    }
+
+    @Override
+    public void close() throws IOException {
+      elements.close();
+    }
+  }
+
+  private static class CountingOutputStream extends FilterOutputStream {
+    private long count;
+
+    private CountingOutputStream(OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+      count += len;
+    }
+  }
+
+  /**
+   * Returns the type argument of the given parameterized type, or null if it is not a class.
+   */
+  private static Class<?> getElementType(Type genericType) {
+    if (genericType instanceof ParameterizedType) {
+      final Type[] typeArguments = ((ParameterizedType) genericType).getActualTypeArguments();
+      if (typeArguments.length == 1 && typeArguments[0] instanceof Class) {
+        return (Class<?>) typeArguments[0];
+      }
+    }
+    return null;
+  }
 }
\ No newline at end of file
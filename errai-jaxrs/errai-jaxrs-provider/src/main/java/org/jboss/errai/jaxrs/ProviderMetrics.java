@@ -0,0 +1,37 @@
+/*
+ * Copyright 2012 JBoss, a division of Red Hat, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.jaxrs;
+
+/**
+ * Receives measurements of the entity bodies written by the {@link ErraiProvider}. An implementation can be installed
+ * with {@link ErraiProvider#setMetrics(ProviderMetrics)}, e.g. to export response sizes and encoding times to a
+ * monitoring system. Implementations are called on the request thread and should return quickly.
+ */
+public interface ProviderMetrics {
+
+  /**
+   * Called after an entity body has been written.
+   *
+   * @param type
+   *          the class of the written entity.
+   * @param bytes
+   *          the number of bytes written to the entity stream.
+   * @param durationNanos
+   *          the time it took to marshall and write the entity, in nanoseconds.
+   */
+  public void entityWritten(Class<?> type, long bytes, long durationNanos);
+}
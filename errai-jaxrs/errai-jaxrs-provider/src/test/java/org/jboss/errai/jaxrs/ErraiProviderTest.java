@@ -0,0 +1,218 @@
+/*
+ * Copyright 2012 JBoss, a division of Red Hat, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.jaxrs;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.errai.marshalling.server.ServerMarshalling;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ErraiProviderTest {
+  // fields declaring the generic entity types read by the tests
+  private Iterator<String> iteratorOfStrings;
+  private Iterable<String> iterableOfStrings;
+
+  private final ErraiProvider provider = new ErraiProvider();
+  private final List<Object[]> measurements = new ArrayList<Object[]>();
+
+  @Before
+  public void setUp() {
+    ErraiProvider.setMetrics(new ProviderMetrics() {
+      @Override
+      public void entityWritten(Class<?> type, long bytes, long durationNanos) {
+        measurements.add(new Object[]{type, bytes, durationNanos});
+      }
+    });
+  }
+
+  @After
+  public void tearDown() {
+    ErraiProvider.setMetrics(null);
+  }
+
+  @Test
+  public void testWritesEntityAsJSON() throws IOException {
+    final Map<String, Object> entity = new HashMap<String, Object>();
+    entity.put("name", "S\u00ebvent\u00e9\u00ebn");
+    entity.put("count", 42);
+
+    final byte[] bytes = write(entity);
+
+    assertArrayEquals(ServerMarshalling.toJSON(entity).getBytes("UTF-8"), bytes);
+    assertMeasured(HashMap.class, bytes.length);
+  }
+
+  @Test
+  public void testWritesLargeCollectionElementByElement() throws IOException {
+    final List<String> entity = new ArrayList<String>();
+    for (int i = 0; i < 5000; i++) {
+      entity.add("element " + i);
+    }
+
+    final byte[] bytes = write(entity);
+
+    assertEquals(entity, ServerMarshalling.fromJSON(new ByteArrayInputStream(bytes)));
+    assertMeasured(ArrayList.class, bytes.length);
+  }
+
+  @Test
+  public void testNothingIsMeasuredWithoutMetrics() throws IOException {
+    ErraiProvider.setMetrics(null);
+    write("value");
+    assertTrue(measurements.isEmpty());
+  }
+
+  @Test
+  public void testIteratorAndIterableOfPortableTypesAreReadable() throws Exception {
+    assertTrue(provider.isReadable(Iterator.class, typeOf("iteratorOfStrings"), null, null));
+    assertTrue(provider.isReadable(Iterable.class, typeOf("iterableOfStrings"), null, null));
+    assertFalse("the element type is required", provider.isReadable(Iterator.class, Iterator.class, null, null));
+  }
+
+  @Test
+  public void testReadsIteratorOfElements() throws Exception {
+    final List<String> entity = Arrays.asList("a", "b", "c");
+
+    final Iterator<?> iterator = (Iterator<?>) read(Iterator.class, "iteratorOfStrings", ServerMarshalling.toJSON(entity));
+
+    assertEquals(entity, drain(iterator));
+    assertTrue(iterator instanceof Closeable);
+  }
+
+  @Test
+  public void testReadsIterableOfElements() throws Exception {
+    final List<String> entity = Arrays.asList("a", "b", "c");
+
+    final Iterable<?> iterable = (Iterable<?>) read(Iterable.class, "iterableOfStrings", ServerMarshalling.toJSON(entity));
+
+    assertEquals(entity, drain(iterable.iterator()));
+    try {
+      iterable.iterator();
+      fail("a streamed entity body can only be iterated once");
+    }
+    catch (IllegalStateException e) {
+      // expected
+    }
+    ((Closeable) iterable).close();
+  }
+
+  @Test
+  public void testReadsLargeCollectionWrittenElementByElement() throws Exception {
+    final List<String> entity = new ArrayList<String>();
+    for (int i = 0; i < 5000; i++) {
+      entity.add("element " + i);
+    }
+
+    final Iterable<?> iterable = (Iterable<?>) read(Iterable.class, "iterableOfStrings",
+        new String(write(entity), "UTF-8"));
+
+    assertEquals(entity, drain(iterable.iterator()));
+  }
+
+  @Test
+  public void testReadsEmptyArray() throws Exception {
+    assertFalse(((Iterator<?>) read(Iterator.class, "iteratorOfStrings", "[]")).hasNext());
+    assertFalse(((Iterable<?>) read(Iterable.class, "iterableOfStrings", " [ ] ")).iterator().hasNext());
+    assertFalse(((Iterator<?>) read(Iterator.class, "iteratorOfStrings",
+        ServerMarshalling.toJSON(Collections.emptyList()))).hasNext());
+  }
+
+  @Test
+  public void testMalformedStream() throws Exception {
+    try {
+      read(Iterator.class, "iteratorOfStrings", "{\"a\":1}");
+      fail("the stream contains no array");
+    }
+    catch (RuntimeException e) {
+      // expected
+    }
+
+    // elements before the error are read, the error is raised when the resource iterates up to it
+    final Iterator<?> truncated = (Iterator<?>) read(Iterator.class, "iteratorOfStrings", "[\"a\",\"b\"");
+    assertEquals("a", truncated.next());
+    assertEquals("b", truncated.next());
+    try {
+      truncated.hasNext();
+      fail("the array is not terminated");
+    }
+    catch (RuntimeException e) {
+      // expected
+    }
+
+    final Iterable<?> unseparated = (Iterable<?>) read(Iterable.class, "iterableOfStrings", "[\"a\" \"b\"]");
+    final Iterator<?> iterator = unseparated.iterator();
+    assertEquals("a", iterator.next());
+    try {
+      iterator.next();
+      fail("the elements are not separated");
+    }
+    catch (RuntimeException e) {
+      // expected
+    }
+    ((Closeable) unseparated).close();
+  }
+
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  private Object read(final Class type, final String genericTypeField, final String json) throws Exception {
+    return provider.readFrom(type, typeOf(genericTypeField), null, null, null,
+        new ByteArrayInputStream(json.getBytes("UTF-8")));
+  }
+
+  private static Type typeOf(final String field) throws NoSuchFieldException {
+    return ErraiProviderTest.class.getDeclaredField(field).getGenericType();
+  }
+
+  private static List<Object> drain(final Iterator<?> iterator) {
+    final List<Object> elements = new ArrayList<Object>();
+    while (iterator.hasNext()) {
+      elements.add(iterator.next());
+    }
+    return elements;
+  }
+
+  private byte[] write(final Object entity) throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    provider.writeTo(entity, entity.getClass(), entity.getClass(), null, null, null, out);
+    return out.toByteArray();
+  }
+
+  private void assertMeasured(final Class<?> type, final long bytes) {
+    assertEquals(1, measurements.size());
+    assertEquals(type, measurements.get(0)[0]);
+    assertEquals(bytes, measurements.get(0)[1]);
+    assertTrue((Long) measurements.get(0)[2] >= 0);
+  }
+}
@@ -0,0 +1,28 @@
+package org.jboss.errai.jpa.client.api.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a singular entity attribute (a basic value or a reference to another
+ * entity) as one that Errai JPA should maintain a secondary index for in the
+ * browser-local storage backend. Named queries whose WHERE clause constrains an
+ * indexed attribute with {@code =}, {@code IN}, {@code BETWEEN}, {@code <},
+ * {@code <=}, {@code >} or {@code >=} retrieve their candidate entities from
+ * the index rather than examining every stored entity of the type.
+ * <p>
+ * Indexes make queries cheaper at the expense of extra storage and slightly
+ * more expensive writes, so they are best placed on the attributes that
+ * frequently-run queries filter on.
+ * <p>
+ * This annotation has no effect on the server side.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface Indexed {
+
+}
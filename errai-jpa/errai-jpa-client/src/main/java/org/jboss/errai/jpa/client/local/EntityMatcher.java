@@ -0,0 +1,28 @@
+package org.jboss.errai.jpa.client.local;
+
+/**
+ * The counterpart of {@link EntityJsonMatcher} that tests live entity
+ * instances instead of their JSON representations. A storage backend can use
+ * it for entities that are already in the persistence context and haven't been
+ * modified since they were stored, which saves it reading and parsing their
+ * stored representations.
+ * <p>
+ * An entity matcher must accept an unmodified entity if and only if the
+ * corresponding EntityJsonMatcher accepts the entity's stored JSON
+ * representation.
+ *
+ * @param <X>
+ *          The entity type this matcher tests.
+ */
+public interface EntityMatcher<X> {
+
+  /**
+   * Tests if the given entity is accepted by this matcher.
+   *
+   * @param candidate
+   *          The entity to be tested. Not null.
+   * @return true if this matcher accepts the candidate; false otherwise.
+   */
+  boolean matches(X candidate);
+
+}
@@ -0,0 +1,198 @@
+package org.jboss.errai.jpa.client.local;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import javax.persistence.metamodel.Attribute;
+
+/**
+ * A copy of the persistent state of a managed entity, taken at the moment the
+ * entity's state was last known to agree with the storage backend (when it was
+ * loaded, persisted, or updated). Comparing a snapshot against the live entity
+ * is much cheaper than serializing the entity and comparing it to the stored
+ * JSON, so the entity manager uses snapshots to skip clean entities on flush.
+ * <p>
+ * Every attribute is captured in a form that compares equal exactly when the
+ * attribute's JSON representation would be the same:
+ * <ul>
+ * <li>immutable basic values (strings, numbers, booleans, characters, enums)
+ * are kept as-is;
+ * <li>dates are kept as their millisecond value, since Date is mutable;
+ * <li>references to other entities are kept as the referenced entities' IDs,
+ * since that is all the JSON representation records about them.
+ * </ul>
+ * Entities with an attribute of any other kind (for example, an embedded
+ * object or an array) can't be captured. For those, {@link #of} returns null
+ * and the entity manager has to ask the storage backend whether the entity
+ * has been modified.
+ * <p>
+ * A snapshot that doesn't match its entity only means the entity <i>may</i>
+ * have been modified. The entity manager still confirms the change with the
+ * storage backend before it fires the PreUpdate and PostUpdate events, so the
+ * events fire under exactly the same conditions as they would without
+ * snapshots.
+ *
+ * @param <X>
+ *          The entity's Java type
+ */
+final class EntitySnapshot<X> {
+
+  private final List<ErraiAttribute<? super X, ?>> attributes;
+  private final Object[] values;
+
+  private EntitySnapshot(List<ErraiAttribute<? super X, ?>> attributes, Object[] values) {
+    this.attributes = attributes;
+    this.values = values;
+  }
+
+  /**
+   * Captures the current persistent state of the given entity.
+   *
+   * @param em
+   *          The entity manager that owns the entity. Not null.
+   * @param entityType
+   *          The entity's type. Not null.
+   * @param entity
+   *          The entity instance to capture. Not null.
+   * @return a snapshot of the entity's state, or null if the entity has an
+   *         attribute whose state can't be captured.
+   */
+  static <X> EntitySnapshot<X> of(ErraiEntityManager em, ErraiEntityType<X> entityType, X entity) {
+    List<ErraiAttribute<? super X, ?>> attributes = new ArrayList<ErraiAttribute<? super X, ?>>();
+    for (Attribute<? super X, ?> a : entityType.getAttributes()) {
+      attributes.add((ErraiAttribute<? super X, ?>) a);
+    }
+
+    Object[] values = new Object[attributes.size()];
+    for (int i = 0; i < values.length; i++) {
+      Object value = capture(em, attributes.get(i), entity);
+      if (value == UNCAPTURABLE) {
+        return null;
+      }
+      values[i] = value;
+    }
+    return new EntitySnapshot<X>(attributes, values);
+  }
+
+  /**
+   * Tests if the given entity's persistent state is the same as it was when
+   * this snapshot was taken.
+   *
+   * @param em
+   *          The entity manager that owns the entity. Not null.
+   * @param entity
+   *          The entity instance this snapshot was taken of. Not null.
+   * @return true if every attribute of {@code entity} would still serialize to
+   *         the same JSON as it did when this snapshot was taken; false if the
+   *         entity may have been modified since.
+   */
+  boolean matches(ErraiEntityManager em, X entity) {
+    for (int i = 0; i < values.length; i++) {
+      Object current = capture(em, attributes.get(i), entity);
+      if (current == UNCAPTURABLE || !equal(values[i], current)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Marker returned by {@link #capture} for attribute values that can't be
+   * captured.
+   */
+  private static final Object UNCAPTURABLE = new Object();
+
+  private static <X> Object capture(ErraiEntityManager em, ErraiAttribute<? super X, ?> attr, X entity) {
+    Object value = attr.get(entity);
+    switch (attr.getPersistentAttributeType()) {
+    case BASIC:
+      return captureBasicValue(value);
+
+    case MANY_TO_ONE:
+    case ONE_TO_ONE:
+      if (!(attr instanceof ErraiSingularAttribute)) return UNCAPTURABLE;
+      return captureReference(em, attr.getJavaType(), value);
+
+    case MANY_TO_MANY:
+    case ONE_TO_MANY:
+      if (!(attr instanceof ErraiPluralAttribute)) return UNCAPTURABLE;
+      if (value == null) return null;
+      if (!(value instanceof Iterable)) return UNCAPTURABLE;
+      Class<?> elementType = ((ErraiPluralAttribute<? super X, ?, ?>) attr).getElementType().getJavaType();
+      List<Object> ids = new ArrayList<Object>();
+      for (Object element : (Iterable<?>) value) {
+        Object id = captureReference(em, elementType, element);
+        if (id == UNCAPTURABLE) return UNCAPTURABLE;
+        ids.add(id);
+      }
+      return ids;
+
+    default:
+      return UNCAPTURABLE;
+    }
+  }
+
+  private static Object captureBasicValue(Object value) {
+    if (value == null
+            || value instanceof String
+            || value instanceof Boolean
+            || value instanceof Character
+            || value instanceof Byte
+            || value instanceof Short
+            || value instanceof Integer
+            || value instanceof Long
+            || value instanceof Float
+            || value instanceof Double
+            || value instanceof BigInteger
+            || value instanceof BigDecimal
+            || value instanceof Enum) {
+      return value;
+    }
+    else if (value instanceof Date) {  // covers java.sql.[Date,Time,Timestamp]
+      return new DateValue(((Date) value).getTime());
+    }
+    return UNCAPTURABLE;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <Y> Object captureReference(ErraiEntityManager em, Class<Y> declaredType, Object referencedEntity) {
+    if (referencedEntity == null) {
+      return null;
+    }
+    ErraiEntityType<Y> referencedType = em.getMetamodel().entity(declaredType.getName(), false);
+    if (referencedType == null) {
+      return UNCAPTURABLE;
+    }
+    return captureBasicValue(referencedType.getId(Object.class).get((Y) referencedEntity));
+  }
+
+  private static boolean equal(Object a, Object b) {
+    return a == null ? b == null : a.equals(b);
+  }
+
+  /**
+   * The captured state of a Date attribute. Unlike Date itself, this is
+   * immutable and has an equals() method that can't be fooled by the subtypes
+   * in the java.sql package.
+   */
+  private static final class DateValue {
+    private final long millis;
+
+    DateValue(long millis) {
+      this.millis = millis;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof DateValue && ((DateValue) obj).millis == millis;
+    }
+
+    @Override
+    public int hashCode() {
+      return (int) (millis ^ (millis >>> 32));
+    }
+  }
+}
@@ -3,6 +3,7 @@ package org.jboss.errai.jpa.client.local;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -24,9 +25,15 @@ import javax.persistence.metamodel.SingularAttribute;
 import org.jboss.errai.common.client.api.WrappedPortable;
 import org.jboss.errai.databinding.client.BindableProxy;
 import org.jboss.errai.jpa.client.local.backend.StorageBackend;
-import org.jboss.errai.jpa.client.local.backend.WebStorageBackend;
+import org.jboss.errai.jpa.client.local.backend.StorageBackendFactory;
 import org.jboss.errai.marshalling.client.api.MarshallerFramework;
 
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.Scheduler.ScheduledCommand;
+import com.google.gwt.json.client.JSONObject;
+import com.google.gwt.json.client.JSONValue;
+
 /**
  * The Errai specialization of the JPA 2.0 EntityManager interface, together
  * with an implementation of much of the logic. When the end-user project is
@@ -62,6 +69,29 @@ public abstract class ErraiEntityManager implements EntityManager {
    */
   final Map<Key<?, ?>, Object> persistenceContext = new HashMap<Key<?, ?>, Object>();
 
+  /**
+   * Snapshots of the state of the entities in the persistence context, taken
+   * when each one was last read from or written to the storage backend. Used by
+   * {@link #flush()} to skip entities that have not been modified. Entities
+   * whose state can't be captured in a snapshot have no entry here.
+   */
+  private final Map<Key<?, ?>, EntitySnapshot<?>> snapshots = new HashMap<Key<?, ?>, EntitySnapshot<?>>();
+
+  /**
+   * Writes that have not been sent to the storage backend yet. Maps each
+   * entity key to the JSON representation of the entity as of its last write,
+   * or to null if the entity has been removed. Later writes to the same entity
+   * replace earlier ones. The writes are sent to the backend in a single batch
+   * by {@link #applyPendingWrites()}.
+   */
+  private final Map<Key<?, ?>, JSONValue> pendingWrites = new LinkedHashMap<Key<?, ?>, JSONValue>();
+
+  /**
+   * True if a command that applies the pending writes has been scheduled to
+   * run when control returns to the browser's event loop.
+   */
+  private boolean pendingWritesScheduled;
+
   /**
    * All of the entities that are partly constructed but are still getting their
    * references connected up. This is required in order to prevent infinite
@@ -72,7 +102,7 @@ public abstract class ErraiEntityManager implements EntityManager {
   /**
    * The actual storage backend.
    */
-  private final StorageBackend backend = new WebStorageBackend(this); // XXX publishing reference to partially constructed object
+  private final StorageBackend backend;
 
   /**
    * All the named queries. Populated by a generated method in the
@@ -81,9 +111,32 @@ public abstract class ErraiEntityManager implements EntityManager {
   final Map<String, TypedQueryFactory> namedQueries = new HashMap<String, TypedQueryFactory>();
 
   /**
-   * Constructor for subclasses.
+   * Constructor for subclasses. Uses the storage backend chosen by the
+   * deferred binding rules for {@link StorageBackendFactory} (WebStorage,
+   * unless the application's GWT module says otherwise).
    */
   protected ErraiEntityManager() {
+    this(GWT.<StorageBackendFactory>create(StorageBackendFactory.class));
+  }
+
+  /**
+   * Constructor for subclasses that want to choose their own storage backend.
+   *
+   * @param backendFactory
+   *          Creates the storage backend for this entity manager. Not null.
+   */
+  protected ErraiEntityManager(StorageBackendFactory backendFactory) {
+    backend = backendFactory.createInstanceFor(this); // XXX publishing reference to partially constructed object
+  }
+
+  /**
+   * Returns the storage backend this entity manager keeps its entities in.
+   * Applications normally have no need for this, except to prepare backends
+   * that require it before first use (such as
+   * {@link org.jboss.errai.jpa.client.local.backend.IndexedDbStorageBackend}).
+   */
+  public StorageBackend getStorageBackend() {
+    return backend;
   }
 
   /**
@@ -189,7 +242,8 @@ public abstract class ErraiEntityManager implements EntityManager {
       case REMOVED:
         entityType.deliverPrePersist(entity);
         persistenceContext.put(key, entity);
-        backend.put(key, entity);
+        scheduleWrite(key, entity);
+        takeSnapshot(key, entity);
         entityType.deliverPostPersist(entity);
         // FALLTHROUGH
       case MANAGED:
@@ -208,6 +262,7 @@ public abstract class ErraiEntityManager implements EntityManager {
       case MANAGED:
       case REMOVED:
         persistenceContext.remove(key);
+        snapshots.remove(key);
         break;
       }
       break;
@@ -217,7 +272,8 @@ public abstract class ErraiEntityManager implements EntityManager {
       case MANAGED:
         entityType.deliverPreRemove(entity);
         persistenceContext.remove(key);
-        backend.remove(key);
+        snapshots.remove(key);
+        scheduleRemoval(key);
         entityType.deliverPostRemove(entity);
         break;
       case DETACHED:
@@ -314,7 +370,7 @@ public abstract class ErraiEntityManager implements EntityManager {
     if (persistenceContext.get(key) != null) {
       oldState = EntityState.MANAGED;
     }
-    else if (backend.contains(key)) {
+    else if (pendingWrites.containsKey(key) ? pendingWrites.get(key) != null : backend.contains(key)) {
       oldState = EntityState.DETACHED;
     }
     else {
@@ -376,7 +432,9 @@ public abstract class ErraiEntityManager implements EntityManager {
    * manager's storage backend.
    * <p>
    * This methods checks if the entity value has truly changed, and if so it
-   * fires the PreUpdate and PostUpdate events.
+   * fires the PreUpdate and PostUpdate events. Entities that still match the
+   * snapshot taken when they were last loaded or stored are skipped without
+   * consulting the backend at all.
    * <p>
    * This method also verifies that the entity's current identity matches the
    * key's identity. In JPA 2.0, application code is not allowed to modify a
@@ -393,8 +451,22 @@ public abstract class ErraiEntityManager implements EntityManager {
    *           became managed).
    */
   private <X> void updateInBackend(Key<X, ?> key, X entity) {
+    @SuppressWarnings("unchecked")
+    EntitySnapshot<X> snapshot = (EntitySnapshot<X>) snapshots.get(key);
+    if (snapshot != null && snapshot.matches(this, entity)) {
+      return;
+    }
+
     ErraiEntityType<X> entityType = getMetamodel().entity(getNarrowedClass(entity));
-    if (backend.isModified(key, entity)) {
+    boolean modified;
+    if (pendingWrites.containsKey(key)) {
+      // the backend doesn't have the latest version yet
+      modified = !JsonUtil.equals(key.getEntityType().toJson(this, entity), pendingWrites.get(key));
+    }
+    else {
+      modified = backend.isModified(key, entity);
+    }
+    if (modified) {
       Object currentId = entityType.getId(Object.class).get(entity);
       if (!key.getId().equals(currentId)) {
         throw new PersistenceException(
@@ -402,9 +474,96 @@ public abstract class ErraiEntityManager implements EntityManager {
                 key.getId() + "; Actual ID: " + currentId);
       }
       entityType.deliverPreUpdate(entity);
-      backend.put(key, entity);
+      scheduleWrite(key, entity);
+      takeSnapshot(key, entity);
       entityType.deliverPostUpdate(entity);
     }
+    else {
+      // the change (if any) didn't affect the stored form; don't look again next time
+      takeSnapshot(key, entity);
+    }
+  }
+
+  /**
+   * Queues the current state of the given entity to be written to the storage
+   * backend. The entity is serialized right away, so changes made to it after
+   * this call are not written (unless it is written again).
+   */
+  private <X> void scheduleWrite(Key<X, ?> key, X entity) {
+    addPendingWrite(key, key.getEntityType().toJson(this, entity));
+  }
+
+  /**
+   * Queues the removal of the given entity from the storage backend.
+   */
+  private void scheduleRemoval(Key<?, ?> key) {
+    addPendingWrite(key, null);
+  }
+
+  private void addPendingWrite(Key<?, ?> key, JSONValue valueJson) {
+    if (!pendingWritesScheduled) {
+      // make sure the writes reach storage even if the application never calls flush()
+      pendingWritesScheduled = true;
+      Scheduler.get().scheduleFinally(new ScheduledCommand() {
+        @Override
+        public void execute() {
+          pendingWritesScheduled = false;
+          applyPendingWrites();
+        }
+      });
+    }
+    pendingWrites.put(key, valueJson);
+  }
+
+  /**
+   * Sends all queued writes to the storage backend in a single batch. This
+   * happens on {@link #flush()}, before the backend is searched or read from
+   * (so that it reflects all the changes made through this entity manager),
+   * and at the latest when control returns to the browser's event loop.
+   * <p>
+   * If the backend fails to apply the batch, all of its writes stay queued (so
+   * they are sent again with the next batch) and the failure is rethrown.
+   *
+   * @throws PersistenceException
+   *           if the storage backend failed to apply the writes.
+   */
+  private void applyPendingWrites() {
+    if (pendingWrites.isEmpty()) return;
+    Map<Key<?, ?>, JSONValue> writes = new LinkedHashMap<Key<?, ?>, JSONValue>(pendingWrites);
+    pendingWrites.clear();
+    try {
+      backend.applyBatch(writes);
+    } catch (RuntimeException e) {
+      // writes queued while the batch was being applied are newer than the ones in the batch
+      writes.keySet().removeAll(pendingWrites.keySet());
+      writes.putAll(pendingWrites);
+      pendingWrites.clear();
+      pendingWrites.putAll(writes);
+      if (e instanceof PersistenceException) throw e;
+      throw new PersistenceException("Failed to write " + writes.size() + " entities to the storage backend", e);
+    }
+  }
+
+  /**
+   * Records the current state of the given managed entity as the state the
+   * storage backend holds for it. Must be called whenever the entity's state is
+   * read from or written to the backend, and before any lifecycle event that
+   * could modify the entity is delivered.
+   *
+   * @param key
+   *          The entity's key in the persistence context.
+   * @param entity
+   *          The "live" entity value in the persistence context.
+   */
+  private <X> void takeSnapshot(Key<X, ?> key, X entity) {
+    ErraiEntityType<X> entityType = getMetamodel().entity(getNarrowedClass(entity));
+    EntitySnapshot<X> snapshot = EntitySnapshot.of(this, entityType, entity);
+    if (snapshot == null) {
+      snapshots.remove(key);
+    }
+    else {
+      snapshots.put(key, snapshot);
+    }
   }
 
   /**
@@ -448,7 +607,99 @@ public abstract class ErraiEntityManager implements EntityManager {
    * EXPERIMENTAL. This method is very unlikely to survive in the long run.
    */
   public <X> List<X> findAll(ErraiEntityType<X> type, EntityJsonMatcher matcher) {
-    return backend.getAll(type, matcher);
+    return findAll(type, null, matcher);
+  }
+
+  /**
+   * EXPERIMENTAL. Like {@link #findAll(ErraiEntityType, EntityJsonMatcher)},
+   * but lets the storage backend narrow down the candidates using the index on
+   * an {@code @Indexed} attribute.
+   *
+   * @param lookup
+   *          The index lookup that narrows down the candidates, or null to
+   *          examine all entities of the given type.
+   */
+  public <X> List<X> findAll(ErraiEntityType<X> type, IndexLookup lookup, EntityJsonMatcher matcher) {
+    return findAll(type, lookup, matcher, null);
+  }
+
+  /**
+   * EXPERIMENTAL. Like
+   * {@link #findAll(ErraiEntityType, IndexLookup, EntityJsonMatcher)}, but
+   * lets the storage backend test managed, unmodified entities without reading
+   * their stored representations.
+   *
+   * @param entityMatcher
+   *          Accepts the same entities as {@code matcher}, but tests live
+   *          entity instances. Null if candidates can only be tested by their
+   *          JSON representations.
+   */
+  public <X> List<X> findAll(ErraiEntityType<X> type, IndexLookup lookup, EntityJsonMatcher matcher,
+          EntityMatcher<X> entityMatcher) {
+    applyPendingWrites();
+    return backend.getAll(type, lookup, matcher, entityMatcher);
+  }
+
+  /**
+   * EXPERIMENTAL. Like
+   * {@link #findAll(ErraiEntityType, IndexLookup, EntityJsonMatcher, EntityMatcher)},
+   * but only retrieves one page of the matching entities. Entities outside the
+   * page are not instantiated.
+   *
+   * @param order
+   *          The order of the matching entities, or null if their order is
+   *          unspecified.
+   * @param firstResult
+   *          The position of the first entity to retrieve, counting from 0.
+   * @param maxResults
+   *          The maximum number of entities to retrieve.
+   */
+  public <X> List<X> findAll(ErraiEntityType<X> type, IndexLookup lookup, EntityJsonMatcher matcher,
+          EntityMatcher<X> entityMatcher, SortKeyExtractor<JSONObject> order, int firstResult, int maxResults) {
+    applyPendingWrites();
+    return backend.getPage(type, lookup, matcher, entityMatcher, order, firstResult, maxResults);
+  }
+
+  /**
+   * Returns the managed instance of the entity with the given key, provided
+   * that its state is known to be the same as the state the storage backend
+   * holds for it. Storage backends can examine such an entity instead of
+   * reading and parsing its stored representation.
+   *
+   * @param key
+   *          The key of the entity to look up. Must not be null.
+   * @return the managed entity, or null if the entity is not in the persistence
+   *         context, has been modified since it was last read from or written
+   *         to the storage backend, or its state can't be tracked.
+   */
+  public <X> X getUnmodifiedManagedEntity(Key<X, ?> key) {
+    if (pendingWrites.containsKey(key)) return null;
+
+    @SuppressWarnings("unchecked")
+    EntitySnapshot<X> snapshot = (EntitySnapshot<X>) snapshots.get(key);
+    if (snapshot == null) return null;
+
+    X entity = cast(key.getEntityType().getJavaType(), persistenceContext.get(key));
+    if (entity == null || !snapshot.matches(this, entity)) return null;
+    return entity;
+  }
+
+  /**
+   * Returns the JSON representation of the current state of the managed
+   * instance of the entity with the given key. This differs from the
+   * representation the storage backend holds for it if the entity was modified
+   * since it was last flushed. Storage backends order query results by it, so
+   * that a query orders its results by the state they are returned in.
+   *
+   * @param key
+   *          The key of the entity to look up. Must not be null.
+   * @return the JSON representation of the managed entity, or null if the
+   *         entity is not in the persistence context.
+   */
+  public <X> JSONObject getManagedEntityJson(Key<X, ?> key) {
+    X entity = cast(key.getEntityType().getJavaType(), persistenceContext.get(key));
+    if (entity == null) return null;
+    return key.getEntityType().toJson(this, entity).isObject();
   }
 
   // -------------- Actual JPA API below this line -------------------
@@ -471,13 +722,14 @@ public abstract class ErraiEntityManager implements EntityManager {
 
   @Override
   public void flush() {
-    // deferred backend operations not (yet!) implemented
-
     // persist updates to entities in the persistence context
     for (Map.Entry<Key<?, ?>, Object> entry : persistenceContext.entrySet()) {
       // type safety warning should go away when we have a real PersistenceContext implementation
       updateInBackend((Key<Object, ?>) entry.getKey(), entry.getValue());
     }
+
+    // then send them, and all the other writes since the last flush, to the backend in one go
+    applyPendingWrites();
   }
 
   @Override
@@ -514,9 +766,13 @@ public abstract class ErraiEntityManager implements EntityManager {
   public <X> X find(Key<X, ?> key, Map<String, Object> properties) {
     X entity = cast(key.getEntityType().getJavaType(), persistenceContext.get(key));
     if (entity == null) {
+      if (pendingWrites.containsKey(key)) {
+        applyPendingWrites();
+      }
       entity = backend.get(key);
       if (entity != null && !properties.containsKey(NO_SIDE_EFFECTS)) {
         persistenceContext.put(key, entity);
+        takeSnapshot(key, entity);
 
         // XXX when persistenceContext gets its own class, this should go on the ultimate ingress point
         getMetamodel().entity(key.getEntityType().getJavaType()).deliverPostLoad(entity);
@@ -525,6 +781,29 @@ public abstract class ErraiEntityManager implements EntityManager {
     return entity;
   }
 
+  /**
+   * Retrieves the entity instance identified by the given Key. If the entity
+   * is not already in the persistence context, it is reconstituted from the
+   * given JSON representation, which the caller has already retrieved from
+   * the storage backend, rather than being read from the backend again.
+   *
+   * @param key The key to look up. Must not be null.
+   * @param storedValue The JSON representation of the entity, as held by the storage backend. Must not be null.
+   * @return the entity instance. Never null.
+   */
+  public <X> X find(Key<X, ?> key, JSONValue storedValue) {
+    X entity = cast(key.getEntityType().getJavaType(), persistenceContext.get(key));
+    if (entity == null) {
+      entity = key.getEntityType().fromJson(this, storedValue);
+      persistenceContext.put(key, entity);
+      takeSnapshot(key, entity);
+
+      // XXX when persistenceContext gets its own class, this should go on the ultimate ingress point
+      getMetamodel().entity(key.getEntityType().getJavaType()).deliverPostLoad(entity);
+    }
+    return entity;
+  }
+
   @Override
   public void remove(Object entity) {
     changeEntityState(entity, EntityState.REMOVED);
@@ -535,6 +814,7 @@ public abstract class ErraiEntityManager implements EntityManager {
    */
   public void removeAll() {
     clear();
+    pendingWrites.clear();
     backend.removeAll();
   }
 
@@ -1,8 +1,10 @@
 package org.jboss.errai.jpa.client.local;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import javax.persistence.EntityManager;
@@ -36,6 +38,7 @@ public abstract class ErraiEntityType<X> implements EntityType<X> {
 
   private final Set<SingularAttribute<? super X, ?>> singularAttributes = new HashSet<SingularAttribute<? super X,?>>();
   private final Set<PluralAttribute<? super X, ?, ?>> pluralAttributes = new HashSet<PluralAttribute<? super X, ?, ?>>();
+  private final List<ErraiSingularAttribute<? super X, ?>> indexedAttributes = new ArrayList<ErraiSingularAttribute<? super X, ?>>();
 
   private SingularAttribute<? super X, ?> id;
   private SingularAttribute<? super X, ?> version;
@@ -54,6 +57,9 @@ public abstract class ErraiEntityType<X> implements EntityType<X> {
       singularAttributes.add(sa);
       if (sa.isId()) id = sa;
       if (sa.isVersion()) version = sa;
+      if (sa instanceof ErraiSingularAttribute && ((ErraiSingularAttribute<? super X, ?>) sa).isIndexed()) {
+        indexedAttributes.add((ErraiSingularAttribute<? super X, ?>) sa);
+      }
     }
     else if (attribute instanceof PluralAttribute) {
       @SuppressWarnings("unchecked")
@@ -65,6 +71,34 @@ public abstract class ErraiEntityType<X> implements EntityType<X> {
     }
   }
 
+  /**
+   * Returns the attributes of this entity type that the storage backend
+   * maintains secondary indexes for.
+   *
+   * @return an unmodifiable list of the indexed attributes, in the order they
+   *         were added to this entity type. Never null.
+   */
+  public List<ErraiSingularAttribute<? super X, ?>> getIndexedAttributes() {
+    return Collections.unmodifiableList(indexedAttributes);
+  }
+
+  /**
+   * Returns the indexed attribute of this entity type that has the given name.
+   *
+   * @param name
+   *          The attribute name. Not null.
+   * @return the indexed attribute with the given name, or null if this entity
+   *         type has no indexed attribute by that name.
+   */
+  public ErraiSingularAttribute<? super X, ?> getIndexedAttribute(String name) {
+    for (ErraiSingularAttribute<? super X, ?> attr : indexedAttributes) {
+      if (attr.getName().equals(name)) {
+        return attr;
+      }
+    }
+    return null;
+  }
+
   /**
    * Creates and returns a new instance of the represented entity type.
    *
@@ -30,4 +30,10 @@ public interface ErraiSingularAttribute<X, T> extends ErraiAttribute<X, T>, Sing
    *           if this attribute is not a {@code @GeneratedValue}.
    */
   public Iterator<T> getValueGenerator();
+
+  /**
+   * Does the storage backend maintain a secondary index on this attribute
+   * (that is, is the attribute annotated with {@code @Indexed}).
+   */
+  public boolean isIndexed();
 }
@@ -1,7 +1,5 @@
 package org.jboss.errai.jpa.client.local;
 
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -20,6 +18,7 @@ import javax.persistence.TypedQuery;
 import org.jboss.errai.common.client.api.Assert;
 
 import com.google.common.collect.ImmutableBiMap;
+import com.google.gwt.json.client.JSONObject;
 
 /**
  * Base implementation of the JPA TypedQuery interface for Errai. This class is
@@ -45,6 +44,15 @@ public abstract class ErraiTypedQuery<X> implements TypedQuery<X>, EntityJsonMat
    */
   private final Map<Parameter<?>, Object> paramValues = new HashMap<Parameter<?>, Object>();
 
+  /**
+   * The values of the parameters defined for this query, in parameter position
+   * order, as they will be seen by the generated query logic. Built from
+   * {@link #paramValues} on demand, so the matcher and the sort key extractors
+   * don't have to look up each parameter by name for every candidate entity.
+   * Null when it has to be rebuilt.
+   */
+  private Object[] boundParameterValues;
+
   private FlushModeType flushMode = FlushModeType.AUTO;
   private LockModeType lockMode = LockModeType.OPTIMISTIC_FORCE_INCREMENT;
   private final ErraiEntityManager em;
@@ -117,14 +125,83 @@ public abstract class ErraiTypedQuery<X> implements TypedQuery<X>, EntityJsonMat
   }
 
   /**
-   * Returns a comparator that can be used for sorting a list of result objects
-   * based on the ORDER BY clause and the current parameter values of this
-   * query.
+   * Returns an extractor that orders the JSON representations of result
+   * objects based on the ORDER BY clause and the current parameter values of
+   * this query. The storage backend orders the results by it, so a page of
+   * results (see {@link #setFirstResult(int)} and {@link #setMaxResults(int)})
+   * can be selected without instantiating the results that fall outside the
+   * page, and the order is the same whether or not the results are paged.
+   *
+   * @return A sort key extractor for achieving the ORDER BY order for this
+   *         query on JSON representations of its results, or null if this
+   *         query has no ORDER BY clause.
+   */
+  protected abstract SortKeyExtractor<JSONObject> getJsonSortKeyExtractor();
+
+  /**
+   * Returns a lookup on an {@code @Indexed} attribute that the storage backend
+   * can use to narrow down the candidates for this query, based on the WHERE
+   * clause and the current parameter values of this query. The candidates are
+   * still checked against {@link #matches(com.google.gwt.json.client.JSONObject)}.
+   * <p>
+   * This default implementation returns null. Generated subclasses override it
+   * when the WHERE clause constrains an indexed attribute.
+   *
+   * @return An index lookup for this query, or null if every stored entity of
+   *         the result type has to be examined.
+   */
+  protected IndexLookup getIndexLookup() {
+    return null;
+  }
+
+  /**
+   * Returns a matcher that evaluates the WHERE clause of this query directly
+   * against live entity instances, accepting exactly the entities whose JSON
+   * representations {@link #matches(com.google.gwt.json.client.JSONObject)}
+   * accepts. The storage backend uses it for result candidates that are
+   * already managed and unmodified.
+   * <p>
+   * This default implementation returns null. Generated subclasses override it
+   * when every attribute the WHERE clause refers to is a basic attribute of
+   * the result type.
+   *
+   * @return An entity matcher for this query, or null if candidates can only
+   *         be matched by their JSON representations.
+   */
+  protected EntityMatcher<X> getEntityMatcher() {
+    return null;
+  }
+
+  /**
+   * Returns the current value of the parameter at the given position. The
+   * values of all parameters are looked up together the first time this
+   * method is called after a parameter value has changed, so the generated
+   * query logic can call this method for every candidate entity.
    *
-   * @return A comparator for acheiving the ORDER BY order for this query, or
-   *         null if this query has no ORDER BY clause.
+   * @param position
+   *          The position of the parameter, counting from 0.
+   * @return the value of the parameter, or null if it has not been set.
    */
-  protected abstract Comparator<X> getComparator();
+  // MAINTAINERS BEWARE: Errai JPA generates code that uses this method.
+  protected Object getBoundParameterValue(int position) {
+    if (boundParameterValues == null) {
+      List<Parameter<?>> parameterList = parameters.values().asList();
+      Object[] values = new Object[parameterList.size()];
+      for (int i = 0; i < values.length; i++) {
+        values[i] = paramValues.get(parameterList.get(i));
+      }
+      boundParameterValues = values;
+    }
+    return boundParameterValues[position];
+  }
+
+  /**
+   * Sets the value of the given parameter.
+   */
+  private void bind(Parameter<?> param, Object value) {
+    paramValues.put(param, value);
+    boundParameterValues = null;
+  }
 
   // ========= JPA API below this line
 
@@ -213,12 +290,12 @@ public abstract class ErraiTypedQuery<X> implements TypedQuery<X>, EntityJsonMat
 
   @Override
   public List<X> getResultList() {
-    List<X> results = em.findAll(em.getMetamodel().entity(resultType), this);
-    Comparator<X> cmp = getComparator();
-    if (cmp != null) {
-      Collections.sort(results, cmp);
+    ErraiEntityType<X> entityType = em.getMetamodel().entity(resultType);
+    SortKeyExtractor<JSONObject> order = getJsonSortKeyExtractor();
+    if (order != null || firstResult > 0 || maxResults < Integer.MAX_VALUE) {
+      return em.findAll(entityType, getIndexLookup(), this, getEntityMatcher(), order, firstResult, maxResults);
     }
-    return results;
+    return em.findAll(entityType, getIndexLookup(), this, getEntityMatcher());
   }
 
   @Override
@@ -234,12 +311,18 @@ public abstract class ErraiTypedQuery<X> implements TypedQuery<X>, EntityJsonMat
 
   @Override
   public TypedQuery<X> setMaxResults(int maxResult) {
+    if (maxResult < 0) {
+      throw new IllegalArgumentException("maxResult must not be negative (got " + maxResult + ")");
+    }
     maxResults = maxResult;
     return this;
   }
 
   @Override
   public TypedQuery<X> setFirstResult(int startPosition) {
+    if (startPosition < 0) {
+      throw new IllegalArgumentException("startPosition must not be negative (got " + startPosition + ")");
+    }
     firstResult = startPosition;
     return this;
   }
@@ -252,21 +335,21 @@ public abstract class ErraiTypedQuery<X> implements TypedQuery<X>, EntityJsonMat
 
   @Override
   public <T> TypedQuery<X> setParameter(Parameter<T> param, T value) {
-    paramValues.put(param, value);
+    bind(param, value);
     return this;
   }
 
   @Override
   public TypedQuery<X> setParameter(Parameter<Date> param, Date value,
           TemporalType temporalType) {
-    paramValues.put(param, value);
+    bind(param, value);
     return this;
   }
 
   @Override
   public TypedQuery<X> setParameter(String name, Object value) {
     Parameter<?> param = getExistingParameter(name);
-    paramValues.put(param, value);
+    bind(param, value);
     return this;
   }
 
@@ -274,20 +357,20 @@ public abstract class ErraiTypedQuery<X> implements TypedQuery<X>, EntityJsonMat
   public TypedQuery<X> setParameter(String name, Date value,
           TemporalType temporalType) {
     Parameter<?> param = getExistingParameter(name);
-    paramValues.put(param, value);
+    bind(param, value);
     return this;
   }
 
   @Override
   public TypedQuery<X> setParameter(int position, Object value) {
-    paramValues.put(getParameter(position), value);
+    bind(getParameter(position), value);
     return this;
   }
 
   @Override
   public TypedQuery<X> setParameter(int position, Date value,
           TemporalType temporalType) {
-    paramValues.put(getParameter(position), value);
+    bind(getParameter(position), value);
     return this;
   }
 
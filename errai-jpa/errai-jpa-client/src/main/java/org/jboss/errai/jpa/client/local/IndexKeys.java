@@ -0,0 +1,162 @@
+package org.jboss.errai.jpa.client.local;
+
+import java.util.Date;
+
+import com.google.gwt.json.client.JSONObject;
+import com.google.gwt.json.client.JSONValue;
+
+/**
+ * Non-instantiable utility methods for converting the values of indexed
+ * attributes to and from the string keys under which storage backends file
+ * them in their secondary indexes.
+ * <p>
+ * An index key is a one-letter kind prefix followed by a colon and a string
+ * representation of the value. Values are normalized the same way the
+ * generated query matchers normalize them before comparison: all numbers
+ * become doubles and characters become strings. References to other entities
+ * are keyed by the referenced entity's ID. As a result, two values that
+ * compare equal in a JPQL query always have the same index key. (The reverse
+ * does not always hold, which is fine because index lookups only have to
+ * produce a superset of the entities a query matches.)
+ */
+public class IndexKeys {
+
+  private IndexKeys() {}
+
+  /**
+   * Returns the index key for the given attribute value, as stored in the JSON
+   * representation of an entity.
+   *
+   * @param em
+   *          The entity manager that owns the attribute's entity type. Not
+   *          null.
+   * @param attr
+   *          The indexed attribute. Not null.
+   * @param attrValue
+   *          The JSON representation of the attribute's value, as produced by
+   *          {@link ErraiEntityType#toJson(javax.persistence.EntityManager, Object)}.
+   *          Null is permitted.
+   * @return The index key for the value, or null if the value is null (null
+   *         values are not indexed).
+   */
+  public static String forJson(ErraiEntityManager em, ErraiSingularAttribute<?, ?> attr, JSONValue attrValue) {
+    if (attrValue == null || attrValue.isNull() != null) {
+      return null;
+    }
+    if (attr.isAssociation()) {
+      JSONObject keyJson = attrValue.isObject();
+      if (keyJson == null) return null;
+      Key<?, ?> key = Key.fromJsonObject(em, keyJson, false);
+      if (key == null) return null;
+      String idKey = forBasicValue(key.getId());
+      return idKey == null ? null : "k:" + idKey;
+    }
+    return forBasicValue(JsonUtil.basicValueFromJson(attrValue, attr.getJavaType()));
+  }
+
+  /**
+   * Returns the index key for the given Java value of the given attribute, for
+   * example a query parameter that the attribute is being compared to.
+   *
+   * @param em
+   *          The entity manager that owns the attribute's entity type. Not
+   *          null.
+   * @param attr
+   *          The indexed attribute. Not null.
+   * @param value
+   *          The value to convert. For attributes that reference another
+   *          entity, this is expected to be an entity instance. Null is
+   *          permitted.
+   * @return The index key for the value, or null if no stored attribute value
+   *         can compare equal to {@code value} (for example, because it is
+   *         null or of a type that can't be indexed).
+   */
+  public static String forValue(ErraiEntityManager em, ErraiSingularAttribute<?, ?> attr, Object value) {
+    if (value == null) {
+      return null;
+    }
+    if (attr.isAssociation()) {
+      ErraiEntityType<Object> et = em.getMetamodel().entity(value.getClass().getName(), false);
+      if (et == null) return null;
+      String idKey = forBasicValue(et.getId(Object.class).get(value));
+      return idKey == null ? null : "k:" + idKey;
+    }
+    return forBasicValue(value);
+  }
+
+  /**
+   * Returns the index key for the given value of a JPA basic type.
+   *
+   * @return the index key, or null if {@code value} is null or not of an
+   *         indexable type.
+   */
+  private static String forBasicValue(Object value) {
+    if (value instanceof Number) {
+      return "n:" + ((Number) value).doubleValue();
+    }
+    else if (value instanceof String || value instanceof Character) {
+      return "s:" + value;
+    }
+    else if (value instanceof Boolean) {
+      return "b:" + value;
+    }
+    else if (value instanceof Enum) {
+      return "e:" + ((Enum<?>) value).name();
+    }
+    else if (value instanceof Date) {  // covers java.sql.[Date,Time,Timestamp]
+      return "t:" + ((Date) value).getTime();
+    }
+    return null;
+  }
+
+  /**
+   * Tests if the value represented by the given index key lies within the
+   * given range. Only numbers, strings and dates have an order; keys of other
+   * kinds, and keys of a different kind than the bounds, are never in range.
+   *
+   * @param key
+   *          The index key to test. Not null.
+   * @param lowerKey
+   *          The index key of the lower bound, or null if the range has no
+   *          lower bound.
+   * @param lowerInclusive
+   *          True if a value equal to the lower bound is in range.
+   * @param upperKey
+   *          The index key of the upper bound, or null if the range has no
+   *          upper bound.
+   * @param upperInclusive
+   *          True if a value equal to the upper bound is in range.
+   * @return true if the key's value lies within the given range.
+   */
+  public static boolean inRange(String key, String lowerKey, boolean lowerInclusive, String upperKey, boolean upperInclusive) {
+    Comparable<Object> value = toComparable(key);
+    if (value == null) return false;
+
+    if (lowerKey != null) {
+      Comparable<Object> lower = toComparable(lowerKey);
+      if (lower == null || key.charAt(0) != lowerKey.charAt(0)) return false;
+      int cmp = value.compareTo(lower);
+      if (cmp < 0 || (cmp == 0 && !lowerInclusive)) return false;
+    }
+
+    if (upperKey != null) {
+      Comparable<Object> upper = toComparable(upperKey);
+      if (upper == null || key.charAt(0) != upperKey.charAt(0)) return false;
+      int cmp = value.compareTo(upper);
+      if (cmp > 0 || (cmp == 0 && !upperInclusive)) return false;
+    }
+
+    return true;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Comparable<Object> toComparable(String key) {
+    String value = key.substring(2);
+    switch (key.charAt(0)) {
+    case 'n': return (Comparable<Object>) (Comparable<?>) Double.valueOf(value);
+    case 's': return (Comparable<Object>) (Comparable<?>) value;
+    case 't': return (Comparable<Object>) (Comparable<?>) Long.valueOf(value);
+    default: return null;
+    }
+  }
+}
@@ -0,0 +1,178 @@
+package org.jboss.errai.jpa.client.local;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.jboss.errai.common.client.api.Assert;
+
+/**
+ * Describes a set of values of one indexed entity attribute that a query is
+ * interested in. A storage backend that maintains an index on the attribute
+ * can use this to retrieve a small set of candidate entities instead of
+ * examining every stored entity of the query's result type.
+ * <p>
+ * Index lookups are only an optimization: the candidates they produce are
+ * still passed through the query's {@link EntityJsonMatcher}. Therefore a
+ * lookup is allowed to produce more candidates than the query actually
+ * matches, but never fewer.
+ * <p>
+ * Instances of this class are immutable. Use the static factory methods to
+ * create them.
+ */
+public final class IndexLookup {
+
+  private final String attributeName;
+
+  /**
+   * The values to look up for an equality or {@code IN} lookup. Null for range
+   * lookups.
+   */
+  private final List<Object> values;
+
+  private final boolean hasLowerBound;
+  private final Object lowerBound;
+  private final boolean lowerInclusive;
+
+  private final boolean hasUpperBound;
+  private final Object upperBound;
+  private final boolean upperInclusive;
+
+  private IndexLookup(String attributeName, List<Object> values,
+          boolean hasLowerBound, Object lowerBound, boolean lowerInclusive,
+          boolean hasUpperBound, Object upperBound, boolean upperInclusive) {
+    this.attributeName = Assert.notNull(attributeName);
+    this.values = values;
+    this.hasLowerBound = hasLowerBound;
+    this.lowerBound = lowerBound;
+    this.lowerInclusive = lowerInclusive;
+    this.hasUpperBound = hasUpperBound;
+    this.upperBound = upperBound;
+    this.upperInclusive = upperInclusive;
+  }
+
+  /**
+   * Creates a lookup for the entities whose attribute value equals the given
+   * value.
+   */
+  // MAINTAINERS BEWARE: Errai JPA generates code that uses this method.
+  public static IndexLookup equalTo(String attributeName, Object value) {
+    return new IndexLookup(attributeName, Collections.singletonList(value), false, null, false, false, null, false);
+  }
+
+  /**
+   * Creates a lookup for the entities whose attribute value equals any of the
+   * given values. Like the JPQL {@code IN} operator (and
+   * {@link org.jboss.errai.jpa.client.local.backend.Comparisons#in(Object, Object[])}),
+   * a single collection-valued element stands for the elements of that
+   * collection.
+   */
+  // MAINTAINERS BEWARE: Errai JPA generates code that uses this method.
+  public static IndexLookup in(String attributeName, Object[] values) {
+    List<Object> valueList;
+    if (values.length == 1 && values[0] instanceof Collection) {
+      valueList = new ArrayList<Object>((Collection<?>) values[0]);
+    }
+    else {
+      valueList = Arrays.asList(values);
+    }
+    return new IndexLookup(attributeName, valueList, false, null, false, false, null, false);
+  }
+
+  /**
+   * Creates a lookup for the entities whose attribute value is greater than
+   * (or, if {@code inclusive} is true, equal to) the given bound.
+   */
+  // MAINTAINERS BEWARE: Errai JPA generates code that uses this method.
+  public static IndexLookup greaterThan(String attributeName, Object bound, boolean inclusive) {
+    return new IndexLookup(attributeName, null, true, bound, inclusive, false, null, false);
+  }
+
+  /**
+   * Creates a lookup for the entities whose attribute value is less than (or,
+   * if {@code inclusive} is true, equal to) the given bound.
+   */
+  // MAINTAINERS BEWARE: Errai JPA generates code that uses this method.
+  public static IndexLookup lessThan(String attributeName, Object bound, boolean inclusive) {
+    return new IndexLookup(attributeName, null, false, null, false, true, bound, inclusive);
+  }
+
+  /**
+   * Creates a lookup for the entities whose attribute value lies between the
+   * two given bounds (inclusive), as in the JPQL {@code BETWEEN} operator.
+   */
+  // MAINTAINERS BEWARE: Errai JPA generates code that uses this method.
+  public static IndexLookup between(String attributeName, Object lowerBound, Object upperBound) {
+    return new IndexLookup(attributeName, null, true, lowerBound, true, true, upperBound, true);
+  }
+
+  /**
+   * Returns the name of the attribute this lookup applies to.
+   */
+  public String getAttributeName() {
+    return attributeName;
+  }
+
+  /**
+   * Tells whether this is a range lookup (created by {@link #greaterThan},
+   * {@link #lessThan} or {@link #between}) or a lookup of specific values
+   * (created by {@link #equalTo} or {@link #in}).
+   */
+  public boolean isRange() {
+    return values == null;
+  }
+
+  /**
+   * Returns the values to look up. Only applicable to lookups that are not
+   * ranges. The list may contain nulls; no attribute value is equal to null.
+   */
+  public List<Object> getValues() {
+    if (values == null) {
+      throw new IllegalStateException("Range lookups don't have a list of values");
+    }
+    return values;
+  }
+
+  public boolean hasLowerBound() {
+    return hasLowerBound;
+  }
+
+  /**
+   * Returns the lower bound of this range lookup. A null bound (for example,
+   * from an unset query parameter) matches nothing.
+   */
+  public Object getLowerBound() {
+    return lowerBound;
+  }
+
+  public boolean isLowerInclusive() {
+    return lowerInclusive;
+  }
+
+  public boolean hasUpperBound() {
+    return hasUpperBound;
+  }
+
+  /**
+   * Returns the upper bound of this range lookup. A null bound (for example,
+   * from an unset query parameter) matches nothing.
+   */
+  public Object getUpperBound() {
+    return upperBound;
+  }
+
+  public boolean isUpperInclusive() {
+    return upperInclusive;
+  }
+
+  @Override
+  public String toString() {
+    if (values != null) {
+      return attributeName + " IN " + values;
+    }
+    return attributeName + " in " + (hasLowerBound ? (lowerInclusive ? "[" : "(") + lowerBound : "(*")
+            + ", " + (hasUpperBound ? upperBound + (upperInclusive ? "]" : ")") : "*)");
+  }
+}
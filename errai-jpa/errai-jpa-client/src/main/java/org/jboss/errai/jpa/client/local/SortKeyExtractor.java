@@ -0,0 +1,115 @@
+package org.jboss.errai.jpa.client.local;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.jboss.errai.common.client.api.Assert;
+import org.jboss.errai.jpa.client.local.backend.Comparisons;
+
+/**
+ * Implements the ORDER BY clause of a query by extracting the values of its
+ * ORDER BY expressions (the <i>sort keys</i>) from the items being ordered.
+ * <p>
+ * A comparator that evaluates the ORDER BY expressions every time it compares
+ * two items evaluates them O(N log N) times while sorting N items, and for
+ * stored JSON representations, every evaluation converts a JSON value. Sorting
+ * with an extractor evaluates them exactly N times: the keys of each item are
+ * extracted once, the keys are sorted, and the items are put in the order of
+ * their keys.
+ * <p>
+ * Errai JPA generates a subclass of this class for each query that has an
+ * ORDER BY clause.
+ *
+ * @param <T>
+ *          The type of the items being ordered (an entity type, or
+ *          JSONObject for the stored representations of entities).
+ */
+public abstract class SortKeyExtractor<T> {
+
+  /**
+   * One element per ORDER BY expression; true if the expression is sorted in
+   * descending order.
+   */
+  private final boolean[] descending;
+
+  /**
+   * @param descending
+   *          For each ORDER BY expression in the query, true if the expression
+   *          is marked DESC; false if it is ascending.
+   */
+  // MAINTAINERS BEWARE: Errai JPA generates code that uses this constructor.
+  protected SortKeyExtractor(boolean[] descending) {
+    this.descending = Assert.notNull(descending);
+  }
+
+  /**
+   * Evaluates the ORDER BY expressions of the query against the given item.
+   *
+   * @param item
+   *          The item to extract the sort keys from. Not null.
+   * @return the values of the query's ORDER BY expressions, in the order they
+   *         appear in the query. The values are Comparable or null.
+   */
+  public abstract Object[] extractKeys(T item);
+
+  /**
+   * Compares two sets of sort keys according to the ORDER BY clause.
+   *
+   * @param keys1
+   *          Sort keys produced by {@link #extractKeys(Object)}.
+   * @param keys2
+   *          Sort keys produced by {@link #extractKeys(Object)}.
+   * @return a negative number, zero, or a positive number if the item
+   *         {@code keys1} was extracted from comes before, ties with, or comes
+   *         after the item {@code keys2} was extracted from.
+   */
+  @SuppressWarnings("rawtypes")
+  public int compareKeys(Object[] keys1, Object[] keys2) {
+    for (int i = 0; i < descending.length; i++) {
+      int result = Comparisons.nullSafeCompare((Comparable) keys1[i], (Comparable) keys2[i]);
+      if (result != 0) {
+        return descending[i] ? -result : result;
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Sorts the given list according to the ORDER BY clause. The sort is
+   * stable: items whose sort keys tie keep their relative order.
+   *
+   * @param items
+   *          The list to sort in place. Must be modifiable.
+   */
+  public void sort(List<T> items) {
+    if (items.size() < 2) return;
+
+    List<Keyed<T>> keyed = new ArrayList<Keyed<T>>(items.size());
+    for (T item : items) {
+      keyed.add(new Keyed<T>(extractKeys(item), item));
+    }
+
+    Collections.sort(keyed, new Comparator<Keyed<T>>() {
+      @Override
+      public int compare(Keyed<T> o1, Keyed<T> o2) {
+        return compareKeys(o1.keys, o2.keys);
+      }
+    });
+
+    for (int i = 0; i < keyed.size(); i++) {
+      items.set(i, keyed.get(i).item);
+    }
+  }
+
+  private static class Keyed<T> {
+    final Object[] keys;
+    final T item;
+
+    Keyed(Object[] keys, T item) {
+      this.keys = keys;
+      this.item = item;
+    }
+  }
+}
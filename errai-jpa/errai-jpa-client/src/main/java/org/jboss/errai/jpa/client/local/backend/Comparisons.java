@@ -142,6 +142,27 @@ public class Comparisons {
     return c1.compareTo(c2);
   }
 
+  /**
+   * Converts an attribute value read from a live entity to the form the same
+   * value has when it is read from the entity's JSON representation: bytes,
+   * shorts, ints and floats become Doubles (as do numeric literals in queries),
+   * and chars become Strings. All other values are returned as-is.
+   *
+   * @param value
+   *          The value to normalize. Null is permitted.
+   * @return the normalized value. Null if {@code value} is null.
+   */
+  // MAINTAINERS BEWARE: Errai JPA generates code that uses this method.
+  public static Object normalize(Object value) {
+    if (value instanceof Integer || value instanceof Short || value instanceof Byte || value instanceof Float) {
+      return Double.valueOf(((Number) value).doubleValue());
+    }
+    if (value instanceof Character) {
+      return String.valueOf(((Character) value).charValue());
+    }
+    return value;
+  }
+
   /**
    * Tests if the first argument is equal to any of the remaining arguments.
    * Equality is tested using {@link #nullSafeEquals(Object, Object)}.
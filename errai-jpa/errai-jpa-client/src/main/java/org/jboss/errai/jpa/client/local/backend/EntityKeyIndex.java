@@ -0,0 +1,175 @@
+package org.jboss.errai.jpa.client.local.backend;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jboss.errai.common.client.api.Assert;
+import org.jboss.errai.jpa.client.local.IndexKeys;
+
+/**
+ * The indexes a storage backend keeps in memory: the keys of the stored
+ * entities of each entity type, and for each indexed attribute, the keys of
+ * the entities that have each of its values.
+ * <p>
+ * Entities and attribute values are only known to this class by their keys:
+ * entities by their {@link org.jboss.errai.jpa.client.local.Key#toJson() key},
+ * and attribute values by their {@link IndexKeys index key}. It never looks at
+ * the JSON representations of the entities, so it can be tested outside of a
+ * browser.
+ */
+public class EntityKeyIndex {
+
+  /**
+   * The keys of the stored entities, by the name of their entity type, in the
+   * order they were first added.
+   */
+  private final Map<String, Set<String>> keysByType = new HashMap<String, Set<String>>();
+
+  /**
+   * The keys of the entities that have each value of each indexed attribute,
+   * by the name of the entity type, then by the name of the attribute, and
+   * then by the index key of the value.
+   */
+  private final Map<String, Map<String, Map<String, Set<String>>>> keysByValue
+      = new HashMap<String, Map<String, Map<String, Set<String>>>>();
+
+  /**
+   * Records that an entity of the given type is stored under the given key.
+   * Does nothing if it is already recorded.
+   */
+  public void add(String typeName, String entityKey) {
+    Set<String> keys = keysByType.get(typeName);
+    if (keys == null) {
+      keysByType.put(typeName, keys = new LinkedHashSet<String>());
+    }
+    keys.add(Assert.notNull(entityKey));
+  }
+
+  /**
+   * Records that the entity stored under the given key has been removed. Its
+   * attribute values have to be removed separately, with
+   * {@link #update(String, String, String, String, String)}.
+   */
+  public void remove(String typeName, String entityKey) {
+    Set<String> keys = keysByType.get(typeName);
+    if (keys != null) {
+      keys.remove(entityKey);
+    }
+  }
+
+  /**
+   * Moves the entity stored under the given key from the index entry for its
+   * old value of the given attribute to the entry for its new value.
+   *
+   * @param oldValueKey
+   *          The index key of the attribute's old value, or null if the entity
+   *          was not stored before or the old value was not indexed.
+   * @param newValueKey
+   *          The index key of the attribute's new value, or null if the entity
+   *          has been removed or the new value is not indexed.
+   */
+  public void update(String typeName, String attributeName, String entityKey, String oldValueKey, String newValueKey) {
+    if (oldValueKey == null ? newValueKey == null : oldValueKey.equals(newValueKey)) return;
+
+    Map<String, Set<String>> attributeIndex = attributeIndex(typeName, attributeName);
+    if (oldValueKey != null) {
+      Set<String> keys = attributeIndex.get(oldValueKey);
+      if (keys != null && keys.remove(entityKey) && keys.isEmpty()) {
+        attributeIndex.remove(oldValueKey);
+      }
+    }
+    if (newValueKey != null) {
+      Set<String> keys = attributeIndex.get(newValueKey);
+      if (keys == null) {
+        attributeIndex.put(newValueKey, keys = new LinkedHashSet<String>());
+      }
+      keys.add(entityKey);
+    }
+  }
+
+  private Map<String, Set<String>> attributeIndex(String typeName, String attributeName) {
+    Map<String, Map<String, Set<String>>> attributeIndexes = keysByValue.get(typeName);
+    if (attributeIndexes == null) {
+      keysByValue.put(typeName, attributeIndexes = new HashMap<String, Map<String, Set<String>>>());
+    }
+    Map<String, Set<String>> attributeIndex = attributeIndexes.get(attributeName);
+    if (attributeIndex == null) {
+      attributeIndexes.put(attributeName, attributeIndex = new LinkedHashMap<String, Set<String>>());
+    }
+    return attributeIndex;
+  }
+
+  private Map<String, Set<String>> existingAttributeIndex(String typeName, String attributeName) {
+    Map<String, Map<String, Set<String>>> attributeIndexes = keysByValue.get(typeName);
+    Map<String, Set<String>> attributeIndex = attributeIndexes == null ? null : attributeIndexes.get(attributeName);
+    if (attributeIndex == null) {
+      return Collections.emptyMap();
+    }
+    return attributeIndex;
+  }
+
+  /**
+   * Returns the keys of all stored entities of the given type.
+   */
+  public List<String> keysOf(String typeName) {
+    Set<String> keys = keysByType.get(typeName);
+    if (keys == null) {
+      return Collections.emptyList();
+    }
+    return new ArrayList<String>(keys);
+  }
+
+  /**
+   * Returns the keys of the entities of the given type whose value of the
+   * given attribute has one of the given index keys.
+   */
+  public List<String> lookUp(String typeName, String attributeName, Collection<String> valueKeys) {
+    Map<String, Set<String>> attributeIndex = existingAttributeIndex(typeName, attributeName);
+    List<String> keys = new ArrayList<String>();
+    for (String valueKey : new LinkedHashSet<String>(valueKeys)) {
+      Set<String> keysWithValue = attributeIndex.get(valueKey);
+      if (keysWithValue != null) {
+        keys.addAll(keysWithValue);
+      }
+    }
+    return keys;
+  }
+
+  /**
+   * Returns the keys of the entities of the given type whose value of the
+   * given attribute lies within the given range, as decided by
+   * {@link IndexKeys#inRange(String, String, boolean, String, boolean)}.
+   *
+   * @param lowerKey
+   *          The index key of the lower bound, or null if the range has no
+   *          lower bound.
+   * @param upperKey
+   *          The index key of the upper bound, or null if the range has no
+   *          upper bound.
+   */
+  public List<String> lookUpRange(String typeName, String attributeName,
+          String lowerKey, boolean lowerInclusive, String upperKey, boolean upperInclusive) {
+    List<String> keys = new ArrayList<String>();
+    for (Map.Entry<String, Set<String>> entry : existingAttributeIndex(typeName, attributeName).entrySet()) {
+      if (IndexKeys.inRange(entry.getKey(), lowerKey, lowerInclusive, upperKey, upperInclusive)) {
+        keys.addAll(entry.getValue());
+      }
+    }
+    return keys;
+  }
+
+  /**
+   * Forgets all entities.
+   */
+  public void clear() {
+    keysByType.clear();
+    keysByValue.clear();
+  }
+}
@@ -0,0 +1,752 @@
+package org.jboss.errai.jpa.client.local.backend;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.PersistenceException;
+import javax.persistence.metamodel.EntityType;
+
+import org.jboss.errai.common.client.api.Assert;
+import org.jboss.errai.jpa.client.local.ErraiEntityManager;
+import org.jboss.errai.jpa.client.local.ErraiEntityType;
+import org.jboss.errai.jpa.client.local.ErraiSingularAttribute;
+import org.jboss.errai.jpa.client.local.IndexKeys;
+import org.jboss.errai.jpa.client.local.IndexLookup;
+import org.jboss.errai.jpa.client.local.Key;
+
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.JsArray;
+import com.google.gwt.core.client.JsArrayString;
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.Scheduler.ScheduledCommand;
+import com.google.gwt.json.client.JSONObject;
+import com.google.gwt.json.client.JSONParser;
+import com.google.gwt.json.client.JSONValue;
+
+/**
+ * The storage backend for the browser's IndexedDB database, which is not
+ * subject to the small per-origin quota of WebStorage.
+ * <p>
+ * The database has one object store per entity type, named after the entity's
+ * Java class. Entities are stored as JSON objects under their
+ * {@link Key#toJson() key}. Each object store has a native index on every
+ * {@code @Indexed} attribute of its entity type (except for boolean
+ * attributes, as booleans can't be IndexedDB keys), which the database keeps
+ * up to date by itself.
+ * <p>
+ * IndexedDB is an asynchronous API, but the StorageBackend contract (like the
+ * JPA EntityManager API on top of it) is synchronous. To reconcile the two,
+ * this backend works on an in-memory copy of the database that it loads once,
+ * in {@link #open(Runnable)}, before it can be used. The in-memory indexes
+ * that queries use (an {@link EntityKeyIndex}) are loaded from the native
+ * indexes, so the entities don't have to be parsed to build them. The whole
+ * database is therefore held in memory, so this backend is only suitable for
+ * databases that comfortably fit into the browser's memory; its advantage
+ * over WebStorage is the storage quota, not the memory footprint. Reads are
+ * served from the copy, and writes are applied to the copy immediately and
+ * written to the database in the background: all writes made while the
+ * browser is running one event (for example, by a call to
+ * {@code EntityManager.flush()}) are coalesced per key and committed together,
+ * in a single IndexedDB transaction, when the event handler returns.
+ * <p>
+ * Because writes to the database fail after the call that caused them has
+ * returned, failures are reported to the {@link WriteFailureHandler} set with
+ * {@link #setWriteFailureHandler(WriteFailureHandler)}, or to GWT's uncaught
+ * exception handler if there is none. The writes of a failed transaction stay
+ * in the in-memory copy and are sent again with the next batch of writes.
+ */
+public class IndexedDbStorageBackend extends MemoryStorageBackend {
+
+  /**
+   * The name of the IndexedDB database that holds the entities.
+   */
+  public static final String DATABASE_NAME = "errai-jpa";
+
+  /**
+   * The name of the object store in which earlier versions of this backend
+   * kept their indexes. It is deleted when the database is upgraded.
+   */
+  private static final String LEGACY_INDEX_STORE_NAME = "errai-jpa-index";
+
+  /**
+   * Receives the failures of writes to the database.
+   */
+  public interface WriteFailureHandler {
+
+    /**
+     * Called when a batch of writes could not be committed to the database.
+     * The writes are sent again with the next batch.
+     *
+     * @param failure
+     *          Describes why the writes failed. Not null.
+     */
+    void onWriteFailure(PersistenceException failure);
+  }
+
+  /**
+   * A set of writes that is committed to the database in a single
+   * transaction.
+   */
+  protected static final class WriteBatch {
+    private final boolean clear;
+    private final Map<String, String> writes;
+    private final int clearCount;
+
+    private WriteBatch(boolean clear, Map<String, String> writes, int clearCount) {
+      this.clear = clear;
+      this.writes = Collections.unmodifiableMap(writes);
+      this.clearCount = clearCount;
+    }
+
+    /**
+     * Returns true if all object stores have to be cleared before the writes
+     * are applied.
+     */
+    public boolean isClear() {
+      return clear;
+    }
+
+    /**
+     * Returns the values to write, by backend key, in the order they have to
+     * be written. A null value stands for a removal.
+     */
+    public Map<String, String> getWrites() {
+      return writes;
+    }
+  }
+
+  /**
+   * Describes one of the database's object stores: its name, and the names
+   * and key paths of its native indexes.
+   */
+  public static final class ObjectStore {
+    private final String name;
+    private final Map<String, List<String>> indexKeyPaths;
+
+    private ObjectStore(String name, Map<String, List<String>> indexKeyPaths) {
+      this.name = name;
+      this.indexKeyPaths = Collections.unmodifiableMap(indexKeyPaths);
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * Returns the key paths of the native indexes, by index name. A key path
+     * with more than one element is a compound key path.
+     */
+    public Map<String, List<String>> getIndexKeyPaths() {
+      return indexKeyPaths;
+    }
+  }
+
+  private final ErraiEntityManager em;
+
+  /**
+   * The open database. Null until {@link #open(Runnable)} has finished loading
+   * it.
+   */
+  private JavaScriptObject db;
+
+  /**
+   * Callbacks waiting for the database to finish opening. Null if the
+   * database has not started opening.
+   */
+  private List<Runnable> openCallbacks;
+
+  /**
+   * Writes that have not been sent to the database yet, coalesced by key. A
+   * null value stands for a removal.
+   */
+  private final Map<String, String> pendingWrites = new LinkedHashMap<String, String>();
+
+  /**
+   * True if all object stores have to be cleared before the pending writes are
+   * applied.
+   */
+  private boolean pendingClear;
+
+  private boolean commitScheduled;
+
+  /**
+   * The number of times all values have been removed. Writes of a failed batch
+   * are only sent again if no removal of all values has happened since.
+   */
+  private int clearCount;
+
+  private WriteFailureHandler writeFailureHandler;
+
+  /**
+   * The indexes of the in-memory copy of the database.
+   */
+  private final EntityKeyIndex index = new EntityKeyIndex();
+
+  /**
+   * The entity types, by the name of their object store.
+   */
+  private final Map<String, ErraiEntityType<?>> typesByStoreName = new HashMap<String, ErraiEntityType<?>>();
+
+  public IndexedDbStorageBackend(ErraiEntityManager erraiEntityManager) {
+    super(erraiEntityManager);
+    em = Assert.notNull(erraiEntityManager);
+  }
+
+  /**
+   * Opens the database (creating its object stores and their native indexes
+   * as necessary) and loads its contents into memory. The entity manager that owns this backend must
+   * not be used until {@code onReady} has been called.
+   * <p>
+   * Calling this method again after the database is open just runs
+   * {@code onReady} right away.
+   *
+   * @param onReady
+   *          Called when the database is open and loaded. Not null.
+   */
+  public void open(Runnable onReady) {
+    Assert.notNull(onReady);
+    if (db != null) {
+      onReady.run();
+      return;
+    }
+    if (openCallbacks != null) {
+      openCallbacks.add(onReady);
+      return;
+    }
+    openCallbacks = new ArrayList<Runnable>();
+    openCallbacks.add(onReady);
+
+    List<ObjectStore> stores = new ArrayList<ObjectStore>();
+    for (EntityType<?> et : em.getMetamodel().getEntities()) {
+      ErraiEntityType<?> type = (ErraiEntityType<?>) et;
+      typesByStoreName.put(storeNameFor(type), type);
+
+      Map<String, List<String>> indexKeyPaths = new LinkedHashMap<String, List<String>>();
+      for (ErraiSingularAttribute<?, ?> attr : type.getIndexedAttributes()) {
+        if (!isNativelyIndexable(attr)) continue;
+        if (attr.isAssociation()) {
+          // the value is the JSON representation of the referenced entity's key, which is an object
+          indexKeyPaths.put(attr.getName(), Arrays.asList(attr.getName() + ".entityType", attr.getName() + ".id"));
+        }
+        else {
+          indexKeyPaths.put(attr.getName(), Collections.singletonList(attr.getName()));
+        }
+      }
+      stores.add(new ObjectStore(storeNameFor(type), indexKeyPaths));
+    }
+    openDatabase(DATABASE_NAME, stores);
+  }
+
+  /**
+   * Tells whether the values of the given attribute can be keys of a native
+   * IndexedDB index. The in-memory index of attributes that can't is built
+   * from the loaded entities instead.
+   */
+  private static boolean isNativelyIndexable(ErraiSingularAttribute<?, ?> attr) {
+    return attr.getJavaType() != boolean.class && attr.getJavaType() != Boolean.class;
+  }
+
+  /**
+   * Returns true if {@link #open(Runnable)} has finished.
+   */
+  public boolean isOpen() {
+    return db != null;
+  }
+
+  /**
+   * Sets the handler that is told about writes that could not be committed
+   * to the database.
+   *
+   * @param writeFailureHandler
+   *          The handler to report write failures to, or null to report them
+   *          to GWT's uncaught exception handler.
+   */
+  public void setWriteFailureHandler(WriteFailureHandler writeFailureHandler) {
+    this.writeFailureHandler = writeFailureHandler;
+  }
+
+  private static String storeNameFor(ErraiEntityType<?> type) {
+    return type.getJavaType().getName();
+  }
+
+  /**
+   * Returns the name of the object store that holds the entity stored under
+   * the given backend key, or null if the key is not an entity key of a type
+   * that is part of the metamodel.
+   */
+  private String storeNameFor(String key) {
+    if (!key.startsWith("{")) return null;
+    Key<?, ?> k = Key.fromJson(em, key, false);
+    return k == null ? null : storeNameFor(k.getEntityType());
+  }
+
+  private void checkOpen() {
+    if (db == null) {
+      throw new IllegalStateException("The IndexedDB storage backend has not been opened yet. Call open() and wait for it to finish.");
+    }
+  }
+
+  @Override
+  public void removeAll() {
+    removeAllValues();
+  }
+
+  @Override
+  public void applyBatch(Map<Key<?, ?>, JSONValue> writes) {
+    checkOpen();
+    for (Map.Entry<Key<?, ?>, JSONValue> write : writes.entrySet()) {
+      ErraiEntityType<?> type = write.getKey().getEntityType();
+      String storeName = storeNameFor(type);
+      String keyJson = write.getKey().toJson();
+      JSONObject oldValueJson = null;
+      if (!type.getIndexedAttributes().isEmpty()) {
+        String oldValue = readValue(keyJson);
+        oldValueJson = oldValue == null ? null : JSONParser.parseStrict(oldValue).isObject();
+      }
+
+      JSONObject newValueJson = null;
+      if (write.getValue() == null) {
+        removeValue(keyJson);
+        index.remove(storeName, keyJson);
+      }
+      else {
+        newValueJson = write.getValue().isObject();
+        writeValue(keyJson, newValueJson.toString());
+        index.add(storeName, keyJson);
+      }
+
+      for (ErraiSingularAttribute<?, ?> attr : type.getIndexedAttributes()) {
+        index.update(storeName, attr.getName(), keyJson,
+                oldValueJson == null ? null : IndexKeys.forJson(em, attr, oldValueJson.get(attr.getName())),
+                newValueJson == null ? null : IndexKeys.forJson(em, attr, newValueJson.get(attr.getName())));
+      }
+    }
+  }
+
+  @Override
+  protected <X> List<String> candidateKeys(ErraiEntityType<X> type, IndexLookup lookup) {
+    checkOpen();
+    String storeName = storeNameFor(type);
+    ErraiSingularAttribute<? super X, ?> attr = null;
+    if (lookup != null) {
+      attr = type.getIndexedAttribute(lookup.getAttributeName());
+    }
+    if (attr == null) {
+      return index.keysOf(storeName);
+    }
+
+    if (lookup.isRange()) {
+      String lowerKey = null;
+      if (lookup.hasLowerBound()) {
+        lowerKey = IndexKeys.forValue(em, attr, lookup.getLowerBound());
+        if (lowerKey == null) return Collections.emptyList();
+      }
+      String upperKey = null;
+      if (lookup.hasUpperBound()) {
+        upperKey = IndexKeys.forValue(em, attr, lookup.getUpperBound());
+        if (upperKey == null) return Collections.emptyList();
+      }
+      return index.lookUpRange(storeName, attr.getName(),
+              lowerKey, lookup.isLowerInclusive(), upperKey, lookup.isUpperInclusive());
+    }
+
+    List<String> valueKeys = new ArrayList<String>();
+    for (Object value : lookup.getValues()) {
+      String valueKey = IndexKeys.forValue(em, attr, value);
+      if (valueKey != null) {
+        valueKeys.add(valueKey);
+      }
+    }
+    return index.lookUp(storeName, attr.getName(), valueKeys);
+  }
+
+  @Override
+  protected void ensureIndexed() {
+    // the in-memory indexes are loaded with the database, and kept up to date by applyBatch()
+  }
+
+  @Override
+  protected String readValue(String key) {
+    checkOpen();
+    return super.readValue(key);
+  }
+
+  @Override
+  protected void writeValue(String key, String value) {
+    checkOpen();
+    super.writeValue(key, value);
+    if (storeNameFor(key) != null) {
+      scheduleWrite(key, value);
+    }
+  }
+
+  @Override
+  protected void removeValue(String key) {
+    checkOpen();
+    super.removeValue(key);
+    if (storeNameFor(key) != null) {
+      scheduleWrite(key, null);
+    }
+  }
+
+  @Override
+  protected void forEachValue(EntryVisitor entryVisitor) {
+    checkOpen();
+    super.forEachValue(entryVisitor);
+  }
+
+  @Override
+  protected void removeAllValues() {
+    checkOpen();
+    super.removeAllValues();
+    index.clear();
+    pendingWrites.clear();
+    pendingClear = true;
+    clearCount++;
+    scheduleCommit();
+  }
+
+  private void scheduleWrite(String key, String value) {
+    // re-insert so the write moves to the end of the batch, after anything it might depend on
+    pendingWrites.remove(key);
+    pendingWrites.put(key, value);
+    scheduleCommit();
+  }
+
+  private void scheduleCommit() {
+    if (commitScheduled) return;
+    commitScheduled = true;
+    Scheduler.get().scheduleFinally(new ScheduledCommand() {
+      @Override
+      public void execute() {
+        commitScheduled = false;
+        commit();
+      }
+    });
+  }
+
+  /**
+   * Sends all pending writes to the database in a single transaction.
+   */
+  private void commit() {
+    if (pendingWrites.isEmpty() && !pendingClear) return;
+
+    WriteBatch batch = new WriteBatch(pendingClear, new LinkedHashMap<String, String>(pendingWrites), clearCount);
+    pendingWrites.clear();
+    pendingClear = false;
+
+    writeBatch(batch);
+  }
+
+  /**
+   * Commits the given writes to the database in a single transaction. When
+   * the transaction fails, this method or the transaction's error handler
+   * calls {@link #writeFailed(WriteBatch, String)}.
+   */
+  protected void writeBatch(WriteBatch batch) {
+    JsArrayString storeNames = JavaScriptObject.createArray().cast();
+    JsArrayString keys = JavaScriptObject.createArray().cast();
+    JsArrayString values = JavaScriptObject.createArray().cast();
+    for (Map.Entry<String, String> write : batch.getWrites().entrySet()) {
+      storeNames.push(storeNameFor(write.getKey()));
+      keys.push(write.getKey());
+      values.push(write.getValue());
+    }
+    writeBatch(db, batch, batch.isClear(), storeNames, keys, values);
+  }
+
+  private native void writeBatch(JavaScriptObject db, WriteBatch batch, boolean clear,
+          JsArrayString storeNames, JsArrayString keys, JsArrayString values) /*-{
+    var self = this;
+    var fail = $entry(function(message) {
+      self.@org.jboss.errai.jpa.client.local.backend.IndexedDbStorageBackend::writeFailed(Lorg/jboss/errai/jpa/client/local/backend/IndexedDbStorageBackend$WriteBatch;Ljava/lang/String;)(
+              batch, "Could not write entities to IndexedDB: " + message);
+    });
+    var scope = [];
+    if (clear) {
+      for (var i = 0; i < db.objectStoreNames.length; i++) {
+        scope.push(db.objectStoreNames[i]);
+      }
+    }
+    else {
+      for (var i = 0; i < storeNames.length; i++) {
+        if (scope.indexOf(storeNames[i]) == -1) scope.push(storeNames[i]);
+      }
+    }
+    if (scope.length == 0) return;
+
+    var tx;
+    try {
+      tx = db.transaction(scope, "readwrite");
+      if (clear) {
+        for (var i = 0; i < scope.length; i++) {
+          tx.objectStore(scope[i]).clear();
+        }
+      }
+      for (var i = 0; i < keys.length; i++) {
+        var store = tx.objectStore(storeNames[i]);
+        if (values[i] == null) {
+          store["delete"](keys[i]);
+        }
+        else {
+          store.put(JSON.parse(values[i]), keys[i]);
+        }
+      }
+    }
+    catch (e) {
+      if (tx) tx.abort();
+      fail(e);
+      return;
+    }
+    tx.onabort = function() {
+      fail(tx.error);
+    };
+  }-*/;
+
+  /**
+   * Opens the database with the given name, creating the given object stores
+   * and native indexes if they don't exist yet, and loads its contents. Each
+   * stored entity is passed to {@link #loaded(String, String, String)}, and
+   * each entry of a native index to
+   * {@link #loadedIndexEntry(String, String, String, String)}. Afterwards, the
+   * open database is passed to {@link #opened(JavaScriptObject)}, or
+   * {@link #openFailed(String)} is called if the database could not be opened
+   * or loaded.
+   */
+  protected void openDatabase(String dbName, List<ObjectStore> stores) {
+    JsArray<JavaScriptObject> storesJs = JavaScriptObject.createArray().cast();
+    for (ObjectStore store : stores) {
+      JsArray<JavaScriptObject> indexesJs = JavaScriptObject.createArray().cast();
+      for (Map.Entry<String, List<String>> index : store.getIndexKeyPaths().entrySet()) {
+        JsArrayString keyPath = JavaScriptObject.createArray().cast();
+        for (String path : index.getValue()) {
+          keyPath.push(path);
+        }
+        indexesJs.push(describe(index.getKey(), keyPath.length() == 1 ? keyPath.get(0) : keyPath));
+      }
+      storesJs.push(describe(store.getName(), indexesJs));
+    }
+    openDatabase(dbName, storesJs, LEGACY_INDEX_STORE_NAME);
+  }
+
+  private static native JavaScriptObject describe(String name, Object details) /*-{
+    return { name: name, details: details };
+  }-*/;
+
+  private native void openDatabase(String dbName, JsArray<JavaScriptObject> stores, String legacyIndexStoreName) /*-{
+    var self = this;
+    var idb = $wnd.indexedDB || $wnd.webkitIndexedDB || $wnd.mozIndexedDB || $wnd.msIndexedDB;
+    var fail = $entry(function(message) {
+      self.@org.jboss.errai.jpa.client.local.backend.IndexedDbStorageBackend::openFailed(Ljava/lang/String;)(message);
+    });
+    if (!idb) {
+      fail("This browser does not support IndexedDB");
+      return;
+    }
+
+    var storeNames = [];
+    for (var i = 0; i < stores.length; i++) {
+      storeNames.push(stores[i].name);
+    }
+
+    var isUpToDate = function(db) {
+      if (db.objectStoreNames.contains(legacyIndexStoreName)) return false;
+      for (var i = 0; i < stores.length; i++) {
+        if (!db.objectStoreNames.contains(stores[i].name)) return false;
+      }
+      if (storeNames.length == 0) return true;
+      var tx = db.transaction(storeNames, "readonly");
+      for (var i = 0; i < stores.length; i++) {
+        var store = tx.objectStore(stores[i].name);
+        var indexes = stores[i].details;
+        for (var j = 0; j < indexes.length; j++) {
+          if (!store.indexNames.contains(indexes[j].name)) return false;
+        }
+      }
+      return true;
+    };
+
+    var upgrade = function(db, tx) {
+      if (db.objectStoreNames.contains(legacyIndexStoreName)) {
+        db.deleteObjectStore(legacyIndexStoreName);
+      }
+      for (var i = 0; i < stores.length; i++) {
+        var store = db.objectStoreNames.contains(stores[i].name)
+            ? tx.objectStore(stores[i].name) : db.createObjectStore(stores[i].name);
+        var indexes = stores[i].details;
+        for (var j = 0; j < indexes.length; j++) {
+          if (!store.indexNames.contains(indexes[j].name)) {
+            // the database indexes the entities that are already stored right away
+            store.createIndex(indexes[j].name, indexes[j].details);
+          }
+        }
+      }
+    };
+
+    var load = function(db) {
+      if (storeNames.length == 0) {
+        self.@org.jboss.errai.jpa.client.local.backend.IndexedDbStorageBackend::opened(Lcom/google/gwt/core/client/JavaScriptObject;)(db);
+        return;
+      }
+      var tx = db.transaction(storeNames, "readonly");
+      var loadEntry = $entry(function(storeName, key, value) {
+        self.@org.jboss.errai.jpa.client.local.backend.IndexedDbStorageBackend::loaded(Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;)(storeName, key, value);
+      });
+      var loadIndexEntry = $entry(function(storeName, indexName, key, value) {
+        self.@org.jboss.errai.jpa.client.local.backend.IndexedDbStorageBackend::loadedIndexEntry(Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;)(storeName, indexName, key, value);
+      });
+      var loadStore = function(storeName) {
+        tx.objectStore(storeName).openCursor().onsuccess = function(event) {
+          var cursor = event.target.result;
+          if (cursor) {
+            loadEntry(storeName, cursor.primaryKey, JSON.stringify(cursor.value));
+            cursor["continue"]();
+          }
+        };
+      };
+      var loadIndex = function(storeName, index) {
+        tx.objectStore(storeName).index(index.name).openKeyCursor().onsuccess = function(event) {
+          var cursor = event.target.result;
+          if (cursor) {
+            // a compound key is the entity type and ID of a referenced entity
+            var value = typeof index.details == "string" ? cursor.key : { entityType: cursor.key[0], id: cursor.key[1] };
+            loadIndexEntry(storeName, index.name, cursor.primaryKey, JSON.stringify(value));
+            cursor["continue"]();
+          }
+        };
+      };
+      for (var i = 0; i < stores.length; i++) {
+        loadStore(stores[i].name);
+        for (var j = 0; j < stores[i].details.length; j++) {
+          loadIndex(stores[i].name, stores[i].details[j]);
+        }
+      }
+      tx.oncomplete = $entry(function() {
+        self.@org.jboss.errai.jpa.client.local.backend.IndexedDbStorageBackend::opened(Lcom/google/gwt/core/client/JavaScriptObject;)(db);
+      });
+      tx.onerror = function() {
+        fail("Could not load entities from IndexedDB: " + tx.error);
+      };
+    };
+
+    var openAtVersion = function(version) {
+      var request = version ? idb.open(dbName, version) : idb.open(dbName);
+      request.onupgradeneeded = function() {
+        upgrade(request.result, request.transaction);
+      };
+      request.onerror = function() {
+        fail("Could not open IndexedDB database " + dbName + ": " + request.error);
+      };
+      request.onsuccess = function() {
+        var db = request.result;
+        if (isUpToDate(db)) {
+          load(db);
+        }
+        else {
+          // object stores and indexes can only be created while upgrading to a new version
+          var nextVersion = parseInt(db.version || "0", 10) + 1;
+          db.close();
+          openAtVersion(nextVersion);
+        }
+      };
+    };
+    openAtVersion(0);
+  }-*/;
+
+  /**
+   * Called for each entity loaded from the database while opening it.
+   *
+   * @param storeName
+   *          The name of the object store the entity was loaded from.
+   * @param key
+   *          The key the entity is stored under.
+   * @param value
+   *          The JSON representation of the entity.
+   */
+  protected void loaded(String storeName, String key, String value) {
+    // straight into memory: this value doesn't need to be written back
+    super.writeValue(key, value);
+    index.add(storeName, key);
+
+    ErraiEntityType<?> type = typesByStoreName.get(storeName);
+    if (type == null) return;
+    JSONObject valueJson = null;
+    for (ErraiSingularAttribute<?, ?> attr : type.getIndexedAttributes()) {
+      if (isNativelyIndexable(attr)) continue;
+      if (valueJson == null) {
+        valueJson = JSONParser.parseStrict(value).isObject();
+      }
+      index.update(storeName, attr.getName(), key, null, IndexKeys.forJson(em, attr, valueJson.get(attr.getName())));
+    }
+  }
+
+  /**
+   * Called for each entry of a native index loaded from the database while
+   * opening it.
+   *
+   * @param storeName
+   *          The name of the object store the index belongs to.
+   * @param indexName
+   *          The name of the index, which is the name of the indexed
+   *          attribute.
+   * @param key
+   *          The key of the entity the entry refers to.
+   * @param valueJson
+   *          The JSON representation of the entity's attribute value.
+   */
+  protected void loadedIndexEntry(String storeName, String indexName, String key, String valueJson) {
+    ErraiEntityType<?> type = typesByStoreName.get(storeName);
+    ErraiSingularAttribute<?, ?> attr = type == null ? null : type.getIndexedAttribute(indexName);
+    if (attr == null) return;
+    index.update(storeName, indexName, key, null, IndexKeys.forJson(em, attr, JSONParser.parseStrict(valueJson)));
+  }
+
+  /**
+   * Called when the database has been opened and loaded.
+   */
+  protected void opened(JavaScriptObject db) {
+    this.db = db;
+    List<Runnable> callbacks = openCallbacks;
+    openCallbacks = null;
+    for (Runnable callback : callbacks) {
+      callback.run();
+    }
+  }
+
+  /**
+   * Called when the database could not be opened or loaded.
+   */
+  protected void openFailed(String message) {
+    // allow another attempt
+    openCallbacks = null;
+    throw new PersistenceException(message);
+  }
+
+  /**
+   * Called when the given batch of writes could not be committed to the
+   * database. The writes are kept for the next batch, unless they have been
+   * superseded by newer writes to the same keys or by the removal of all
+   * values, and the failure is reported.
+   */
+  protected void writeFailed(WriteBatch batch, String message) {
+    if (batch.clearCount == clearCount) {
+      Map<String, String> retries = new LinkedHashMap<String, String>(batch.getWrites());
+      retries.keySet().removeAll(pendingWrites.keySet());
+      retries.putAll(pendingWrites);
+      pendingWrites.clear();
+      pendingWrites.putAll(retries);
+      pendingClear |= batch.isClear();
+    }
+
+    PersistenceException failure = new PersistenceException(message);
+    if (writeFailureHandler == null) {
+      throw failure;
+    }
+    writeFailureHandler.onWriteFailure(failure);
+  }
+}
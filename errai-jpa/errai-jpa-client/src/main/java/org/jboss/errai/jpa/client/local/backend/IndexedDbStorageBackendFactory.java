@@ -0,0 +1,15 @@
+package org.jboss.errai.jpa.client.local.backend;
+
+import org.jboss.errai.jpa.client.local.ErraiEntityManager;
+
+/**
+ * Creates {@link IndexedDbStorageBackend}s, which keep entities in the
+ * browser's IndexedDB database.
+ */
+public class IndexedDbStorageBackendFactory implements StorageBackendFactory {
+
+  @Override
+  public StorageBackend createInstanceFor(ErraiEntityManager em) {
+    return new IndexedDbStorageBackend(em);
+  }
+}
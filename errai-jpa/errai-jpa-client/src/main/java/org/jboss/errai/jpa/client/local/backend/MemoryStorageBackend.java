@@ -0,0 +1,54 @@
+package org.jboss.errai.jpa.client.local.backend;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.jboss.errai.jpa.client.local.ErraiEntityManager;
+
+/**
+ * A storage backend that keeps everything in memory, for as long as the
+ * backend itself is around. It honours exactly the same contract as
+ * {@link WebStorageBackend} (including the per-type and per-attribute indexes
+ * that the query engine relies on), because it stores the same keys and
+ * values; they just go into a map instead of the browser's WebStorage.
+ * <p>
+ * This backend is useful for testing, and for applications that want to use
+ * the JPA API for data that does not need to outlive the page.
+ */
+public class MemoryStorageBackend extends WebStorageBackend {
+
+  private final Map<String, String> values = new LinkedHashMap<String, String>();
+
+  public MemoryStorageBackend(ErraiEntityManager erraiEntityManager) {
+    super(erraiEntityManager);
+  }
+
+  @Override
+  protected String readValue(String key) {
+    return values.get(key);
+  }
+
+  @Override
+  protected void writeValue(String key, String value) {
+    values.put(key, value);
+  }
+
+  @Override
+  protected void removeValue(String key) {
+    values.remove(key);
+  }
+
+  @Override
+  protected void forEachValue(EntryVisitor entryVisitor) {
+    // copy the entries so the visitor is free to modify the map
+    for (Map.Entry<String, String> entry : new ArrayList<Map.Entry<String, String>>(values.entrySet())) {
+      entryVisitor.visit(entry.getKey(), entry.getValue());
+    }
+  }
+
+  @Override
+  protected void removeAllValues() {
+    values.clear();
+  }
+}
@@ -0,0 +1,15 @@
+package org.jboss.errai.jpa.client.local.backend;
+
+import org.jboss.errai.jpa.client.local.ErraiEntityManager;
+
+/**
+ * Creates {@link MemoryStorageBackend}s, which keep entities in an in-memory
+ * map that lives as long as the entity manager.
+ */
+public class MemoryStorageBackendFactory implements StorageBackendFactory {
+
+  @Override
+  public StorageBackend createInstanceFor(ErraiEntityManager em) {
+    return new MemoryStorageBackend(em);
+  }
+}
@@ -1,10 +1,18 @@
 package org.jboss.errai.jpa.client.local.backend;
 
 import java.util.List;
+import java.util.Map;
 
 import org.jboss.errai.jpa.client.local.EntityJsonMatcher;
+import org.jboss.errai.jpa.client.local.EntityMatcher;
+import org.jboss.errai.jpa.client.local.ErraiEntityManager;
 import org.jboss.errai.jpa.client.local.ErraiEntityType;
+import org.jboss.errai.jpa.client.local.IndexLookup;
 import org.jboss.errai.jpa.client.local.Key;
+import org.jboss.errai.jpa.client.local.SortKeyExtractor;
+
+import com.google.gwt.json.client.JSONObject;
+import com.google.gwt.json.client.JSONValue;
 
 /**
  * Represents a browser-local persistent storage backend.
@@ -60,11 +68,61 @@ public interface StorageBackend {
    *
    * @param type
    *          The type of entities to retrieve
+   * @param lookup
+   *          Describes the values of an indexed attribute that all matching
+   *          entities must have. Backends that maintain an index on the
+   *          attribute should only pass the entities found in that index to
+   *          the matcher. Null if the matcher has to examine every entity of
+   *          the given type.
    * @param matcher
    *          The matcher that decides which entity instances will be retrieved.
+   * @param entityMatcher
+   *          Accepts the same entities as {@code matcher}, but tests live
+   *          entity instances. Backends should use it instead of
+   *          {@code matcher} for the entities that
+   *          {@link ErraiEntityManager#getUnmodifiedManagedEntity(Key)}
+   *          returns, which saves reading their stored representations. Null
+   *          if every candidate has to be tested by {@code matcher}.
    * @return all matching entities of the given type.
    */
-  <X> List<X> getAll(ErraiEntityType<X> type, EntityJsonMatcher matcher);
+  <X> List<X> getAll(ErraiEntityType<X> type, IndexLookup lookup, EntityJsonMatcher matcher,
+          EntityMatcher<X> entityMatcher);
+
+  /**
+   * Returns one page of the entities of the given type whose JSON
+   * representations are accepted by the given matcher. Implementations should
+   * not instantiate the matching entities that fall outside the requested
+   * page.
+   *
+   * @param type
+   *          The type of entities to retrieve
+   * @param lookup
+   *          Describes the values of an indexed attribute that all matching
+   *          entities must have, or null. See
+   *          {@link #getAll(ErraiEntityType, IndexLookup, EntityJsonMatcher, EntityMatcher)}.
+   * @param matcher
+   *          The matcher that decides which entity instances will be retrieved.
+   * @param entityMatcher
+   *          Accepts the same entities as {@code matcher}, but tests live
+   *          entity instances, or null. See
+   *          {@link #getAll(ErraiEntityType, IndexLookup, EntityJsonMatcher, EntityMatcher)}.
+   * @param order
+   *          The order of the matching entities, expressed on their JSON
+   *          representations. Managed entities are ordered by the JSON
+   *          representation of their current state (see
+   *          {@link ErraiEntityManager#getManagedEntityJson(Key)}), all others
+   *          by their stored one. Null if the order is unspecified, in which case
+   *          the backend can stop looking for matches as soon as the page is
+   *          full.
+   * @param firstResult
+   *          The position (counting from 0) of the first matching entity to
+   *          return. Not negative.
+   * @param maxResults
+   *          The maximum number of entities to return. Not negative.
+   * @return the requested page of matching entities of the given type.
+   */
+  <X> List<X> getPage(ErraiEntityType<X> type, IndexLookup lookup, EntityJsonMatcher matcher,
+          EntityMatcher<X> entityMatcher, SortKeyExtractor<JSONObject> order, int firstResult, int maxResults);
 
   /**
    * Tests if this backend contains data for the given key.
@@ -89,6 +147,21 @@ public interface StorageBackend {
    */
   <X> void remove(Key<X, ?> key);
 
+  /**
+   * Applies a batch of writes to this backend. The result is the same as
+   * calling {@link #put(Key, Object)} and {@link #remove(Key)} once for each
+   * write, in order, but backends can apply a batch much more efficiently (for
+   * example, by updating each of their indexes only once).
+   *
+   * @param writes
+   *          Maps the key of each entity to write to the JSON representation
+   *          of the entity (as produced by
+   *          {@link ErraiEntityType#toJson(javax.persistence.EntityManager, Object)}),
+   *          or to null if the entity is to be removed. Must not be null, and
+   *          must not contain the same key twice (which a Map can't anyway).
+   */
+  void applyBatch(Map<Key<?, ?>, JSONValue> writes);
+
   /**
    * Checks if the value currently associated with {@code key} in this backend
    * datastore is identical to the given one. For the purposes of this method,
@@ -0,0 +1,34 @@
+package org.jboss.errai.jpa.client.local.backend;
+
+import org.jboss.errai.jpa.client.local.ErraiEntityManager;
+
+/**
+ * Creates the storage backend for an entity manager.
+ * <p>
+ * The entity manager obtains its factory through deferred binding, so the
+ * storage backend can be chosen in the application's GWT module descriptor.
+ * The default is {@link WebStorageBackendFactory}. To use a different one, add
+ * a rule like this to your module:
+ *
+ * <pre>
+ *   &lt;replace-with class="org.jboss.errai.jpa.client.local.backend.IndexedDbStorageBackendFactory"&gt;
+ *     &lt;when-type-is class="org.jboss.errai.jpa.client.local.backend.StorageBackendFactory" /&gt;
+ *   &lt;/replace-with&gt;
+ * </pre>
+ *
+ * Implementations must have a public no-args constructor.
+ */
+public interface StorageBackendFactory {
+
+  /**
+   * Creates a storage backend for the given entity manager.
+   * <p>
+   * This method is called while the entity manager is being constructed, so
+   * the new backend must not call any methods on it until it is first used.
+   *
+   * @param em
+   *          The entity manager that will use the new backend. Not null.
+   * @return a new storage backend. Never null.
+   */
+  StorageBackend createInstanceFor(ErraiEntityManager em);
+}
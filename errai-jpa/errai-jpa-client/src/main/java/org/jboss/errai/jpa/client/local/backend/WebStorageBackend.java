@@ -1,17 +1,35 @@
 package org.jboss.errai.jpa.client.local.backend;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import javax.persistence.metamodel.EntityType;
 
 import org.jboss.errai.common.client.api.Assert;
 import org.jboss.errai.jpa.client.local.EntityJsonMatcher;
+import org.jboss.errai.jpa.client.local.EntityMatcher;
 import org.jboss.errai.jpa.client.local.ErraiEntityManager;
 import org.jboss.errai.jpa.client.local.ErraiEntityType;
+import org.jboss.errai.jpa.client.local.ErraiSingularAttribute;
+import org.jboss.errai.jpa.client.local.IndexKeys;
+import org.jboss.errai.jpa.client.local.IndexLookup;
 import org.jboss.errai.jpa.client.local.JsonUtil;
 import org.jboss.errai.jpa.client.local.Key;
+import org.jboss.errai.jpa.client.local.SortKeyExtractor;
 
 import com.google.gwt.json.client.JSONObject;
 import com.google.gwt.json.client.JSONParser;
+import com.google.gwt.json.client.JSONString;
 import com.google.gwt.json.client.JSONValue;
 
 /**
@@ -22,92 +40,346 @@ import com.google.gwt.json.client.JSONValue;
  */
 public class WebStorageBackend implements StorageBackend {
 
+  /**
+   * Prefix of the WebStorage keys under which the keys of all stored entities
+   * of one entity type are listed. Entity keys are JSON objects, so they can
+   * never start with this prefix.
+   * <p>
+   * Secondary indexes on {@code @Indexed} attributes are stored under this
+   * prefix too: {@code <prefix><entity class>#<attribute>} lists the distinct
+   * index keys (see {@link IndexKeys}) of the attribute's values, and
+   * {@code <prefix><entity class>#<attribute>=<index key>} lists the keys of
+   * the entities that have that value.
+   */
+  static final String INDEX_KEY_PREFIX = "errai-jpa-index:";
+
+  /**
+   * WebStorage key under which the layout of the indexes is recorded (see
+   * {@link #indexSignature()}). When it is missing or different from the
+   * current layout (for example, because the data was stored by an older
+   * version of this backend or before an attribute was indexed), the indexes
+   * are rebuilt from scratch.
+   */
+  static final String INDEX_MARKER_KEY = "errai-jpa-index";
+
+  /**
+   * Separates (and terminates) the entity keys in an index entry. Entity keys
+   * are JSON, in which a literal newline can only appear in escaped form.
+   */
+  private static final String INDEX_SEPARATOR = "\n";
+
   private final ErraiEntityManager em;
 
+  private boolean indexVerified;
+
   public WebStorageBackend(ErraiEntityManager erraiEntityManager) {
     em = Assert.notNull(erraiEntityManager);
   }
 
   @Override
   public void removeAll() {
-    LocalStorage.removeAll();
+    removeAllValues();
+    writeValue(INDEX_MARKER_KEY, indexSignature());
+    indexVerified = true;
   }
 
   @Override
   public <X> void put(Key<X,?> key, X value) {
-    ErraiEntityType<X> entityType = key.getEntityType();
-    String keyJson = key.toJson();
-    JSONValue valueJson = entityType.toJson(em, value);
-    System.out.println(">>>put '" + keyJson + "'");
-    LocalStorage.put(keyJson, valueJson.toString());
+    JSONValue valueJson = key.getEntityType().toJson(em, value);
+    applyBatch(Collections.<Key<?, ?>, JSONValue>singletonMap(key, valueJson));
+  }
+
+  @Override
+  public void applyBatch(Map<Key<?, ?>, JSONValue> writes) {
+    ensureIndexed();
+
+    IndexEdits typeIndexEdits = new IndexEdits();
+    IndexEdits valueIndexEdits = new IndexEdits();
+    for (Map.Entry<Key<?, ?>, JSONValue> write : writes.entrySet()) {
+      ErraiEntityType<?> entityType = write.getKey().getEntityType();
+      String keyJson = write.getKey().toJson();
+      JSONObject oldValueJson = readIndexedValue(entityType, keyJson);
+      JSONObject newValueJson = null;
+
+      if (write.getValue() == null) {
+        removeValue(keyJson);
+        typeIndexEdits.remove(indexKeyFor(entityType), keyJson);
+      }
+      else {
+        newValueJson = write.getValue().isObject();
+        writeValue(keyJson, newValueJson.toString());
+        typeIndexEdits.add(indexKeyFor(entityType), keyJson);
+      }
+      collectAttributeIndexEdits(entityType, keyJson, oldValueJson, newValueJson, valueIndexEdits);
+    }
+
+    typeIndexEdits.apply();
+    valueIndexEdits.apply();
+
+    // keep the lists of distinct values in step with the per-value indexes
+    IndexEdits valueListEdits = new IndexEdits();
+    for (String createdIndexKey : valueIndexEdits.created) {
+      String[] valueListEntry = valueIndexEdits.valueListEntries.get(createdIndexKey);
+      valueListEdits.add(valueListEntry[0], valueListEntry[1]);
+    }
+    for (String removedIndexKey : valueIndexEdits.removed) {
+      String[] valueListEntry = valueIndexEdits.valueListEntries.get(removedIndexKey);
+      valueListEdits.remove(valueListEntry[0], valueListEntry[1]);
+    }
+    valueListEdits.apply();
   }
 
   @Override
   public <X> X get(Key<X, ?> key) {
     ErraiEntityType<X> entityType = key.getEntityType();
     String keyJson = key.toJson();
-    String valueJson = LocalStorage.get(keyJson);
-    System.out.println("<<<get '" + keyJson + "' : " + valueJson);
-    X entity;
+    String valueJson = readValue(keyJson);
     if (valueJson == null) {
-      entity = null;
+      return null;
     }
-    else {
-      entity = entityType.fromJson(em, JSONParser.parseStrict(valueJson));
-    }
-    System.out.println("   returning " + entity);
-    return entity;
+    return entityType.fromJson(em, JSONParser.parseStrict(valueJson));
   }
 
   @Override
-  public <X> List<X> getAll(final ErraiEntityType<X> type, final EntityJsonMatcher matcher) {
-    // TODO index entries by entity type
+  public <X> List<X> getAll(final ErraiEntityType<X> type, IndexLookup lookup, final EntityJsonMatcher matcher,
+          EntityMatcher<X> entityMatcher) {
+    ensureIndexed();
 
     final List<X> entities = new ArrayList<X>();
-    LocalStorage.forEachKey(new EntryVisitor() {
-      @Override
-      public void visit(String key, String value) {
-        Key<?, ?> k = Key.fromJson(em, key, false);
-        if (k == null) return;
-        System.out.println("getAll(): considering " + value);
-        if (k.getEntityType() == type) {
-          System.out.println(" --> correct type");
-          JSONObject candidate = JSONParser.parseStrict(value).isObject();
-          Assert.notNull(candidate);
-          if (matcher.matches(candidate)) {
-            @SuppressWarnings("unchecked")
-            Key<X, ?> typedKey = (Key<X, ?>) k;
-
-            // Unfortunately, this throws away a lot of work we've already done (getting the entity type,
-            // creating the key, doing a backend.get(), parsing the JSON value, ...)
-            // it would be nice to avoid this, but we have to go back to the entity manager in case the
-            // thing we want is in the persistence context.
-            entities.add(em.find(type.getJavaType(), typedKey.getId()));
+    for (String keyJson : candidateKeys(type, lookup)) {
+      Key<X, ?> key = null;
+      if (entityMatcher != null) {
+        key = parseKey(keyJson);
+        X managed = em.getUnmodifiedManagedEntity(key);
+        if (managed != null) {
+          if (entityMatcher.matches(managed)) {
+            entities.add(managed);
           }
-          else {
-            System.out.println(" --> but not a match");
+          continue;
+        }
+      }
+      JSONObject candidate = readMatch(keyJson, matcher);
+      if (candidate != null) {
+        entities.add(materialize(key, keyJson, candidate));
+      }
+    }
+    return entities;
+  }
+
+  @Override
+  public <X> List<X> getPage(ErraiEntityType<X> type, IndexLookup lookup, EntityJsonMatcher matcher,
+          EntityMatcher<X> entityMatcher, SortKeyExtractor<JSONObject> order, int firstResult, int maxResults) {
+    ensureIndexed();
+
+    final List<X> entities = new ArrayList<X>();
+    if (maxResults == 0) {
+      return entities;
+    }
+
+    if (order == null) {
+      // any matches will do, so we can stop as soon as the page is full
+      int matchCount = 0;
+      for (String keyJson : candidateKeys(type, lookup)) {
+        Key<X, ?> key = null;
+        X entity = null;
+        if (entityMatcher != null) {
+          key = parseKey(keyJson);
+          X managed = em.getUnmodifiedManagedEntity(key);
+          if (managed != null) {
+            if (!entityMatcher.matches(managed)) continue;
+            entity = managed;
           }
         }
-        else {
-          System.out.println(" --> wrong type");
+        JSONObject candidate = null;
+        if (entity == null) {
+          candidate = readMatch(keyJson, matcher);
+          if (candidate == null) continue;
         }
+        if (matchCount++ < firstResult) continue;
+        entities.add(entity != null ? entity : materialize(key, keyJson, candidate));
+        if (entities.size() == maxResults) break;
+      }
+      return entities;
+    }
+
+    // keep the best (firstResult + maxResults) matches in a heap whose head is
+    // the worst of them, so each further match costs O(log k)
+    final long pageEnd = (long) firstResult + maxResults;
+    final Comparator<Match> matchOrder = new MatchComparator(order);
+    PriorityQueue<Match> best = new PriorityQueue<Match>(11, new Comparator<Match>() {
+      @Override
+      public int compare(Match m1, Match m2) {
+        return matchOrder.compare(m2, m1);
       }
     });
+    int sequence = 0;
+    for (String keyJson : candidateKeys(type, lookup)) {
+      Key<X, ?> key = parseKey(keyJson);
+      X unmodified = em.getUnmodifiedManagedEntity(key);
+      JSONObject candidate;
+      if (unmodified != null && entityMatcher != null) {
+        // the live entity tells us whether it matches, and as it is
+        // unmodified, the stored form holds the same sort keys
+        if (!entityMatcher.matches(unmodified)) continue;
+        candidate = readMatch(keyJson, MATCH_ALL);
+      }
+      else {
+        candidate = readMatch(keyJson, matcher);
+      }
+      if (candidate == null) continue;
+
+      // the page consists of the managed instances where there are any, so a
+      // managed entity that was modified since the last flush is ordered by
+      // its current state rather than by its stored one
+      JSONObject current = unmodified == null ? em.getManagedEntityJson(key) : null;
+      Match match = new Match(key, candidate, order.extractKeys(current != null ? current : candidate), sequence++);
+      if (best.size() < pageEnd) {
+        best.add(match);
+      }
+      else if (matchOrder.compare(match, best.peek()) < 0) {
+        best.poll();
+        best.add(match);
+      }
+    }
+
+    List<Match> sortedMatches = new ArrayList<Match>(best);
+    Collections.sort(sortedMatches, matchOrder);
+    for (int i = firstResult; i < sortedMatches.size(); i++) {
+      Match match = sortedMatches.get(i);
+      @SuppressWarnings("unchecked") Key<X, ?> key = (Key<X, ?>) match.key;
+      entities.add(materialize(key, null, match.json));
+    }
     return entities;
   }
 
+  /**
+   * Returns the keys of the entities of the given type that could satisfy the
+   * given lookup.
+   *
+   * <p>
+   * Subclasses that keep their indexes somewhere other than in the stored
+   * values override this, along with {@link #ensureIndexed()}.
+   *
+   * @param lookup
+   *          The index lookup to perform. If null, or if the lookup's
+   *          attribute is not indexed, all keys of the given type are
+   *          returned.
+   */
+  protected <X> List<String> candidateKeys(ErraiEntityType<X> type, IndexLookup lookup) {
+    ErraiSingularAttribute<? super X, ?> indexedAttr = null;
+    if (lookup != null) {
+      indexedAttr = type.getIndexedAttribute(lookup.getAttributeName());
+    }
+
+    if (indexedAttr != null) {
+      return lookUpKeys(type, indexedAttr, lookup);
+    }
+    return splitIndex(readValue(indexKeyFor(type)));
+  }
+
+  /**
+   * Reads and parses the entity stored under the given key, and tests it
+   * against the given matcher.
+   *
+   * @return the parsed JSON representation of the entity if it exists and the
+   *         matcher accepts it; null otherwise.
+   */
+  private JSONObject readMatch(String keyJson, EntityJsonMatcher matcher) {
+    String valueJson = readValue(keyJson);
+    if (valueJson == null) return null;
+
+    JSONObject candidate = JSONParser.parseStrict(valueJson).isObject();
+    Assert.notNull(candidate);
+    return matcher.matches(candidate) ? candidate : null;
+  }
+
+  /**
+   * Accepts every candidate. Used for reading entities that are already known
+   * to match.
+   */
+  private static final EntityJsonMatcher MATCH_ALL = new EntityJsonMatcher() {
+    @Override
+    public boolean matches(JSONObject candidate) {
+      return true;
+    }
+  };
+
+  @SuppressWarnings("unchecked")
+  private <X> Key<X, ?> parseKey(String keyJson) {
+    return (Key<X, ?>) Key.fromJson(em, keyJson, true);
+  }
+
+  /**
+   * Returns the entity stored under the given key.
+   *
+   * @param key
+   *          The parsed form of {@code keyJson}, or null if it hasn't been
+   *          parsed yet.
+   * @param candidate
+   *          The already-parsed JSON representation of the stored entity.
+   */
+  private <X> X materialize(Key<X, ?> key, String keyJson, JSONObject candidate) {
+    if (key == null) {
+      key = parseKey(keyJson);
+    }
+
+    // the entity manager hands out the instance from the persistence
+    // context if there is one, and only otherwise builds it from the JSON
+    // we have already parsed.
+    return em.find(key, candidate);
+  }
+
+  /**
+   * A stored entity that was accepted by a query's matcher, but has not been
+   * instantiated yet.
+   */
+  private static class Match {
+    final Key<?, ?> key;
+    final JSONObject json;
+
+    /**
+     * The values of the query's ORDER BY expressions for this match, extracted
+     * once so that the heap doesn't re-evaluate them on every comparison.
+     */
+    final Object[] sortKeys;
+
+    /**
+     * The position of this match in the scan. Used for breaking ties, so that
+     * paging is stable.
+     */
+    final int sequence;
+
+    Match(Key<?, ?> key, JSONObject json, Object[] sortKeys, int sequence) {
+      this.key = key;
+      this.json = json;
+      this.sortKeys = sortKeys;
+      this.sequence = sequence;
+    }
+  }
+
+  private static class MatchComparator implements Comparator<Match> {
+    private final SortKeyExtractor<JSONObject> order;
+
+    MatchComparator(SortKeyExtractor<JSONObject> order) {
+      this.order = order;
+    }
+
+    @Override
+    public int compare(Match m1, Match m2) {
+      int result = order.compareKeys(m1.sortKeys, m2.sortKeys);
+      if (result != 0) return result;
+      return m1.sequence < m2.sequence ? -1 : (m1.sequence == m2.sequence ? 0 : 1);
+    }
+  }
+
   @Override
   public boolean contains(Key<?, ?> key) {
-    String keyJson = key.toJson();
-    boolean contains = LocalStorage.get(keyJson) != null;
-    System.out.println("<<<contains '" + keyJson + "' : " + contains);
-    return contains;
+    return readValue(key.toJson()) != null;
   }
 
   @Override
   public <X> void remove(Key<X, ?> key) {
-    String keyJson = key.toJson();
-    LocalStorage.remove(keyJson);
+    applyBatch(Collections.<Key<?, ?>, JSONValue>singletonMap(key, null));
   }
 
   @Override
@@ -115,13 +387,380 @@ public class WebStorageBackend implements StorageBackend {
     ErraiEntityType<X> entityType = key.getEntityType();
     String keyJson = key.toJson();
     JSONValue newValueJson = entityType.toJson(em, value);
-    JSONValue oldValueJson = JSONParser.parseStrict(LocalStorage.get(keyJson));
-    boolean modified = !JsonUtil.equals(newValueJson, oldValueJson);
-    if (modified) {
-      System.out.println("Detected modified entity " + key);
-      System.out.println("   Old: " + oldValueJson);
-      System.out.println("   New: " + newValueJson);
-    }
-    return modified;
+    JSONValue oldValueJson = JSONParser.parseStrict(readValue(keyJson));
+    return !JsonUtil.equals(newValueJson, oldValueJson);
+  }
+
+  /**
+   * Reads the value stored under the given key. All reads performed by this
+   * backend go through this method.
+   *
+   * @param key
+   *          The WebStorage key to read. Must not be null.
+   * @return The stored value, or null if there is none.
+   */
+  protected String readValue(String key) {
+    return LocalStorage.get(key);
+  }
+
+  /**
+   * Stores the given value under the given key. All writes performed by this
+   * backend go through this method.
+   *
+   * @param key
+   *          The WebStorage key to write. Must not be null.
+   * @param value
+   *          The value to store.
+   */
+  protected void writeValue(String key, String value) {
+    LocalStorage.put(key, value);
+  }
+
+  /**
+   * Removes the value stored under the given key, if any. All removals of
+   * individual values performed by this backend go through this method.
+   *
+   * @param key
+   *          The WebStorage key to remove. Must not be null.
+   */
+  protected void removeValue(String key) {
+    LocalStorage.remove(key);
+  }
+
+  /**
+   * Invokes the given visitor on every key/value pair in storage, including
+   * ones that were not written by this backend.
+   *
+   * @param entryVisitor
+   *          The visitor that will act on each key/value pair. Must not be
+   *          null.
+   */
+  protected void forEachValue(EntryVisitor entryVisitor) {
+    LocalStorage.forEachKey(entryVisitor);
+  }
+
+  /**
+   * Removes every value from storage, including ones that were not written by
+   * this backend.
+   */
+  protected void removeAllValues() {
+    LocalStorage.removeAll();
+  }
+
+  private static String indexKeyFor(ErraiEntityType<?> type) {
+    return INDEX_KEY_PREFIX + type.getJavaType().getName();
+  }
+
+  private static String indexKeyFor(ErraiEntityType<?> type, ErraiSingularAttribute<?, ?> attr) {
+    return indexKeyFor(type) + "#" + attr.getName();
+  }
+
+  private static String indexKeyFor(ErraiEntityType<?> type, ErraiSingularAttribute<?, ?> attr, String valueKey) {
+    return indexKeyFor(type, attr) + "=" + valueKey;
+  }
+
+  /**
+   * Returns the entries of the given index value.
+   *
+   * @param index
+   *          The value of an index entry, as read from storage. Null is
+   *          permitted, and is treated like an empty index.
+   */
+  private static List<String> splitIndex(String index) {
+    if (index == null) {
+      return Collections.emptyList();
+    }
+    List<String> entries = new ArrayList<String>();
+    int start = 0;
+    int end;
+    while ((end = index.indexOf(INDEX_SEPARATOR, start)) != -1) {
+      entries.add(index.substring(start, end));
+      start = end + INDEX_SEPARATOR.length();
+    }
+    return entries;
+  }
+
+  private static String joinIndex(Collection<String> entries) {
+    StringBuilder index = new StringBuilder();
+    for (String entry : entries) {
+      index.append(entry).append(INDEX_SEPARATOR);
+    }
+    return index.toString();
+  }
+
+  /**
+   * Collects additions to and removals from any number of stored indexes, so
+   * that each index is read and written only once however many of its entries
+   * change.
+   */
+  private class IndexEdits {
+    private final Map<String, Set<String>> additions = new LinkedHashMap<String, Set<String>>();
+    private final Map<String, Set<String>> removals = new LinkedHashMap<String, Set<String>>();
+
+    /**
+     * For attribute value indexes: the value list key and encoded value key
+     * that have to be added to (or removed from) a value list when the value
+     * index stored under the map key is created (or removed).
+     */
+    final Map<String, String[]> valueListEntries = new HashMap<String, String[]>();
+
+    /**
+     * The keys of the indexes that did not exist before {@link #apply()}.
+     */
+    final List<String> created = new ArrayList<String>();
+
+    /**
+     * The keys of the indexes that {@link #apply()} removed from storage
+     * because they became empty.
+     */
+    final List<String> removed = new ArrayList<String>();
+
+    /**
+     * Adds the given entry to the index stored under the given key, unless it
+     * is already there. Cancels an earlier removal of the same entry.
+     */
+    void add(String indexKey, String entry) {
+      Set<String> entryRemovals = removals.get(indexKey);
+      if (entryRemovals != null) entryRemovals.remove(entry);
+      entriesFor(additions, indexKey).add(entry);
+    }
+
+    /**
+     * Removes the given entry from the index stored under the given key, if it
+     * is there. Cancels an earlier addition of the same entry.
+     */
+    void remove(String indexKey, String entry) {
+      Set<String> entryAdditions = additions.get(indexKey);
+      if (entryAdditions != null) entryAdditions.remove(entry);
+      entriesFor(removals, indexKey).add(entry);
+    }
+
+    private Set<String> entriesFor(Map<String, Set<String>> edits, String indexKey) {
+      Set<String> entries = edits.get(indexKey);
+      if (entries == null) {
+        edits.put(indexKey, entries = new LinkedHashSet<String>());
+      }
+      return entries;
+    }
+
+    /**
+     * Writes the collected edits to storage. Indexes that become empty are
+     * removed from storage.
+     */
+    void apply() {
+      Set<String> indexKeys = new LinkedHashSet<String>(additions.keySet());
+      indexKeys.addAll(removals.keySet());
+      for (String indexKey : indexKeys) {
+        String index = readValue(indexKey);
+        Set<String> entries = new LinkedHashSet<String>(splitIndex(index));
+        boolean changed = false;
+        if (removals.containsKey(indexKey)) {
+          changed |= entries.removeAll(removals.get(indexKey));
+        }
+        if (additions.containsKey(indexKey)) {
+          changed |= entries.addAll(additions.get(indexKey));
+        }
+        if (!changed) continue;
+
+        if (entries.isEmpty()) {
+          removeValue(indexKey);
+          removed.add(indexKey);
+        }
+        else {
+          writeValue(indexKey, joinIndex(entries));
+          if (index == null) {
+            created.add(indexKey);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Encodes an attribute index key for the list of distinct values of an
+   * attribute. String values can contain the index separator, so they are
+   * stored as JSON string literals.
+   */
+  private static String encodeValueKey(String valueKey) {
+    return new JSONString(valueKey).toString();
+  }
+
+  private static String decodeValueKey(String encodedValueKey) {
+    return JSONParser.parseStrict(encodedValueKey).isString().stringValue();
+  }
+
+  /**
+   * Reads the currently stored JSON representation of an entity whose
+   * attribute index entries are about to change.
+   *
+   * @return the stored JSON object, or null if there is none or if the entity
+   *         type has no indexed attributes (in which case it isn't needed).
+   */
+  private JSONObject readIndexedValue(ErraiEntityType<?> type, String keyJson) {
+    if (type.getIndexedAttributes().isEmpty()) return null;
+    String value = readValue(keyJson);
+    return value == null ? null : JSONParser.parseStrict(value).isObject();
+  }
+
+  /**
+   * Collects the edits that move the given entity from the attribute index
+   * entries for its old attribute values to those for its new attribute
+   * values.
+   *
+   * @param oldValueJson
+   *          The JSON representation of the entity as it was stored before.
+   *          Null if the entity was not stored before.
+   * @param newValueJson
+   *          The JSON representation of the entity as it is stored now. Null
+   *          if the entity has been removed.
+   */
+  private <X> void collectAttributeIndexEdits(
+          ErraiEntityType<X> type, String keyJson, JSONObject oldValueJson, JSONObject newValueJson, IndexEdits edits) {
+    for (ErraiSingularAttribute<? super X, ?> attr : type.getIndexedAttributes()) {
+      String oldValueKey = oldValueJson == null ? null : IndexKeys.forJson(em, attr, oldValueJson.get(attr.getName()));
+      String newValueKey = newValueJson == null ? null : IndexKeys.forJson(em, attr, newValueJson.get(attr.getName()));
+      if (oldValueKey == null ? newValueKey == null : oldValueKey.equals(newValueKey)) continue;
+
+      if (oldValueKey != null) {
+        String indexKey = indexKeyFor(type, attr, oldValueKey);
+        edits.remove(indexKey, keyJson);
+        edits.valueListEntries.put(indexKey, new String[] { indexKeyFor(type, attr), encodeValueKey(oldValueKey) });
+      }
+      if (newValueKey != null) {
+        String indexKey = indexKeyFor(type, attr, newValueKey);
+        edits.add(indexKey, keyJson);
+        edits.valueListEntries.put(indexKey, new String[] { indexKeyFor(type, attr), encodeValueKey(newValueKey) });
+      }
+    }
+  }
+
+  /**
+   * Uses the index on the given attribute to find the keys of the entities
+   * that could satisfy the given lookup.
+   */
+  private <X> List<String> lookUpKeys(ErraiEntityType<X> type, ErraiSingularAttribute<? super X, ?> attr, IndexLookup lookup) {
+    List<String> valueKeys = new ArrayList<String>();
+    if (lookup.isRange()) {
+      String lowerKey = null;
+      if (lookup.hasLowerBound()) {
+        lowerKey = IndexKeys.forValue(em, attr, lookup.getLowerBound());
+        if (lowerKey == null) return Collections.emptyList();
+      }
+      String upperKey = null;
+      if (lookup.hasUpperBound()) {
+        upperKey = IndexKeys.forValue(em, attr, lookup.getUpperBound());
+        if (upperKey == null) return Collections.emptyList();
+      }
+      for (String encodedValueKey : splitIndex(readValue(indexKeyFor(type, attr)))) {
+        String valueKey = decodeValueKey(encodedValueKey);
+        if (IndexKeys.inRange(valueKey, lowerKey, lookup.isLowerInclusive(), upperKey, lookup.isUpperInclusive())) {
+          valueKeys.add(valueKey);
+        }
+      }
+    }
+    else {
+      Set<String> distinctValueKeys = new HashSet<String>();
+      for (Object value : lookup.getValues()) {
+        String valueKey = IndexKeys.forValue(em, attr, value);
+        if (valueKey != null && distinctValueKeys.add(valueKey)) {
+          valueKeys.add(valueKey);
+        }
+      }
+    }
+
+    List<String> keys = new ArrayList<String>();
+    for (String valueKey : valueKeys) {
+      keys.addAll(splitIndex(readValue(indexKeyFor(type, attr, valueKey))));
+    }
+    return keys;
+  }
+
+  /**
+   * Returns a description of the indexes this backend maintains for the
+   * entity manager's metamodel. Stored indexes that were created for a
+   * different description are rebuilt.
+   */
+  private String indexSignature() {
+    List<String> indexedAttributes = new ArrayList<String>();
+    for (EntityType<?> et : em.getMetamodel().getEntities()) {
+      ErraiEntityType<?> type = (ErraiEntityType<?>) et;
+      for (ErraiSingularAttribute<?, ?> attr : type.getIndexedAttributes()) {
+        indexedAttributes.add(indexKeyFor(type, attr));
+      }
+    }
+    Collections.sort(indexedAttributes);
+
+    // the leading number is the version of the index layout
+    StringBuilder signature = new StringBuilder("2");
+    for (String attr : indexedAttributes) {
+      signature.append(INDEX_SEPARATOR).append(attr);
+    }
+    return signature.toString();
+  }
+
+  /**
+   * Rebuilds the per-entity-type and per-attribute indexes from the complete
+   * contents of WebStorage, unless they are known to be up to date already.
+   * This is a one-time cost for data written before the indexes existed, or
+   * before the set of indexed attributes changed.
+   */
+  protected void ensureIndexed() {
+    if (indexVerified) return;
+    indexVerified = true;
+
+    final String signature = indexSignature();
+    if (signature.equals(readValue(INDEX_MARKER_KEY))) return;
+
+    final List<String> staleIndexKeys = new ArrayList<String>();
+    final Map<String, StringBuilder> indexes = new LinkedHashMap<String, StringBuilder>();
+    forEachValue(new EntryVisitor() {
+      @Override
+      public void visit(String key, String value) {
+        if (key.startsWith(INDEX_KEY_PREFIX)) {
+          staleIndexKeys.add(key);
+          return;
+        }
+        if (!key.startsWith("{")) return;
+        Key<?, ?> k = Key.fromJson(em, key, false);
+        if (k == null) return;
+
+        appendToIndex(indexes, indexKeyFor(k.getEntityType()), key);
+
+        ErraiEntityType<?> type = k.getEntityType();
+        if (type.getIndexedAttributes().isEmpty()) return;
+        JSONObject valueJson = JSONParser.parseStrict(value).isObject();
+        for (ErraiSingularAttribute<?, ?> attr : type.getIndexedAttributes()) {
+          String valueKey = IndexKeys.forJson(em, attr, valueJson.get(attr.getName()));
+          if (valueKey == null) continue;
+          if (appendToIndex(indexes, indexKeyFor(type, attr, valueKey), key)) {
+            appendToIndex(indexes, indexKeyFor(type, attr), encodeValueKey(valueKey));
+          }
+        }
+      }
+    });
+
+    for (String staleIndexKey : staleIndexKeys) {
+      removeValue(staleIndexKey);
+    }
+    for (Map.Entry<String, StringBuilder> index : indexes.entrySet()) {
+      writeValue(index.getKey(), index.getValue().toString());
+    }
+    writeValue(INDEX_MARKER_KEY, signature);
+  }
+
+  /**
+   * Appends an entry to one of the indexes being built up in memory by
+   * {@link #ensureIndexed()}.
+   *
+   * @return true if the index was created by this call.
+   */
+  private static boolean appendToIndex(Map<String, StringBuilder> indexes, String indexKey, String entry) {
+    StringBuilder index = indexes.get(indexKey);
+    boolean created = index == null;
+    if (created) {
+      indexes.put(indexKey, index = new StringBuilder());
+    }
+    index.append(entry).append(INDEX_SEPARATOR);
+    return created;
   }
 }
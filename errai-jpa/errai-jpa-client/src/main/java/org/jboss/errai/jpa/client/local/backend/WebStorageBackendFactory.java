@@ -0,0 +1,15 @@
+package org.jboss.errai.jpa.client.local.backend;
+
+import org.jboss.errai.jpa.client.local.ErraiEntityManager;
+
+/**
+ * Creates {@link WebStorageBackend}s, which keep entities in the browser's
+ * WebStorage (window.localStorage). This is the default storage backend.
+ */
+public class WebStorageBackendFactory implements StorageBackendFactory {
+
+  @Override
+  public StorageBackend createInstanceFor(ErraiEntityManager em) {
+    return new WebStorageBackend(em);
+  }
+}
@@ -23,6 +23,7 @@ import java.util.Set;
 
 import javax.enterprise.util.TypeLiteral;
 import javax.persistence.CascadeType;
+import javax.persistence.Embeddable;
 import javax.persistence.Entity;
 import javax.persistence.EntityListeners;
 import javax.persistence.EntityManager;
@@ -30,6 +31,7 @@ import javax.persistence.EntityManagerFactory;
 import javax.persistence.GeneratedValue;
 import javax.persistence.ManyToMany;
 import javax.persistence.ManyToOne;
+import javax.persistence.MappedSuperclass;
 import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
 import javax.persistence.OneToMany;
@@ -82,6 +84,9 @@ import org.jboss.errai.common.client.api.WrappedPortable;
 import org.jboss.errai.common.metadata.MetaDataScanner;
 import org.jboss.errai.common.metadata.RebindUtils;
 import org.jboss.errai.common.metadata.ScannerSingleton;
+import org.jboss.errai.config.rebind.GeneratedSourceCache;
+import org.jboss.errai.config.util.ClassScanner;
+import org.jboss.errai.jpa.client.api.annotations.Indexed;
 import org.jboss.errai.jpa.client.local.BigIntegerIdGenerator;
 import org.jboss.errai.jpa.client.local.ErraiEntityManager;
 import org.jboss.errai.jpa.client.local.ErraiEntityType;
@@ -115,10 +120,22 @@ public class ErraiEntityManagerGenerator extends Generator {
           String typeName) throws UnableToCompleteException {
 
     GWTUtil.populateMetaClassFactoryFromTypeOracle(context, logger);
+
+    final ClassStructureBuilder<?> classBuilder = Implementations.extend(ErraiEntityManager.class, "GeneratedErraiEntityManager");
+
+    String fingerprint = null;
+    if (GeneratedSourceCache.isEnabled()) {
+      fingerprint = createInputFingerprint(context, classBuilder);
+      String cached = GeneratedSourceCache.getCachedSource(classBuilder.getClassDefinition().getName(), fingerprint);
+      if (cached != null) {
+        commit(logger, context, classBuilder, cached);
+        return classBuilder.getClassDefinition().getFullyQualifiedName();
+      }
+    }
+
     EntityManagerFactory emf = createHibernateEntityManagerFactory(logger, context);
     try {
-      final ClassStructureBuilder<?> classBuilder = generateEntityManagerClass(
-              logger, context, emf);
+      generateEntityManagerClass(logger, context, emf, classBuilder, fingerprint);
       return classBuilder.getClassDefinition().getFullyQualifiedName();
     }
     finally {
@@ -126,13 +143,41 @@ public class ErraiEntityManagerGenerator extends Generator {
     }
   }
 
-  private ClassStructureBuilder<?> generateEntityManagerClass(
-          TreeLogger logger, GeneratorContext context, EntityManagerFactory emf) {
+  /**
+   * Fingerprints everything the generated entity manager is derived from: the entity, embeddable and mapped
+   * superclass types (including their supertypes), the entity listener classes, and the named queries.
+   */
+  private String createInputFingerprint(GeneratorContext context, ClassStructureBuilder<?> classBuilder) {
+    Set<String> packages = RebindUtils.findTranslatablePackages(context);
+    Set<MetaClass> inputTypes = new HashSet<MetaClass>();
+    for (Class<? extends Annotation> annotation : Arrays.asList(
+            Entity.class, Embeddable.class, MappedSuperclass.class, NamedQuery.class, NamedQueries.class)) {
+      for (MetaClass type : ClassScanner.getTypesAnnotatedWith(annotation, packages)) {
+        for (MetaClass c = type; c != null; c = c.getSuperClass()) {
+          inputTypes.add(c);
+        }
+        EntityListeners listeners = type.getAnnotation(EntityListeners.class);
+        if (listeners != null) {
+          for (Class<?> listener : listeners.value()) {
+            inputTypes.add(MetaClassFactory.get(listener));
+          }
+        }
+      }
+    }
+
+    return GeneratedSourceCache.fingerprint()
+            .add("target", classBuilder.getClassDefinition().getFullyQualifiedName())
+            .addConfiguration()
+            .addTypes(inputTypes)
+            .toHash();
+  }
+
+  private void generateEntityManagerClass(
+          TreeLogger logger, GeneratorContext context, EntityManagerFactory emf,
+          ClassStructureBuilder<?> classBuilder, String fingerprint) {
     EntityManager em = emf.createEntityManager();
     Metamodel mm = em.getMetamodel();
 
-    final ClassStructureBuilder<?> classBuilder = Implementations.extend(ErraiEntityManager.class, "GeneratedErraiEntityManager");
-
     generatePopulateMetamodelMethod(classBuilder, mm);
 
     // pnqm = populate named queries method
@@ -185,12 +230,20 @@ public class ErraiEntityManagerGenerator extends Generator {
 
     RebindUtils.writeStringToFile(cacheFile, out);
 
+    if (fingerprint != null) {
+      GeneratedSourceCache.putCachedSource(classBuilder.getClassDefinition().getName(), fingerprint, out);
+    }
+
     if (Boolean.getBoolean("errai.codegen.printOut")) {
       System.out.println("---ErraiEntityManager-->");
       System.out.println(out);
       System.out.println("<--ErraiEntityManager---");
     }
 
+    commit(logger, context, classBuilder, out);
+  }
+
+  private void commit(TreeLogger logger, GeneratorContext context, ClassStructureBuilder<?> classBuilder, String out) {
     PrintWriter printWriter = context.tryCreate(
             logger,
             classBuilder.getClassDefinition().getPackageName(),
@@ -201,7 +254,6 @@ public class ErraiEntityManagerGenerator extends Generator {
       printWriter.append(out);
       context.commit(logger, printWriter);
     }
-    return classBuilder;
   }
 
   private void generatePopulateMetamodelMethod(
@@ -368,6 +420,38 @@ public class ErraiEntityManagerGenerator extends Generator {
             + " but JPA attributes can only be a Field or a Method.");
   }
 
+  /**
+   * Determines if the given attribute is annotated {@code @Indexed}.
+   *
+   * @param attr
+   *          The attribute to test.
+   * @return True iff the attribute's Java Member is annotated with
+   *         {@link Indexed}.
+   * @throws GenerationException
+   *           if the attribute is annotated with {@code @Indexed} but is
+   *           neither a basic value nor a reference to a single entity.
+   */
+  static boolean isIndexed(SingularAttribute<?, ?> attr) {
+    AccessibleObject member = (AccessibleObject) getJavaMember(attr);
+    if (member.getAnnotation(Indexed.class) == null) {
+      return false;
+    }
+
+    switch (attr.getPersistentAttributeType()) {
+    case BASIC:
+      if (!attr.getJavaType().isArray()) return true;
+      break;
+    case MANY_TO_ONE:
+    case ONE_TO_ONE:
+      return true;
+    default:
+      break;
+    }
+    throw new GenerationException(
+            "Found @Indexed on " + attr.getDeclaringType().getJavaType().getName() + "." + attr.getName() +
+            ", but only basic attributes (other than arrays) and single-valued associations can be indexed");
+  }
+
   /**
    * Determines if the given attribute is an association. This is necessary
    * because the Hibernate implementation of SingularAttribute.isAssociation
@@ -480,6 +564,12 @@ public class ErraiEntityManagerGenerator extends Generator {
         return Stmt.loadLiteral(isGeneratedValue(getJavaMember(attr))).returnValue();
       }
 
+      // provide indication of indexed annotation
+      if (sourceObject instanceof SingularAttribute && method.getName().equals("isIndexed")) {
+        SingularAttribute<?, ?> attr = (SingularAttribute<?, ?>) sourceObject;
+        return Stmt.loadLiteral(isIndexed(attr)).returnValue();
+      }
+
       // provide generated value iterator
       if (sourceObject instanceof SingularAttribute && method.getName().equals("getValueGenerator")) {
         return generateGetValueGenerator(sourceObject, containingClassBuilder);
@@ -702,7 +792,7 @@ public class ErraiEntityManagerGenerator extends Generator {
    * done via reflection because Attribute.getJavaMember() is hidden from the
    * Java compiler by our GWT super-source version of JPA2.
    */
-  private Member getJavaMember(Attribute<?, ?> attr) {
+  static Member getJavaMember(Attribute<?, ?> attr) {
     try {
       return (Member) attr.getClass().getMethod("getJavaMember").invoke(attr);
     } catch (Exception e) {
@@ -3,8 +3,8 @@ package org.jboss.errai.jpa.rebind;
 
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -13,6 +13,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 import javax.persistence.EntityManager;
 import javax.persistence.NamedQuery;
 import javax.persistence.TypedQuery;
+import javax.persistence.metamodel.SingularAttribute;
 
 import org.hibernate.engine.spi.SessionImplementor;
 import org.hibernate.hql.internal.antlr.HqlSqlTokenTypes;
@@ -48,13 +49,16 @@ import org.jboss.errai.codegen.util.Implementations;
 import org.jboss.errai.codegen.util.Implementations.StringBuilderBuilder;
 import org.jboss.errai.codegen.util.Stmt;
 import org.jboss.errai.common.client.api.Assert;
+import org.jboss.errai.jpa.client.local.EntityMatcher;
 import org.jboss.errai.jpa.client.local.ErraiAttribute;
 import org.jboss.errai.jpa.client.local.ErraiMetamodel;
 import org.jboss.errai.jpa.client.local.ErraiParameter;
 import org.jboss.errai.jpa.client.local.ErraiTypedQuery;
+import org.jboss.errai.jpa.client.local.IndexLookup;
 import org.jboss.errai.jpa.client.local.JsonUtil;
 import org.jboss.errai.jpa.client.local.Key;
 import org.jboss.errai.jpa.client.local.LongIdGenerator;
+import org.jboss.errai.jpa.client.local.SortKeyExtractor;
 import org.jboss.errai.jpa.client.local.TypedQueryFactory;
 import org.jboss.errai.jpa.client.local.backend.Comparisons;
 import org.mvel2.MVEL;
@@ -83,6 +87,11 @@ public class TypedQueryFactoryGenerator {
   private final Class<?> resultType;
   private final AtomicInteger uniqueNumber = new AtomicInteger();
 
+  /**
+   * The names of the {@code @Indexed} attributes of the result type.
+   */
+  private final Set<String> indexedAttributes = new HashSet<String>();
+
   public TypedQueryFactoryGenerator(EntityManager em, NamedQuery namedQuery) {
     this.jpaQuery = Assert.notNull(namedQuery.query());
 
@@ -109,6 +118,11 @@ public class TypedQueryFactoryGenerator {
                 query.getReturnTypes().length + ": " + jpaQuery);
       }
       resultType = query.getReturnTypes()[0].getReturnedClass();
+      for (SingularAttribute<?, ?> attr : em.getMetamodel().entity(resultType).getSingularAttributes()) {
+        if (ErraiEntityManagerGenerator.isIndexed(attr)) {
+          indexedAttributes.add(attr.getName());
+        }
+      }
       org.hibernate.hql.internal.ast.tree.Statement sqlAST = query.getSqlAST();
 
       if (logger.isDebugEnabled()) {
@@ -130,14 +144,18 @@ public class TypedQueryFactoryGenerator {
     // anonQueryClassBuilder comes out as a statement that looks like this:
     // new ErraiTypedQuery(entityManager, actualResultType, parameters) {
     //   public void matches(JSONObject object) { ... }
-    //   public void sort(List<T> resultList) { ... }
+    //   protected SortKeyExtractor<JSONObject> getJsonSortKeyExtractor() { ... }
+    //   protected IndexLookup getIndexLookup() { ... } // only if the WHERE clause has an indexable condition
+    //   protected EntityMatcher<T> getEntityMatcher() { ... } // only if the WHERE clause only refers to basic attributes
     // }
     AnonymousClassStructureBuilder anonQueryClassBuilder = ObjectBuilder.newInstanceOf(ErraiTypedQuery.class, context).extend(
             Stmt.loadVariable("entityManager"),
             Stmt.loadVariable("actualResultType"),
             Stmt.loadVariable("parameters"));
     appendMatchesMethod(anonQueryClassBuilder);
-    appendComparatorMethod(anonQueryClassBuilder, context);
+    appendJsonSortKeyExtractorMethod(anonQueryClassBuilder, context);
+    appendIndexLookupMethod(anonQueryClassBuilder);
+    appendEntityMatcherMethod(anonQueryClassBuilder, context);
 
     AnonymousClassStructureBuilder factoryBuilder = ObjectBuilder.newInstanceOf(TypedQueryFactory.class, context).extend(
             entityManager,
@@ -183,6 +201,22 @@ public class TypedQueryFactoryGenerator {
     return generatedParamList;
   }
 
+  /**
+   * Returns the position of the named parameter in the array generated by
+   * {@link #generateQueryParamArray()}, which is also its position in the
+   * query's parameter map.
+   */
+  private int parameterPosition(String name) {
+    @SuppressWarnings("unchecked")
+    List<ParameterSpecification> parameterSpecifications = query.getSqlAST().getWalker().getParameters();
+    for (int i = 0; i < parameterSpecifications.size(); i++) {
+      if (name.equals(((NamedParameterSpecification) parameterSpecifications.get(i)).getName())) {
+        return i;
+      }
+    }
+    throw new GenerationException("Query " + jpaQuery + " has no parameter named " + name);
+  }
+
   /**
    * Adds the public override method {@code matches(JSONObject candidate)} to
    * the given class builder. The matching logic is, of course, generated based
@@ -201,7 +235,7 @@ public class TypedQueryFactoryGenerator {
 
     Statement matchesStmt;
     if (whereClause != null) {
-      matchesStmt = generateExpression(traverser, new JsonDotNodeResolver(), matchesMethod);
+      matchesStmt = generateExpression(traverser, new JsonDotNodeResolver("candidate"), matchesMethod);
     }
     else {
       matchesStmt = Stmt.loadLiteral(true);
@@ -212,80 +246,396 @@ public class TypedQueryFactoryGenerator {
   }
 
   /**
-   * Adds the {@code getComparator()} method to the given class builder.
+   * Adds the {@code getEntityMatcher()} method to the given class builder if
+   * the query's WHERE clause can be evaluated against live entity instances
+   * with the same outcome as against their JSON representations. Otherwise, the
+   * class builder is left unmodified (and the query inherits the default
+   * implementation, which returns null).
    *
    * @param classBuilder
    *          The class builder to add the method to. Should be a builder for a
    *          subclass of ErraiTypedQuery.
    */
-  private void appendComparatorMethod(AnonymousClassStructureBuilder classBuilder, Context context) {
+  private void appendEntityMatcherMethod(AnonymousClassStructureBuilder classBuilder, Context context) {
     AstInorderTraversal traverser = new AstInorderTraversal(query.getSqlAST().getWalker().getAST());
-    final AST orderByParentNode = traverser.fastForwardTo(HqlSqlTokenTypes.ORDER);
+    AST whereClause = traverser.fastForwardTo(HqlSqlTokenTypes.WHERE);
+    if (whereClause != null && !isEntityMatchable(whereClause.getFirstChild())) {
+      if (logger.isDebugEnabled()) {
+        logger.debug("Query " + jpaQuery + " can only be matched against JSON representations");
+      }
+      return;
+    }
+
+    AnonymousClassStructureBuilder matcherClassBuilder = ObjectBuilder.newInstanceOf(EntityMatcher.class, context).extend();
+    BlockBuilder<AnonymousClassStructureBuilder> matchesMethod = matcherClassBuilder
+            .publicOverridesMethod("matches", Parameter.of(Object.class, "o"));
+    matchesMethod.append(Stmt.declareFinalVariable("candidate", resultType, Cast.to(resultType, Stmt.loadVariable("o"))));
 
-    Statement comparator;
-    if (orderByParentNode == null) {
-      comparator = Stmt.loadLiteral(null);
+    Statement matchesStmt;
+    if (whereClause != null) {
+      matchesStmt = generateExpression(traverser, new JavaDotNodeResolver("candidate", matcherClassBuilder, true), matchesMethod);
     }
     else {
-      AnonymousClassStructureBuilder comparatorClassBuilder = ObjectBuilder.newInstanceOf(Comparator.class, context).extend();
-      BlockBuilder<AnonymousClassStructureBuilder> compareMethod = comparatorClassBuilder
-              .publicOverridesMethod("compare", Parameter.of(Object.class, "o1"), Parameter.of(Object.class, "o2"));
-
-      // create "lhs" and "rhs" local vars of the query's result type; cast and assign Object args
-      compareMethod
-              .append(Stmt.declareFinalVariable("lhs", resultType, Cast.to(resultType, Stmt.loadVariable("o1"))))
-              .append(Stmt.declareFinalVariable("rhs", resultType, Cast.to(resultType, Stmt.loadVariable("o2"))));
-
-      // Create resolvers that will generate Statements based on the "lhs" and "rhs" vars
-      JavaDotNodeResolver lhsResolver = new JavaDotNodeResolver("lhs", comparatorClassBuilder);
-      JavaDotNodeResolver rhsResolver = new JavaDotNodeResolver("rhs", null);
-
-      // orderNode is the iteration variable that points to the current ORDER BY subclause
-      AST orderNode = traverser.next();
-
-      // result variable to hold the comparison result of each ORDER BY subclause
-      compareMethod.append(Stmt.declareVariable("result", int.class));
-
-      while (traverser.context().contains(orderByParentNode)) {
-        Statement lhs = Stmt.castTo(Comparable.class, generateExpression(new AstInorderTraversal(orderNode), lhsResolver, compareMethod));
-        Statement rhs = Stmt.castTo(Comparable.class, generateExpression(new AstInorderTraversal(orderNode), rhsResolver, compareMethod));
-
-        // Determine if this subclause is marked ASCENDING or DESCENDING, and if so, skip over that node
-        traverser.fastForwardToNextSiblingOf(orderNode);
-        AST nextNode = traverser.hasNext() ? traverser.next() : null;
-        ArithmeticOperator ascDescOperator;
-        if (nextNode != null && nextNode.getType() == HqlSqlTokenTypes.DESCENDING) {
-          ascDescOperator = ArithmeticOperator.Subtraction;
-          nextNode = traverser.hasNext() ? traverser.next() : null;
-        }
-        else if (nextNode != null && nextNode.getType() == HqlSqlTokenTypes.ASCENDING) {
-          ascDescOperator = ArithmeticOperator.Addition;
-          nextNode = traverser.hasNext() ? traverser.next() : null;
+      matchesStmt = Stmt.loadLiteral(true);
+    }
+    matchesMethod.append(Stmt.nestedCall(matchesStmt).returnValue());
+
+    classBuilder.protectedMethod(EntityMatcher.class, "getEntityMatcher")
+      .append(Stmt.nestedCall(matchesMethod.finish().finish()).returnValue())
+      .finish();
+  }
+
+  /**
+   * Tests if the given expression node and its siblings (and all of their
+   * descendants) only refer to attributes that
+   * {@link #appendEntityMatcherMethod(AnonymousClassStructureBuilder, Context)}
+   * can read from a live entity with the same result as from its JSON
+   * representation: basic attributes declared directly by the query's result
+   * type. References to other entities, collections and embedded objects would
+   * have to be followed, which the JSON matcher does differently.
+   */
+  private boolean isEntityMatchable(AST ast) {
+    for (; ast != null; ast = ast.getNextSibling()) {
+      if (ast.getType() == HqlSqlTokenTypes.DOT) {
+        DotNode dotNode = (DotNode) ast;
+        Type dataType = dotNode.getDataType();
+        if (dataType == null || dataType.isEntityType() || dataType.isCollectionType() || dataType.isComponentType()) {
+          return false;
         }
-        else {
-          ascDescOperator = ArithmeticOperator.Addition;
+        if (dotNode.getLhs().getDataType().getReturnedClass() != resultType
+                || dotNode.getPropertyPath().indexOf('.') >= 0) {
+          return false;
         }
+      }
+      else if (!isEntityMatchable(ast.getFirstChild())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Adds the {@code getJsonSortKeyExtractor()} method to the given class
+   * builder. The generated extractor implements the ORDER BY clause of the
+   * query on JSON representations of entities.
+   *
+   * @param classBuilder
+   *          The class builder to add the method to. Should be a builder for a
+   *          subclass of ErraiTypedQuery.
+   */
+  private void appendJsonSortKeyExtractorMethod(AnonymousClassStructureBuilder classBuilder, Context context) {
+    Statement extractor;
+    if (findOrderByClause() == null) {
+      extractor = Stmt.loadLiteral(null);
+    }
+    else {
+      extractor = generateSortKeyExtractor(newSortKeyExtractorBuilder(context), JSONObject.class,
+              new JsonDotNodeResolver("item"));
+    }
+
+    classBuilder.protectedMethod(SortKeyExtractor.class, "getJsonSortKeyExtractor")
+      .append(Stmt.nestedCall(extractor).returnValue())
+      .finish();
+  }
 
-        compareMethod
-            .append(Stmt.loadVariable("result").assignValue(Stmt.invokeStatic(Comparisons.class, "nullSafeCompare", lhs, rhs)))
-            .append(Stmt.if_(Bool.notEquals(Stmt.loadVariable("result"), 0))
-                .append(Stmt.nestedCall(Arith.expr(ascDescOperator, Stmt.loadVariable("result"))).returnValue())
-                .finish());
+  /**
+   * Returns the ORDER BY node of the query, or null if the query has no ORDER
+   * BY clause.
+   */
+  private AST findOrderByClause() {
+    return new AstInorderTraversal(query.getSqlAST().getWalker().getAST()).fastForwardTo(HqlSqlTokenTypes.ORDER);
+  }
+
+  /**
+   * Returns the ORDER BY subclauses of the query, each paired with its ASC or
+   * DESC node (or null where the direction is not given). Must only be called
+   * for queries that have an ORDER BY clause.
+   */
+  private List<AST[]> findOrderBySubclauses() {
+    AstInorderTraversal traverser = new AstInorderTraversal(query.getSqlAST().getWalker().getAST());
+    final AST orderByParentNode = traverser.fastForwardTo(HqlSqlTokenTypes.ORDER);
 
-        orderNode = nextNode;
+    // orderNode is the iteration variable that points to the current ORDER BY subclause
+    List<AST[]> subclauses = new ArrayList<AST[]>();
+    AST orderNode = traverser.next();
+    while (traverser.context().contains(orderByParentNode)) {
+
+      // Determine if this subclause is marked ASCENDING or DESCENDING, and if so, skip over that node
+      traverser.fastForwardToNextSiblingOf(orderNode);
+      AST nextNode = traverser.hasNext() ? traverser.next() : null;
+      AST ascDescNode = null;
+      if (nextNode != null
+              && (nextNode.getType() == HqlSqlTokenTypes.DESCENDING || nextNode.getType() == HqlSqlTokenTypes.ASCENDING)) {
+        ascDescNode = nextNode;
+        nextNode = traverser.hasNext() ? traverser.next() : null;
       }
+      subclauses.add(new AST[] { orderNode, ascDescNode });
 
-      // everything compared equal. return 0.
-      compareMethod.append(Stmt.loadLiteral(0).returnValue());
+      orderNode = nextNode;
+    }
+    return subclauses;
+  }
 
-      comparator = compareMethod.finish().finish();
+  /**
+   * Returns a builder for an anonymous SortKeyExtractor subclass whose
+   * constructor is passed the sort directions of the query's ORDER BY
+   * subclauses. Must only be called for queries that have an ORDER BY clause.
+   */
+  private AnonymousClassStructureBuilder newSortKeyExtractorBuilder(Context context) {
+    List<Statement> descending = new ArrayList<Statement>();
+    for (AST[] subclause : findOrderBySubclauses()) {
+      descending.add(Stmt.loadLiteral(
+              subclause[1] != null && subclause[1].getType() == HqlSqlTokenTypes.DESCENDING));
     }
+    return ObjectBuilder.newInstanceOf(SortKeyExtractor.class, context).extend(
+            Stmt.newArray(boolean.class).initialize(descending.toArray()));
+  }
 
-    classBuilder.protectedMethod(Comparator.class, "getComparator")
-      .append(Stmt.nestedCall(comparator).returnValue())
-      .finish();
+  /**
+   * Generates the {@code extractKeys()} method of a sort key extractor that
+   * implements the ORDER BY clause of the query. Must only be called for
+   * queries that have an ORDER BY clause.
+   *
+   * @param extractorClassBuilder
+   *          The builder for the anonymous SortKeyExtractor class, as returned
+   *          by {@link #newSortKeyExtractorBuilder(Context)}.
+   * @param operandType
+   *          The type of the objects the keys are extracted from. The argument
+   *          of the extractKeys method is cast to this type and assigned to the
+   *          local variable "item".
+   * @param resolver
+   *          Resolves property references against the "item" variable.
+   * @return a statement that evaluates to a new instance of the extractor.
+   */
+  private Statement generateSortKeyExtractor(AnonymousClassStructureBuilder extractorClassBuilder, Class<?> operandType,
+          DotNodeResolver resolver) {
+    BlockBuilder<AnonymousClassStructureBuilder> extractMethod = extractorClassBuilder
+            .publicOverridesMethod("extractKeys", Parameter.of(Object.class, "o"));
+
+    // create the "item" local var of the operand type; cast and assign the Object arg
+    extractMethod.append(Stmt.declareFinalVariable("item", operandType, Cast.to(operandType, Stmt.loadVariable("o"))));
+
+    List<Statement> keys = new ArrayList<Statement>();
+    for (AST[] subclause : findOrderBySubclauses()) {
+      keys.add(Cast.to(Object.class, generateExpression(new AstInorderTraversal(subclause[0]), resolver, extractMethod)));
+    }
+    extractMethod.append(Stmt.nestedCall(Stmt.newArray(Object.class).initialize(keys.toArray())).returnValue());
+
+    return extractMethod.finish().finish();
+  }
+
+  /**
+   * Adds the {@code getIndexLookup()} method to the given class builder if the
+   * WHERE clause of the query has a condition that can be satisfied using the
+   * index of an {@code @Indexed} attribute. Otherwise, the class builder is left
+   * alone, and the query inherits the default implementation (which makes the
+   * storage backend examine every entity of the result type).
+   *
+   * @param classBuilder
+   *          The class builder to add the method to. Should be a builder for a
+   *          subclass of ErraiTypedQuery.
+   */
+  private void appendIndexLookupMethod(AnonymousClassStructureBuilder classBuilder) {
+    AstInorderTraversal traverser = new AstInorderTraversal(query.getSqlAST().getWalker().getAST());
+    AST whereClause = traverser.fastForwardTo(HqlSqlTokenTypes.WHERE);
+    if (whereClause == null) return;
+
+    IndexCondition condition = findIndexCondition(whereClause.getFirstChild());
+    if (condition == null) return;
+
+    if (logger.isDebugEnabled()) {
+      logger.debug("Using index on " + condition.attributeName + " for query " + jpaQuery);
+    }
+
+    BlockBuilder<AnonymousClassStructureBuilder> lookupMethod =
+            classBuilder.protectedMethod(IndexLookup.class, "getIndexLookup").body();
+
+    List<Statement> values = new ArrayList<Statement>(condition.valueNodes.size());
+    for (AST valueNode : condition.valueNodes) {
+      values.add(Cast.to(Object.class, generateExpression(new AstInorderTraversal(valueNode), new JsonDotNodeResolver("candidate"), lookupMethod)));
+    }
+
+    Statement lookup;
+    switch (condition.operator) {
+    case HqlSqlTokenTypes.EQ:
+      lookup = Stmt.invokeStatic(IndexLookup.class, "equalTo", condition.attributeName, values.get(0));
+      break;
+    case HqlSqlTokenTypes.IN:
+      lookup = Stmt.invokeStatic(IndexLookup.class, "in", condition.attributeName, values.toArray());
+      break;
+    case HqlSqlTokenTypes.BETWEEN:
+      lookup = Stmt.invokeStatic(IndexLookup.class, "between", condition.attributeName, values.get(0), values.get(1));
+      break;
+    case HqlSqlTokenTypes.GT:
+    case HqlSqlTokenTypes.GE:
+      lookup = Stmt.invokeStatic(IndexLookup.class, "greaterThan",
+              condition.attributeName, values.get(0), condition.operator == HqlSqlTokenTypes.GE);
+      break;
+    case HqlSqlTokenTypes.LT:
+    case HqlSqlTokenTypes.LE:
+      lookup = Stmt.invokeStatic(IndexLookup.class, "lessThan",
+              condition.attributeName, values.get(0), condition.operator == HqlSqlTokenTypes.LE);
+      break;
+    default:
+      throw new UnexpectedTokenException(condition.operator, "an indexable comparison");
+    }
+
+    lookupMethod.append(Stmt.nestedCall(lookup).returnValue());
+    lookupMethod.finish();
+  }
+
+  /**
+   * Searches the given boolean expression for the most selective condition
+   * that can be satisfied using the index of an {@code @Indexed} attribute.
+   * Only conditions that must hold for the whole expression to be true are
+   * considered, so the search descends into AND but not into OR or NOT.
+   *
+   * @param expr
+   *          The root of the boolean expression to search.
+   * @return the best indexable condition, or null if there is none.
+   */
+  private IndexCondition findIndexCondition(AST expr) {
+    AST lhs = expr.getFirstChild();
+    switch (expr.getType()) {
+
+    case HqlSqlTokenTypes.AND: {
+      IndexCondition left = findIndexCondition(lhs);
+      IndexCondition right = findIndexCondition(lhs.getNextSibling());
+      if (left == null) return right;
+      if (right == null) return left;
+      return right.rank() < left.rank() ? right : left;
+    }
+
+    case HqlSqlTokenTypes.EQ:
+    case HqlSqlTokenTypes.GT:
+    case HqlSqlTokenTypes.GE:
+    case HqlSqlTokenTypes.LT:
+    case HqlSqlTokenTypes.LE: {
+      AST rhs = lhs.getNextSibling();
+      if (isIndexedAttribute(lhs) && isIndexLookupValue(rhs)) {
+        return new IndexCondition(((DotNode) lhs).getPropertyPath(), expr.getType(), rhs);
+      }
+      if (isIndexedAttribute(rhs) && isIndexLookupValue(lhs)) {
+        // "5 < a.x" is the same as "a.x > 5"
+        int mirroredOperator;
+        switch (expr.getType()) {
+        case HqlSqlTokenTypes.GT: mirroredOperator = HqlSqlTokenTypes.LT; break;
+        case HqlSqlTokenTypes.GE: mirroredOperator = HqlSqlTokenTypes.LE; break;
+        case HqlSqlTokenTypes.LT: mirroredOperator = HqlSqlTokenTypes.GT; break;
+        case HqlSqlTokenTypes.LE: mirroredOperator = HqlSqlTokenTypes.GE; break;
+        default: mirroredOperator = expr.getType(); break;
+        }
+        return new IndexCondition(((DotNode) rhs).getPropertyPath(), mirroredOperator, lhs);
+      }
+      return null;
+    }
+
+    case HqlSqlTokenTypes.IN: {
+      AST inList = lhs.getNextSibling();
+      if (!isIndexedAttribute(lhs) || inList.getType() != HqlSqlTokenTypes.IN_LIST) return null;
+      AST[] valueNodes = new AST[inList.getNumberOfChildren()];
+      AST valueNode = inList.getFirstChild();
+      for (int i = 0; i < valueNodes.length; i++, valueNode = valueNode.getNextSibling()) {
+        if (!isIndexLookupValue(valueNode)) return null;
+        valueNodes[i] = valueNode;
+      }
+      return new IndexCondition(((DotNode) lhs).getPropertyPath(), expr.getType(), valueNodes);
+    }
+
+    case HqlSqlTokenTypes.BETWEEN: {
+      AST lowerBound = lhs.getNextSibling();
+      AST upperBound = lowerBound.getNextSibling();
+      if (isIndexedAttribute(lhs) && isIndexLookupValue(lowerBound) && isIndexLookupValue(upperBound)) {
+        return new IndexCondition(((DotNode) lhs).getPropertyPath(), expr.getType(), lowerBound, upperBound);
+      }
+      return null;
+    }
+
+    default:
+      return null;
+    }
+  }
+
+  /**
+   * Tests if the given node is a reference to an {@code @Indexed} attribute of
+   * the query's result type (as opposed to a property of an associated
+   * entity, for example).
+   */
+  private boolean isIndexedAttribute(AST ast) {
+    if (ast.getType() != HqlSqlTokenTypes.DOT) return false;
+    DotNode dotNode = (DotNode) ast;
+    String path = dotNode.getPropertyPath();
+    if (path == null || path.indexOf('.') != -1 || !indexedAttributes.contains(path)) return false;
+    Type lhsType = dotNode.getLhs().getDataType();
+    return lhsType != null && lhsType.getReturnedClass() == resultType;
+  }
+
+  /**
+   * Tests if the given node is an expression whose value doesn't depend on the
+   * entity being tested, so it can be computed once per query execution and
+   * looked up in an index.
+   */
+  private static boolean isIndexLookupValue(AST ast) {
+    switch (ast.getType()) {
+    case HqlSqlTokenTypes.NAMED_PARAM:
+    case HqlSqlTokenTypes.QUOTED_STRING:
+    case HqlSqlTokenTypes.NUM_INT:
+    case HqlSqlTokenTypes.NUM_DOUBLE:
+    case HqlSqlTokenTypes.NUM_FLOAT:
+    case HqlSqlTokenTypes.NUM_LONG:
+    case HqlSqlTokenTypes.TRUE:
+    case HqlSqlTokenTypes.FALSE:
+    case HqlSqlTokenTypes.JAVA_CONSTANT:
+      return true;
+    case HqlSqlTokenTypes.UNARY_MINUS:
+      return isIndexLookupValue(ast.getFirstChild());
+    default:
+      return false;
+    }
   }
 
+  /**
+   * A condition from the WHERE clause of the query that can be satisfied by
+   * looking up one or more values in the index of an {@code @Indexed}
+   * attribute.
+   */
+  private static class IndexCondition {
+
+    /**
+     * The name of the indexed attribute.
+     */
+    final String attributeName;
+
+    /**
+     * The comparison operator, as a HqlSqlTokenTypes constant. The attribute
+     * is always considered to be its left-hand operand.
+     */
+    final int operator;
+
+    /**
+     * The nodes of the expressions the attribute is compared to.
+     */
+    final List<AST> valueNodes;
+
+    IndexCondition(String attributeName, int operator, AST ... valueNodes) {
+      this.attributeName = Assert.notNull(attributeName);
+      this.operator = operator;
+      this.valueNodes = Arrays.asList(valueNodes);
+    }
+
+    /**
+     * Returns a rough estimate of how selective this condition is. Lower
+     * values are expected to produce fewer candidates.
+     */
+    int rank() {
+      switch (operator) {
+      case HqlSqlTokenTypes.EQ: return 0;
+      case HqlSqlTokenTypes.IN: return 1;
+      case HqlSqlTokenTypes.BETWEEN: return 2;
+      default: return 3;
+      }
+    }
+  }
 
   /**
    * Consumes the next token from the traverser and returns the equivalent Java
@@ -421,7 +771,11 @@ public class TypedQueryFactoryGenerator {
     case HqlSqlTokenTypes.NAMED_PARAM:
       ParameterNode paramNode = (ParameterNode) ast;
       NamedParameterSpecification namedParamSpec = (NamedParameterSpecification) paramNode.getHqlParameterSpecification();
-      return Stmt.loadVariable("this").invoke("getParameterValue", namedParamSpec.getName());
+      // parameters are bound once per execution and looked up by position.
+      // unqualified, so it also works inside the anonymous extractor and matcher classes
+      return new StringStatement(
+              "getBoundParameterValue(" + parameterPosition(namedParamSpec.getName()) + ")",
+              MetaClassFactory.get(Object.class));
 
     case HqlSqlTokenTypes.QUOTED_STRING:
       return Stmt.loadLiteral(SqlUtil.parseStringLiteral(ast.getText()));
@@ -600,11 +954,21 @@ public class TypedQueryFactoryGenerator {
 
   /**
    * Resolves a DotNode to a value by dereferencing a property from a
-   * JSONObject. The returned Statement depends on a JSONObject named
-   * "candidate" being in the local scope.
+   * JSONObject. The returned Statement depends on a JSONObject with the name
+   * given to the constructor being in the local scope.
    */
   private static class JsonDotNodeResolver implements DotNodeResolver {
 
+    private final String variableName;
+
+    /**
+     * Creates a new JSON-based Dot Node resolver that resolves the relative dot
+     * node paths against the in-scope JSONObject variable with the given name.
+     */
+    public JsonDotNodeResolver(String variableName) {
+      this.variableName = Assert.notNull(variableName);
+    }
+
     @Override
     public Statement resolve(DotNode dotNode) {
       final Type dataType = dotNode.getDataType();
@@ -615,16 +979,16 @@ public class TypedQueryFactoryGenerator {
       }
       else if (dataType.isEntityType()) {
         // generate this:
-        // entityManager.find(Key.fromJson(GeneratedErraiEntityManager.this, candidate.get(${propertyPath}).isObject(), false), NO_SIDE_EFFECTS);
+        // entityManager.find(Key.fromJson(GeneratedErraiEntityManager.this, ${variableName}.get(${propertyPath}).isObject(), false), NO_SIDE_EFFECTS);
 
         // FIXME running a query that uses this in a where clause will be an O(N^2) operation on the number of entities. :-(
         return new TernaryStatement(
-            Bool.notEquals(Stmt.loadVariable("candidate").invoke("get", dotNode.getPropertyPath()).invoke("isNull"), null),
+            Bool.notEquals(Stmt.loadVariable(variableName).invoke("get", dotNode.getPropertyPath()).invoke("isNull"), null),
             Stmt.loadLiteral(null),
             Stmt.loadVariable("entityManager").invoke("find",
                 Stmt.invokeStatic(Key.class, "fromJsonObject",
                     Stmt.loadVariable("entityManager"),
-                    Stmt.loadVariable("candidate").invoke("get", dotNode.getPropertyPath()).invoke("isObject"),
+                    Stmt.loadVariable(variableName).invoke("get", dotNode.getPropertyPath()).invoke("isObject"),
                     false),
                 Stmt.loadStatic(LongIdGenerator.class, "NO_SIDE_EFFECTS_OPTION")));
       }
@@ -645,7 +1009,7 @@ public class TypedQueryFactoryGenerator {
         }
 
         return Stmt.invokeStatic(JsonUtil.class, "basicValueFromJson",
-                Stmt.loadVariable("candidate").invoke("get", dotNode.getPropertyPath()),
+                Stmt.loadVariable(variableName).invoke("get", dotNode.getPropertyPath()),
                 requestedType);
       }
     }
@@ -667,6 +1031,7 @@ public class TypedQueryFactoryGenerator {
     private final String variableName;
     private final Set<String> generatedClassVariables = new HashSet<String>();
     private final AnonymousClassStructureBuilder containingClass;
+    private final boolean normalize;
 
     /**
      * Creates a new java-object-based Dot Node resolver that assumes the
@@ -688,8 +1053,20 @@ public class TypedQueryFactoryGenerator {
      *          variables but the same DotNodes in the same class.
      */
     public JavaDotNodeResolver(String variableName, AnonymousClassStructureBuilder containingClass) {
+      this(variableName, containingClass, false);
+    }
+
+    /**
+     * Creates a new java-object-based Dot Node resolver, optionally converting
+     * the resolved values to the types {@link JsonDotNodeResolver} resolves
+     * the same attributes to (see {@link Comparisons#normalize(Object)}).
+     * Statements produced by a normalizing resolver give the same results as
+     * the JSON-based ones in comparisons with literals and parameters.
+     */
+    public JavaDotNodeResolver(String variableName, AnonymousClassStructureBuilder containingClass, boolean normalize) {
       this.variableName = Assert.notNull(variableName);
       this.containingClass = containingClass;
+      this.normalize = normalize;
     }
 
     @Override
@@ -710,8 +1087,18 @@ public class TypedQueryFactoryGenerator {
       }
 
       // XXX need a StringStatement here because codegen can't see fields of anonymous inner classes. (ERRAI-363)
-      return Stmt.nestedCall(new StringStatement(attrVarName, MetaClassFactory.get(ErraiAttribute.class)))
+      Statement value = Stmt.nestedCall(new StringStatement(attrVarName, MetaClassFactory.get(ErraiAttribute.class)))
               .invoke("get", Stmt.loadVariable(variableName));
+
+      Class<?> requestedType = dotNode.getDataType().getReturnedClass();
+      if (normalize && (requestedType == Float.class || requestedType == float.class
+              || requestedType == Integer.class || requestedType == int.class
+              || requestedType == Short.class || requestedType == short.class
+              || requestedType == Byte.class || requestedType == byte.class
+              || requestedType == Character.class || requestedType == char.class)) {
+        value = Stmt.invokeStatic(Comparisons.class, "normalize", value);
+      }
+      return value;
     }
   }
 }
@@ -16,6 +16,7 @@
 
 package org.jboss.errai.jpa.test.client;
 
+import org.jboss.errai.jpa.test.unit.EntityKeyIndexTest;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
@@ -31,10 +32,14 @@ import org.junit.runners.Suite;
   HibernateJpaTest.class,
   QueryTest.class,
   HibernateQueryTest.class,
+  MemoryBackendQueryTest.class,
   IdGeneratorTest.class,
   ErraiCascadeTest.class,
   HibernateCascadeTest.class,
-  JsonUtilTest.class})
+  JsonUtilTest.class,
+  WebStorageBackendTest.class,
+  IndexedDbStorageBackendTest.class,
+  EntityKeyIndexTest.class})
 public class AllJpaTests {
 
 }
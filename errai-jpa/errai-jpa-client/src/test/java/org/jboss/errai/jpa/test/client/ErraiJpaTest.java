@@ -582,6 +582,70 @@ public class ErraiJpaTest extends GWTTestCase {
     assertEquals(expectedLifecycle, Album.CALLBACK_LOG);
   }
 
+  public void testFlushUnmodifiedEntitiesFiresNoUpdateEvents() throws Exception {
+
+    // make it
+    Album album = new Album();
+    album.setArtist(null);
+    album.setName("Abbey Road");
+    album.setReleaseDate(new Date(-8366400000L));
+
+    // store it
+    EntityManager em = getEntityManager();
+    em.persist(album);
+    em.flush();
+    em.detach(album);
+
+    // fetch a fresh copy
+    Album fetchedAlbum = em.find(Album.class, album.getId());
+    Album.CALLBACK_LOG.clear();
+
+    // flush it untouched
+    em.flush();
+    assertEquals(new ArrayList<CallbackLogEntry>(), Album.CALLBACK_LOG);
+
+    // modify it and change it back
+    fetchedAlbum.setName("Cowabunga");
+    fetchedAlbum.setName("Abbey Road");
+    em.flush();
+    assertEquals(new ArrayList<CallbackLogEntry>(), Album.CALLBACK_LOG);
+  }
+
+  public void testInPlaceDateModificationIsFlushed() throws Exception {
+
+    // make it
+    Album album = new Album();
+    album.setArtist(null);
+    album.setName("Abbey Road");
+    album.setReleaseDate(new Date(-8366400000L));
+
+    // store it
+    EntityManager em = getEntityManager();
+    em.persist(album);
+    em.flush();
+    Album.CALLBACK_LOG.clear();
+
+    // modify the Date instance it refers to (rather than the album itself)
+    album.getReleaseDate().setTime(-8366400000L + 86400000L);
+    em.flush();
+
+    List<CallbackLogEntry> expectedLifecycle = new ArrayList<CallbackLogEntry>();
+    expectedLifecycle.add(new CallbackLogEntry(StandaloneLifecycleListener.instanceFor(album), PreUpdate.class));
+    expectedLifecycle.add(new CallbackLogEntry(album, PreUpdate.class));
+    expectedLifecycle.add(new CallbackLogEntry(StandaloneLifecycleListener.instanceFor(album), PostUpdate.class));
+    expectedLifecycle.add(new CallbackLogEntry(album, PostUpdate.class));
+    assertEquals(expectedLifecycle, Album.CALLBACK_LOG);
+
+    // flush again; the update has already been written
+    em.flush();
+    assertEquals(expectedLifecycle, Album.CALLBACK_LOG);
+
+    // make sure the new date made it to storage
+    em.detach(album);
+    Album fetchedAlbum = em.find(Album.class, album.getId());
+    assertEquals(-8366400000L + 86400000L, fetchedAlbum.getReleaseDate().getTime());
+  }
+
   public void testStoreAndFetchOneWithEverythingUsingFieldAccess() throws Exception {
     Timestamp timestamp = new Timestamp(1234L);
     timestamp.setNanos(4321);
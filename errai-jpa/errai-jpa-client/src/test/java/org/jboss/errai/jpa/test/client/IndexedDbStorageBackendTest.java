@@ -0,0 +1,303 @@
+package org.jboss.errai.jpa.test.client;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.PersistenceException;
+
+import org.jboss.errai.ioc.client.Container;
+import org.jboss.errai.jpa.client.local.EntityJsonMatcher;
+import org.jboss.errai.jpa.client.local.ErraiEntityManager;
+import org.jboss.errai.jpa.client.local.ErraiEntityType;
+import org.jboss.errai.jpa.client.local.IndexLookup;
+import org.jboss.errai.jpa.client.local.Key;
+import org.jboss.errai.jpa.client.local.backend.IndexedDbStorageBackend;
+import org.jboss.errai.jpa.test.entity.Album;
+
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.Scheduler.ScheduledCommand;
+import com.google.gwt.json.client.JSONObject;
+import com.google.gwt.json.client.JSONParser;
+import com.google.gwt.json.client.JSONValue;
+import com.google.gwt.junit.client.GWTTestCase;
+
+/**
+ * Tests the IndexedDB backend against a simulated database, because the GWT
+ * test browser has no IndexedDB.
+ */
+public class IndexedDbStorageBackendTest extends GWTTestCase {
+
+  /**
+   * An IndexedDbStorageBackend whose database is a map of backend keys to
+   * values, shared by all backends created on the same map. The native
+   * indexes are simulated by evaluating their key paths on the stored values.
+   */
+  private static class SimulatedDbBackend extends IndexedDbStorageBackend {
+    final Map<String, String> database;
+    final List<Boolean> batchesClearing = new ArrayList<Boolean>();
+    final Map<String, ObjectStore> stores = new LinkedHashMap<String, ObjectStore>();
+    boolean failWrites;
+    int indexEntriesLoaded;
+
+    SimulatedDbBackend(ErraiEntityManager em, Map<String, String> database) {
+      super(em);
+      this.database = database;
+    }
+
+    @Override
+    protected void openDatabase(String dbName, List<ObjectStore> stores) {
+      for (ObjectStore store : stores) {
+        this.stores.put(store.getName(), store);
+      }
+      for (Map.Entry<String, String> entry : database.entrySet()) {
+        String storeName = JSONParser.parseStrict(entry.getKey()).isObject().get("entityType").isString().stringValue();
+        loaded(storeName, entry.getKey(), entry.getValue());
+
+        JSONObject value = JSONParser.parseStrict(entry.getValue()).isObject();
+        for (Map.Entry<String, List<String>> index : this.stores.get(storeName).getIndexKeyPaths().entrySet()) {
+          String indexValue = evaluateKeyPath(value, index.getValue());
+          if (indexValue != null) {
+            indexEntriesLoaded++;
+            loadedIndexEntry(storeName, index.getKey(), entry.getKey(), indexValue);
+          }
+        }
+      }
+      opened(JavaScriptObject.createObject());
+    }
+
+    /**
+     * Returns the JSON representation of the native index key the given key
+     * path yields for the given value, or null if the value is not indexed.
+     */
+    private static String evaluateKeyPath(JSONObject value, List<String> keyPath) {
+      List<JSONValue> key = new ArrayList<JSONValue>();
+      for (String path : keyPath) {
+        JSONValue keyPart = value;
+        for (String property : path.split("\\.")) {
+          keyPart = keyPart == null || keyPart.isObject() == null ? null : keyPart.isObject().get(property);
+        }
+        if (keyPart == null || keyPart.isNull() != null || keyPart.isBoolean() != null) return null;
+        key.add(keyPart);
+      }
+      if (key.size() == 1) {
+        return key.get(0).toString();
+      }
+      JSONObject referencedKey = new JSONObject();
+      referencedKey.put("entityType", key.get(0));
+      referencedKey.put("id", key.get(1));
+      return referencedKey.toString();
+    }
+
+    @Override
+    protected void writeBatch(WriteBatch batch) {
+      batchesClearing.add(batch.isClear());
+      if (failWrites) {
+        writeFailed(batch, "simulated failure");
+        return;
+      }
+      if (batch.isClear()) {
+        database.clear();
+      }
+      for (Map.Entry<String, String> write : batch.getWrites().entrySet()) {
+        if (write.getValue() == null) {
+          database.remove(write.getKey());
+        }
+        else {
+          database.put(write.getKey(), write.getValue());
+        }
+      }
+    }
+  }
+
+  private static final EntityJsonMatcher MATCH_ALL = new EntityJsonMatcher() {
+    @Override
+    public boolean matches(JSONObject candidate) {
+      return true;
+    }
+  };
+
+  private final Map<String, String> database = new LinkedHashMap<String, String>();
+
+  @Override
+  public String getModuleName() {
+    return "org.jboss.errai.jpa.test.JpaTest";
+  }
+
+  @Override
+  protected void gwtSetUp() throws Exception {
+    super.gwtSetUp();
+
+    // We need to bootstrap the IoC container manually because GWTTestCase
+    // doesn't call onModuleLoad() for us.
+    new Container().bootstrapContainer();
+  }
+
+  private ErraiEntityManager getEntityManager() {
+    JpaTestClient testClient = JpaTestClient.INSTANCE;
+    assertNotNull(testClient);
+    assertNotNull(testClient.entityManager);
+    return (ErraiEntityManager) testClient.entityManager;
+  }
+
+  private SimulatedDbBackend openBackend() {
+    final SimulatedDbBackend backend = new SimulatedDbBackend(getEntityManager(), database);
+    final boolean[] ready = new boolean[1];
+    backend.open(new Runnable() {
+      @Override
+      public void run() {
+        ready[0] = true;
+      }
+    });
+    assertTrue(ready[0]);
+    assertTrue(backend.isOpen());
+    return backend;
+  }
+
+  private Key<Album, Long> putAlbum(IndexedDbStorageBackend backend, long id, String name) {
+    Album album = new Album();
+    album.setId(id);
+    album.setName(name);
+    Key<Album, Long> key = Key.get(getEntityManager(), Album.class, id);
+    backend.put(key, album);
+    return key;
+  }
+
+  /**
+   * Runs each of the given steps in an event of its own, so that the writes
+   * made in one step have been committed when the next one runs, and finishes
+   * the test after the last one.
+   */
+  private void runInSeparateEvents(final ScheduledCommand... steps) {
+    delayTestFinish(10000);
+    final Iterator<ScheduledCommand> remaining = Arrays.asList(steps).iterator();
+    Scheduler.get().scheduleDeferred(new ScheduledCommand() {
+      @Override
+      public void execute() {
+        remaining.next().execute();
+        if (remaining.hasNext()) {
+          Scheduler.get().scheduleDeferred(this);
+        }
+        else {
+          finishTest();
+        }
+      }
+    });
+  }
+
+  public void testWritesOfOneEventAreCommittedTogether() throws Exception {
+    final SimulatedDbBackend backend = openBackend();
+    runInSeparateEvents(
+        new ScheduledCommand() {
+          @Override
+          public void execute() {
+            backend.removeAll();
+            putAlbum(backend, 1, "Abbey Road");
+            putAlbum(backend, 2, "Let It Be");
+          }
+        },
+        new ScheduledCommand() {
+          @Override
+          public void execute() {
+            assertEquals(Arrays.asList(true), backend.batchesClearing);
+            assertTrue(database.containsKey(Key.get(getEntityManager(), Album.class, 1L).toJson()));
+            assertTrue(database.containsKey(Key.get(getEntityManager(), Album.class, 2L).toJson()));
+          }
+        });
+  }
+
+  public void testObjectStoresHaveNativeIndexesOnIndexedAttributes() throws Exception {
+    SimulatedDbBackend backend = openBackend();
+    IndexedDbStorageBackend.ObjectStore albumStore = backend.stores.get(Album.class.getName());
+    assertNotNull(albumStore);
+    assertEquals(Arrays.asList("name"), albumStore.getIndexKeyPaths().get("name"));
+    assertEquals(Arrays.asList("artist.entityType", "artist.id"), albumStore.getIndexKeyPaths().get("artist"));
+    assertFalse(albumStore.getIndexKeyPaths().containsKey("releaseDate"));
+    assertFalse(backend.stores.containsKey("errai-jpa-index"));
+  }
+
+  public void testIndexesAreLoadedFromNativeIndexes() throws Exception {
+    final SimulatedDbBackend backend = openBackend();
+    runInSeparateEvents(
+        new ScheduledCommand() {
+          @Override
+          public void execute() {
+            backend.removeAll();
+            for (int i = 0; i < 10; i++) {
+              putAlbum(backend, i, "Album " + i);
+            }
+          }
+        },
+        new ScheduledCommand() {
+          @Override
+          public void execute() {
+            // only entities are stored; their index entries come from the native indexes
+            assertEquals(10, database.size());
+
+            SimulatedDbBackend reopened = openBackend();
+            assertEquals(10, reopened.indexEntriesLoaded);
+
+            ErraiEntityType<Album> albumType = getEntityManager().getMetamodel().entity(Album.class);
+            List<Album> albums = reopened.getAll(albumType, IndexLookup.equalTo("name", "Album 7"), MATCH_ALL, null);
+            assertEquals(1, albums.size());
+            assertEquals("Album 7", albums.get(0).getName());
+            assertEquals(10, reopened.getAll(albumType, null, MATCH_ALL, null).size());
+          }
+        });
+  }
+
+  public void testWriteFailuresAreReportedAndRetried() throws Exception {
+    final SimulatedDbBackend backend = openBackend();
+    final List<PersistenceException> failures = new ArrayList<PersistenceException>();
+    backend.setWriteFailureHandler(new IndexedDbStorageBackend.WriteFailureHandler() {
+      @Override
+      public void onWriteFailure(PersistenceException failure) {
+        failures.add(failure);
+      }
+    });
+
+    final List<Key<Album, Long>> keys = new ArrayList<Key<Album, Long>>();
+    runInSeparateEvents(
+        new ScheduledCommand() {
+          @Override
+          public void execute() {
+            backend.removeAll();
+          }
+        },
+        new ScheduledCommand() {
+          @Override
+          public void execute() {
+            backend.failWrites = true;
+            keys.add(putAlbum(backend, 1, "Lost?"));
+          }
+        },
+        new ScheduledCommand() {
+          @Override
+          public void execute() {
+            assertEquals(1, failures.size());
+            assertTrue(failures.get(0).getMessage().contains("simulated failure"));
+            assertFalse(database.containsKey(keys.get(0).toJson()));
+
+            // the failed writes are still visible, and go out with the next batch
+            assertTrue(backend.contains(keys.get(0)));
+            backend.failWrites = false;
+            keys.add(putAlbum(backend, 2, "Found"));
+          }
+        },
+        new ScheduledCommand() {
+          @Override
+          public void execute() {
+            assertEquals(1, failures.size());
+            assertTrue(database.containsKey(keys.get(0).toJson()));
+            assertTrue(database.containsKey(keys.get(1).toJson()));
+
+            ErraiEntityType<Album> albumType = getEntityManager().getMetamodel().entity(Album.class);
+            assertEquals(2, openBackend().getAll(albumType, null, MATCH_ALL, null).size());
+          }
+        });
+  }
+}
@@ -0,0 +1,40 @@
+package org.jboss.errai.jpa.test.client;
+
+import org.jboss.errai.jpa.client.local.ErraiEntityManager;
+import org.jboss.errai.jpa.client.local.Key;
+import org.jboss.errai.jpa.client.local.backend.LocalStorage;
+import org.jboss.errai.jpa.client.local.backend.MemoryStorageBackend;
+import org.jboss.errai.jpa.test.entity.Album;
+
+/**
+ * Runs all the same tests as {@link QueryTest} against an entity manager that
+ * uses the in-memory storage backend instead of WebStorage.
+ */
+public class MemoryBackendQueryTest extends QueryTest {
+
+  @Override
+  public String getModuleName() {
+    return "org.jboss.errai.jpa.test.JpaMemoryTest";
+  }
+
+  public void testEntitiesAreKeptInMemory() throws Exception {
+    ErraiEntityManager em = (ErraiEntityManager) getEntityManagerAndClearStorageBackend();
+    assertTrue(em.getStorageBackend() instanceof MemoryStorageBackend);
+
+    Album album = new Album();
+    album.setName("Abbey Road");
+    em.persist(album);
+    em.flush();
+
+    Key<Album, Long> key = Key.get(em, Album.class, album.getId());
+    assertTrue(em.getStorageBackend().contains(key));
+    assertNull(LocalStorage.get(key.toJson()));
+
+    em.detach(album);
+    Album fetchedAlbum = em.find(Album.class, album.getId());
+    assertNotSame(album, fetchedAlbum);
+    assertEquals("Abbey Road", fetchedAlbum.getName());
+  }
+
+  // the other test methods are inherited from the superclass
+}
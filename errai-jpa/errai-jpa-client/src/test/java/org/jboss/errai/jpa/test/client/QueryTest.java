@@ -110,6 +110,137 @@ public class QueryTest extends GWTTestCase {
     }
   }
 
+  /**
+   * Album.name is indexed, so this ensures the index follows changes to the
+   * attribute value.
+   */
+  public void testSelectAlbumByNameAfterRename() throws Exception {
+    Album album = new Album();
+    album.setName("Get Back");
+
+    EntityManager em = getEntityManagerAndClearStorageBackend();
+    em.persist(album);
+    em.flush();
+
+    album.setName("Let It Be");
+    em.flush();
+    em.clear();
+
+    TypedQuery<Album> q = em.createNamedQuery("selectAlbumByName", Album.class);
+    q.setParameter("name", "Get Back");
+    assertEquals(0, q.getResultList().size());
+
+    q.setParameter("name", "Let It Be");
+    List<Album> fetchedAlbums = q.getResultList();
+    assertEquals(1, fetchedAlbums.size());
+    assertEquals(album.getId(), fetchedAlbums.get(0).getId());
+  }
+
+  public void testPagingWithOrderBy() throws Exception {
+    EntityManager em = getEntityManagerAndClearStorageBackend();
+    for (int i = 9; i >= 0; i--) {
+      Zentity z = new Zentity();
+      z.setPrimitiveInt(i);
+      em.persist(z);
+    }
+    em.flush();
+
+    TypedQuery<Zentity> q = em.createNamedQuery("zentityOrderByPrimitiveInt", Zentity.class);
+    q.setFirstResult(3);
+    q.setMaxResults(4);
+    List<Zentity> results = q.getResultList();
+    assertEquals(4, results.size());
+    for (int i = 0; i < results.size(); i++) {
+      assertEquals(i + 3, results.get(i).getPrimitiveInt());
+    }
+
+    q.setFirstResult(8);
+    q.setMaxResults(5);
+    assertEquals(2, q.getResultList().size());
+  }
+
+  /**
+   * Paged and unpaged results must be ordered by the same sort keys, which for
+   * a managed entity that was modified since the last flush come from its
+   * current state.
+   */
+  public void testPagingWithOrderByAfterUnflushedChange() throws Exception {
+    EntityManager em = getEntityManagerAndClearStorageBackend();
+    List<Zentity> zentities = new ArrayList<Zentity>();
+    for (int i = 0; i < 10; i++) {
+      Zentity z = new Zentity();
+      z.setPrimitiveInt(i);
+      em.persist(z);
+      zentities.add(z);
+    }
+    em.flush();
+
+    // move the first entity to the end without flushing
+    zentities.get(0).setPrimitiveInt(100);
+
+    TypedQuery<Zentity> q = em.createNamedQuery("zentityOrderByPrimitiveInt", Zentity.class);
+    List<Zentity> unpaged = q.getResultList();
+    assertEquals(10, unpaged.size());
+    assertSame(zentities.get(0), unpaged.get(9));
+
+    q.setFirstResult(0);
+    q.setMaxResults(3);
+    List<Zentity> firstPage = q.getResultList();
+    assertEquals(unpaged.subList(0, 3), firstPage);
+    assertEquals(1, firstPage.get(0).getPrimitiveInt());
+
+    q.setFirstResult(8);
+    q.setMaxResults(5);
+    List<Zentity> lastPage = q.getResultList();
+    assertEquals(unpaged.subList(8, 10), lastPage);
+    assertSame(zentities.get(0), lastPage.get(1));
+  }
+
+  public void testPagingWithoutOrderBy() throws Exception {
+    EntityManager em = getEntityManagerAndClearStorageBackend();
+    for (int i = 0; i < 10; i++) {
+      Zentity z = new Zentity();
+      z.setPrimitiveInt(1000 + i);
+      em.persist(z);
+    }
+    em.flush();
+
+    TypedQuery<Zentity> q = em.createNamedQuery("zentityGreaterThan", Zentity.class);
+    q.setMaxResults(3);
+    assertEquals(3, q.getResultList().size());
+
+    q.setFirstResult(8);
+    q.setMaxResults(5);
+    assertEquals(2, q.getResultList().size());
+
+    // pages must not overlap
+    Set<Integer> seen = new HashSet<Integer>();
+    q.setMaxResults(5);
+    for (int first = 0; first < 10; first += 5) {
+      q.setFirstResult(first);
+      for (Zentity z : q.getResultList()) {
+        assertTrue("Found " + z + " on two pages", seen.add(z.getPrimitiveInt()));
+      }
+    }
+    assertEquals(10, seen.size());
+  }
+
+  public void testNegativePagingArgumentsRejected() throws Exception {
+    TypedQuery<Zentity> q = getEntityManagerAndClearStorageBackend().createNamedQuery("zentityGreaterThan", Zentity.class);
+    try {
+      q.setMaxResults(-1);
+      fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+    try {
+      q.setFirstResult(-1);
+      fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
   /**
    * Ensures that query results come from the entity manager's persistence
    * context (that is, redundant instances are not created).
@@ -0,0 +1,378 @@
+package org.jboss.errai.jpa.test.client;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.PostLoad;
+
+import org.jboss.errai.ioc.client.Container;
+import org.jboss.errai.jpa.client.local.EntityJsonMatcher;
+import org.jboss.errai.jpa.client.local.EntityMatcher;
+import org.jboss.errai.jpa.client.local.ErraiEntityManager;
+import org.jboss.errai.jpa.client.local.ErraiEntityType;
+import org.jboss.errai.jpa.client.local.IndexLookup;
+import org.jboss.errai.jpa.client.local.Key;
+import org.jboss.errai.jpa.client.local.SortKeyExtractor;
+import org.jboss.errai.jpa.client.local.backend.WebStorageBackend;
+import org.jboss.errai.jpa.test.entity.Album;
+import org.jboss.errai.jpa.test.entity.CallbackLogEntry;
+import org.jboss.errai.jpa.test.entity.Zentity;
+
+import com.google.gwt.json.client.JSONObject;
+import com.google.gwt.json.client.JSONValue;
+import com.google.gwt.junit.client.GWTTestCase;
+
+/**
+ * Tests the per-entity-type key index of the WebStorage backend.
+ */
+public class WebStorageBackendTest extends GWTTestCase {
+
+  /**
+   * A WebStorageBackend that counts how many values it reads from storage.
+   */
+  private static class CountingBackend extends WebStorageBackend {
+    int reads;
+    List<String> writtenKeys = new ArrayList<String>();
+
+    CountingBackend(ErraiEntityManager em) {
+      super(em);
+    }
+
+    @Override
+    protected String readValue(String key) {
+      reads++;
+      return super.readValue(key);
+    }
+
+    @Override
+    protected void writeValue(String key, String value) {
+      writtenKeys.add(key);
+      super.writeValue(key, value);
+    }
+  }
+
+  private static final EntityJsonMatcher MATCH_ALL = new EntityJsonMatcher() {
+    @Override
+    public boolean matches(JSONObject candidate) {
+      return true;
+    }
+  };
+
+  @Override
+  public String getModuleName() {
+    return "org.jboss.errai.jpa.test.JpaTest";
+  }
+
+  protected ErraiEntityManager getEntityManagerAndClearStorageBackend() {
+    JpaTestClient testClient = JpaTestClient.INSTANCE;
+    assertNotNull(testClient);
+    assertNotNull(testClient.entityManager);
+    ((ErraiEntityManager) testClient.entityManager).removeAll();
+    return (ErraiEntityManager) testClient.entityManager;
+  }
+
+  @Override
+  protected void gwtSetUp() throws Exception {
+    super.gwtSetUp();
+
+    // We need to bootstrap the IoC container manually because GWTTestCase
+    // doesn't call onModuleLoad() for us.
+    new Container().bootstrapContainer();
+  }
+
+  private int countReadsForAllAlbums(ErraiEntityManager em, int expectedAlbums) {
+    CountingBackend backend = new CountingBackend(em);
+    ErraiEntityType<Album> albumType = em.getMetamodel().entity(Album.class);
+    List<Album> albums = backend.getAll(albumType, null, MATCH_ALL, null);
+    assertEquals(expectedAlbums, albums.size());
+    return backend.reads;
+  }
+
+  public void testQueryCostIndependentOfUnrelatedEntities() throws Exception {
+    ErraiEntityManager em = getEntityManagerAndClearStorageBackend();
+
+    for (int i = 0; i < 3; i++) {
+      Album album = new Album();
+      album.setName("Album " + i);
+      em.persist(album);
+    }
+    em.flush();
+
+    int readsWithoutZentities = countReadsForAllAlbums(em, 3);
+
+    for (int i = 0; i < 50; i++) {
+      em.persist(new Zentity());
+    }
+    em.flush();
+
+    int readsWithZentities = countReadsForAllAlbums(em, 3);
+
+    // one read for the index marker, one for the album index entry, and one
+    // per album, no matter how many other entities are in storage
+    assertEquals(readsWithoutZentities, readsWithZentities);
+    assertEquals(1 + 3 + 1, readsWithZentities);
+  }
+
+  public void testRemoveUpdatesIndex() throws Exception {
+    ErraiEntityManager em = getEntityManagerAndClearStorageBackend();
+
+    Album keeper = new Album();
+    keeper.setName("Keeper");
+    em.persist(keeper);
+    Album goner = new Album();
+    goner.setName("Goner");
+    em.persist(goner);
+    em.flush();
+
+    em.remove(goner);
+    em.flush();
+
+    CountingBackend backend = new CountingBackend(em);
+    List<Album> albums = backend.getAll(em.getMetamodel().entity(Album.class), null, MATCH_ALL, null);
+    assertEquals(1, albums.size());
+    assertSame(keeper, albums.get(0));
+  }
+
+  public void testIndexIsRebuiltForUnindexedData() throws Exception {
+    ErraiEntityManager em = getEntityManagerAndClearStorageBackend();
+
+    Album album = new Album();
+    album.setName("Pre-index");
+    em.persist(album);
+    em.flush();
+    em.detach(album);
+
+    // simulate storage written by a backend that didn't maintain indexes
+    removeIndexEntries();
+
+    List<Album> albums = new WebStorageBackend(em).getAll(em.getMetamodel().entity(Album.class), null, MATCH_ALL, null);
+    assertEquals(1, albums.size());
+    assertEquals("Pre-index", albums.get(0).getName());
+  }
+
+  public void testIndexLookupReadsOnlyMatchingEntities() throws Exception {
+    ErraiEntityManager em = getEntityManagerAndClearStorageBackend();
+
+    for (int i = 0; i < 20; i++) {
+      Album album = new Album();
+      album.setName("Album " + i);
+      em.persist(album);
+    }
+    em.flush();
+
+    CountingBackend backend = new CountingBackend(em);
+    List<Album> albums = backend.getAll(
+            em.getMetamodel().entity(Album.class), IndexLookup.equalTo("name", "Album 7"), MATCH_ALL, null);
+    assertEquals(1, albums.size());
+    assertEquals("Album 7", albums.get(0).getName());
+
+    // one read for the index marker, one for the index entry of "Album 7",
+    // and one for the album itself
+    assertEquals(3, backend.reads);
+  }
+
+  public void testIndexLookupFollowsUpdatesAndRemovals() throws Exception {
+    ErraiEntityManager em = getEntityManagerAndClearStorageBackend();
+    ErraiEntityType<Album> albumType = em.getMetamodel().entity(Album.class);
+
+    Album album = new Album();
+    album.setName("Before");
+    em.persist(album);
+    em.flush();
+
+    album.setName("After");
+    em.flush();
+
+    WebStorageBackend backend = new WebStorageBackend(em);
+    assertEquals(0, backend.getAll(albumType, IndexLookup.equalTo("name", "Before"), MATCH_ALL, null).size());
+    assertEquals(1, backend.getAll(albumType, IndexLookup.equalTo("name", "After"), MATCH_ALL, null).size());
+
+    em.remove(album);
+    em.flush();
+    assertEquals(0, backend.getAll(albumType, IndexLookup.equalTo("name", "After"), MATCH_ALL, null).size());
+  }
+
+  public void testRangeAndInLookups() throws Exception {
+    ErraiEntityManager em = getEntityManagerAndClearStorageBackend();
+    ErraiEntityType<Zentity> zentityType = em.getMetamodel().entity(Zentity.class);
+
+    for (int i = 0; i < 10; i++) {
+      Zentity z = new Zentity();
+      z.setPrimitiveInt(i);
+      em.persist(z);
+    }
+    em.flush();
+
+    WebStorageBackend backend = new WebStorageBackend(em);
+    assertEquals(3, backend.getAll(zentityType, IndexLookup.greaterThan("primitiveInt", 6, false), MATCH_ALL, null).size());
+    assertEquals(4, backend.getAll(zentityType, IndexLookup.greaterThan("primitiveInt", 6.0, true), MATCH_ALL, null).size());
+    assertEquals(2, backend.getAll(zentityType, IndexLookup.lessThan("primitiveInt", 2, false), MATCH_ALL, null).size());
+    assertEquals(5, backend.getAll(zentityType, IndexLookup.between("primitiveInt", 3, 7), MATCH_ALL, null).size());
+    assertEquals(2, backend.getAll(zentityType, IndexLookup.in("primitiveInt", new Object[] { 1, 8, 42 }), MATCH_ALL, null).size());
+
+    // null never matches anything
+    assertEquals(0, backend.getAll(zentityType, IndexLookup.equalTo("primitiveInt", null), MATCH_ALL, null).size());
+    assertEquals(0, backend.getAll(zentityType, IndexLookup.greaterThan("primitiveInt", null, true), MATCH_ALL, null).size());
+  }
+
+  public void testPageInstantiatesOnlyEntitiesOnThePage() throws Exception {
+    ErraiEntityManager em = getEntityManagerAndClearStorageBackend();
+    ErraiEntityType<Album> albumType = em.getMetamodel().entity(Album.class);
+
+    for (int i = 0; i < 10; i++) {
+      Album album = new Album();
+      album.setName("Album " + (9 - i));
+      em.persist(album);
+    }
+    em.flush();
+    em.clear();
+    Album.CALLBACK_LOG.clear();
+
+    SortKeyExtractor<JSONObject> byName = new SortKeyExtractor<JSONObject>(new boolean[] { false }) {
+      @Override
+      public Object[] extractKeys(JSONObject item) {
+        return new Object[] { item.get("name").isString().stringValue() };
+      }
+    };
+    List<Album> albums = new WebStorageBackend(em).getPage(albumType, null, MATCH_ALL, null, byName, 2, 3);
+    assertEquals(3, albums.size());
+    assertEquals("Album 2", albums.get(0).getName());
+    assertEquals("Album 3", albums.get(1).getName());
+    assertEquals("Album 4", albums.get(2).getName());
+    assertEquals(3, countPostLoads());
+
+    Album.CALLBACK_LOG.clear();
+    em.clear();
+    albums = new WebStorageBackend(em).getPage(albumType, null, MATCH_ALL, null, null, 8, 5);
+    assertEquals(2, albums.size());
+    assertEquals(2, countPostLoads());
+  }
+
+  public void testBatchWritesEachIndexOnce() throws Exception {
+    ErraiEntityManager em = getEntityManagerAndClearStorageBackend();
+    ErraiEntityType<Album> albumType = em.getMetamodel().entity(Album.class);
+
+    Map<Key<?, ?>, JSONValue> batch = new LinkedHashMap<Key<?, ?>, JSONValue>();
+    for (int i = 0; i < 50; i++) {
+      Album album = new Album();
+      album.setId((long) (1000 + i));
+      album.setName(i % 2 == 0 ? "Even" : "Odd");
+      batch.put(Key.get(em, Album.class, album.getId()), albumType.toJson(em, album));
+    }
+
+    CountingBackend backend = new CountingBackend(em);
+    backend.applyBatch(batch);
+
+    // one write per album, one for the album type index, one for each of the
+    // two name index entries, and one for the list of distinct names
+    assertEquals(50 + 1 + 2 + 1, backend.writtenKeys.size());
+    assertEquals(25, backend.getAll(albumType, IndexLookup.equalTo("name", "Odd"), MATCH_ALL, null).size());
+
+    // removals and updates in the same batch
+    batch.clear();
+    for (int i = 0; i < 50; i++) {
+      Album album = new Album();
+      album.setId((long) (1000 + i));
+      album.setName("Odd");
+      batch.put(Key.get(em, Album.class, album.getId()), i < 10 ? null : albumType.toJson(em, album));
+    }
+    backend.applyBatch(batch);
+
+    assertEquals(0, backend.getAll(albumType, IndexLookup.equalTo("name", "Even"), MATCH_ALL, null).size());
+    assertEquals(40, backend.getAll(albumType, IndexLookup.equalTo("name", "Odd"), MATCH_ALL, null).size());
+    assertEquals(40, backend.getAll(albumType, null, MATCH_ALL, null).size());
+  }
+
+  public void testEntityManagerBatchesWritesUntilFlush() throws Exception {
+    ErraiEntityManager em = getEntityManagerAndClearStorageBackend();
+
+    Album album = new Album();
+    album.setName("Pending");
+    em.persist(album);
+    Key<Album, Long> key = Key.get(em, Album.class, album.getId());
+    assertFalse(new WebStorageBackend(em).contains(key));
+
+    // queries see pending writes
+    List<Album> albums = em.findAll(em.getMetamodel().entity(Album.class), MATCH_ALL);
+    assertEquals(1, albums.size());
+    assertTrue(new WebStorageBackend(em).contains(key));
+
+    // persist-then-remove never leaves anything behind
+    Album goner = new Album();
+    goner.setName("Goner");
+    em.persist(goner);
+    em.remove(goner);
+    em.flush();
+    assertFalse(new WebStorageBackend(em).contains(Key.get(em, Album.class, goner.getId())));
+    assertNull(em.find(Album.class, goner.getId()));
+  }
+
+  public void testUnmodifiedManagedEntitiesAreMatchedWithoutReadingThem() throws Exception {
+    ErraiEntityManager em = getEntityManagerAndClearStorageBackend();
+    ErraiEntityType<Album> albumType = em.getMetamodel().entity(Album.class);
+
+    List<Album> persisted = new ArrayList<Album>();
+    for (int i = 0; i < 10; i++) {
+      Album album = new Album();
+      album.setName("Album " + i);
+      em.persist(album);
+      persisted.add(album);
+    }
+    em.flush();
+
+    EntityJsonMatcher jsonMatcher = new EntityJsonMatcher() {
+      @Override
+      public boolean matches(JSONObject candidate) {
+        return "Album 5".equals(candidate.get("name").isString().stringValue());
+      }
+    };
+    EntityMatcher<Album> entityMatcher = new EntityMatcher<Album>() {
+      @Override
+      public boolean matches(Album candidate) {
+        return "Album 5".equals(candidate.getName());
+      }
+    };
+
+    CountingBackend backend = new CountingBackend(em);
+    List<Album> albums = backend.getAll(albumType, null, jsonMatcher, entityMatcher);
+    assertEquals(1, albums.size());
+    assertSame(persisted.get(5), albums.get(0));
+
+    // one read for the index marker and one for the album index entry; the
+    // albums themselves are all managed and unmodified
+    assertEquals(2, backend.reads);
+
+    // a modified entity has to be matched by its stored state
+    persisted.get(5).setName("Renamed");
+    backend = new CountingBackend(em);
+    albums = backend.getAll(albumType, null, jsonMatcher, entityMatcher);
+    assertEquals(1, albums.size());
+    assertSame(persisted.get(5), albums.get(0));
+    assertEquals(2 + 1, backend.reads);
+  }
+
+  private static int countPostLoads() {
+    int count = 0;
+    for (CallbackLogEntry entry : Album.CALLBACK_LOG) {
+      if (entry.getEventType() == PostLoad.class && entry.getEventReceiver() instanceof Album) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private static native void removeIndexEntries() /*-{
+    var doomed = [];
+    for (var i = 0; i < $wnd.localStorage.length; i++) {
+      var key = $wnd.localStorage.key(i);
+      if (key.indexOf("errai-jpa-index") == 0) {
+        doomed.push(key);
+      }
+    }
+    for (var i = 0; i < doomed.length; i++) {
+      $wnd.localStorage.removeItem(doomed[i]);
+    }
+  }-*/;
+}
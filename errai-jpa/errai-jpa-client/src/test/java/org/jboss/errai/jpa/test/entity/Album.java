@@ -22,6 +22,7 @@ import javax.persistence.PreUpdate;
 import org.jboss.errai.common.client.api.annotations.Portable;
 import org.jboss.errai.databinding.client.api.Bindable;
 import org.jboss.errai.ioc.client.api.TestOnly;
+import org.jboss.errai.jpa.client.api.annotations.Indexed;
 
 @NamedQueries({
   @NamedQuery(name="selectAlbumByName", query="SELECT a FROM Album a WHERE a.name=:name"),
@@ -35,8 +36,10 @@ public class Album {
   @Id
   private Long id;
 
+  @Indexed
   private String name;
 
+  @Indexed
   @ManyToOne
   private Artist artist;
 
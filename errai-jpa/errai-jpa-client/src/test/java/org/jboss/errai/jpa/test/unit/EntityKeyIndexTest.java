@@ -0,0 +1,111 @@
+package org.jboss.errai.jpa.test.unit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.jboss.errai.jpa.client.local.backend.EntityKeyIndex;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the in-memory indexes of the storage backends. Unlike the backends
+ * themselves, they don't need a browser, so this runs as a plain JUnit test.
+ */
+public class EntityKeyIndexTest {
+
+  private static final String ALBUM = "org.jboss.errai.jpa.test.entity.Album";
+  private static final String ARTIST = "org.jboss.errai.jpa.test.entity.Artist";
+
+  private EntityKeyIndex index;
+
+  @Before
+  public void setUp() {
+    index = new EntityKeyIndex();
+    addAlbum("a1", "s:Abbey Road", "n:1.0");
+    addAlbum("a2", "s:Let It Be", "n:2.0");
+    addAlbum("a3", "s:Help!", "n:3.0");
+    index.add(ARTIST, "b1");
+  }
+
+  private void addAlbum(String key, String nameKey, String yearKey) {
+    index.add(ALBUM, key);
+    index.update(ALBUM, "name", key, null, nameKey);
+    index.update(ALBUM, "year", key, null, yearKey);
+  }
+
+  @Test
+  public void testKeysOfType() {
+    assertEquals(Arrays.asList("a1", "a2", "a3"), index.keysOf(ALBUM));
+    assertEquals(Arrays.asList("b1"), index.keysOf(ARTIST));
+    assertTrue(index.keysOf("org.jboss.errai.jpa.test.entity.Zentity").isEmpty());
+  }
+
+  @Test
+  public void testAddingAnEntityTwiceKeepsItsPosition() {
+    index.add(ALBUM, "a1");
+    assertEquals(Arrays.asList("a1", "a2", "a3"), index.keysOf(ALBUM));
+  }
+
+  @Test
+  public void testLookUpValues() {
+    assertEquals(Arrays.asList("a2"), index.lookUp(ALBUM, "name", Collections.singleton("s:Let It Be")));
+    assertEquals(Arrays.asList("a3", "a1"), index.lookUp(ALBUM, "name", Arrays.asList("s:Help!", "s:Abbey Road")));
+    assertEquals(Arrays.asList("a1"), index.lookUp(ALBUM, "name", Arrays.asList("s:Abbey Road", "s:Abbey Road")));
+    assertTrue(index.lookUp(ALBUM, "name", Collections.singleton("s:Revolver")).isEmpty());
+    assertTrue(index.lookUp(ALBUM, "label", Collections.singleton("s:Apple")).isEmpty());
+    assertTrue(index.lookUp(ARTIST, "name", Collections.singleton("s:Abbey Road")).isEmpty());
+  }
+
+  @Test
+  public void testLookUpRange() {
+    assertEquals(Arrays.asList("a2", "a3"), index.lookUpRange(ALBUM, "year", "n:2.0", true, null, false));
+    assertEquals(Arrays.asList("a3"), index.lookUpRange(ALBUM, "year", "n:2.0", false, null, false));
+    assertEquals(Arrays.asList("a1", "a2"), index.lookUpRange(ALBUM, "year", null, false, "n:2.0", true));
+    assertEquals(Arrays.asList("a2"), index.lookUpRange(ALBUM, "year", "n:1.5", true, "n:2.5", true));
+
+    // values of a different kind than the bounds are never in range
+    assertTrue(index.lookUpRange(ALBUM, "year", "s:0", true, null, false).isEmpty());
+    assertEquals(Arrays.asList("a1", "a3"), index.lookUpRange(ALBUM, "name", "s:A", true, "s:I", false));
+  }
+
+  @Test
+  public void testUpdateMovesEntityToNewValue() {
+    index.update(ALBUM, "name", "a2", "s:Let It Be", "s:Get Back");
+    assertTrue(index.lookUp(ALBUM, "name", Collections.singleton("s:Let It Be")).isEmpty());
+    assertEquals(Arrays.asList("a2"), index.lookUp(ALBUM, "name", Collections.singleton("s:Get Back")));
+
+    // the value that no entity has any more is not considered by range lookups either
+    assertTrue(index.lookUpRange(ALBUM, "name", "s:L", true, "s:M", false).isEmpty());
+  }
+
+  @Test
+  public void testSharedValues() {
+    index.update(ALBUM, "year", "a3", "n:3.0", "n:1.0");
+    assertEquals(Arrays.asList("a1", "a3"), index.lookUp(ALBUM, "year", Collections.singleton("n:1.0")));
+
+    index.update(ALBUM, "year", "a1", "n:1.0", null);
+    assertEquals(Arrays.asList("a3"), index.lookUp(ALBUM, "year", Collections.singleton("n:1.0")));
+  }
+
+  @Test
+  public void testRemove() {
+    index.remove(ALBUM, "a1");
+    index.update(ALBUM, "name", "a1", "s:Abbey Road", null);
+    index.update(ALBUM, "year", "a1", "n:1.0", null);
+
+    assertEquals(Arrays.asList("a2", "a3"), index.keysOf(ALBUM));
+    assertTrue(index.lookUp(ALBUM, "name", Collections.singleton("s:Abbey Road")).isEmpty());
+    assertEquals(Arrays.asList("a2", "a3"), index.lookUpRange(ALBUM, "year", null, false, null, false));
+  }
+
+  @Test
+  public void testClear() {
+    index.clear();
+    assertTrue(index.keysOf(ALBUM).isEmpty());
+    assertTrue(index.keysOf(ARTIST).isEmpty());
+    assertTrue(index.lookUp(ALBUM, "name", Collections.singleton("s:Help!")).isEmpty());
+  }
+}
@@ -18,6 +18,7 @@ package org.jboss.errai.marshalling.client;
 
 import org.jboss.errai.marshalling.client.api.MarshallingSession;
 import org.jboss.errai.marshalling.client.protocols.MarshallingSessionProvider;
+import org.jboss.errai.marshalling.client.protocols.RecyclingMarshallingSessionProvider;
 
 /**
  * @author Mike Brock
@@ -47,4 +48,15 @@ public class MarshallingSessionProviderFactory {
   public static MarshallingSession getDecoding() {
     return sessionProvider.getDecoding();
   }
+
+  /**
+   * Hands a session obtained from {@link #getEncoding()} or {@link #getDecoding()} back to the provider once the
+   * caller is done with it. The session must not be used afterwards. Callers that hold on to their sessions simply
+   * never release them.
+   */
+  public static void release(final MarshallingSession session) {
+    if (sessionProvider instanceof RecyclingMarshallingSessionProvider) {
+      ((RecyclingMarshallingSessionProvider) sessionProvider).release(session);
+    }
+  }
 }
@@ -16,26 +16,58 @@
 
 package org.jboss.errai.marshalling.client.api;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.jboss.errai.common.client.api.Assert;
 import org.jboss.errai.marshalling.client.api.json.EJValue;
+import org.jboss.errai.marshalling.client.util.IdentityIntMap;
 import org.jboss.errai.marshalling.client.util.MarshallUtil;
 
 /**
+ * Base class for marshalling sessions. Marshalled objects are assigned sequential int ids, tracked in an identity
+ * table which does not allocate per lookup. Demarshalled objects are recorded in a list indexed by their numeric id;
+ * only ids which are not small positive integers (which Errai itself never produces) fall back to a map.
+ *
  * @author Mike Brock
  */
 public abstract class AbstractMarshallingSession implements MarshallingSession {
+  /**
+   * The largest gap between the highest recorded id and a newly recorded id for which the id is still stored by
+   * index. Ids further out are kept in the fallback map, so a bogus id can not cause a huge allocation.
+   */
+  private static final int MAX_ID_GAP = 1024;
+
+  /**
+   * Placeholder for recorded null instances, since a null slot in the id list means the id was never recorded.
+   */
+  private static final Object NULL_INSTANCE = new Object();
+
+  /**
+   * The number of tracked objects above which {@link #reset()} discards the back-reference tables instead of clearing
+   * them, so a single large message does not pin a large table to a recycled session.
+   */
+  private static final int MAX_RETAINED_OBJECTS = 4096;
+
   private final MappingContext context;
 
-  private final Map<Object, Integer> objects = new IdentityHashMap<Object, Integer>();
-  private final Map<String, Object> objectMap = new HashMap<String, Object>();
+  private IdentityIntMap objects = new IdentityIntMap();
+  private List<Object> objectsById = new ArrayList<Object>();
+  private Map<String, Object> objectMap;
+  private Map<String, Marshaller<Object>> arrayMarshallers;
   private String assumedElementType = null;
   private String assumedMapKeyType = null;
   private String assumedMapValueType = null;
-  
+
+  private boolean compactEncoding;
+  private Map<String, String> typeRefs;
+  private List<String> typeDictionary;
+  private Object impliedTypeInstance;
+  private String impliedType;
+
   protected AbstractMarshallingSession(final MappingContext context) {
     this.context = Assert.notNull(context);
   }
@@ -70,15 +102,37 @@ public abstract class AbstractMarshallingSession implements MarshallingSession {
         return NULL_MARSHALLER;
       }
       if (fqcn.startsWith("[")) {
-        marshaller = context.getMarshaller(MarshallUtil.getComponentClassName(fqcn));
-        if (marshaller != null) {
-          marshaller = new ArrayMarshallerWrapper(marshaller);
-        }
+        marshaller = getArrayMarshallerWrapper(fqcn);
       } 
     }
     return marshaller;
   }
 
+  @Override
+  public Marshaller<Object> getMarshallerInstance(final Class<?> type) {
+    return getMarshallerInstance(type.getName());
+  }
+
+  /**
+   * Returns a wrapper around the marshaller for the component type of the specified array type. Wrappers are kept for
+   * the lifetime of the session and survive {@link #reset()}, since they do not depend on the marshalled graph.
+   */
+  private Marshaller<Object> getArrayMarshallerWrapper(final String fqcn) {
+    if (arrayMarshallers == null) {
+      arrayMarshallers = new HashMap<String, Marshaller<Object>>();
+    }
+
+    Marshaller<Object> marshaller = arrayMarshallers.get(fqcn);
+    if (marshaller == null) {
+      final Marshaller<Object> componentMarshaller = context.getMarshaller(MarshallUtil.getComponentClassName(fqcn));
+      if (componentMarshaller != null) {
+        marshaller = new ArrayMarshallerWrapper(componentMarshaller);
+        arrayMarshallers.put(fqcn, marshaller);
+      }
+    }
+    return marshaller;
+  }
+
   @Override
   public MappingContext getMappingContext() {
     return context;
@@ -86,7 +140,11 @@ public abstract class AbstractMarshallingSession implements MarshallingSession {
 
   @Override
   public boolean hasObject(final String hashCode) {
-    return objectMap.containsKey(hashCode);
+    final int id = parseId(hashCode);
+    if (id > 0 && id <= objectsById.size() && objectsById.get(id - 1) != null) {
+      return true;
+    }
+    return objectMap != null && objectMap.containsKey(hashCode);
   }
 
   @Override
@@ -94,30 +152,222 @@ public abstract class AbstractMarshallingSession implements MarshallingSession {
     return reference != null && objects.containsKey(reference);
   }
 
+  @SuppressWarnings("unchecked")
   @Override
   public <T> T getObject(final Class<T> type, final String hashCode) {
-    return (T) objectMap.get(hashCode);
+    final int id = parseId(hashCode);
+    if (id > 0 && id <= objectsById.size()) {
+      final Object instance = objectsById.get(id - 1);
+      if (instance != null) {
+        return instance == NULL_INSTANCE ? null : (T) instance;
+      }
+    }
+    return objectMap == null ? null : (T) objectMap.get(hashCode);
   }
 
   @Override
   public <T> T recordObject(final String hashCode, final T instance) {
     if ("-1".equals(hashCode)) return instance;
 
-    objectMap.put(hashCode, instance);
+    final int id = parseId(hashCode);
+    if (id > 0 && id <= objectsById.size() + MAX_ID_GAP) {
+      while (objectsById.size() < id) {
+        objectsById.add(null);
+      }
+      objectsById.set(id - 1, instance == null ? NULL_INSTANCE : instance);
+    }
+    else {
+      if (objectMap == null) {
+        objectMap = new HashMap<String, Object>();
+      }
+      objectMap.put(hashCode, instance);
+    }
 
     return instance;
   }
 
   @Override
   public String getObject(final Object reference) {
-    Integer i = objects.get(reference);
+    int i = objects.get(reference);
 
-    if (i == null) {
+    if (i == -1) {
       objects.put(reference, (i = objects.size() + 1));
-      recordObject(i.toString(), reference);
     }
 
-    return i.toString();
+    return String.valueOf(i);
+  }
+
+  /**
+   * Clears all back-references and assumed types, so that this session can be reused for marshalling another,
+   * unrelated object graph.
+   */
+  public void reset() {
+    if (objects.size() > MAX_RETAINED_OBJECTS) {
+      objects = new IdentityIntMap();
+    }
+    else {
+      objects.clear();
+    }
+
+    if (objectsById.size() > MAX_RETAINED_OBJECTS) {
+      objectsById = new ArrayList<Object>();
+    }
+    else {
+      objectsById.clear();
+    }
+
+    objectMap = null;
+    assumedElementType = null;
+    assumedMapKeyType = null;
+    assumedMapValueType = null;
+
+    compactEncoding = false;
+    typeRefs = null;
+    typeDictionary = null;
+    impliedTypeInstance = null;
+    impliedType = null;
+  }
+
+  /**
+   * Enables the compact encoding for the values marshalled with this session: each type name and property key is
+   * written once to the {@link #getTypeDictionary() dictionary} and referred to by its index, and the type of a value
+   * is omitted if it was {@link #setImpliedType(Object, String) implied} by the enclosing value. The dictionary has to be sent along
+   * with the marshalled values, so this must only be enabled by the marshaller of the enclosing envelope, and only if
+   * the receiver can decode it.
+   */
+  public void setCompactEncoding(final boolean compactEncoding) {
+    this.compactEncoding = compactEncoding;
+  }
+
+  public boolean isCompactEncoding() {
+    return compactEncoding;
+  }
+
+  /**
+   * Returns the name to write for the specified type: the type name itself, or its index in the dictionary if the
+   * compact encoding is enabled.
+   */
+  public String encodeTypeName(final String typeName) {
+    if (!compactEncoding) {
+      return typeName;
+    }
+    return intern(typeName);
+  }
+
+  /**
+   * Returns the key of the specified property in the values marshalled or demarshalled with this session. If the
+   * compact encoding is enabled, this is the index of the property name in the dictionary, which is added to the
+   * dictionary if necessary. If a dictionary was {@link #setTypeDictionary(List) received}, it is the index of the
+   * property name in that dictionary, or the property name itself if the sender did not intern it.
+   */
+  public String encodePropertyKey(final String key) {
+    if (compactEncoding) {
+      return intern(key);
+    }
+
+    if (typeDictionary == null) {
+      return key;
+    }
+
+    if (typeRefs == null) {
+      typeRefs = new HashMap<String, String>();
+      for (int i = 0; i < typeDictionary.size(); i++) {
+        typeRefs.put(typeDictionary.get(i), String.valueOf(i));
+      }
+    }
+
+    final String ref = typeRefs.get(key);
+    return ref == null ? key : ref;
+  }
+
+  private String intern(final String name) {
+    if (typeRefs == null) {
+      typeRefs = new HashMap<String, String>();
+      typeDictionary = new ArrayList<String>();
+    }
+
+    String ref = typeRefs.get(name);
+    if (ref == null) {
+      typeRefs.put(name, ref = String.valueOf(typeDictionary.size()));
+      typeDictionary.add(name);
+    }
+    return ref;
+  }
+
+  /**
+   * Returns the type name written as the specified value, which is either the type name itself or an index into the
+   * dictionary of this session. Type names never start with a digit, so the two can not be confused.
+   */
+  public String decodeTypeName(final String value) {
+    if (typeDictionary == null || value == null || value.length() == 0 || !Character.isDigit(value.charAt(0))) {
+      return value;
+    }
+
+    final int index = Integer.parseInt(value);
+    if (index >= typeDictionary.size()) {
+      throw new RuntimeException("undefined type reference: " + value);
+    }
+    return typeDictionary.get(index);
+  }
+
+  /**
+   * Returns the type names and property keys written by this session so far, in the order of their indexes.
+   */
+  public List<String> getTypeDictionary() {
+    return typeDictionary == null ? Collections.<String>emptyList() : typeDictionary;
+  }
+
+  /**
+   * Sets the dictionary the type references and property keys of the demarshalled values refer to.
+   */
+  public void setTypeDictionary(final List<String> typeDictionary) {
+    this.typeDictionary = typeDictionary;
+    this.typeRefs = null;
+  }
+
+  /**
+   * Declares that the receiver already knows the type of the specified instance, because the enclosing value records
+   * it, so the instance can be written without its type. This only has an effect if the compact encoding is enabled,
+   * and only until the next call to {@link #isTypeImplied(Object, String)}.
+   */
+  public void setImpliedType(final Object instance, final String typeName) {
+    this.impliedTypeInstance = compactEncoding ? instance : null;
+    this.impliedType = compactEncoding ? typeName : null;
+  }
+
+  /**
+   * Returns true if the type of the specified instance can be omitted, as it was
+   * {@link #setImpliedType(Object, String) implied} by the enclosing value.
+   */
+  public boolean isTypeImplied(final Object instance, final String typeName) {
+    if (impliedTypeInstance == null) {
+      return false;
+    }
+
+    final boolean implied = impliedTypeInstance == instance && typeName.equals(impliedType);
+    impliedTypeInstance = null;
+    impliedType = null;
+    return implied;
+  }
+
+  /**
+   * Returns the specified object id as an int, or -1 if it is not a positive decimal integer of at most nine digits.
+   */
+  private static int parseId(final String hashCode) {
+    final int length = hashCode.length();
+    if (length == 0 || length > 9 || hashCode.charAt(0) == '0') {
+      return -1;
+    }
+
+    int id = 0;
+    for (int i = 0; i < length; i++) {
+      final char c = hashCode.charAt(i);
+      if (c < '0' || c > '9') {
+        return -1;
+      }
+      id = id * 10 + (c - '0');
+    }
+    return id;
   }
 
   @Override
@@ -32,6 +32,17 @@ public interface MarshallingSession {
    */
   public Marshaller<Object> getMarshallerInstance(String fqcn);
 
+  /**
+   * Returns a marshaller for the provided type. This is equivalent to calling {@link #getMarshallerInstance(String)}
+   * with the name of the type, but allows implementations to avoid the lookup by name.
+   *
+   * @param type
+   *          the type to be marshalled.
+   *
+   * @return marshaller instance, or null if no marshaller was found for the provided type.
+   */
+  public Marshaller<Object> getMarshallerInstance(Class<?> type);
+
   public String determineTypeFor(String formatType, Object o);
 
   /**
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2012 JBoss, by Red Hat, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.marshalling.client.api.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares that instances of a portable type never take part in a cycle and are never shared within an object graph
+ * that is marshalled. The marshallers for such a type do not track instances for back-references, which saves an
+ * identity lookup and an object id per instance when marshalling large lists of simple value objects.
+ * <p>
+ * If an instance of an acyclic type is nevertheless referenced more than once in a graph, it is marshalled once per
+ * reference and demarshalled into distinct copies. A cycle through an acyclic type cannot be marshalled.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Acyclic {
+}
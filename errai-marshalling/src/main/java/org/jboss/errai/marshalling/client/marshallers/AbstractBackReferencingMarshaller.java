@@ -21,6 +21,7 @@ import org.jboss.errai.marshalling.client.api.Marshaller;
 import org.jboss.errai.marshalling.client.api.MarshallingSession;
 import org.jboss.errai.marshalling.client.api.json.EJObject;
 import org.jboss.errai.marshalling.client.api.json.EJValue;
+import org.jboss.errai.marshalling.client.util.MarshallUtil;
 
 /**
  * @author Mike Brock
@@ -44,19 +45,26 @@ public abstract class AbstractBackReferencingMarshaller<C> implements Marshaller
     final boolean isNew = !ctx.hasObject(o);
     final String objId = ctx.getObject(o);
 
-    final StringBuilder buf = new StringBuilder("{\"").append(SerializationParts.ENCODED_TYPE).append("\":\"")
-            .append(encodedType).append("\",\"").append(SerializationParts.OBJECT_ID).append("\":\"")
-            .append(objId).append("\"");
+    final StringBuilder buf = new StringBuilder("{").append(MarshallUtil.encodedTypeMember(ctx, o, encodedType))
+            .append("\"").append(SerializationParts.OBJECT_ID).append("\":\"").append(objId).append("\"");
 
     if (!isNew) {
       return buf.append("}").toString();
     }
     else {
-      doMarshall(buf.append(",\"").append(SerializationParts.QUALIFIED_VALUE).append("\":"), o, ctx);
+      marshallValue(buf, o, ctx);
       return buf.append("}").toString();
     }
   }
 
+  /**
+   * Appends the members that follow the object id of a newly encountered object, by default just the
+   * <tt>^Value</tt> member written by {@link #doMarshall(StringBuilder, Object, MarshallingSession)}.
+   */
+  protected void marshallValue(final StringBuilder buf, final C o, final MarshallingSession ctx) {
+    doMarshall(buf.append(",\"").append(SerializationParts.QUALIFIED_VALUE).append("\":"), o, ctx);
+  }
+
   public abstract void doMarshall(StringBuilder buf, C o, MarshallingSession ctx);
 
   @SuppressWarnings("unchecked")
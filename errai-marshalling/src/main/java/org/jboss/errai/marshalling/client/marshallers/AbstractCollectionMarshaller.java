@@ -19,11 +19,14 @@ package org.jboss.errai.marshalling.client.marshallers;
 import java.util.Collection;
 
 import org.jboss.errai.common.client.protocols.SerializationParts;
+import org.jboss.errai.marshalling.client.api.Marshaller;
 import org.jboss.errai.marshalling.client.api.MarshallingSession;
 import org.jboss.errai.marshalling.client.api.json.EJArray;
 import org.jboss.errai.marshalling.client.api.json.EJObject;
 import org.jboss.errai.marshalling.client.api.json.EJValue;
 import org.jboss.errai.marshalling.client.util.EncDecUtil;
+import org.jboss.errai.marshalling.client.util.MarshallUtil;
+import org.jboss.errai.marshalling.client.util.NumbersUtils;
 
 /**
  * @author Mike Brock
@@ -31,6 +34,18 @@ import org.jboss.errai.marshalling.client.util.EncDecUtil;
  */
 public abstract class AbstractCollectionMarshaller<C extends Collection> extends AbstractBackReferencingMarshaller<C> {
 
+  @Override
+  protected void marshallValue(final StringBuilder buf, final C o, final MarshallingSession ctx) {
+    final String elementType = EncDecUtil.getElementType(o, ctx);
+    if (elementType != null) {
+      // the elements are written as bare values or without their type, so record it once for the whole collection
+      buf.append(",\"").append(SerializationParts.ELEMENT_TYPE).append("\":\"")
+          .append(MarshallUtil.encodeTypeName(ctx, elementType)).append("\"");
+    }
+    buf.append(",\"").append(SerializationParts.QUALIFIED_VALUE).append("\":");
+    EncDecUtil.arrayMarshall(buf, o, ctx, elementType);
+  }
+
   @Override
   public void doMarshall(final StringBuilder buf, final C o, final MarshallingSession ctx) {
     EncDecUtil.arrayMarshall(buf, o, ctx);
@@ -43,6 +58,10 @@ public abstract class AbstractCollectionMarshaller<C extends Collection> extends
     final EJObject obj = o.isObject();
 
     if (obj != null) {
+      if (obj.containsKey(SerializationParts.ELEMENT_TYPE)) {
+        ctx.setAssumedElementType(
+            MarshallUtil.decodeTypeName(ctx, obj.get(SerializationParts.ELEMENT_TYPE).isString().stringValue()));
+      }
       final EJValue val = obj.get(SerializationParts.QUALIFIED_VALUE);
       return doDemarshall(val.isArray(), ctx);
     }
@@ -60,6 +79,15 @@ public abstract class AbstractCollectionMarshaller<C extends Collection> extends
 
     final String assumedElementType = ctx.getAssumedElementType();
 
+    // the assumed element type can only be used once since it is not set for nested collections.
+    ctx.setAssumedElementType(null);
+
+    // numeric, boolean and character elements may be bare values, typed only by the assumed element type.
+    final boolean bareElements = assumedElementType != null && NumbersUtils.isBareValueType(assumedElementType);
+
+    String lastType = null;
+    Marshaller<Object> marshaller = null;
+
     for (int i = 0; i < array.size(); i++) {
       final EJValue elem = array.get(i);
       if (!elem.isNull()) {
@@ -71,14 +99,20 @@ public abstract class AbstractCollectionMarshaller<C extends Collection> extends
             type = assumedElementType;
           }
         }
+        else if (bareElements) {
+          collection.add(NumbersUtils.getNumber(assumedElementType, elem));
+          continue;
+        }
 
         if (type == null) {
           type = ctx.determineTypeFor(null, elem);
         }
 
-        // the assumed element type can only be used once since they it is not set for nested collections.
-        ctx.setAssumedElementType(null);
-        collection.add(ctx.getMarshallerInstance(type).demarshall(elem, ctx));
+        if (!type.equals(lastType)) {
+          lastType = type;
+          marshaller = ctx.getMarshallerInstance(type);
+        }
+        collection.add(marshaller.demarshall(elem, ctx));
       }
       else {
         collection.add(null);
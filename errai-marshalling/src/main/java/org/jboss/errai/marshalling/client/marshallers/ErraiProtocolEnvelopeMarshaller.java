@@ -17,15 +17,20 @@
 package org.jboss.errai.marshalling.client.marshallers;
 
 import org.jboss.errai.common.client.protocols.MessageParts;
+import org.jboss.errai.common.client.protocols.SerializationParts;
 import org.jboss.errai.marshalling.client.Marshalling;
+import org.jboss.errai.marshalling.client.api.AbstractMarshallingSession;
 import org.jboss.errai.marshalling.client.api.Marshaller;
 import org.jboss.errai.marshalling.client.api.MarshallingSession;
+import org.jboss.errai.marshalling.client.api.json.EJArray;
 import org.jboss.errai.marshalling.client.api.json.EJObject;
 import org.jboss.errai.marshalling.client.api.json.EJValue;
 import org.jboss.errai.marshalling.client.util.MarshallUtil;
 import org.jboss.errai.marshalling.client.util.SimpleTypeLiteral;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -50,8 +55,17 @@ public class ErraiProtocolEnvelopeMarshaller implements Marshaller<Map<String, O
                                              final MarshallingSession ctx) {
     final EJObject jsonObject = o.isObject();
 
+    if (jsonObject.containsKey(SerializationParts.TYPE_DICTIONARY) && ctx instanceof AbstractMarshallingSession) {
+      final EJArray dictionary = jsonObject.get(SerializationParts.TYPE_DICTIONARY).isArray();
+      final List<String> typeNames = new ArrayList<String>(dictionary.size());
+      for (int i = 0; i < dictionary.size(); i++) {
+        typeNames.add(dictionary.get(i).isString().stringValue());
+      }
+      ((AbstractMarshallingSession) ctx).setTypeDictionary(typeNames);
+    }
+
     for (final String key : jsonObject.keySet()) {
-      if (MessageParts.SessionID.name().equals(key))
+      if (MessageParts.SessionID.name().equals(key) || SerializationParts.TYPE_DICTIONARY.equals(key))
         continue;
       final EJValue v = jsonObject.get(key);
       if (!v.isNull()) {
@@ -100,6 +114,24 @@ public class ErraiProtocolEnvelopeMarshaller implements Marshaller<Map<String, O
       }
     }
 
+    if (ctx instanceof AbstractMarshallingSession) {
+      // the type names referred to by the parts are only known once all parts are marshalled
+      final List<String> typeNames = ((AbstractMarshallingSession) ctx).getTypeDictionary();
+      if (!typeNames.isEmpty()) {
+        if (i > 0) {
+          buf.append(",");
+        }
+        buf.append("\"").append(SerializationParts.TYPE_DICTIONARY).append("\":[");
+        for (int j = 0; j < typeNames.size(); j++) {
+          if (j > 0) {
+            buf.append(",");
+          }
+          buf.append("\"").append(typeNames.get(j)).append("\"");
+        }
+        buf.append("]");
+      }
+    }
+
     return buf.append("}").toString();
   }
 
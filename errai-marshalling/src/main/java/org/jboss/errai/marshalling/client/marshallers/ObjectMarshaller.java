@@ -56,7 +56,7 @@ public class ObjectMarshaller extends AbstractNullableMarshaller<Object> {
       final EJValue ejEncType = jsObject.get(SerializationParts.ENCODED_TYPE);
       String encodedType = null;
       if (!ejEncType.isNull() && ejEncType.isString() != null) {
-        encodedType = ejEncType.isString().stringValue();
+        encodedType = MarshallUtil.decodeTypeName(ctx, ejEncType.isString().stringValue());
       }
 
       if (encodedType == null) {
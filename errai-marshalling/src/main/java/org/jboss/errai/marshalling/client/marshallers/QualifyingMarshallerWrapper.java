@@ -22,6 +22,7 @@ import org.jboss.errai.marshalling.client.api.Marshaller;
 import org.jboss.errai.marshalling.client.api.MarshallingSession;
 import org.jboss.errai.marshalling.client.api.json.EJObject;
 import org.jboss.errai.marshalling.client.api.json.EJValue;
+import org.jboss.errai.marshalling.client.util.MarshallUtil;
 
 /**
  * Used to wrap marshallers annotated with {@link org.jboss.errai.marshalling.client.api.annotations.AlwaysQualify}
@@ -81,9 +82,9 @@ public class QualifyingMarshallerWrapper<T> extends AbstractNullableMarshaller<T
   public String doNotNullMarshall(final T o, final MarshallingSession ctx) {
     final boolean isNew = !ctx.hasObject(o);
 
-    final StringBuilder buf = new StringBuilder("{\"").append(SerializationParts.ENCODED_TYPE).append("\":\"")
-            .append(o.getClass().getName()).append("\",\"").append(SerializationParts.OBJECT_ID).append("\":\"")
-            .append(ctx.getObject(o)).append("\"");
+    final StringBuilder buf = new StringBuilder("{")
+            .append(MarshallUtil.encodedTypeMember(ctx, o, o.getClass().getName()))
+            .append("\"").append(SerializationParts.OBJECT_ID).append("\":\"").append(ctx.getObject(o)).append("\"");
 
     if (!isNew) {
       return buf.append("}").toString();
@@ -17,6 +17,8 @@
 package org.jboss.errai.marshalling.client.protocols;
 
 import org.jboss.errai.marshalling.client.MarshallingSessionProviderFactory;
+import org.jboss.errai.marshalling.client.api.AbstractMarshallingSession;
+import org.jboss.errai.marshalling.client.api.MarshallingSession;
 import org.jboss.errai.marshalling.client.api.json.EJValue;
 import org.jboss.errai.marshalling.client.marshallers.ErraiProtocolEnvelopeMarshaller;
 
@@ -37,7 +39,28 @@ public class ErraiProtocol {
    * @return The encoded JSON
    */
   public static String encodePayload(final Map<String, Object> message) {
-    return protocolMarshaller.marshall(message, MarshallingSessionProviderFactory.getEncoding());
+    return encodePayload(message, false);
+  }
+
+  /**
+   * Encode a standard Errai Protocol payload of the key-value pairs to be sent across the wire.
+   *
+   * @param message A map of the key-value pairs to be encoded.
+   * @param compact True if the payload should use the compact encoding, in which each type name is only written once.
+   *                This must only be used if the remote side has advertised that it supports it.
+   * @return The encoded JSON
+   */
+  public static String encodePayload(final Map<String, Object> message, final boolean compact) {
+    final MarshallingSession session = MarshallingSessionProviderFactory.getEncoding();
+    try {
+      if (compact && session instanceof AbstractMarshallingSession) {
+        ((AbstractMarshallingSession) session).setCompactEncoding(true);
+      }
+      return protocolMarshaller.marshall(message, session);
+    }
+    finally {
+      MarshallingSessionProviderFactory.release(session);
+    }
   }
 
   /**
@@ -47,6 +70,12 @@ public class ErraiProtocol {
    * @return The decoded Map.
    */
   public static Map<String, Object> decodePayload(final EJValue value) {
-    return protocolMarshaller.demarshall(value, MarshallingSessionProviderFactory.getDecoding());
+    final MarshallingSession session = MarshallingSessionProviderFactory.getDecoding();
+    try {
+      return protocolMarshaller.demarshall(value, session);
+    }
+    finally {
+      MarshallingSessionProviderFactory.release(session);
+    }
   }
 }
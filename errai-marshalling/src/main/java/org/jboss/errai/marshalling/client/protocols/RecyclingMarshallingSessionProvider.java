@@ -0,0 +1,32 @@
+/*
+ * Copyright 2012 JBoss, by Red Hat, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.marshalling.client.protocols;
+
+import org.jboss.errai.marshalling.client.api.MarshallingSession;
+
+/**
+ * A {@link MarshallingSessionProvider} that wants to be told when a session it handed out is no longer used, so that
+ * it can recycle the session. Providers that do not implement this interface are never asked to release sessions.
+ */
+public interface RecyclingMarshallingSessionProvider extends MarshallingSessionProvider {
+
+  /**
+   * Called when a session obtained from {@link #getEncoding()} or {@link #getDecoding()} is no longer used. The
+   * provider must ignore sessions it did not hand out and sessions that were already released.
+   */
+  public void release(MarshallingSession session);
+}
@@ -17,9 +17,9 @@
 package org.jboss.errai.marshalling.client.util;
 
 import java.util.Collection;
-import java.util.Iterator;
 
 import org.jboss.errai.marshalling.client.Marshalling;
+import org.jboss.errai.marshalling.client.api.AbstractMarshallingSession;
 import org.jboss.errai.marshalling.client.api.Marshaller;
 import org.jboss.errai.marshalling.client.api.MarshallingSession;
 import org.jboss.errai.marshalling.client.marshallers.QualifyingMarshallerWrapper;
@@ -28,37 +28,130 @@ import org.jboss.errai.marshalling.client.marshallers.QualifyingMarshallerWrappe
  * @author Mike Brock
  */
 public class EncDecUtil {
+  /**
+   * Returns the type that the elements of the specified collection can be written without, so that the caller can
+   * record it once for the whole collection before passing it to
+   * {@link #arrayMarshall(StringBuilder, Collection, MarshallingSession, String)}.
+   * <p>
+   * If all non-null elements are of the same numeric, boolean or character wrapper type, they can be written as bare
+   * JSON values. Likewise, if the session uses the compact encoding and all non-null elements are of the same portable
+   * type, they can be written without their type.
+   *
+   * @return the name of the common element type, or null if each element has to be written with its own type.
+   */
+  public static String getElementType(final Collection o, final MarshallingSession ctx) {
+    final Object firstElement = getFirstElementOfCommonType(o);
+    if (NumbersUtils.isBareValue(firstElement)) {
+      return firstElement.getClass().getName();
+    }
+    return getImpliedElementType(firstElement, ctx);
+  }
+
   public static void arrayMarshall(final StringBuilder buf, final Collection o, final MarshallingSession ctx) {
-    final Iterator iter = o.iterator();
+    arrayMarshall(buf, o, ctx, null);
+  }
 
+  /**
+   * Marshalls the elements of the specified collection to a JSON array. The marshaller is only resolved again when the
+   * type of the element changes, so a collection of a single portable type requires a single lookup.
+   *
+   * @param elementType
+   *     the element type returned by {@link #getElementType(Collection, MarshallingSession)} for the same collection,
+   *     or null to write each element with its own type.
+   */
+  public static void arrayMarshall(final StringBuilder buf,
+                                   final Collection o,
+                                   final MarshallingSession ctx,
+                                   final String elementType) {
     buf.append("[");
-    Object elem;
 
     int i = 0;
-    while (iter.hasNext()) {
+    if (elementType != null && NumbersUtils.isBareValueType(elementType)) {
+      for (final Object elem : o) {
+        if (i++ > 0) {
+          buf.append(",");
+        }
+        if (elem != null) {
+          NumbersUtils.appendBareValue(buf, elem);
+        }
+        else {
+          buf.append("null");
+        }
+      }
+      buf.append("]");
+      return;
+    }
+
+    Class<?> lastType = null;
+    Marshaller<Object> marshaller = null;
+    for (final Object elem : o) {
       if (i++ > 0) {
         buf.append(",");
       }
-      elem = iter.next();
-      
+
       if (elem != null) {
-        final Marshaller<Object> marshaller;
-        if (Marshalling.needsQualification(elem)) {
-          marshaller = MarshallUtil.getQualifiedNumberMarshaller(elem);
+        if (elementType != null) {
+          ((AbstractMarshallingSession) ctx).setImpliedType(elem, elementType);
         }
-        else {
-          marshaller = MarshallUtil.getMarshaller(elem, ctx);
+        if (elem.getClass() != lastType) {
+          lastType = elem.getClass();
+          if (Marshalling.needsQualification(elem)) {
+            marshaller = MarshallUtil.getQualifiedNumberMarshaller(elem);
+          }
+          else {
+            marshaller = MarshallUtil.getMarshaller(elem, ctx);
+          }
         }
-  
+
         buf.append(marshaller.marshall(elem, ctx));
-      } 
+      }
       else {
         buf.append("null");
       }
     }
     buf.append("]");
+
+    if (elementType != null) {
+      ((AbstractMarshallingSession) ctx).setImpliedType(null, null);
+    }
+  }
+
+  /**
+   * Returns the first non-null element of the specified collection if all non-null elements are of the same class,
+   * otherwise null.
+   */
+  private static Object getFirstElementOfCommonType(final Collection o) {
+    Object first = null;
+    for (final Object elem : o) {
+      if (elem == null) {
+        continue;
+      }
+
+      if (first == null) {
+        first = elem;
+      }
+      else if (elem.getClass() != first.getClass()) {
+        return null;
+      }
+    }
+    return first;
   }
 
+  /**
+   * Returns the name of the type the elements of a collection, which are all of the same class as the specified
+   * element, can be written without, or null if they have to be written with their type.
+   */
+  private static String getImpliedElementType(final Object element, final MarshallingSession ctx) {
+    if (element == null || element instanceof String || !(ctx instanceof AbstractMarshallingSession)
+            || !((AbstractMarshallingSession) ctx).isCompactEncoding()) {
+      return null;
+    }
+
+    if (element instanceof Enum<?>) {
+      return ((Enum<?>) element).getDeclaringClass().getName();
+    }
+    return element.getClass().getName();
+  }
 
   /**
    * Ensure the marshaller is qualified on the wire using a wrapping marshaller.
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2012 JBoss, by Red Hat, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.marshalling.client.util;
+
+import java.util.Arrays;
+
+/**
+ * A map from object identities to non-negative ints, backed by a single open-addressing table. Unlike an
+ * {@link java.util.IdentityHashMap} with {@link Integer} values, looking up or adding an entry does not allocate.
+ * Null keys are not supported.
+ */
+public class IdentityIntMap {
+  private static final int MINIMUM_CAPACITY = 16;
+
+  private Object[] keys;
+  private int[] values;
+  private int mask;
+  private int size;
+
+  public IdentityIntMap() {
+    this(MINIMUM_CAPACITY / 2);
+  }
+
+  /**
+   * @param expectedSize
+   *     the number of entries the map should be able to hold without being resized.
+   */
+  public IdentityIntMap(final int expectedSize) {
+    int capacity = MINIMUM_CAPACITY;
+    while (capacity < expectedSize * 2) {
+      capacity <<= 1;
+    }
+    allocate(capacity);
+  }
+
+  /**
+   * @return the value mapped to the specified key, or -1 if there is no mapping.
+   */
+  public int get(final Object key) {
+    int i = indexFor(key);
+    Object k;
+    while ((k = keys[i]) != null) {
+      if (k == key) {
+        return values[i];
+      }
+      i = (i + 1) & mask;
+    }
+    return -1;
+  }
+
+  public boolean containsKey(final Object key) {
+    return get(key) != -1;
+  }
+
+  /**
+   * Maps the specified key to the specified value, replacing any existing mapping.
+   *
+   * @param value
+   *     a non-negative value.
+   */
+  public void put(final Object key, final int value) {
+    int i = indexFor(key);
+    Object k;
+    while ((k = keys[i]) != null) {
+      if (k == key) {
+        values[i] = value;
+        return;
+      }
+      i = (i + 1) & mask;
+    }
+
+    keys[i] = key;
+    values[i] = value;
+
+    if (++size * 2 > keys.length) {
+      resize(keys.length << 1);
+    }
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public void clear() {
+    if (size > 0) {
+      Arrays.fill(keys, null);
+      size = 0;
+    }
+  }
+
+  private int indexFor(final Object key) {
+    final int h = System.identityHashCode(key);
+    return (h ^ (h >>> 16)) & mask;
+  }
+
+  private void allocate(final int capacity) {
+    keys = new Object[capacity];
+    values = new int[capacity];
+    mask = capacity - 1;
+  }
+
+  private void resize(final int capacity) {
+    final Object[] oldKeys = keys;
+    final int[] oldValues = values;
+    allocate(capacity);
+
+    for (int j = 0; j < oldKeys.length; j++) {
+      final Object key = oldKeys[j];
+      if (key != null) {
+        int i = indexFor(key);
+        while (keys[i] != null) {
+          i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = oldValues[j];
+      }
+    }
+  }
+}
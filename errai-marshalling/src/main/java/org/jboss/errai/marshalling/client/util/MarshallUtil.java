@@ -18,6 +18,7 @@ package org.jboss.errai.marshalling.client.util;
 
 import org.jboss.errai.common.client.api.WrappedPortable;
 import org.jboss.errai.common.client.protocols.SerializationParts;
+import org.jboss.errai.marshalling.client.api.AbstractMarshallingSession;
 import org.jboss.errai.marshalling.client.api.Marshaller;
 import org.jboss.errai.marshalling.client.api.MarshallingSession;
 import org.jboss.errai.marshalling.client.api.json.EJObject;
@@ -114,25 +115,75 @@ public class MarshallUtil {
   }
 
   public static Marshaller<Object> getMarshaller(Object obj, final MarshallingSession session) {
-    String className;
+    Class<?> type;
     if (obj instanceof Enum<?>) {
-      className = ((Enum<?>) obj).getDeclaringClass().getName();
+      type = ((Enum<?>) obj).getDeclaringClass();
     }
     else {
-      className = obj.getClass().getName();
+      type = obj.getClass();
     }
 
-    Marshaller<Object> m = session.getMarshallerInstance(className);
+    Marshaller<Object> m = session.getMarshallerInstance(type);
     if (m == null && obj instanceof WrappedPortable) {
-      className = ((WrappedPortable) obj).unwrap().getClass().getName(); 
-      m = session.getMarshallerInstance(className);
+      type = ((WrappedPortable) obj).unwrap().getClass();
+      m = session.getMarshallerInstance(type);
     }
     if (m == null) {
-      throw new RuntimeException("no marshalling definition available for type:" + className);
+      throw new RuntimeException("no marshalling definition available for type:" + type.getName());
     }
     return m;
   }
 
+  /**
+   * Returns the {@link SerializationParts#ENCODED_TYPE} member, followed by a comma, to write at the start of the JSON
+   * object representing the specified instance. Returns an empty string if the session omits the type, because it is
+   * implied by the enclosing value.
+   */
+  public static String encodedTypeMember(final MarshallingSession session, final Object instance,
+                                         final String typeName) {
+    if (session instanceof AbstractMarshallingSession) {
+      final AbstractMarshallingSession s = (AbstractMarshallingSession) session;
+      if (s.isTypeImplied(instance, typeName)) {
+        return "";
+      }
+      return "\"" + SerializationParts.ENCODED_TYPE + "\":\"" + s.encodeTypeName(typeName) + "\",";
+    }
+    return "\"" + SerializationParts.ENCODED_TYPE + "\":\"" + typeName + "\",";
+  }
+
+  /**
+   * Returns the name to write for the specified type, which is a reference into the type dictionary of the session if
+   * it uses the compact encoding.
+   */
+  public static String encodeTypeName(final MarshallingSession session, final String typeName) {
+    if (session instanceof AbstractMarshallingSession) {
+      return ((AbstractMarshallingSession) session).encodeTypeName(typeName);
+    }
+    return typeName;
+  }
+
+  /**
+   * Returns the key of the specified property in the values marshalled or demarshalled with the session, which is a
+   * reference into the dictionary of the session if it uses the compact encoding.
+   */
+  public static String encodePropertyKey(final MarshallingSession session, final String key) {
+    if (session instanceof AbstractMarshallingSession) {
+      return ((AbstractMarshallingSession) session).encodePropertyKey(key);
+    }
+    return key;
+  }
+
+  /**
+   * Returns the type name written as the specified value, resolving references into the type dictionary of the
+   * session.
+   */
+  public static String decodeTypeName(final MarshallingSession session, final String value) {
+    if (session instanceof AbstractMarshallingSession) {
+      return ((AbstractMarshallingSession) session).decodeTypeName(value);
+    }
+    return value;
+  }
+
   public static boolean isEncodedObject(final EJObject value) {
     return value.containsKey(SerializationParts.OBJECT_ID);
   }
@@ -17,6 +17,7 @@
 package org.jboss.errai.marshalling.client.util;
 
 import org.jboss.errai.common.client.protocols.SerializationParts;
+import org.jboss.errai.marshalling.client.Marshalling;
 import org.jboss.errai.marshalling.client.api.json.EJObject;
 import org.jboss.errai.marshalling.client.api.json.EJValue;
 
@@ -37,7 +38,7 @@ public class NumbersUtils {
       return value.isNumber().doubleValue();
     }
     else if (Long.class.getName().equals(wrapperClassName)) {
-      return Long.parseLong(value.isString().stringValue());
+      return toLong(value);
     }
     else if (Boolean.class.getName().equals(wrapperClassName)) {
       return value.isBoolean().booleanValue();
@@ -59,6 +60,65 @@ public class NumbersUtils {
     }
   }
 
+  /**
+   * Returns true if the specified type is one of the wrapper types that {@link #getNumber(String, EJValue)} can
+   * decode from a bare JSON value.
+   */
+  public static boolean isBareValueType(final String wrapperClassName) {
+    return Integer.class.getName().equals(wrapperClassName)
+            || Long.class.getName().equals(wrapperClassName)
+            || Double.class.getName().equals(wrapperClassName)
+            || Float.class.getName().equals(wrapperClassName)
+            || Short.class.getName().equals(wrapperClassName)
+            || Byte.class.getName().equals(wrapperClassName)
+            || Boolean.class.getName().equals(wrapperClassName)
+            || Character.class.getName().equals(wrapperClassName);
+  }
+
+  /**
+   * Returns true if the specified value can be written as a bare JSON value using
+   * {@link #appendBareValue(StringBuilder, Object)}. Its type must then be recorded elsewhere in the payload.
+   */
+  public static boolean isBareValue(final Object o) {
+    return o instanceof Long || Marshalling.needsQualification(o);
+  }
+
+  public static void appendBareValue(final StringBuilder buf, final Object o) {
+    if (o instanceof Long) {
+      appendLong(buf, (Long) o);
+    }
+    else if (o instanceof Character) {
+      buf.append(quote);
+      MarshallUtil.jsonStringEscape(buf, (Character) o);
+      buf.append(quote);
+    }
+    else {
+      buf.append(String.valueOf(o));
+    }
+  }
+
+  /**
+   * Appends the specified long as a JSON number if it can be represented exactly by a double (and therefore by a
+   * JavaScript number), and as a string otherwise.
+   */
+  public static void appendLong(final StringBuilder buf, final long l) {
+    if (l <= MAX_SAFE_INTEGER && l >= -MAX_SAFE_INTEGER) {
+      buf.append(l);
+    }
+    else {
+      buf.append(quote).append(l).append(quote);
+    }
+  }
+
+  public static long toLong(final EJValue value) {
+    if (value.isNumber() != null) {
+      return (long) value.isNumber().doubleValue();
+    }
+    return Long.parseLong(value.isString().stringValue());
+  }
+
+  private static final long MAX_SAFE_INTEGER = 1L << 53;
+
   private final static String quote = "\"";
 
   public static String qualifiedNumericEncoding(final Object o) {
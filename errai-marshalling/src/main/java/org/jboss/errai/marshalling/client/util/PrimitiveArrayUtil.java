@@ -0,0 +1,197 @@
+/*
+ * Copyright 2012 JBoss, by Red Hat, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.marshalling.client.util;
+
+import org.jboss.errai.common.client.protocols.SerializationParts;
+import org.jboss.errai.marshalling.client.api.json.EJArray;
+import org.jboss.errai.marshalling.client.api.json.EJObject;
+import org.jboss.errai.marshalling.client.api.json.EJValue;
+
+/**
+ * Marshalls one-dimensional arrays of primitives to plain JSON arrays of bare values, and demarshalls them straight
+ * into pre-sized primitive arrays. The array type itself is recorded once by the enclosing (qualifying) array
+ * marshaller, so no per-element type information or marshaller lookup is needed in either direction.
+ * <p>
+ * Longs are written as JSON numbers if they can be represented exactly by a double, and as strings otherwise.
+ * When demarshalling, elements in the fully qualified form (<tt>{"^NumVal":...}</tt>) are accepted as well.
+ */
+public class PrimitiveArrayUtil {
+  private PrimitiveArrayUtil() {
+  }
+
+  public static String marshall(final int[] a) {
+    final StringBuilder buf = new StringBuilder(a.length * 4 + 2).append('[');
+    for (int i = 0; i < a.length; i++) {
+      if (i > 0) {
+        buf.append(',');
+      }
+      buf.append(a[i]);
+    }
+    return buf.append(']').toString();
+  }
+
+  public static String marshall(final long[] a) {
+    final StringBuilder buf = new StringBuilder(a.length * 8 + 2).append('[');
+    for (int i = 0; i < a.length; i++) {
+      if (i > 0) {
+        buf.append(',');
+      }
+      NumbersUtils.appendLong(buf, a[i]);
+    }
+    return buf.append(']').toString();
+  }
+
+  public static String marshall(final double[] a) {
+    final StringBuilder buf = new StringBuilder(a.length * 8 + 2).append('[');
+    for (int i = 0; i < a.length; i++) {
+      if (i > 0) {
+        buf.append(',');
+      }
+      buf.append(a[i]);
+    }
+    return buf.append(']').toString();
+  }
+
+  public static String marshall(final float[] a) {
+    final StringBuilder buf = new StringBuilder(a.length * 8 + 2).append('[');
+    for (int i = 0; i < a.length; i++) {
+      if (i > 0) {
+        buf.append(',');
+      }
+      buf.append(a[i]);
+    }
+    return buf.append(']').toString();
+  }
+
+  public static String marshall(final short[] a) {
+    final StringBuilder buf = new StringBuilder(a.length * 4 + 2).append('[');
+    for (int i = 0; i < a.length; i++) {
+      if (i > 0) {
+        buf.append(',');
+      }
+      buf.append(a[i]);
+    }
+    return buf.append(']').toString();
+  }
+
+  public static String marshall(final byte[] a) {
+    final StringBuilder buf = new StringBuilder(a.length * 4 + 2).append('[');
+    for (int i = 0; i < a.length; i++) {
+      if (i > 0) {
+        buf.append(',');
+      }
+      buf.append(a[i]);
+    }
+    return buf.append(']').toString();
+  }
+
+  public static String marshall(final boolean[] a) {
+    final StringBuilder buf = new StringBuilder(a.length * 6 + 2).append('[');
+    for (int i = 0; i < a.length; i++) {
+      if (i > 0) {
+        buf.append(',');
+      }
+      buf.append(a[i]);
+    }
+    return buf.append(']').toString();
+  }
+
+  public static String marshall(final char[] a) {
+    final StringBuilder buf = new StringBuilder(a.length * 4 + 2).append('[');
+    for (int i = 0; i < a.length; i++) {
+      if (i > 0) {
+        buf.append(',');
+      }
+      buf.append('"');
+      MarshallUtil.jsonStringEscape(buf, a[i]);
+      buf.append('"');
+    }
+    return buf.append(']').toString();
+  }
+
+  public static int[] toIntArray(final EJArray a) {
+    final int[] array = new int[a.size()];
+    for (int i = 0; i < array.length; i++) {
+      array[i] = unwrap(a.get(i)).isNumber().intValue();
+    }
+    return array;
+  }
+
+  public static long[] toLongArray(final EJArray a) {
+    final long[] array = new long[a.size()];
+    for (int i = 0; i < array.length; i++) {
+      array[i] = NumbersUtils.toLong(unwrap(a.get(i)));
+    }
+    return array;
+  }
+
+  public static double[] toDoubleArray(final EJArray a) {
+    final double[] array = new double[a.size()];
+    for (int i = 0; i < array.length; i++) {
+      array[i] = unwrap(a.get(i)).isNumber().doubleValue();
+    }
+    return array;
+  }
+
+  public static float[] toFloatArray(final EJArray a) {
+    final float[] array = new float[a.size()];
+    for (int i = 0; i < array.length; i++) {
+      array[i] = unwrap(a.get(i)).isNumber().floatValue();
+    }
+    return array;
+  }
+
+  public static short[] toShortArray(final EJArray a) {
+    final short[] array = new short[a.size()];
+    for (int i = 0; i < array.length; i++) {
+      array[i] = unwrap(a.get(i)).isNumber().shortValue();
+    }
+    return array;
+  }
+
+  public static byte[] toByteArray(final EJArray a) {
+    final byte[] array = new byte[a.size()];
+    for (int i = 0; i < array.length; i++) {
+      array[i] = unwrap(a.get(i)).isNumber().byteValue();
+    }
+    return array;
+  }
+
+  public static boolean[] toBooleanArray(final EJArray a) {
+    final boolean[] array = new boolean[a.size()];
+    for (int i = 0; i < array.length; i++) {
+      array[i] = unwrap(a.get(i)).isBoolean().booleanValue();
+    }
+    return array;
+  }
+
+  public static char[] toCharArray(final EJArray a) {
+    final char[] array = new char[a.size()];
+    for (int i = 0; i < array.length; i++) {
+      array[i] = unwrap(a.get(i)).isString().stringValue().charAt(0);
+    }
+    return array;
+  }
+
+  private static EJValue unwrap(final EJValue value) {
+    final EJObject obj = value.isObject();
+    if (obj != null) {
+      return obj.get(SerializationParts.NUMERIC_VALUE);
+    }
+    return value;
+  }
+}
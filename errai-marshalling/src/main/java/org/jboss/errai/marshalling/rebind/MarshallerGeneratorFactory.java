@@ -59,6 +59,7 @@ import org.jboss.errai.marshalling.client.api.annotations.AlwaysQualify;
 import org.jboss.errai.marshalling.client.api.json.EJArray;
 import org.jboss.errai.marshalling.client.api.json.EJValue;
 import org.jboss.errai.marshalling.client.marshallers.QualifyingMarshallerWrapper;
+import org.jboss.errai.marshalling.client.util.PrimitiveArrayUtil;
 import org.jboss.errai.marshalling.rebind.api.ArrayMarshallerCallback;
 import org.jboss.errai.marshalling.rebind.api.GeneratorMappingContext;
 import org.jboss.errai.marshalling.rebind.api.MappingStrategy;
@@ -428,6 +429,23 @@ public class MarshallerGeneratorFactory {
 
     final MetaClass arrayType = toMap.asArrayOf(dim);
 
+    if (dim == 1 && toMap.isPrimitive()) {
+      // primitives are written as bare values, so the whole array is handled without any per-element dispatch
+      final String typeName = toMap.getFullyQualifiedName();
+      anonBuilder.privateMethod(arrayType, "_demarshall" + dim)
+          .parameters(EJArray.class, MarshallingSession.class).body()
+          .append(Stmt.invokeStatic(PrimitiveArrayUtil.class,
+              "to" + Character.toUpperCase(typeName.charAt(0)) + typeName.substring(1) + "Array",
+              Stmt.loadVariable("a0")).returnValue())
+          .finish();
+
+      anonBuilder.privateMethod(String.class, "_marshall" + dim)
+          .parameters(arrayType, MarshallingSession.class).body()
+          .append(Stmt.invokeStatic(PrimitiveArrayUtil.class, "marshall", Stmt.loadVariable("a0")).returnValue())
+          .finish();
+      return;
+    }
+
     MetaClass outerType = toMap.getOuterComponentType();
     if (!outerType.isArray() && outerType.isPrimitive()) {
       outerType = outerType.asBoxed();
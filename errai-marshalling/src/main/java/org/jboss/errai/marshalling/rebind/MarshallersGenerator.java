@@ -24,6 +24,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 
 import org.jboss.errai.codegen.meta.MetaClass;
 import org.jboss.errai.codegen.meta.impl.gwt.GWTUtil;
@@ -31,6 +32,13 @@ import org.jboss.errai.codegen.util.ClassChangeUtil;
 import org.jboss.errai.common.metadata.RebindUtils;
 import org.jboss.errai.common.rebind.ClassListReader;
 import org.jboss.errai.config.rebind.EnvUtil;
+import org.jboss.errai.config.rebind.EnvironmentConfig;
+import org.jboss.errai.config.rebind.GeneratedSourceCache;
+import org.jboss.errai.config.rebind.ReachableTypes;
+import org.jboss.errai.marshalling.client.api.annotations.ClientMarshaller;
+import org.jboss.errai.marshalling.client.api.annotations.ServerMarshaller;
+import org.jboss.errai.marshalling.rebind.api.CustomMapping;
+import org.jboss.errai.marshalling.rebind.api.MarshallingExtension;
 import org.jboss.errai.marshalling.rebind.util.MarshallingGenUtil;
 import org.jboss.errai.marshalling.server.MappingContextSingleton;
 import org.jboss.errai.marshalling.server.ServerMappingContext;
@@ -261,16 +269,26 @@ public class MarshallersGenerator extends Generator {
   private String _generate(final GeneratorContext context) {
     synchronized (generatorLock) {
       final boolean junitOrDevMode = !EnvUtil.isProdMode();
+      final String fingerprint = GeneratedSourceCache.isEnabled() ? fingerprintInputs() : null;
 
       if (SERVER_MARSHALLER_OUTPUT_ENABLED && MarshallingGenUtil.isUseStaticMarshallers()) {
 
-        final String serverSideClass;
+        String serverSideClass;
         if (!junitOrDevMode && _serverMarshallerCache != null) {
           serverSideClass = _serverMarshallerCache;
         }
         else {
-          serverSideClass = MarshallerGeneratorFactory.getFor(MarshallerOutputTarget.Java)
-              .generate(SERVER_MARSHALLER_PACKAGE_NAME, SERVER_MARSHALLER_CLASS_NAME);
+          serverSideClass = fingerprint == null ? null
+              : GeneratedSourceCache.getCachedSource(SERVER_MARSHALLER_CLASS_NAME, fingerprint);
+
+          if (serverSideClass == null) {
+            serverSideClass = MarshallerGeneratorFactory.getFor(MarshallerOutputTarget.Java)
+                .generate(SERVER_MARSHALLER_PACKAGE_NAME, SERVER_MARSHALLER_CLASS_NAME);
+
+            if (fingerprint != null) {
+              GeneratedSourceCache.putCachedSource(SERVER_MARSHALLER_CLASS_NAME, fingerprint, serverSideClass);
+            }
+          }
           _serverMarshallerCache = serverSideClass;
         }
 
@@ -357,12 +375,57 @@ public class MarshallersGenerator extends Generator {
         return _clientMarshallerCache;
       }
 
-      return _clientMarshallerCache
-          = MarshallerGeneratorFactory.getFor(MarshallerOutputTarget.GWT, EnvUtil.getAllReachableClasses(context))
+      final ReachableTypes reachableTypes = EnvUtil.getAllReachableClasses(context);
+
+      // the client marshallers are only generated for reachable types, so the reachable set is part of their inputs.
+      final String clientFingerprint;
+      if (fingerprint != null && reachableTypes.isBasedOnReachabilityAnalysis()) {
+        clientFingerprint = GeneratedSourceCache.fingerprint()
+            .add("inputs", fingerprint)
+            .add("reachable", new TreeSet<String>(reachableTypes.toCollection()))
+            .toHash();
+      }
+      else {
+        clientFingerprint = fingerprint;
+      }
+
+      final String cachedClientSource = clientFingerprint == null ? null
+          : GeneratedSourceCache.getCachedSource(className, clientFingerprint);
+      if (cachedClientSource != null) {
+        return _clientMarshallerCache = cachedClientSource;
+      }
+
+      _clientMarshallerCache
+          = MarshallerGeneratorFactory.getFor(MarshallerOutputTarget.GWT, reachableTypes)
           .generate(packageName, className);
+
+      if (clientFingerprint != null) {
+        GeneratedSourceCache.putCachedSource(className, clientFingerprint, _clientMarshallerCache);
+      }
+      return _clientMarshallerCache;
     }
   }
 
+  /**
+   * Fingerprints the inputs of the marshallers: the portable types and their supertypes, the custom marshallers and
+   * mappings, and the configuration. Only the signatures of these types are computed, not those of every type known
+   * to the {@link org.jboss.errai.codegen.meta.MetaClassFactory}.
+   */
+  private String fingerprintInputs() {
+    final EnvironmentConfig config = EnvUtil.getEnvironmentConfig();
+
+    return GeneratedSourceCache.fingerprint()
+        .add("target", packageName + "." + className)
+        .addConfiguration()
+        .addTypes(config.getExposedClasses())
+        .addTypes(config.getPortableSuperTypes())
+        .addTypesAnnotatedWith(ClientMarshaller.class)
+        .addTypesAnnotatedWith(ServerMarshaller.class)
+        .addTypesAnnotatedWith(CustomMapping.class)
+        .addTypesAnnotatedWith(MarshallingExtension.class)
+        .toHash();
+  }
+
   interface DiscoveryContext {
     public void veto();
 
@@ -89,6 +89,11 @@ public class GeneratorMappingContext implements ServerMappingContext {
     return null;
   }
 
+  @Override
+  public Marshaller<Object> getMarshaller(final Class<?> type) {
+    return null;
+  }
+
   private boolean hasGeneratedMarshaller(final String clazzName) {
     return generatedMarshallers.contains(clazzName);
   }
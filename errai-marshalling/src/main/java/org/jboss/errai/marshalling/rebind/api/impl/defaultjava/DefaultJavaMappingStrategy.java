@@ -53,6 +53,7 @@ import org.jboss.errai.marshalling.client.api.exceptions.MarshallingException;
 import org.jboss.errai.marshalling.client.api.exceptions.NoAvailableMarshallerException;
 import org.jboss.errai.marshalling.client.api.json.EJObject;
 import org.jboss.errai.marshalling.client.api.json.EJValue;
+import org.jboss.errai.marshalling.client.util.MarshallUtil;
 import org.jboss.errai.marshalling.rebind.api.GeneratorMappingContext;
 import org.jboss.errai.marshalling.rebind.api.MappingStrategy;
 import org.jboss.errai.marshalling.rebind.api.ObjectMapper;
@@ -295,8 +296,8 @@ public class DefaultJavaMappingStrategy implements MappingStrategy {
           }
 
           final BlockBuilder<ElseBlockBuilder> ifBlockBuilder = Stmt.if_(Bool.and(
-                  Bool.expr(loadVariable("obj").invoke("containsKey", memberMapping.getKey())),
-                  Bool.notExpr(loadVariable("obj").invoke("get", memberMapping.getKey()).invoke("isNull"))));
+                  Bool.expr(loadVariable("obj").invoke("containsKey", propertyKey(memberMapping.getKey()))),
+                  Bool.notExpr(loadVariable("obj").invoke("get", propertyKey(memberMapping.getKey())).invoke("isNull"))));
 
           maybeAddAssumedTypes(ifBlockBuilder, null, memberMapping, bindingStatement);
           tryBuilder.append(ifBlockBuilder.finish());
@@ -378,10 +379,10 @@ public class DefaultJavaMappingStrategy implements MappingStrategy {
 
   public Statement extractJSONObjectProperty(final String fieldName, final MetaClass fromType) {
     if (fromType.getFullyQualifiedName().equals(EJObject.class.getName())) {
-      return loadVariable("obj").invoke("get", fieldName);
+      return loadVariable("obj").invoke("get", propertyKey(fieldName));
     }
     else {
-      return Stmt.nestedCall(Cast.to(fromType, loadVariable("a0"))).invoke("get", fieldName);
+      return Stmt.nestedCall(Cast.to(fromType, loadVariable("a0"))).invoke("get", propertyKey(fieldName));
     }
   }
 
@@ -435,24 +436,30 @@ public class DefaultJavaMappingStrategy implements MappingStrategy {
 
     final int bufSize = calcBufferSize(new ArrayList<MappingDefinition>(), definition);
 
-    final Implementations.StringBuilderBuilder sb = newStringBuilder(bufSize)
-            .append("{" + keyValue(SerializationParts.ENCODED_TYPE, string(toType.getFullyQualifiedName())) + "," +
-                    string(SerializationParts.OBJECT_ID) + ":\"").append(loadVariable("objId")).append("\"");
-
-    builder.append(
-            If.cond(loadVariable("a1").invoke("hasObject", loadVariable("a0")))
-                    .append(declareVariable(String.class).named("objId").initializeWith(loadVariable("a1").invoke("getObject", Stmt.loadVariable("a0"))))
-                    .append(Stmt.nestedCall(newStringBuilder(128).append("{"
-                            + keyValue(SerializationParts.ENCODED_TYPE, string(toType.getFullyQualifiedName()))).append(",")
-                            .append(string(SerializationParts.OBJECT_ID) + ":\"")
-                            .append(loadVariable("objId"))
-                            .append("\"}")).invoke("toString").returnValue())
-                    .finish());
-
-    builder.append(declareVariable(String.class).named("objId").initializeWith(loadVariable("a1").invoke("getObject", Stmt.loadVariable("a0"))));
+    if (definition.isAcyclic()) {
+      // instances of acyclic types are never tracked, so they can never be back-referenced either.
+      builder.append(declareVariable(String.class).named("objId").initializeWith("-1"));
+    }
+    else {
+      builder.append(
+              If.cond(loadVariable("a1").invoke("hasObject", loadVariable("a0")))
+                      .append(declareVariable(String.class).named("objId").initializeWith(loadVariable("a1").invoke("getObject", Stmt.loadVariable("a0"))))
+                      .append(Stmt.nestedCall(newStringBuilder(128).append("{")
+                              .append(encodedTypeMember(loadVariable("a0"), toType))
+                              .append(string(SerializationParts.OBJECT_ID) + ":\"")
+                              .append(loadVariable("objId"))
+                              .append("\"}")).invoke("toString").returnValue())
+                      .finish());
+
+      builder.append(declareVariable(String.class).named("objId").initializeWith(loadVariable("a1").invoke("getObject", Stmt.loadVariable("a0"))));
+
+      builder.append(loadVariable("a1").invoke("recordObject", loadVariable("objId"),
+              loadVariable("objId")));
+    }
 
-    builder.append(loadVariable("a1").invoke("recordObject", loadVariable("objId"),
-            loadVariable("objId")));
+    final Implementations.StringBuilderBuilder sb = newStringBuilder(bufSize)
+            .append("{").append(encodedTypeMember(loadVariable("a0"), toType))
+            .append(string(SerializationParts.OBJECT_ID) + ":\"").append(loadVariable("objId")).append("\"");
 
     boolean hasEncoded = false;
 
@@ -481,7 +488,7 @@ public class DefaultJavaMappingStrategy implements MappingStrategy {
       if (targetType.isArray()) {
         valueStatement = context.getArrayMarshallerCallback().marshal(targetType, valueStatement);
       }
-      sb.append("\"" + mapping.getKey() + "\" : ");
+      sb.append("\"").append(propertyKey(mapping.getKey())).append("\" : ");
 
       if (targetType.isEnum()) {
         marshallEnum(sb, valueStatement, targetType);
@@ -503,8 +510,21 @@ public class DefaultJavaMappingStrategy implements MappingStrategy {
     builder.append(Stmt.nestedCall(sb).invoke("toString").returnValue());
   }
 
-  private static String keyValue(final String key, final String value) {
-    return "\"" + key + "\":" + value + "";
+  /**
+   * Returns the statement writing the {@link SerializationParts#ENCODED_TYPE} member of the specified instance, which is
+   * omitted or replaced by a type reference if the marshalling session uses the compact encoding.
+   */
+  private static Statement encodedTypeMember(final Statement instance, final MetaClass toType) {
+    return Stmt.invokeStatic(MarshallUtil.class, "encodedTypeMember", loadVariable("a1"), instance,
+            toType.getFullyQualifiedName());
+  }
+
+  /**
+   * Returns the statement yielding the key of the specified property, which is replaced by a reference into the
+   * dictionary if the marshalling session uses the compact encoding.
+   */
+  private static Statement propertyKey(final String key) {
+    return Stmt.invokeStatic(MarshallUtil.class, "encodePropertyKey", loadVariable("a1"), key);
   }
 
   private static String string(final String value) {
@@ -566,8 +586,8 @@ public class DefaultJavaMappingStrategy implements MappingStrategy {
                                                            final MetaClass toType) {
 
     final Implementations.StringBuilderBuilder internalSBB = Implementations.newStringBuilder()
-            .append("{\"" + SerializationParts.ENCODED_TYPE
-                    + "\":\"" + toType.getFullyQualifiedName() + "\",\"" + SerializationParts.ENUM_STRING_VALUE + "\":\"")
+            .append("{").append(encodedTypeMember(valueStatement, toType))
+            .append("\"" + SerializationParts.ENUM_STRING_VALUE + "\":\"")
             .append(Stmt.nestedCall(valueStatement).invoke("name")).append("\"}");
 
     final TernaryStatement ternaryStatement = new TernaryStatement(
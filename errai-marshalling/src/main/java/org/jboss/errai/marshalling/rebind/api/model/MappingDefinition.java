@@ -19,6 +19,7 @@ package org.jboss.errai.marshalling.rebind.api.model;
 import org.jboss.errai.codegen.meta.MetaClass;
 import org.jboss.errai.codegen.meta.impl.java.JavaReflectionClass;
 import org.jboss.errai.marshalling.client.api.Marshaller;
+import org.jboss.errai.marshalling.client.api.annotations.Acyclic;
 import org.jboss.errai.marshalling.rebind.api.model.impl.NoConstructMapping;
 import org.jboss.errai.marshalling.rebind.api.model.impl.SimpleConstructorMapping;
 
@@ -80,6 +81,14 @@ public class MappingDefinition {
     return toMap;
   }
 
+  /**
+   * Returns true if the mapped type is annotated with {@link Acyclic}, in which case its instances are not tracked
+   * for back-references.
+   */
+  public boolean isAcyclic() {
+    return toMap != null && toMap.isAnnotationPresent(Acyclic.class);
+  }
+
   public Class<? extends Marshaller> getClientMarshallerClass() {
     return clientMarshallerClass;
   }
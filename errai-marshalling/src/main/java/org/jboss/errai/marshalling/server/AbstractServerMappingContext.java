@@ -0,0 +1,44 @@
+/*
+ * Copyright 2012 JBoss, by Red Hat, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.marshalling.server;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jboss.errai.marshalling.client.api.Marshaller;
+
+/**
+ * Base class of the runtime mapping contexts on the server. Marshallers looked up by {@link Class} are cached by the
+ * context, so the lookup by name is only done once per type. The cache lives as long as the context, and is discarded
+ * together with it.
+ */
+public abstract class AbstractServerMappingContext implements ServerMappingContext {
+  private final ConcurrentMap<Class<?>, Marshaller<Object>> marshallersByType
+      = new ConcurrentHashMap<Class<?>, Marshaller<Object>>();
+
+  @Override
+  public Marshaller<Object> getMarshaller(final Class<?> type) {
+    Marshaller<Object> marshaller = marshallersByType.get(type);
+    if (marshaller == null) {
+      marshaller = getMarshaller(type.getName());
+      if (marshaller != null) {
+        marshallersByType.putIfAbsent(type, marshaller);
+      }
+    }
+    return marshaller;
+  }
+}
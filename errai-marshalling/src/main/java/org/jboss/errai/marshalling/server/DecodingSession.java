@@ -4,14 +4,13 @@ import java.util.List;
 import java.util.Map;
 
 import org.jboss.errai.common.client.protocols.SerializationParts;
-import org.jboss.errai.marshalling.client.api.AbstractMarshallingSession;
 import org.jboss.errai.marshalling.client.api.json.EJObject;
 import org.jboss.errai.marshalling.client.api.json.EJValue;
 
 /**
  * @author Mike Brock <cbrock@redhat.com>
  */
-public class DecodingSession extends AbstractMarshallingSession {
+public class DecodingSession extends ServerMarshallingSession {
   
   public DecodingSession(final ServerMappingContext context) {
     super(context);
@@ -24,7 +23,7 @@ public class DecodingSession extends AbstractMarshallingSession {
     if (jsonValue.isObject() != null) {
       final EJObject jsonObject = jsonValue.isObject();
       if (jsonObject.containsKey(SerializationParts.ENCODED_TYPE)) {
-        return jsonObject.get(SerializationParts.ENCODED_TYPE).isString().stringValue();
+        return decodeTypeName(jsonObject.get(SerializationParts.ENCODED_TYPE).isString().stringValue());
       }
       else {
         return Map.class.getName();
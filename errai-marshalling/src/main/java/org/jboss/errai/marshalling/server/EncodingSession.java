@@ -19,12 +19,11 @@ package org.jboss.errai.marshalling.server;
 import java.util.Map;
 
 import org.jboss.errai.common.client.protocols.SerializationParts;
-import org.jboss.errai.marshalling.client.api.AbstractMarshallingSession;
 
 /**
  * @author Mike Brock
  */
-public class EncodingSession extends AbstractMarshallingSession {
+public class EncodingSession extends ServerMarshallingSession {
   
   public EncodingSession(final ServerMappingContext context) {
     super(context);
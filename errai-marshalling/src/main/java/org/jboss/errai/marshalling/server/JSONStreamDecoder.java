@@ -17,6 +17,7 @@
 
 package org.jboss.errai.marshalling.server;
 
+import org.jboss.errai.common.client.protocols.SerializationParts;
 import org.jboss.errai.marshalling.client.api.json.EJValue;
 import org.jboss.errai.marshalling.server.json.impl.ErraiJSONValue;
 
@@ -27,9 +28,11 @@ import java.io.InputStreamReader;
 import java.io.UnsupportedEncodingException;
 import java.nio.CharBuffer;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
 /**
  * High-performance stream JSON parser. Provides the decoding algorithm to interpret the Errai Wire Protcol,
@@ -103,7 +106,6 @@ public class JSONStreamDecoder {
 
   private Object _parse(Context ctx) throws IOException {
     char c;
-    StringBuilder appender;
     while ((c = read()) != 0) {
       switch (c) {
         case '[':
@@ -124,29 +126,7 @@ public class JSONStreamDecoder {
 
         case '"':
         case '\'':
-          char term = c;
-          appender = new StringBuilder(100);
-          StrCapture:
-          while ((c = read()) != 0) {
-            switch (c) {
-              case '\\':
-                appender.append(handleEscapeSequence());
-                break;
-              case '"':
-              case '\'':
-                if (c == term) {
-                  ctx.addValue(appender.toString());
-                  term = 0;
-                  break StrCapture;
-                }
-              default:
-                appender.append(c);
-            }
-          }
-
-          if (term != 0) {
-            throw new RuntimeException("unterminated string literal");
-          }
+          ctx.addValue(parseString(c));
           break;
 
         case ':':
@@ -159,34 +139,206 @@ public class JSONStreamDecoder {
             break;
           }
           else if (Character.isJavaIdentifierPart(c)) {
-            appender = new StringBuilder(100).append(c);
+            ctx.addValue(parseLiteral(c));
+          }
+      }
+    }
 
-            while (((c = read()) != 0) && Character.isJavaIdentifierPart(c)) {
-              appender.append(c);
-            }
+    return ctx.record();
+  }
 
-            String s = appender.toString();
+  /**
+   * Parses a string literal, after its opening quote <tt>term</tt> has been read.
+   */
+  private String parseString(char term) throws IOException {
+    final StringBuilder appender = new StringBuilder(100);
+    char c;
+    while ((c = read()) != 0) {
+      switch (c) {
+        case '\\':
+          appender.append(handleEscapeSequence());
+          break;
+        case '"':
+        case '\'':
+          if (c == term) {
+            return appender.toString();
+          }
+        default:
+          appender.append(c);
+      }
+    }
 
-            if (s.length() > 5) ctx.addValue(s);
-            else if ("null".equals(s)) {
-              ctx.addValue(null);
-            }
-            else if ("true".equals(s)) {
-              ctx.addValue(Boolean.TRUE);
-            }
-            else if ("false".equals(s)) {
-              ctx.addValue(Boolean.FALSE);
+    throw new RuntimeException("unterminated string literal");
+  }
+
+  /**
+   * Parses <tt>null</tt>, <tt>true</tt>, <tt>false</tt> or an unquoted string, starting with the already read
+   * character <tt>c</tt>.
+   */
+  private Object parseLiteral(char c) throws IOException {
+    final StringBuilder appender = new StringBuilder(100).append(c);
+
+    while (((c = read()) != 0) && Character.isJavaIdentifierPart(c)) {
+      appender.append(c);
+    }
+
+    if (c != 0) carry = c;
+
+    final String s = appender.toString();
+
+    if (s.length() > 5) return s;
+    else if ("null".equals(s)) {
+      return null;
+    }
+    else if ("true".equals(s)) {
+      return Boolean.TRUE;
+    }
+    else if ("false".equals(s)) {
+      return Boolean.FALSE;
+    }
+    else {
+      return s;
+    }
+  }
+
+  /**
+   * Parses a single complete JSON value, starting with the already read character <tt>c</tt>.
+   */
+  private Object parseValue(final char c) throws IOException {
+    switch (c) {
+      case '[':
+        return _parse(new ArrayContext(new ArrayList<Object>()));
+      case '{':
+        return _parse(new ObjectContext(new LinkedHashMap<Object, Object>()));
+      case '"':
+      case '\'':
+        return parseString(c);
+      default:
+        if (isNumberStart(c)) {
+          carry = c;
+          return parseDouble();
+        }
+        else if (Character.isJavaIdentifierPart(c)) {
+          return parseLiteral(c);
+        }
+        throw new RuntimeException("unexpected character: " + c);
+    }
+  }
+
+  /**
+   * Returns the next character that is not whitespace, or 0 at the end of the stream.
+   */
+  private char nextToken() throws IOException {
+    char c;
+    while ((c = read()) != 0 && Character.isWhitespace(c)) ;
+    return c;
+  }
+
+  /**
+   * Consumes the input up to and including the opening bracket of the top-level array. The array may either be the
+   * top-level value itself, or the <tt>^Value</tt> of an encoded collection.
+   */
+  private void seekArrayStart() throws IOException {
+    char c = nextToken();
+    if (c == '[') {
+      return;
+    }
+
+    if (c == '{') {
+      while ((c = nextToken()) != '}' && c != 0) {
+        if (c == ',') continue;
+        if (c != '"' && c != '\'') {
+          throw new RuntimeException("expected a key but found: " + c);
+        }
+
+        final String key = parseString(c);
+        if (nextToken() != ':') {
+          throw new RuntimeException("expected ':' after key: " + key);
+        }
+
+        c = nextToken();
+        if (SerializationParts.QUALIFIED_VALUE.equals(key)) {
+          if (c != '[') {
+            throw new RuntimeException("expected an array value for: " + key);
+          }
+          return;
+        }
+        parseValue(c);
+      }
+    }
+
+    throw new RuntimeException("expected a JSON array or an encoded collection");
+  }
+
+  /**
+   * Returns an iterator over the elements of the JSON array read from the given stream. Each element is only parsed
+   * when it is requested, so the array as a whole is never held in memory. The array may either be the top-level value
+   * of the payload, or the <tt>^Value</tt> of an encoded collection, in which case any keys following the array are
+   * not read.
+   *
+   * @param instream
+   *          The input stream to read from. It must contain character data encoded as UTF-8.
+   */
+  public static Iterator<EJValue> decodeElements(final InputStream instream) throws IOException {
+    final JSONStreamDecoder decoder = new JSONStreamDecoder(instream);
+    decoder.seekArrayStart();
+    return decoder.new ElementIterator();
+  }
+
+  private class ElementIterator implements Iterator<EJValue> {
+    private boolean first = true;
+    private boolean done;
+    private boolean hasValue;
+    private Object value;
+
+    @Override
+    public boolean hasNext() {
+      if (!hasValue && !done) {
+        try {
+          char c = nextToken();
+          if (!first) {
+            if (c == ',') {
+              c = nextToken();
             }
-            else {
-              ctx.addValue(s);
+            else if (c != ']') {
+              throw new RuntimeException("expected ',' or ']' but found: " + c);
             }
+          }
+          first = false;
 
-            if (c != 0) carry = c;
+          if (c == ']') {
+            done = true;
           }
+          else if (c == 0) {
+            throw new RuntimeException("unterminated array");
+          }
+          else {
+            value = parseValue(c);
+            hasValue = true;
+          }
+        }
+        catch (IOException e) {
+          throw new RuntimeException(e);
+        }
       }
+      return hasValue;
     }
 
-    return ctx.record();
+    @Override
+    public EJValue next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      hasValue = false;
+      final EJValue next = new ErraiJSONValue(value);
+      value = null;
+      return next;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
   }
 
   private char handleEscapeSequence() throws IOException {
@@ -29,7 +29,7 @@ import org.jboss.errai.marshalling.client.api.annotations.AlwaysQualify;
 import org.jboss.errai.marshalling.client.api.exceptions.MarshallingException;
 import org.jboss.errai.marshalling.client.api.json.EJValue;
 import org.jboss.errai.marshalling.client.marshallers.QualifyingMarshallerWrapper;
-import org.jboss.errai.marshalling.client.protocols.MarshallingSessionProvider;
+import org.jboss.errai.marshalling.client.protocols.RecyclingMarshallingSessionProvider;
 import org.jboss.errai.marshalling.client.util.EncDecUtil;
 import org.jboss.errai.marshalling.rebind.DefinitionsFactory;
 import org.jboss.errai.marshalling.rebind.DefinitionsFactorySingleton;
@@ -97,17 +97,24 @@ public class MappingContextSingleton {
     final Object o = cls.newInstance();
     final MarshallerFactory marshallerFactory = (MarshallerFactory) o;
 
-    return new ServerMappingContext() {
+    return new AbstractServerMappingContext() {
       {
-        MarshallingSessionProviderFactory.setMarshallingSessionProvider(new MarshallingSessionProvider() {
+        MarshallingSessionProviderFactory.setMarshallingSessionProvider(new RecyclingMarshallingSessionProvider() {
+          private final SessionPool sessionPool = new SessionPool();
+
           @Override
           public MarshallingSession getEncoding() {
-            return new EncodingSession(get());
+            return sessionPool.getEncoding();
           }
 
           @Override
           public MarshallingSession getDecoding() {
-            return new DecodingSession(get());
+            return sessionPool.getDecoding();
+          }
+
+          @Override
+          public void release(final MarshallingSession session) {
+            sessionPool.release(session);
           }
 
           @Override
@@ -172,19 +179,26 @@ public class MappingContextSingleton {
   public static ServerMappingContext loadDynamicMarshallers() {
     dynamicMarshallingWarning();
 
-    return new ServerMappingContext() {
+    return new AbstractServerMappingContext() {
       private final DefinitionsFactory factory = DefinitionsFactorySingleton.newInstance();
 
       {
-        MarshallingSessionProviderFactory.setMarshallingSessionProvider(new MarshallingSessionProvider() {
+        MarshallingSessionProviderFactory.setMarshallingSessionProvider(new RecyclingMarshallingSessionProvider() {
+          private final SessionPool sessionPool = new SessionPool();
+
           @Override
           public MarshallingSession getEncoding() {
-            return new EncodingSession(get());
+            return sessionPool.getEncoding();
           }
 
           @Override
           public MarshallingSession getDecoding() {
-            return new DecodingSession(get());
+            return sessionPool.getDecoding();
+          }
+
+          @Override
+          public void release(final MarshallingSession session) {
+            sessionPool.release(session);
           }
 
           @Override
@@ -17,6 +17,7 @@
 package org.jboss.errai.marshalling.server;
 
 import org.jboss.errai.marshalling.client.api.MappingContext;
+import org.jboss.errai.marshalling.client.api.Marshaller;
 import org.jboss.errai.marshalling.rebind.DefinitionsFactory;
 
 /**
@@ -24,4 +25,10 @@ import org.jboss.errai.marshalling.rebind.DefinitionsFactory;
  */
 public interface ServerMappingContext extends MappingContext {
   public DefinitionsFactory getDefinitionsFactory();
+
+  /**
+   * Returns the marshaller for the specified type, or null if the context has none. Unlike
+   * {@link #getMarshaller(String)}, this lookup may be cached for the lifetime of the context.
+   */
+  public Marshaller<Object> getMarshaller(Class<?> type);
 }
@@ -16,12 +16,28 @@
 
 package org.jboss.errai.marshalling.server;
 
+import org.jboss.errai.common.client.protocols.SerializationParts;
 import org.jboss.errai.marshalling.client.Marshalling;
 import org.jboss.errai.marshalling.client.MarshallingSessionProviderFactory;
+import org.jboss.errai.marshalling.client.api.Marshaller;
 import org.jboss.errai.marshalling.client.api.MarshallingSession;
+import org.jboss.errai.marshalling.client.api.json.EJObject;
+import org.jboss.errai.marshalling.client.api.json.EJValue;
+import org.jboss.errai.marshalling.client.util.MarshallUtil;
+import org.jboss.errai.marshalling.client.util.NumbersUtils;
+import org.jboss.errai.marshalling.server.api.ServerMarshaller;
+import org.jboss.errai.marshalling.server.util.CloseableIterator;
+import org.jboss.errai.marshalling.server.util.ServerMarshallUtil;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 /**
  * @author Mike Brock
@@ -30,10 +46,207 @@ public abstract class ServerMarshalling extends Marshalling {
   @SuppressWarnings("unchecked")
   public static <T> T fromJSON(final InputStream inputStream, final Class<T> type) throws IOException {
     final MarshallingSession session = MarshallingSessionProviderFactory.getDecoding();
-    return (T) session.getMarshallerInstance(type.getName()).demarshall(JSONStreamDecoder.decode(inputStream), session);
+    try {
+      return (T) session.getMarshallerInstance(type.getName()).demarshall(JSONStreamDecoder.decode(inputStream), session);
+    }
+    finally {
+      MarshallingSessionProviderFactory.release(session);
+    }
   }
 
   public static Object fromJSON(final InputStream inputStream) throws IOException {
     return fromJSON(inputStream, Object.class);
   }
+
+  /**
+   * Writes the JSON representation of the given object to the given stream, encoded as UTF-8. Objects marshalled by a
+   * {@link ServerMarshaller} are written to the stream member by member, rather than being built up as one string
+   * first. The output of all other marshallers, including that of the members of such objects, is encoded through a
+   * bounded buffer, so it is never copied into one byte array. The stream is neither flushed nor closed, and should be
+   * buffered by the caller.
+   *
+   * @param outputStream
+   *          the stream to write to.
+   * @param obj
+   *          the object to marshall. Null is permitted.
+   */
+  @SuppressWarnings("unchecked")
+  public static void toJSON(final OutputStream outputStream, final Object obj) throws IOException {
+    if (obj == null || needsQualification(obj)) {
+      ServerMarshallUtil.writeUTF8(outputStream, toJSON(obj));
+      return;
+    }
+
+    final MarshallingSession session = MarshallingSessionProviderFactory.getEncoding();
+    try {
+      final Marshaller<Object> marshaller = MarshallUtil.getMarshaller(obj, session);
+      if (marshaller instanceof ServerMarshaller) {
+        ((ServerMarshaller<Object>) marshaller).marshall(outputStream, obj, session);
+      }
+      else {
+        ServerMarshallUtil.writeUTF8(outputStream, marshaller.marshall(obj, session));
+      }
+    }
+    finally {
+      MarshallingSessionProviderFactory.release(session);
+    }
+  }
+
+  /**
+   * Demarshalls the elements of the JSON array read from the given stream one at a time, as they are requested from the
+   * returned iterator. The payload may either be a plain JSON array or an encoded collection, as produced by
+   * {@link #toJSON(Object)} or {@link #toJSONElements(OutputStream, Iterable)}.
+   * <p>
+   * All elements are decoded within one session, so back-references between elements are resolved. This also means
+   * the session keeps every tracked element until the iteration is complete. To keep memory use flat when decoding
+   * very large arrays, the element type should be annotated with
+   * {@link org.jboss.errai.marshalling.client.api.annotations.Acyclic}.
+   * <p>
+   * The session is obtained when the first element is requested, and released once the last element has been read,
+   * when an element fails to demarshall, or when the returned iterator is closed. Callers that stop iterating early
+   * should close it. Closing the iterator does not close the stream.
+   *
+   * @param inputStream
+   *          the stream to read the UTF-8 encoded payload from.
+   * @param elementType
+   *          the type of the elements. Elements without type information in the payload, such as bare numbers, are
+   *          decoded as this type.
+   */
+  public static <T> CloseableIterator<T> fromJSONElements(final InputStream inputStream, final Class<T> elementType)
+      throws IOException {
+    final Iterator<EJValue> elements = JSONStreamDecoder.decodeElements(inputStream);
+    final String assumedType = Object.class.equals(elementType) ? null : elementType.getName();
+    final boolean bareElements = assumedType != null && NumbersUtils.isBareValueType(assumedType);
+
+    return new CloseableIterator<T>() {
+      private MarshallingSession session;
+      private boolean closed;
+
+      @Override
+      public boolean hasNext() {
+        if (closed) {
+          return false;
+        }
+
+        boolean hasNext = false;
+        try {
+          hasNext = elements.hasNext();
+        }
+        finally {
+          if (!hasNext) {
+            close();
+          }
+        }
+        return hasNext;
+      }
+
+      @Override
+      public T next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+
+        boolean demarshalled = false;
+        try {
+          final T value = demarshall(elements.next());
+          demarshalled = true;
+          return value;
+        }
+        finally {
+          if (!demarshalled) {
+            close();
+          }
+        }
+      }
+
+      @SuppressWarnings("unchecked")
+      private T demarshall(final EJValue elem) {
+        if (elem.isNull()) {
+          return null;
+        }
+
+        String type = null;
+        final EJObject jsonObject = elem.isObject();
+        if (jsonObject != null) {
+          if (!jsonObject.containsKey(SerializationParts.ENCODED_TYPE)) {
+            type = assumedType;
+          }
+        }
+        else if (bareElements) {
+          return (T) NumbersUtils.getNumber(assumedType, elem);
+        }
+
+        if (session == null) {
+          session = MarshallingSessionProviderFactory.getDecoding();
+        }
+        if (type == null) {
+          type = session.determineTypeFor(null, elem);
+        }
+        return (T) session.getMarshallerInstance(type).demarshall(elem, session);
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public void close() {
+        closed = true;
+        if (session != null) {
+          MarshallingSessionProviderFactory.release(session);
+          session = null;
+        }
+      }
+    };
+  }
+
+  /**
+   * Marshalls the given elements as an encoded collection, writing each element to the given stream as soon as it has
+   * been marshalled, so the JSON representation of all elements is never held in memory. The payload can be read with
+   * {@link #fromJSON(InputStream, Class)} or, element by element, with {@link #fromJSONElements(InputStream, Class)}.
+   * Elements which are not collections are decoded as a {@link java.util.List}.
+   *
+   * @param outputStream
+   *          the stream to write the UTF-8 encoded payload to. It is flushed, but not closed.
+   * @param elements
+   *          the elements to marshall.
+   */
+  public static void toJSONElements(final OutputStream outputStream, final Iterable<?> elements) throws IOException {
+    final Writer writer = new OutputStreamWriter(outputStream, "UTF-8");
+    final MarshallingSession session = MarshallingSessionProviderFactory.getEncoding();
+    try {
+      final String encodedType = elements instanceof Collection
+          && session.getMappingContext().hasMarshaller(elements.getClass().getName())
+          ? elements.getClass().getName() : ArrayList.class.getName();
+
+      writer.write("{\"" + SerializationParts.ENCODED_TYPE + "\":\"" + encodedType + "\",\""
+          + SerializationParts.OBJECT_ID + "\":\"" + session.getObject(elements) + "\",\""
+          + SerializationParts.QUALIFIED_VALUE + "\":[");
+
+      boolean first = true;
+      for (final Object elem : elements) {
+        if (!first) {
+          writer.write(',');
+        }
+        first = false;
+
+        if (elem == null) {
+          writer.write("null");
+        }
+        else if (needsQualification(elem)) {
+          writer.write(NumbersUtils.qualifiedNumericEncoding(elem));
+        }
+        else {
+          writer.write(MarshallUtil.getMarshaller(elem, session).marshall(elem, session));
+        }
+      }
+
+      writer.write("]}");
+      writer.flush();
+    }
+    finally {
+      MarshallingSessionProviderFactory.release(session);
+    }
+  }
 }
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2012 JBoss, by Red Hat, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.marshalling.server;
+
+import org.jboss.errai.marshalling.client.api.AbstractMarshallingSession;
+import org.jboss.errai.marshalling.client.api.Marshaller;
+
+/**
+ * Base class of the server-side marshalling sessions. Marshallers looked up by {@link Class} are taken from the
+ * {@link ServerMappingContext}, which caches them, so the lookup by name is only done once per type rather than once
+ * per marshalled value.
+ */
+public abstract class ServerMarshallingSession extends AbstractMarshallingSession {
+  private final ServerMappingContext context;
+
+  protected ServerMarshallingSession(final ServerMappingContext context) {
+    super(context);
+    this.context = context;
+  }
+
+  @Override
+  public Marshaller<Object> getMarshallerInstance(final Class<?> type) {
+    final Marshaller<Object> marshaller = context.getMarshaller(type);
+    if (marshaller == null) {
+      return getMarshallerInstance(type.getName());
+    }
+    return marshaller;
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2012 JBoss, by Red Hat, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.marshalling.server;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+
+import org.jboss.errai.marshalling.client.api.MarshallingSession;
+
+/**
+ * Recycles marshalling sessions on the server so that marshalling a message does not allocate a new session and new
+ * back-reference tables. A session handed out by {@link #getEncoding()} or {@link #getDecoding()} is leased until it
+ * is passed to {@link #release(MarshallingSession)}. A leased session is never handed out again, so nested
+ * marshalling simply gets another session. Releasing a session that was not leased from this pool, or releasing it
+ * twice, has no effect. Callers that hold on to a session and never release it are unaffected.
+ * <p>
+ * The idle sessions are kept by the pool instance rather than by the threads that used them, so they are discarded
+ * together with the mapping context that owns the pool, e.g. when an application is redeployed. At most
+ * {@link #MAX_IDLE_SESSIONS} idle sessions of each kind are kept.
+ * <p>
+ * Recycling can be turned off with the system property <tt>errai.marshalling.recycle_sessions=false</tt>, in which
+ * case a new session is created for every call.
+ */
+public final class SessionPool {
+  private static final boolean RECYCLE_SESSIONS
+      = !"false".equalsIgnoreCase(System.getProperty("errai.marshalling.recycle_sessions"));
+
+  static final int MAX_IDLE_SESSIONS = Math.max(8, Runtime.getRuntime().availableProcessors() * 2);
+
+  private final BlockingDeque<EncodingSession> idleEncoding = new LinkedBlockingDeque<EncodingSession>(MAX_IDLE_SESSIONS);
+  private final BlockingDeque<DecodingSession> idleDecoding = new LinkedBlockingDeque<DecodingSession>(MAX_IDLE_SESSIONS);
+
+  /**
+   * The sessions that are currently leased. Sessions that are never released are dropped from the map once they are
+   * no longer referenced.
+   */
+  private final Map<MarshallingSession, Boolean> leased
+      = Collections.synchronizedMap(new WeakHashMap<MarshallingSession, Boolean>());
+
+  public MarshallingSession getEncoding() {
+    if (!RECYCLE_SESSIONS) {
+      return new EncodingSession(MappingContextSingleton.get());
+    }
+
+    EncodingSession session = idleEncoding.pollFirst();
+    if (session == null) {
+      session = new EncodingSession(MappingContextSingleton.get());
+    }
+    leased.put(session, Boolean.TRUE);
+    return session;
+  }
+
+  public MarshallingSession getDecoding() {
+    if (!RECYCLE_SESSIONS) {
+      return new DecodingSession(MappingContextSingleton.get());
+    }
+
+    DecodingSession session = idleDecoding.pollFirst();
+    if (session == null) {
+      session = new DecodingSession(MappingContextSingleton.get());
+    }
+    leased.put(session, Boolean.TRUE);
+    return session;
+  }
+
+  /**
+   * Returns the specified session to the pool. The session must not be used by the caller afterwards. Sessions that
+   * are not currently leased from this pool are ignored.
+   */
+  public void release(final MarshallingSession session) {
+    if (!RECYCLE_SESSIONS || session == null || leased.remove(session) == null) return;
+
+    if (session instanceof EncodingSession) {
+      final EncodingSession encodingSession = (EncodingSession) session;
+      encodingSession.reset();
+      idleEncoding.offerFirst(encodingSession);
+    }
+    else if (session instanceof DecodingSession) {
+      final DecodingSession decodingSession = (DecodingSession) session;
+      decodingSession.reset();
+      idleDecoding.offerFirst(decodingSession);
+    }
+  }
+}
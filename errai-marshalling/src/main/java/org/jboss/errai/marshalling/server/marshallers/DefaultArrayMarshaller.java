@@ -24,6 +24,7 @@ import org.jboss.errai.marshalling.client.api.Marshaller;
 import org.jboss.errai.marshalling.client.api.MarshallingSession;
 import org.jboss.errai.marshalling.client.api.json.EJArray;
 import org.jboss.errai.marshalling.client.api.json.EJValue;
+import org.jboss.errai.marshalling.client.util.PrimitiveArrayUtil;
 
 /**
  * @author Mike Brock
@@ -31,22 +32,12 @@ import org.jboss.errai.marshalling.client.api.json.EJValue;
 public class DefaultArrayMarshaller implements Marshaller<Object> {
   private final MetaClass arrayType;
   private final Marshaller<Object> outerMarshaller;
-  private final int dimensions;
 
   public DefaultArrayMarshaller(final MetaClass arrayType, final Marshaller<Object> outerMarshaller) {
     this.arrayType = Assert.notNull(arrayType);
     this.outerMarshaller = Assert.notNull("no outer marshaller specified for: " +
             arrayType.getOuterComponentType().getFullyQualifiedName(),
             outerMarshaller);
-
-    Class<?> type = arrayType.asClass();
-    int dim = 0;
-    while (type.isArray()) {
-      dim++;
-      type = type.getComponentType();
-    }
-
-    this.dimensions = dim;
   }
 
   @SuppressWarnings("unchecked")
@@ -59,14 +50,7 @@ public class DefaultArrayMarshaller implements Marshaller<Object> {
       return null;
     }
     else {
-      final EJArray arr = a0.isArray();
-
-      final int[] dims = new int[dimensions];
-      dims[0] = arr.size();
-
-      final Object arrayInstance = Array.newInstance(arrayType.getOuterComponentType().asClass(), dims);
-      _demarshall(dimensions - 1, arrayInstance, arr, a1);
-      return arrayInstance;
+      return _demarshall(arrayType.asClass(), a0.isArray(), a1);
     }
   }
 
@@ -80,24 +64,34 @@ public class DefaultArrayMarshaller implements Marshaller<Object> {
     }
   }
 
-  private Object _demarshall(final int dim, final Object arrayInstance, final EJArray a0, final MarshallingSession a1) {
-    if (dim == 0) {
+  private Object _demarshall(final Class<?> arrayClass, final EJArray a0, final MarshallingSession a1) {
+    final Class<?> componentType = arrayClass.getComponentType();
+    if (componentType.isPrimitive()) {
+      return demarshallPrimitiveArray(componentType, a0);
+    }
+
+    final Object arrayInstance = Array.newInstance(componentType, a0.size());
+    if (componentType.isArray()) {
       for (int i = 0; i < a0.size(); i++) {
-        Array.set(arrayInstance, i, outerMarshaller.demarshall(a0.get(i), a1));
+        final EJValue element = a0.get(i);
+        if (!element.isNull()) {
+          Array.set(arrayInstance, i, _demarshall(componentType, element.isArray(), a1));
+        }
       }
     }
     else {
       for (int i = 0; i < a0.size(); i++) {
-        Array.set(arrayInstance, i, _demarshall(dim - 1,
-                Array.newInstance(arrayType.getOuterComponentType().asClass(), a0.get(i).isArray().size()),
-                a0.get(i).isArray(),
-                a1));
+        Array.set(arrayInstance, i, outerMarshaller.demarshall(a0.get(i), a1));
       }
     }
     return arrayInstance;
   }
 
   private String _marshall(final Object a0, final MarshallingSession a1) {
+    if (a0.getClass().getComponentType().isPrimitive()) {
+      return marshallPrimitiveArray(a0);
+    }
+
     final StringBuilder builder = new StringBuilder("[");
 
     final int length = Array.getLength(a0);
@@ -121,6 +115,60 @@ public class DefaultArrayMarshaller implements Marshaller<Object> {
     return builder.append(']').toString();
   }
 
+  private static String marshallPrimitiveArray(final Object a0) {
+    if (a0 instanceof int[]) {
+      return PrimitiveArrayUtil.marshall((int[]) a0);
+    }
+    else if (a0 instanceof long[]) {
+      return PrimitiveArrayUtil.marshall((long[]) a0);
+    }
+    else if (a0 instanceof double[]) {
+      return PrimitiveArrayUtil.marshall((double[]) a0);
+    }
+    else if (a0 instanceof float[]) {
+      return PrimitiveArrayUtil.marshall((float[]) a0);
+    }
+    else if (a0 instanceof short[]) {
+      return PrimitiveArrayUtil.marshall((short[]) a0);
+    }
+    else if (a0 instanceof byte[]) {
+      return PrimitiveArrayUtil.marshall((byte[]) a0);
+    }
+    else if (a0 instanceof boolean[]) {
+      return PrimitiveArrayUtil.marshall((boolean[]) a0);
+    }
+    else {
+      return PrimitiveArrayUtil.marshall((char[]) a0);
+    }
+  }
+
+  private static Object demarshallPrimitiveArray(final Class<?> componentType, final EJArray a0) {
+    if (componentType == int.class) {
+      return PrimitiveArrayUtil.toIntArray(a0);
+    }
+    else if (componentType == long.class) {
+      return PrimitiveArrayUtil.toLongArray(a0);
+    }
+    else if (componentType == double.class) {
+      return PrimitiveArrayUtil.toDoubleArray(a0);
+    }
+    else if (componentType == float.class) {
+      return PrimitiveArrayUtil.toFloatArray(a0);
+    }
+    else if (componentType == short.class) {
+      return PrimitiveArrayUtil.toShortArray(a0);
+    }
+    else if (componentType == byte.class) {
+      return PrimitiveArrayUtil.toByteArray(a0);
+    }
+    else if (componentType == boolean.class) {
+      return PrimitiveArrayUtil.toBooleanArray(a0);
+    }
+    else {
+      return PrimitiveArrayUtil.toCharArray(a0);
+    }
+  }
+
   @Override
   public Object[] getEmptyArray() {
     return (Object[]) Array.newInstance(arrayType.getOuterComponentType().asClass(), 0);
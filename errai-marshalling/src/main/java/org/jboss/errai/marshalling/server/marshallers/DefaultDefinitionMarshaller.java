@@ -45,6 +45,7 @@ import org.jboss.errai.marshalling.rebind.api.model.MemberMapping;
 import org.jboss.errai.marshalling.server.EncodingSession;
 import org.jboss.errai.marshalling.server.MappingContextSingleton;
 import org.jboss.errai.marshalling.server.api.ServerMarshaller;
+import org.jboss.errai.marshalling.server.util.ServerMarshallUtil;
 import org.mvel2.DataConversion;
 
 /**
@@ -54,9 +55,22 @@ public class DefaultDefinitionMarshaller implements ServerMarshaller<Object> {
   static final Charset UTF_8 = Charset.forName("UTF-8");
 
   private final MappingDefinition definition;
+  private final boolean acyclic;
+
+  /**
+   * Marshallers of the instantiation, writable and readable member mappings of the definition, indexed like the
+   * respective mappings. Each array is resolved in full on first use, since the definition may still be amended after
+   * this marshaller is created, and is only published once it is filled. This way the lookup by type is done once per
+   * member rather than once per marshalled value. A member whose marshaller could not be resolved has a null entry and
+   * is looked up again when it is used.
+   */
+  private volatile Marshaller<Object>[] _instantiationMarshallersCache;
+  private volatile Marshaller<Object>[] _writableMarshallersCache;
+  private volatile Marshaller<Object>[] _readableMarshallersCache;
 
   public DefaultDefinitionMarshaller(final MappingDefinition definition) {
     this.definition = definition;
+    this.acyclic = definition.isAcyclic();
   }
 
   public static void setProperty(final Object i, final Field f, final Object v) {
@@ -99,9 +113,10 @@ public class DefaultDefinitionMarshaller implements ServerMarshaller<Object> {
             newInstance = ctx.getObject(Object.class, objID);
 
             /**
-             * If this only contains 2 fields, it is only a graph reference.
+             * If this only contains the object id and the type, if the type is not implied, it is only a graph
+             * reference.
              */
-            if (oMap.size() == 2) {
+            if (oMap.size() == (oMap.containsKey(SerializationParts.ENCODED_TYPE) ? 2 : 1)) {
               return newInstance;
             }
           }
@@ -118,13 +133,15 @@ public class DefaultDefinitionMarshaller implements ServerMarshaller<Object> {
             final InstantiationMapping cMapping = definition.getInstantiationMapping();
             final Object[] parms = new Object[cMapping.getMappings().length];
             final Class[] targetTypes = cMapping.getSignature();
+            final Marshaller<Object>[] instantiationMarshallers = getInstantiationMarshallers(ctx);
 
             int i = 0;
             for (final Mapping mapping : cMapping.getMappings()) {
-              final Marshaller<Object> marshaller = ctx.getMarshallerInstance(mapping.getType().getFullyQualifiedName());
+              final Marshaller<Object> marshaller = getMarshaller(instantiationMarshallers, i, mapping, ctx);
               //noinspection unchecked
               parms[i] = DataConversion.convert(
-                      marshaller.demarshall(oMap.get(mapping.getKey()), ctx), targetTypes[i++]);
+                      marshaller.demarshall(oMap.get(MarshallUtil.encodePropertyKey(ctx, mapping.getKey())), ctx),
+                      targetTypes[i++]);
             }
 
             if (cMapping instanceof ConstructorMapping) {
@@ -139,12 +156,13 @@ public class DefaultDefinitionMarshaller implements ServerMarshaller<Object> {
             ctx.recordObject(objID, newInstance);
           }
 
+          final Marshaller<Object>[] writableMarshallers = getWritableMarshallers(ctx);
+          int index = 0;
           for (final MemberMapping mapping : definition.getWritableMemberMappings()) {
-            final EJValue o1 = oMap.get(mapping.getKey());
+            final EJValue o1 = oMap.get(MarshallUtil.encodePropertyKey(ctx, mapping.getKey()));
 
             if (!o1.isNull()) {
-              final Marshaller<Object> marshaller
-                      = ctx.getMarshallerInstance(mapping.getType().getFullyQualifiedName());
+              final Marshaller<Object> marshaller = getMarshaller(writableMarshallers, index, mapping, ctx);
 
               if (mapping.getBindingMember() instanceof MetaField) {
                 final MetaField f = (MetaField) mapping.getBindingMember();
@@ -160,12 +178,13 @@ public class DefaultDefinitionMarshaller implements ServerMarshaller<Object> {
                         m.getParameterTypes()[0]));
               }
             }
+            index++;
           }
 
           return newInstance;
         }
         else if (oMap.containsKey(SerializationParts.ENUM_STRING_VALUE)) {
-          return Enum.valueOf(getClassReference(oMap),
+          return Enum.valueOf(getClassReference(oMap, ctx),
                   oMap.get(SerializationParts.ENUM_STRING_VALUE).isString().stringValue());
         }
         else {
@@ -186,7 +205,7 @@ public class DefaultDefinitionMarshaller implements ServerMarshaller<Object> {
     final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(1024);
     try {
       marshall(byteArrayOutputStream, o, ctx);
-      return new String(byteArrayOutputStream.toByteArray());
+      return new String(byteArrayOutputStream.toByteArray(), UTF_8);
     }
     catch (Exception e) {
       throw new RuntimeException(e);
@@ -194,6 +213,7 @@ public class DefaultDefinitionMarshaller implements ServerMarshaller<Object> {
   }
 
 
+  @SuppressWarnings("unchecked")
   @Override
   public void marshall(final OutputStream outstream, final Object o, final MarshallingSession mSession) throws IOException {
 
@@ -208,33 +228,34 @@ public class DefaultDefinitionMarshaller implements ServerMarshaller<Object> {
     if (definition.getMappingClass().isEnum()) {
       final Enum enumer = (Enum) o;
 
-      outstream.write(("{\"" + SerializationParts.ENCODED_TYPE + "\":\""
-              + enumer.getDeclaringClass().getName() + "\""
-              + ",\"" + SerializationParts.ENUM_STRING_VALUE + "\":\"" + enumer.name() + "\"}")
+      outstream.write(("{" + MarshallUtil.encodedTypeMember(ctx, o, enumer.getDeclaringClass().getName())
+              + "\"" + SerializationParts.ENUM_STRING_VALUE + "\":\"" + enumer.name() + "\"}")
               .getBytes(UTF_8));
 
       return;
     }
 
-    final boolean enc = ctx.hasObject(o);
-    final String hash = ctx.getObject(o);
+    // instances of acyclic types are never tracked, so they can never be back-referenced either.
+    final boolean enc = !acyclic && ctx.hasObject(o);
+    final String hash = acyclic ? "-1" : ctx.getObject(o);
 
     if (enc) {
       /**
        * If this object is referencing a duplicate object in the graph, we only provide an ID reference.
        */
 
-      outstream.write(("{\"" + SerializationParts.ENCODED_TYPE + "\":\"" + cls.getName()
-              + "\",\"" + SerializationParts.OBJECT_ID + "\":\"" + hash + "\"}").getBytes(UTF_8));
+      outstream.write(("{" + MarshallUtil.encodedTypeMember(ctx, o, cls.getName())
+              + "\"" + SerializationParts.OBJECT_ID + "\":\"" + hash + "\"}").getBytes(UTF_8));
 
       return;
     }
 
+    final Marshaller<Object>[] readableMarshallers = getReadableMarshallers();
     int i = 0;
     boolean first = true;
 
-    outstream.write(("{\"" + SerializationParts.ENCODED_TYPE + "\":\"" + cls.getName() + "\",\""
-            + SerializationParts.OBJECT_ID + "\":\"" + hash + "\",").getBytes(UTF_8));
+    outstream.write(("{" + MarshallUtil.encodedTypeMember(ctx, o, cls.getName())
+            + "\"" + SerializationParts.OBJECT_ID + "\":\"" + hash + "\",").getBytes(UTF_8));
 
     for (final MemberMapping mapping : definition.getReadableMemberMappings()) {
       if (!first) {
@@ -267,35 +288,24 @@ public class DefaultDefinitionMarshaller implements ServerMarshaller<Object> {
         }
       }
 
-      outstream.write(("\"" + mapping.getKey() + "\"").getBytes(UTF_8));
+      outstream.write(("\"" + ctx.encodePropertyKey(mapping.getKey()) + "\"").getBytes(UTF_8));
       outstream.write(':');
 
       if (v == null) {
         outstream.write("null".getBytes(UTF_8));
       }
       else {
-        final DefinitionsFactory definitionsFactory = MappingContextSingleton.get().getDefinitionsFactory();
-
-        if (definitionsFactory == null) {
-          throw new RuntimeException("definition factory is null!");
+        Marshaller<Object> marshaller = readableMarshallers[i - 1];
+        if (marshaller == null) {
+          marshaller = getReadableMarshaller(mapping);
         }
 
-        final MappingDefinition definition1 = definitionsFactory.getDefinition(mapping.getType());
-
-        if (definition1 == null) {
-          throw new RuntimeException("no mapping definition for: " + mapping.getType().getFullyQualifiedName());
+        if (marshaller instanceof ServerMarshaller) {
+          ((ServerMarshaller<Object>) marshaller).marshall(outstream, v, ctx);
         }
-
-        final Marshaller<Object> marshallerInstance = definition1.getMarshallerInstance();
-
-        if (marshallerInstance == null) {
-          throw new RuntimeException("no marshaller instance for: " + mapping.getType().getFullyQualifiedName());
+        else {
+          ServerMarshallUtil.writeUTF8(outstream, marshaller.marshall(v, ctx));
         }
-
-        outstream.write(
-                marshallerInstance.marshall(v, ctx)
-                        .getBytes(UTF_8)
-        );
       }
 
       first = false;
@@ -308,10 +318,92 @@ public class DefaultDefinitionMarshaller implements ServerMarshaller<Object> {
     outstream.write('}');
   }
 
+  @SuppressWarnings("unchecked")
+  private Marshaller<Object>[] getInstantiationMarshallers(final MarshallingSession ctx) {
+    Marshaller<Object>[] marshallers = _instantiationMarshallersCache;
+    if (marshallers == null) {
+      final Mapping[] mappings = definition.getInstantiationMapping().getMappings();
+      marshallers = new Marshaller[mappings.length];
+      for (int i = 0; i < mappings.length; i++) {
+        marshallers[i] = ctx.getMarshallerInstance(mappings[i].getType().getFullyQualifiedName());
+      }
+      _instantiationMarshallersCache = marshallers;
+    }
+    return marshallers;
+  }
+
+  @SuppressWarnings("unchecked")
+  private Marshaller<Object>[] getWritableMarshallers(final MarshallingSession ctx) {
+    Marshaller<Object>[] marshallers = _writableMarshallersCache;
+    if (marshallers == null) {
+      marshallers = new Marshaller[definition.getWritableMemberMappings().size()];
+      int i = 0;
+      for (final MemberMapping mapping : definition.getWritableMemberMappings()) {
+        marshallers[i++] = ctx.getMarshallerInstance(mapping.getType().getFullyQualifiedName());
+      }
+      _writableMarshallersCache = marshallers;
+    }
+    return marshallers;
+  }
+
+  @SuppressWarnings("unchecked")
+  private Marshaller<Object>[] getReadableMarshallers() {
+    Marshaller<Object>[] marshallers = _readableMarshallersCache;
+    if (marshallers == null) {
+      marshallers = new Marshaller[definition.getReadableMemberMappings().size()];
+      final DefinitionsFactory definitionsFactory = MappingContextSingleton.get().getDefinitionsFactory();
+      if (definitionsFactory != null) {
+        int i = 0;
+        for (final MemberMapping mapping : definition.getReadableMemberMappings()) {
+          final MappingDefinition memberDefinition = definitionsFactory.getDefinition(mapping.getType());
+          marshallers[i++] = memberDefinition == null ? null : memberDefinition.getMarshallerInstance();
+        }
+      }
+      _readableMarshallersCache = marshallers;
+    }
+    return marshallers;
+  }
+
+  private static Marshaller<Object> getMarshaller(final Marshaller<Object>[] marshallers, final int index,
+                                                  final Mapping mapping, final MarshallingSession ctx) {
+    final Marshaller<Object> marshaller = marshallers[index];
+    if (marshaller == null) {
+      return ctx.getMarshallerInstance(mapping.getType().getFullyQualifiedName());
+    }
+    return marshaller;
+  }
+
+  private static Marshaller<Object> getReadableMarshaller(final MemberMapping mapping) {
+    final DefinitionsFactory definitionsFactory = MappingContextSingleton.get().getDefinitionsFactory();
+
+    if (definitionsFactory == null) {
+      throw new RuntimeException("definition factory is null!");
+    }
+
+    final MappingDefinition definition1 = definitionsFactory.getDefinition(mapping.getType());
+
+    if (definition1 == null) {
+      throw new RuntimeException("no mapping definition for: " + mapping.getType().getFullyQualifiedName());
+    }
+
+    final Marshaller<Object> marshaller = definition1.getMarshallerInstance();
+
+    if (marshaller == null) {
+      throw new RuntimeException("no marshaller instance for: " + mapping.getType().getFullyQualifiedName());
+    }
+
+    return marshaller;
+  }
+
   public static Class getClassReference(final EJObject oMap) {
+    return getClassReference(oMap, null);
+  }
+
+  public static Class getClassReference(final EJObject oMap, final MarshallingSession ctx) {
     try {
       return Thread.currentThread().getContextClassLoader()
-              .loadClass(oMap.get(SerializationParts.ENCODED_TYPE).isString().stringValue());
+              .loadClass(MarshallUtil.decodeTypeName(ctx,
+                      oMap.get(SerializationParts.ENCODED_TYPE).isString().stringValue()));
     }
     catch (ClassNotFoundException e) {
       throw new RuntimeException("could not instantiate class", e);
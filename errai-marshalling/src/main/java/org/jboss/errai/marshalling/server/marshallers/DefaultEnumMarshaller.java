@@ -22,6 +22,7 @@ import org.jboss.errai.common.client.protocols.SerializationParts;
 import org.jboss.errai.marshalling.client.api.Marshaller;
 import org.jboss.errai.marshalling.client.api.MarshallingSession;
 import org.jboss.errai.marshalling.client.api.json.EJValue;
+import org.jboss.errai.marshalling.client.util.MarshallUtil;
 
 /**
  * @author Mike Brock
@@ -57,13 +58,12 @@ public class DefaultEnumMarshaller implements Marshaller<Enum> {
     }
 
     if (a1.hasObject(a0)) {
-      return new StringBuilder().append("{\"" + SerializationParts.ENCODED_TYPE + "\":\"" + enumType.getName()
-              + "\",\"" + SerializationParts.OBJECT_ID + "\":\"").append(a1.getObject(a0)).append("\"}").toString();
+      return new StringBuilder().append("{").append(MarshallUtil.encodedTypeMember(a1, a0, enumType.getName()))
+              .append("\"" + SerializationParts.OBJECT_ID + "\":\"").append(a1.getObject(a0)).append("\"}").toString();
     }
 
-    return new StringBuilder().append("{\"" + SerializationParts.ENCODED_TYPE + "\":\"" + enumType.getName()
-            + "\","
-            + "\"" + SerializationParts.OBJECT_ID + "\":\"" + a1.getObject(a0) + "\""
+    return new StringBuilder().append("{").append(MarshallUtil.encodedTypeMember(a1, a0, enumType.getName()))
+            .append("\"" + SerializationParts.OBJECT_ID + "\":\"" + a1.getObject(a0) + "\""
             + ",\"" + SerializationParts.ENUM_STRING_VALUE + "\":\"").append(a0.name()).append("\"}").toString();
   }
 
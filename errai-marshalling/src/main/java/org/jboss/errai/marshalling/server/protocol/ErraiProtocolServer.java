@@ -27,8 +27,13 @@ import org.jboss.errai.marshalling.client.protocols.ErraiProtocol;
  */
 public class ErraiProtocolServer extends ErraiProtocol{
   public static ByteArrayInputStream encodePayloadToByteArrayInputStream(final Map<String, Object> payload) {
+    return encodePayloadToByteArrayInputStream(payload, false);
+  }
+
+  public static ByteArrayInputStream encodePayloadToByteArrayInputStream(final Map<String, Object> payload,
+                                                                         final boolean compact) {
     try {
-      return new ByteArrayInputStream(encodePayload(payload).getBytes("UTF-8"));
+      return new ByteArrayInputStream(encodePayload(payload, compact).getBytes("UTF-8"));
     } catch (UnsupportedEncodingException e) {
       throw new AssertionError("UTF-8 appears not to be supported by this JRE, but that's impossible");
     }
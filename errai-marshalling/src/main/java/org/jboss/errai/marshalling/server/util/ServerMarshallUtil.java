@@ -20,8 +20,13 @@ import static org.slf4j.LoggerFactory.getLogger;
 
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.URL;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.HashSet;
@@ -45,6 +50,13 @@ import org.slf4j.Logger;
 public abstract class ServerMarshallUtil {
   private static Logger log = getLogger("ErraiMarshalling");
 
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  /**
+   * Strings longer than this are encoded in chunks of this many characters by {@link #writeUTF8(OutputStream, String)}.
+   */
+  private static final int WRITE_CHUNK_SIZE = 2048;
+
   private static List<String> urlToFile(Enumeration<URL> urls) {
     final ArrayList<String> files = new ArrayList<String>();
     while (urls.hasMoreElements()) {
@@ -146,4 +158,48 @@ public abstract class ServerMarshallUtil {
       throw new RuntimeException("failed to generate class ", e);
     }
   }
+
+  /**
+   * Writes the given string to the given stream, encoded as UTF-8. Long strings, such as the output of a marshaller that
+   * can not write to a stream itself, are encoded through a bounded buffer rather than being copied into one byte array
+   * first. The stream is not flushed.
+   *
+   * @param outputStream
+   *          the stream to write to.
+   * @param s
+   *          the string to write.
+   */
+  public static void writeUTF8(final OutputStream outputStream, final String s) throws IOException {
+    final int length = s.length();
+    if (length <= WRITE_CHUNK_SIZE) {
+      outputStream.write(s.getBytes(UTF_8));
+      return;
+    }
+
+    // the writer keeps a surrogate pair that is split between two chunks until the second half is written.
+    final Writer writer = new OutputStreamWriter(new UnflushedOutputStream(outputStream), UTF_8);
+    for (int offset = 0; offset < length; offset += WRITE_CHUNK_SIZE) {
+      writer.write(s, offset, Math.min(WRITE_CHUNK_SIZE, length - offset));
+    }
+    writer.flush();
+  }
+
+  /**
+   * Passes everything but flushes on to the underlying stream, so that emptying the buffer of a writer does not flush
+   * the caller's stream.
+   */
+  private static class UnflushedOutputStream extends FilterOutputStream {
+    private UnflushedOutputStream(final OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+      out.write(b, off, len);
+    }
+
+    @Override
+    public void flush() {
+    }
+  }
 }
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2012 JBoss, by Red Hat, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.marshalling.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jboss.errai.common.client.protocols.SerializationParts;
+import org.jboss.errai.marshalling.client.api.json.EJArray;
+import org.jboss.errai.marshalling.client.protocols.ErraiProtocol;
+import org.jboss.errai.marshalling.server.JSONDecoder;
+import org.jboss.errai.marshalling.server.JSONStreamDecoder;
+import org.jboss.errai.marshalling.server.MappingContextSingleton;
+import org.jboss.errai.marshalling.tests.res.shared.Role;
+import org.jboss.errai.marshalling.tests.res.shared.User;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests the compact wire encoding of Errai protocol payloads.
+ */
+public class CompactWireEncodingTest {
+  private static final Logger log = LoggerFactory.getLogger(CompactWireEncodingTest.class);
+
+  static {
+    System.setProperty("errai.devel.nocache", "true");
+    MappingContextSingleton.get();
+  }
+
+  @Test
+  public void testProtocolPayloadRoundTrip() throws Exception {
+    final Map<String, Object> message = createMessage(10);
+
+    final String payload = ErraiProtocol.encodePayload(message, true);
+    assertTrue(JSONDecoder.decode(payload).isObject().containsKey(SerializationParts.TYPE_DICTIONARY));
+    assertEquals(message, ErraiProtocol.decodePayload(JSONDecoder.decode(payload)));
+  }
+
+  @Test
+  public void testTypeNamesAreWrittenOnce() {
+    final String payload = ErraiProtocol.encodePayload(createMessage(10), true);
+    assertEquals(1, occurrencesOf(User.class.getName(), payload));
+    assertEquals(1, occurrencesOf(Role.class.getName(), payload));
+  }
+
+  @Test
+  public void testPropertyKeysAreWrittenOnce() throws Exception {
+    final Map<String, Object> message = createMessage(10);
+
+    final String payload = ErraiProtocol.encodePayload(message, true);
+    assertEquals(1, occurrencesOf("\"userName\"", payload));
+    assertEquals(1, occurrencesOf("\"password\"", payload));
+    assertEquals(10, occurrencesOf("\"userName\"", ErraiProtocol.encodePayload(message)));
+
+    assertEquals(message, ErraiProtocol.decodePayload(JSONDecoder.decode(payload)));
+    assertEquals(message, ErraiProtocol.decodePayload(
+        JSONStreamDecoder.decode(new ByteArrayInputStream(payload.getBytes("UTF-8")))));
+  }
+
+  @Test
+  public void testElementsOfCommonTypeAreWrittenWithoutType() {
+    final Map<String, Object> message = createMessage(1000);
+
+    final String standard = ErraiProtocol.encodePayload(message);
+    final String compact = ErraiProtocol.encodePayload(message, true);
+
+    assertTrue("users and roles should be typed by their collections in the compact payload",
+        occurrencesOf(SerializationParts.ENCODED_TYPE, compact) * 2
+            < occurrencesOf(SerializationParts.ENCODED_TYPE, standard));
+    assertTrue("compact payload should be less than two thirds of the size of the standard payload",
+        compact.length() * 3 < standard.length() * 2);
+
+    assertEquals(message, ErraiProtocol.decodePayload(JSONDecoder.decode(compact)));
+  }
+
+  /**
+   * Encodes 10000 users with both encodings and compares the size of the payloads and the time taken to encode them.
+   */
+  @Test
+  public void testPayloadSizeAndEncodeTimeOf10000Users() {
+    final Map<String, Object> message = createMessage(10000);
+    final int rounds = 5;
+
+    // warm up both encodings, so neither is measured while it is being compiled
+    for (int i = 0; i < 3; i++) {
+      ErraiProtocol.encodePayload(message);
+      ErraiProtocol.encodePayload(message, true);
+    }
+
+    String standard = null, compact = null;
+    long standardTime = 0, compactTime = 0;
+    for (int i = 0; i < rounds; i++) {
+      long start = System.nanoTime();
+      standard = ErraiProtocol.encodePayload(message);
+      standardTime += System.nanoTime() - start;
+
+      start = System.nanoTime();
+      compact = ErraiProtocol.encodePayload(message, true);
+      compactTime += System.nanoTime() - start;
+    }
+
+    log.info("encoded 10000 users: standard payload " + standard.length() + " chars in "
+        + standardTime / rounds / 1000000 + "ms, compact payload " + compact.length() + " chars in "
+        + compactTime / rounds / 1000000 + "ms");
+
+    assertTrue("compact payload should be less than half the size of the standard payload, but was "
+        + compact.length() + " vs. " + standard.length(), compact.length() * 2 < standard.length());
+    assertTrue("encoding the compact payload should not take more than twice as long, but took "
+        + compactTime / rounds / 1000000 + "ms vs. " + standardTime / rounds / 1000000 + "ms",
+        compactTime < standardTime * 2);
+
+    assertEquals(message, ErraiProtocol.decodePayload(JSONDecoder.decode(compact)));
+  }
+
+  @Test
+  public void testStandardPayloadIsUnchanged() {
+    final Map<String, Object> message = createMessage(2);
+    ErraiProtocol.encodePayload(message, true);
+
+    // the compact encoding must not leak into the next payload encoded with a recycled session
+    final String payload = ErraiProtocol.encodePayload(message);
+    assertFalse(JSONDecoder.decode(payload).isObject().containsKey(SerializationParts.TYPE_DICTIONARY));
+    assertEquals(2, occurrencesOf("\"" + SerializationParts.ENCODED_TYPE + "\":\"" + User.class.getName(), payload));
+  }
+
+  @Test
+  public void testBatchOfCompactAndStandardPayloads() throws Exception {
+    final Map<String, Object> message = createMessage(3);
+    final String batch = "[" + ErraiProtocol.encodePayload(message, true) + ","
+        + ErraiProtocol.encodePayload(message) + "," + ErraiProtocol.encodePayload(message, true) + "]";
+
+    final EJArray payloads = JSONStreamDecoder.decode(new ByteArrayInputStream(batch.getBytes("UTF-8"))).isArray();
+    assertEquals(3, payloads.size());
+    for (int i = 0; i < payloads.size(); i++) {
+      assertEquals(message, ErraiProtocol.decodePayload(payloads.get(i)));
+    }
+  }
+
+  @Test
+  public void testValueResemblingTypeDictionaryIsNotInterpreted() {
+    final Map<String, Object> message = new HashMap<String, Object>();
+    message.put("ToSubject", "TestService");
+    message.put("Value", "{\"" + SerializationParts.TYPE_DICTIONARY + "\":[\"org.foo.Bar\"],\"0\":\"1\"}");
+
+    assertEquals(message, ErraiProtocol.decodePayload(JSONDecoder.decode(ErraiProtocol.encodePayload(message))));
+    assertEquals(message, ErraiProtocol.decodePayload(JSONDecoder.decode(ErraiProtocol.encodePayload(message, true))));
+  }
+
+  private static Map<String, Object> createMessage(final int userCount) {
+    final Map<String, Object> message = new HashMap<String, Object>();
+    message.put("ToSubject", "TestService");
+    message.put("Users", createUsers(userCount));
+    return message;
+  }
+
+  private static List<User> createUsers(final int count) {
+    final Role admin = new Role("admin");
+    final Role users = new Role("users");
+
+    final List<User> list = new ArrayList<User>(count);
+    for (int i = 0; i < count; i++) {
+      final User user = new User();
+      user.setUserId(i);
+      user.setUserName("user" + i);
+      user.setPassword("pw" + i);
+
+      final Set<Role> roles = new HashSet<Role>();
+      roles.add(admin);
+      if (i % 2 == 0) {
+        roles.add(users);
+      }
+      user.setRoles(roles);
+      list.add(user);
+    }
+    return list;
+  }
+
+  private static int occurrencesOf(final String token, final String payload) {
+    int count = 0;
+    for (int i = payload.indexOf(token); i != -1; i = payload.indexOf(token, i + token.length())) {
+      count++;
+    }
+    return count;
+  }
+}
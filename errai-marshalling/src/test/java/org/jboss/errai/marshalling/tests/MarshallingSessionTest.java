@@ -0,0 +1,257 @@
+/*
+ * Copyright 2012 JBoss, by Red Hat, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.marshalling.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jboss.errai.marshalling.client.MarshallingSessionProviderFactory;
+import org.jboss.errai.marshalling.client.api.Marshaller;
+import org.jboss.errai.marshalling.client.api.MarshallingSession;
+import org.jboss.errai.marshalling.client.protocols.MarshallingSessionProvider;
+import org.jboss.errai.marshalling.client.util.IdentityIntMap;
+import org.jboss.errai.marshalling.server.DecodingSession;
+import org.jboss.errai.marshalling.server.MappingContextSingleton;
+import org.jboss.errai.marshalling.server.ServerMarshalling;
+import org.jboss.errai.marshalling.tests.res.shared.Point;
+import org.jboss.errai.marshalling.tests.res.shared.Role;
+import org.junit.Test;
+
+/**
+ * Tests the back-reference tracking of marshalling sessions.
+ */
+public class MarshallingSessionTest {
+
+  static {
+    System.setProperty("errai.devel.nocache", "true");
+    MappingContextSingleton.get();
+  }
+
+  @Test
+  public void testIdentityIntMapUsesIdentity() {
+    final IdentityIntMap map = new IdentityIntMap();
+    final String a = new String("a");
+    final String b = new String("a");
+
+    map.put(a, 1);
+    assertEquals(1, map.get(a));
+    assertEquals(-1, map.get(b));
+    assertFalse(map.containsKey(b));
+
+    map.put(b, 2);
+    map.put(a, 3);
+    assertEquals(3, map.get(a));
+    assertEquals(2, map.get(b));
+    assertEquals(2, map.size());
+  }
+
+  @Test
+  public void testIdentityIntMapGrows() {
+    final IdentityIntMap map = new IdentityIntMap();
+    final List<Object> keys = new ArrayList<Object>();
+    for (int i = 0; i < 10000; i++) {
+      final Object key = new Object();
+      keys.add(key);
+      map.put(key, i);
+    }
+
+    assertEquals(10000, map.size());
+    for (int i = 0; i < keys.size(); i++) {
+      assertEquals(i, map.get(keys.get(i)));
+    }
+
+    map.clear();
+    assertTrue(map.isEmpty());
+    assertEquals(-1, map.get(keys.get(0)));
+  }
+
+  @Test
+  public void testEncodingAssignsSequentialIds() {
+    final MarshallingSession session = MarshallingSessionProviderFactory.getEncoding();
+    final Object a = new Object();
+    final Object b = new Object();
+
+    assertFalse(session.hasObject(a));
+    assertEquals("1", session.getObject(a));
+    assertEquals("2", session.getObject(b));
+    assertEquals("1", session.getObject(a));
+    assertTrue(session.hasObject(a));
+    assertFalse(session.hasObject((Object) null));
+  }
+
+  @Test
+  public void testDecodingRecordsOutOfOrderAndNonNumericIds() {
+    final MarshallingSession session = MarshallingSessionProviderFactory.getDecoding();
+    final Object three = new Object();
+    final Object one = new Object();
+    final Object named = new Object();
+    final Object far = new Object();
+
+    session.recordObject("3", three);
+    session.recordObject("1", one);
+    session.recordObject("abc", named);
+    session.recordObject("999999999", far);
+    session.recordObject("-1", new Object());
+    session.recordObject("4", null);
+
+    assertSame(three, session.getObject(Object.class, "3"));
+    assertSame(one, session.getObject(Object.class, "1"));
+    assertSame(named, session.getObject(Object.class, "abc"));
+    assertSame(far, session.getObject(Object.class, "999999999"));
+    assertFalse(session.hasObject("2"));
+    assertNull(session.getObject(Object.class, "2"));
+    assertFalse(session.hasObject("-1"));
+    assertFalse(session.hasObject("01"));
+    assertTrue(session.hasObject("4"));
+    assertNull(session.getObject(Object.class, "4"));
+  }
+
+  @Test
+  public void testReleasedSessionIsResetAndReused() {
+    final MarshallingSession session = MarshallingSessionProviderFactory.getDecoding();
+    session.recordObject("1", new Object());
+    session.recordObject("abc", new Object());
+    session.setAssumedElementType(String.class.getName());
+    MarshallingSessionProviderFactory.release(session);
+
+    final MarshallingSession reused = MarshallingSessionProviderFactory.getDecoding();
+    try {
+      assertSame(session, reused);
+      assertFalse(reused.hasObject("1"));
+      assertFalse(reused.hasObject("abc"));
+      assertNull(reused.getAssumedElementType());
+    }
+    finally {
+      MarshallingSessionProviderFactory.release(reused);
+    }
+  }
+
+  @Test
+  public void testLeasedSessionIsNotHandedOutTwice() {
+    final MarshallingSession outer = MarshallingSessionProviderFactory.getEncoding();
+    final Object o = new Object();
+    assertEquals("1", outer.getObject(o));
+
+    final MarshallingSession inner = MarshallingSessionProviderFactory.getEncoding();
+    assertNotSame(outer, inner);
+    assertFalse(inner.hasObject(o));
+
+    MarshallingSessionProviderFactory.release(inner);
+    assertTrue(outer.hasObject(o));
+    MarshallingSessionProviderFactory.release(outer);
+  }
+
+  @Test
+  public void testDuplicateReleaseIsIgnored() {
+    final MarshallingSession session = MarshallingSessionProviderFactory.getDecoding();
+    MarshallingSessionProviderFactory.release(session);
+    MarshallingSessionProviderFactory.release(session);
+
+    final MarshallingSession first = MarshallingSessionProviderFactory.getDecoding();
+    final MarshallingSession second = MarshallingSessionProviderFactory.getDecoding();
+    try {
+      assertSame(session, first);
+      assertNotSame(first, second);
+    }
+    finally {
+      MarshallingSessionProviderFactory.release(second);
+      MarshallingSessionProviderFactory.release(first);
+    }
+  }
+
+  @Test
+  public void testSessionNotLeasedFromPoolIsIgnored() {
+    final MarshallingSession foreign = new DecodingSession(MappingContextSingleton.get());
+    MarshallingSessionProviderFactory.release(foreign);
+
+    final MarshallingSession session = MarshallingSessionProviderFactory.getDecoding();
+    try {
+      assertNotSame(foreign, session);
+    }
+    finally {
+      MarshallingSessionProviderFactory.release(session);
+    }
+  }
+
+  @Test
+  public void testProviderWithoutRecyclingIsNotAskedToRelease() {
+    final MarshallingSessionProvider serverProvider = MarshallingSessionProviderFactory.getProvider();
+    MarshallingSessionProviderFactory.setMarshallingSessionProvider(new MarshallingSessionProvider() {
+      @Override
+      public MarshallingSession getEncoding() {
+        return serverProvider.getEncoding();
+      }
+
+      @Override
+      public MarshallingSession getDecoding() {
+        return serverProvider.getDecoding();
+      }
+
+      @Override
+      public boolean hasMarshaller(final String fqcn) {
+        return serverProvider.hasMarshaller(fqcn);
+      }
+
+      @Override
+      public Marshaller getMarshaller(final String fqcn) {
+        return serverProvider.getMarshaller(fqcn);
+      }
+    });
+
+    try {
+      assertEquals(Arrays.asList("a", "b"), ServerMarshalling.fromJSON(ServerMarshalling.toJSON(Arrays.asList("a", "b"))));
+    }
+    finally {
+      MarshallingSessionProviderFactory.setMarshallingSessionProvider(serverProvider);
+    }
+  }
+
+  @Test
+  public void testSharedInstancesAreBackReferenced() {
+    final Role role = new Role("admin");
+    final List<Role> roles = new ArrayList<Role>();
+    roles.add(role);
+    roles.add(role);
+
+    final List<?> decoded = (List<?>) ServerMarshalling.fromJSON(ServerMarshalling.toJSON(roles));
+    assertEquals(roles, decoded);
+    assertSame(decoded.get(0), decoded.get(1));
+  }
+
+  @Test
+  public void testAcyclicTypeIsNotTracked() {
+    final Point point = new Point(1, 2);
+    final List<Point> points = new ArrayList<Point>();
+    points.add(point);
+    points.add(point);
+
+    final String json = ServerMarshalling.toJSON(points);
+    assertFalse(json.contains("\"^ObjectID\":\"2\""));
+
+    final List<?> decoded = (List<?>) ServerMarshalling.fromJSON(json);
+    assertEquals(points, decoded);
+    assertFalse(decoded.get(0) == decoded.get(1));
+  }
+}
@@ -1,14 +1,20 @@
 package org.jboss.errai.marshalling.tests;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
 import java.lang.reflect.Array;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.math.MathContext;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
@@ -17,13 +23,17 @@ import java.util.TreeSet;
 
 import junit.framework.Assert;
 
+import org.jboss.errai.common.client.protocols.SerializationParts;
 import org.jboss.errai.marshalling.client.MarshallingSessionProviderFactory;
 import org.jboss.errai.marshalling.client.api.Marshaller;
 import org.jboss.errai.marshalling.client.api.MarshallingSession;
 import org.jboss.errai.marshalling.client.api.ParserFactory;
 import org.jboss.errai.marshalling.client.api.json.EJValue;
+import org.jboss.errai.marshalling.client.protocols.RecyclingMarshallingSessionProvider;
 import org.jboss.errai.marshalling.server.MappingContextSingleton;
+import org.jboss.errai.marshalling.server.ServerMappingContext;
 import org.jboss.errai.marshalling.server.ServerMarshalling;
+import org.jboss.errai.marshalling.server.util.CloseableIterator;
 import org.jboss.errai.marshalling.tests.res.EntityWithInheritedTypeVariable;
 import org.jboss.errai.marshalling.tests.res.EnumContainer;
 import org.jboss.errai.marshalling.tests.res.EnumContainerContainer;
@@ -43,6 +53,8 @@ public class ServerMarshallingTest {
 
   static {
     System.setProperty("errai.devel.nocache", "true");
+    // make sure the session provider is registered before tests using the high-level API run.
+    MappingContextSingleton.get();
     System.out.println("Working Dir: " + new File("").getAbsoluteFile().getAbsolutePath());
   }
 
@@ -169,6 +181,283 @@ public class ServerMarshallingTest {
     testEncodeDecode(long[].class, new long[]{1l, 2l, 3l, 4l, 5l, 6l, 7l, 8l, 9l});
   }
 
+  @Test
+  public void testPrimLongArrayBeyondDoublePrecision() {
+    testEncodeDecode(long[].class, new long[]{Long.MAX_VALUE, Long.MIN_VALUE, 1L << 53, -(1L << 53), 6536000376648360988L});
+  }
+
+  @Test
+  public void testPrimDoubleArray() {
+    testEncodeDecode(double[].class, new double[]{0.9635950160419999d, Double.MAX_VALUE, Double.MIN_VALUE, -1d});
+  }
+
+  @Test
+  public void testPrimCharArray() {
+    testEncodeDecode(char[].class, new char[]{'a', '"', '\\', '\n', '\u2001'});
+  }
+
+  @Test
+  public void testPrimBooleanArray() {
+    testEncodeDecode(boolean[].class, new boolean[]{true, false, true});
+  }
+
+  @Test
+  public void testPrimArraysAreEncodedAsBareValues() {
+    Assert.assertEquals("{\"^EncodedType\":\"[J\",\"^ObjectID\":\"1\",\"^Value\":[1,-2,\"9223372036854775807\"]}",
+        ServerMarshalling.toJSON(new long[]{1l, -2l, Long.MAX_VALUE}));
+  }
+
+  @Test
+  public void testPrimArrayWithQualifiedElements() {
+    final String json = "{\"^EncodedType\":\"[J\",\"^ObjectID\":\"1\",\"^Value\":["
+        + "{\"^EncodedType\":\"java.lang.Long\",\"^ObjectID\":\"-1\",\"^NumVal\":\"1\"},"
+        + "{\"^EncodedType\":\"java.lang.Long\",\"^ObjectID\":\"-1\",\"^NumVal\":\"9223372036854775807\"}]}";
+    assertEquals(new long[]{1l, Long.MAX_VALUE}, ServerMarshalling.fromJSON(json));
+  }
+
+  @Test
+  public void testLongList() {
+    testEncodeDecodeDynamic(new ArrayList<Long>(Arrays.asList(1l, null, Long.MAX_VALUE, -3l)));
+  }
+
+  @Test
+  public void testLongListIsEncodedWithSingleTypeHeader() {
+    Assert.assertEquals("{\"^EncodedType\":\"java.util.ArrayList\",\"^ObjectID\":\"1\","
+        + "\"^ElementType\":\"java.lang.Long\",\"^Value\":[1,null,2]}",
+        ServerMarshalling.toJSON(new ArrayList<Long>(Arrays.asList(1l, null, 2l))));
+  }
+
+  @Test
+  public void testCharacterSet() {
+    testEncodeDecodeDynamic(new HashSet<Character>(Arrays.asList('a', '"', 'z')));
+  }
+
+  @Test
+  public void testMixedNumberList() {
+    final List<Object> list = new ArrayList<Object>(Arrays.asList(1l, 2, 3.5d, (short) 4, "five"));
+    testEncodeDecodeDynamic(list);
+    Assert.assertFalse(ServerMarshalling.toJSON(list).contains(SerializationParts.ELEMENT_TYPE));
+  }
+
+  @Test
+  public void testLargeNumericSeries() {
+    final int size = 100000;
+    final Random random = new Random(size);
+
+    final double[] doubles = new double[size];
+    final long[] longs = new long[size];
+    final List<Long> longList = new ArrayList<Long>(size);
+    final long time = 1349000000000l;
+    for (int i = 0; i < size; i++) {
+      doubles[i] = random.nextDouble() * 1000d;
+      longs[i] = time + i * 1000l;
+      longList.add(longs[i]);
+    }
+
+    for (final Object series : new Object[]{doubles, longs, longList}) {
+      assertEquals(series, ServerMarshalling.fromJSON(ServerMarshalling.toJSON(series)));
+    }
+  }
+
+  @Test
+  public void testLargeObjectGraph() {
+    final int size = 20000;
+    final Role[] roles = {new Role("admin"), new Role("user"), new Role("guest")};
+
+    final List<User> users = new ArrayList<User>(size);
+    for (int i = 0; i < size; i++) {
+      final User user = new User();
+      user.setUserId(i);
+      user.setUserName("user" + i);
+      user.setPassword("password" + i);
+      user.setRoles(new HashSet<Role>(Arrays.asList(roles).subList(0, 1 + i % roles.length)));
+      users.add(user);
+    }
+
+    // the first pass resolves and caches the marshallers of all members, the second one only uses the caches.
+    final String json = ServerMarshalling.toJSON(users);
+    assertEquals(users, ServerMarshalling.fromJSON(json));
+    Assert.assertEquals(json, ServerMarshalling.toJSON(users));
+    assertEquals(users, ServerMarshalling.fromJSON(json));
+  }
+
+  @Test
+  public void testMarshallerLookupByTypeIsCachedByMappingContext() {
+    final ServerMappingContext context = MappingContextSingleton.get();
+    final Marshaller<Object> marshaller = context.getMarshaller(User.class);
+    Assert.assertNotNull(marshaller);
+    Assert.assertSame(marshaller, context.getMarshaller(User.class));
+    Assert.assertSame(marshaller, context.getMarshaller(User.class.getName()));
+  }
+
+
+  @Test
+  public void testEncodeToStream() throws IOException {
+    final User user = new User();
+    user.setUserId(1);
+    user.setUserName("S\u00ebvent\u00e9\u00ebn");
+    user.setRoles(new HashSet<Role>(Arrays.asList(new Role("admin"), new Role("user"))));
+
+    for (final Object value : new Object[]{user, Arrays.asList(user, user), "\u2001", 42, null}) {
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      ServerMarshalling.toJSON(out, value);
+
+      Assert.assertEquals(ServerMarshalling.toJSON(value), new String(out.toByteArray(), "UTF-8"));
+      if (value != null) {
+        assertEquals(value, ServerMarshalling.fromJSON(new ByteArrayInputStream(out.toByteArray())));
+      }
+    }
+  }
+
+  @Test
+  public void testEncodeLargeCollectionToStream() throws IOException {
+    // the collection marshaller builds one string, which spans many chunks and contains surrogate pairs
+    final List<String> value = new ArrayList<String>();
+    for (int i = 0; i < 2000; i++) {
+      value.add("\ud834\udd1e" + i);
+    }
+
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ServerMarshalling.toJSON(out, value);
+
+    Assert.assertEquals(ServerMarshalling.toJSON(value), new String(out.toByteArray(), "UTF-8"));
+    assertEquals(value, ServerMarshalling.fromJSON(new ByteArrayInputStream(out.toByteArray())));
+  }
+
+  @Test
+  public void testStreamedElements() throws IOException {
+    final Role admin = new Role("admin");
+    final List<Object> elements = new ArrayList<Object>();
+    for (int i = 0; i < 100; i++) {
+      final User user = new User();
+      user.setUserId(i);
+      user.setUserName("user" + i);
+      user.setRoles(Collections.singleton(admin));
+      elements.add(user);
+      elements.add(null);
+    }
+
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ServerMarshalling.toJSONElements(out, elements);
+
+    final List<Object> decoded = new ArrayList<Object>();
+    final Iterator<User> iterator
+        = ServerMarshalling.fromJSONElements(new ByteArrayInputStream(out.toByteArray()), User.class);
+    while (iterator.hasNext()) {
+      decoded.add(iterator.next());
+    }
+    assertEquals(elements, decoded);
+
+    // back-references between elements are resolved
+    Assert.assertSame(((User) decoded.get(0)).getRoles().iterator().next(),
+        ((User) decoded.get(2)).getRoles().iterator().next());
+
+    // the streamed payload is a regular encoded collection
+    assertEquals(elements, ServerMarshalling.fromJSON(new ByteArrayInputStream(out.toByteArray())));
+  }
+
+  @Test
+  public void testStreamedElementsOfEncodedCollection() throws IOException {
+    final List<Long> longs = Arrays.asList(1l, Long.MAX_VALUE, null, -5l);
+    final String json = ServerMarshalling.toJSON(longs);
+
+    final List<Long> decoded = new ArrayList<Long>();
+    final Iterator<Long> iterator
+        = ServerMarshalling.fromJSONElements(new ByteArrayInputStream(json.getBytes("UTF-8")), Long.class);
+    while (iterator.hasNext()) {
+      decoded.add(iterator.next());
+    }
+    assertEquals(longs, decoded);
+  }
+
+  @Test
+  public void testStreamedElementsOfPlainArray() throws IOException {
+    final Iterator<Object> iterator = ServerMarshalling.fromJSONElements(
+        new ByteArrayInputStream(" [ \"a\" , true,null, 2.5 ] ".getBytes("UTF-8")), Object.class);
+
+    assertEquals("a", iterator.next());
+    assertEquals(Boolean.TRUE, iterator.next());
+    Assert.assertNull(iterator.next());
+    assertEquals(2.5d, iterator.next());
+    Assert.assertFalse(iterator.hasNext());
+  }
+
+  @Test
+  public void testStreamedElementsReleaseTheirSession() throws IOException {
+    final List<User> users = new ArrayList<User>();
+    for (int i = 0; i < 3; i++) {
+      final User user = new User();
+      user.setUserId(i);
+      users.add(user);
+    }
+    final byte[] json = ServerMarshalling.toJSON(users).getBytes("UTF-8");
+
+    final RecyclingMarshallingSessionProvider serverProvider
+        = (RecyclingMarshallingSessionProvider) MarshallingSessionProviderFactory.getProvider();
+    final List<MarshallingSession> leased = new ArrayList<MarshallingSession>();
+    MarshallingSessionProviderFactory.setMarshallingSessionProvider(new RecyclingMarshallingSessionProvider() {
+      @Override
+      public MarshallingSession getEncoding() {
+        return serverProvider.getEncoding();
+      }
+
+      @Override
+      public MarshallingSession getDecoding() {
+        final MarshallingSession session = serverProvider.getDecoding();
+        leased.add(session);
+        return session;
+      }
+
+      @Override
+      public void release(final MarshallingSession session) {
+        Assert.assertTrue(leased.remove(session));
+        serverProvider.release(session);
+      }
+
+      @Override
+      public boolean hasMarshaller(final String fqcn) {
+        return serverProvider.hasMarshaller(fqcn);
+      }
+
+      @Override
+      public Marshaller getMarshaller(final String fqcn) {
+        return serverProvider.getMarshaller(fqcn);
+      }
+    });
+
+    try {
+      // no session is leased before the first element is requested
+      final CloseableIterator<User> abandoned = ServerMarshalling.fromJSONElements(new ByteArrayInputStream(json), User.class);
+      Assert.assertTrue(leased.isEmpty());
+      assertEquals(users.get(0), abandoned.next());
+      Assert.assertEquals(1, leased.size());
+      abandoned.close();
+      abandoned.close();
+      Assert.assertTrue(leased.isEmpty());
+      Assert.assertFalse(abandoned.hasNext());
+
+      final CloseableIterator<User> exhausted = ServerMarshalling.fromJSONElements(new ByteArrayInputStream(json), User.class);
+      while (exhausted.hasNext()) {
+        exhausted.next();
+      }
+      Assert.assertTrue(leased.isEmpty());
+
+      final CloseableIterator<User> failed = ServerMarshalling.fromJSONElements(
+          new ByteArrayInputStream("[{\"^EncodedType\":\"org.foo.Unknown\",\"^ObjectID\":\"1\"}]".getBytes("UTF-8")),
+          User.class);
+      try {
+        failed.next();
+        Assert.fail("the element can not be demarshalled");
+      }
+      catch (RuntimeException e) {
+        // expected
+      }
+      Assert.assertTrue(leased.isEmpty());
+    }
+    finally {
+      MarshallingSessionProviderFactory.setMarshallingSessionProvider(serverProvider);
+    }
+  }
 
   @Test
   public void testIntegerMaxValue() {
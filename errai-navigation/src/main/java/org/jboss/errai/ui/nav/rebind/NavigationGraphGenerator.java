@@ -38,6 +38,7 @@ import org.jboss.errai.codegen.util.PrivateAccessUtil;
 import org.jboss.errai.codegen.util.Refs;
 import org.jboss.errai.codegen.util.Stmt;
 import org.jboss.errai.common.metadata.RebindUtils;
+import org.jboss.errai.config.rebind.GeneratedSourceCache;
 import org.jboss.errai.config.util.ClassScanner;
 import org.jboss.errai.marshalling.rebind.util.MarshallingGenUtil;
 import org.jboss.errai.ui.nav.client.local.HistoryToken;
@@ -81,8 +82,9 @@ public class NavigationGraphGenerator extends Generator {
     // accumulation of pages with startingPage=true (for ensuring there is exactly one default page)
     List<MetaClass> defaultPages = new ArrayList<MetaClass>();
 
-    ConstructorBlockBuilder<?> ctor = classBuilder.publicConstructor();
     final Collection<MetaClass> pages = ClassScanner.getTypesAnnotatedWith(Page.class);
+
+    // the pages are validated and the dot file is rendered even if the generated source is taken from the cache
     for (MetaClass pageClass : pages) {
       if (!pageClass.isAssignableTo(Widget.class)) {
         throw new GenerationException(
@@ -98,27 +100,15 @@ public class NavigationGraphGenerator extends Generator {
                 "Page names must be unique, but " + prevPageWithThisName + " and " + pageClass +
                 " are both named [" + pageName + "]");
       }
-      Statement pageImplStmt = generateNewInstanceOfPageImpl(pageClass, pageName);
       if (annotation.startingPage() == true) {
         defaultPages.add(pageClass);
-
-        // need to assign the page impl to a variable and add it to the map twice
-        ctor.append(Stmt.declareFinalVariable("defaultPage", PageNode.class, pageImplStmt));
-        pageImplStmt = Variable.get("defaultPage");
-        ctor.append(
-                Stmt.nestedCall(Refs.get("pagesByName"))
-                .invoke("put", "", pageImplStmt));
       }
       else if (pageName.equals("")) {
         throw new GenerationException(
                 "Page " + pageClass.getFullyQualifiedName() + " has an empty path. Only the" +
                 " page with startingPage=true is permitted to have an empty path.");
       }
-      ctor.append(
-              Stmt.nestedCall(Refs.get("pagesByName"))
-              .invoke("put", pageName, pageImplStmt));
     }
-    ctor.finish();
 
     renderNavigationToDotFile(pageNames);
 
@@ -137,6 +127,47 @@ public class NavigationGraphGenerator extends Generator {
               "\nExactly one @Page class must be designated as the starting page.");
     }
 
+    String fingerprint = null;
+    if (GeneratedSourceCache.isEnabled()) {
+      final List<MetaClass> pageHierarchy = new ArrayList<MetaClass>();
+      for (MetaClass pageClass : pages) {
+        for (MetaClass c = pageClass; c != null; c = c.getSuperClass()) {
+          pageHierarchy.add(c);
+        }
+      }
+      fingerprint = GeneratedSourceCache.fingerprint()
+          .add("target", classBuilder.getClassDefinition().getFullyQualifiedName())
+          .addConfiguration()
+          .addTypes(pageHierarchy)
+          .toHash();
+
+      final String cached = GeneratedSourceCache.getCachedSource(classBuilder.getClassDefinition().getName(),
+          fingerprint);
+      if (cached != null) {
+        return commit(logger, context, classBuilder, cached);
+      }
+    }
+
+    ConstructorBlockBuilder<?> ctor = classBuilder.publicConstructor();
+    for (MetaClass pageClass : pages) {
+      Page annotation = pageClass.getAnnotation(Page.class);
+      String pageName = pageNames.inverse().get(pageClass);
+
+      Statement pageImplStmt = generateNewInstanceOfPageImpl(pageClass, pageName);
+      if (annotation.startingPage() == true) {
+        // need to assign the page impl to a variable and add it to the map twice
+        ctor.append(Stmt.declareFinalVariable("defaultPage", PageNode.class, pageImplStmt));
+        pageImplStmt = Variable.get("defaultPage");
+        ctor.append(
+                Stmt.nestedCall(Refs.get("pagesByName"))
+                .invoke("put", "", pageImplStmt));
+      }
+      ctor.append(
+              Stmt.nestedCall(Refs.get("pagesByName"))
+              .invoke("put", pageName, pageImplStmt));
+    }
+    ctor.finish();
+
     String out = classBuilder.toJavaString();
     final File fileCacheDir = RebindUtils.getErraiCacheDir();
     final File cacheFile = new File(fileCacheDir.getAbsolutePath() + "/"
@@ -144,12 +175,21 @@ public class NavigationGraphGenerator extends Generator {
 
     RebindUtils.writeStringToFile(cacheFile, out);
 
+    if (fingerprint != null) {
+      GeneratedSourceCache.putCachedSource(classBuilder.getClassDefinition().getName(), fingerprint, out);
+    }
+
     if (Boolean.getBoolean("errai.codegen.printOut")) {
       System.out.println("---NavigationGraph-->");
       System.out.println(out);
       System.out.println("<--NavigationGraph---");
     }
 
+    return commit(logger, context, classBuilder, out);
+  }
+
+  private static String commit(TreeLogger logger, GeneratorContext context, ClassStructureBuilder<?> classBuilder,
+          String out) {
     PrintWriter printWriter = context.tryCreate(
             logger,
             classBuilder.getClassDefinition().getPackageName(),
@@ -162,7 +202,6 @@ public class NavigationGraphGenerator extends Generator {
     }
 
     return classBuilder.getClassDefinition().getFullyQualifiedName();
-
   }
 
   /**
@@ -16,8 +16,13 @@
 
 package org.jboss.errai.ui.client.widget;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import org.jboss.errai.common.client.api.Assert;
 import org.jboss.errai.ioc.client.container.IOC;
@@ -26,14 +31,20 @@ import org.jboss.errai.ioc.client.container.IOCBeanManager;
 
 import com.google.gwt.user.client.ui.ComplexPanel;
 import com.google.gwt.user.client.ui.Composite;
+import com.google.gwt.user.client.ui.InsertPanel;
 import com.google.gwt.user.client.ui.IsWidget;
 import com.google.gwt.user.client.ui.VerticalPanel;
 import com.google.gwt.user.client.ui.Widget;
+import com.google.gwt.view.client.ProvidesKey;
 
 /**
  * A type of widget that displays and manages a child widget for each item in a list of model objects. The widget
  * instances are managed by Errai's IOC container and are arranged in a {@link ComplexPanel}. By default a
  * {@link VerticalPanel} is used, but an alternative can be specified using {@link #ListWidget(ComplexPanel)}.
+ * <p>
+ * By default, {@link #setItems(List)} replaces all item widgets with new ones. With keyed reconciliation enabled (see
+ * {@link #setKeyedReconciliation(boolean)} and {@link #setKeyProvider(ProvidesKey)}) it instead keeps the widgets of
+ * the items that are still in the list, and only creates and destroys widgets for inserted and removed items.
  *
  * @author Christian Sadilek <csadilek@redhat.com>
  *
@@ -49,6 +60,16 @@ public abstract class ListWidget<M, W extends HasModel<M> & IsWidget> extends Co
 
   private final ComplexPanel panel;
 
+  /**
+   * The model object each item widget was last given by this list widget. Needed because {@link HasModel#getModel()}
+   * may return a different instance (e.g. a data binding proxy).
+   */
+  private final Map<Widget, M> itemsByWidget = new IdentityHashMap<Widget, M>();
+
+  private boolean keyedReconciliation;
+
+  private ProvidesKey<M> keyProvider;
+
   protected ListWidget() {
     this(new VerticalPanel());
   }
@@ -75,14 +96,49 @@ public abstract class ListWidget<M, W extends HasModel<M> & IsWidget> extends Co
     return panel;
   }
   
+  /**
+   * Enables or disables keyed reconciliation. When enabled, {@link #setItems(List)} matches the new items to the
+   * existing item widgets, either by identity or, if a key provider has been set, by key. Item widgets whose item is
+   * still in the list are kept (and moved if the item has moved); widgets are only created for new items and destroyed
+   * for removed items. {@link HasModel#setModel(Object)} is only called on a kept widget if its item was matched by key
+   * and is not the same instance as before.
+   * <p>
+   * Disabled by default.
+   *
+   * @param enabled
+   *          true to reconcile item widgets on {@link #setItems(List)}, false to replace all of them.
+   */
+  public void setKeyedReconciliation(boolean enabled) {
+    this.keyedReconciliation = enabled;
+  }
+
+  /**
+   * Sets the key provider used to match items to existing item widgets, and enables keyed reconciliation (see
+   * {@link #setKeyedReconciliation(boolean)}). Keys are compared using {@link Object#equals(Object)}.
+   *
+   * @param keyProvider
+   *          The key provider to use, or null to match items by identity.
+   */
+  public void setKeyProvider(ProvidesKey<M> keyProvider) {
+    this.keyProvider = keyProvider;
+    if (keyProvider != null) {
+      keyedReconciliation = true;
+    }
+  }
+
   /**
    * Sets the list of model objects. A widget instance of type <W> will be added to the panel for each object in the
-   * list.
+   * list. If keyed reconciliation is enabled, existing widgets are reused for items that were already in the list.
    *
    * @param items
    *          The list of model objects. If null or empty all existing child widgets will be removed.
    */
   public void setItems(List<M> items) {
+    if (keyedReconciliation) {
+      reconcileItems(items);
+      return;
+    }
+
     // clean up the old widgets before we add new ones (this will eventually become a feature of the framework:
     // ERRAI-375)
     Iterator<Widget> it = panel.iterator();
@@ -90,6 +146,7 @@ public abstract class ListWidget<M, W extends HasModel<M> & IsWidget> extends Co
       bm.destroyBean(it.next());
       it.remove();
     }
+    itemsByWidget.clear();
 
     if (items == null)
       return;
@@ -99,7 +156,91 @@ public abstract class ListWidget<M, W extends HasModel<M> & IsWidget> extends Co
       W widget = itemBeanDef.newInstance();
       widget.setModel(item);
       panel.add((Widget) widget);
+      itemsByWidget.put((Widget) widget, item);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void reconcileItems(List<M> items) {
+    // index the current widgets by the key of their item, keeping the order of widgets with equal keys
+    Map<Object, LinkedList<Widget>> widgetsByKey =
+        (keyProvider == null) ? new IdentityHashMap<Object, LinkedList<Widget>>()
+            : new HashMap<Object, LinkedList<Widget>>();
+    List<Widget> unmatched = new ArrayList<Widget>();
+    for (Widget widget : panel) {
+      if (!itemsByWidget.containsKey(widget)) {
+        // not one of ours: treat it like the non-keyed mode does
+        unmatched.add(widget);
+        continue;
+      }
+      Object key = getKey(itemsByWidget.get(widget));
+      LinkedList<Widget> sameKey = widgetsByKey.get(key);
+      if (sameKey == null) {
+        widgetsByKey.put(key, sameKey = new LinkedList<Widget>());
+      }
+      sameKey.add(widget);
+    }
+
+    List<Widget> newWidgets = new ArrayList<Widget>(items == null ? 0 : items.size());
+    if (items != null) {
+      IOCBeanDef<W> itemBeanDef = null;
+      for (M item : items) {
+        LinkedList<Widget> sameKey = widgetsByKey.get(getKey(item));
+        Widget widget;
+        if (sameKey != null && !sameKey.isEmpty()) {
+          widget = sameKey.removeFirst();
+          if (itemsByWidget.get(widget) != item) {
+            ((W) widget).setModel(item);
+          }
+        }
+        else {
+          if (itemBeanDef == null) {
+            itemBeanDef = bm.lookupBean(getItemWidgetType());
+          }
+          W newWidget = itemBeanDef.newInstance();
+          newWidget.setModel(item);
+          widget = (Widget) newWidget;
+        }
+        itemsByWidget.put(widget, item);
+        newWidgets.add(widget);
+      }
     }
+
+    // destroy the widgets of removed items
+    for (LinkedList<Widget> sameKey : widgetsByKey.values()) {
+      unmatched.addAll(sameKey);
+    }
+    for (Widget widget : unmatched) {
+      panel.remove(widget);
+      bm.destroyBean(widget);
+      itemsByWidget.remove(widget);
+    }
+
+    // put the remaining and new widgets in order, touching only the ones that are out of place
+    if (panel instanceof InsertPanel) {
+      for (int i = 0; i < newWidgets.size(); i++) {
+        Widget widget = newWidgets.get(i);
+        if (i >= panel.getWidgetCount() || panel.getWidget(i) != widget) {
+          ((InsertPanel) panel).insert(widget, i);
+        }
+      }
+    }
+    else {
+      boolean inOrder = panel.getWidgetCount() <= newWidgets.size();
+      for (int i = 0; inOrder && i < panel.getWidgetCount(); i++) {
+        inOrder = panel.getWidget(i) == newWidgets.get(i);
+      }
+      if (!inOrder) {
+        panel.clear();
+      }
+      for (int i = panel.getWidgetCount(); i < newWidgets.size(); i++) {
+        panel.add(newWidgets.get(i));
+      }
+    }
+  }
+
+  private Object getKey(M item) {
+    return (keyProvider == null || item == null) ? item : keyProvider.getKey(item);
   }
   
   /**
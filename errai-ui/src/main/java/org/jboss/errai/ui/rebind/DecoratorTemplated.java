@@ -164,8 +164,10 @@ public class DecoratorTemplated extends IOCDecoratorExtension<Templated> {
                   Stmt.invokeStatic(GWT.class, "create", getConstructedTemplateTypes(ctx).get(declaringClass))));
 
       /*
-       * Get root Template Element
+       * Get root Template Element (a copy of the template parsed by the first instance)
        */
+      String templateFileName = getTemplateFileName(declaringClass);
+      String templateFragmentName = getTemplateFragmentName(declaringClass);
       String rootTemplateElementVarName = InjectUtil.getUniqueVarName();
       builder.append(Stmt
           .declareVariable(Element.class)
@@ -173,7 +175,7 @@ public class DecoratorTemplated extends IOCDecoratorExtension<Templated> {
           .initializeWith(
               Stmt.invokeStatic(TemplateUtil.class, "getRootTemplateElement", Stmt
                   .loadVariable(templateVarName).invoke("getContents").invoke("getText"),
-                  getTemplateFragmentName(declaringClass))));
+                  templateFileName, templateFragmentName)));
 
       Statement rootTemplateElement = Stmt.loadVariable(rootTemplateElementVarName);
 
@@ -183,12 +185,13 @@ public class DecoratorTemplated extends IOCDecoratorExtension<Templated> {
       Statement component = Refs.get(ctx.getInjector().getInstanceVarName());
 
       /*
-       * Get all of the data-field Elements from the Template
+       * Get all of the data-field Elements from the Template (using the paths recorded when it was parsed)
        */
       String dataFieldElementsVarName = InjectUtil.getUniqueVarName();
       builder.append(Stmt.declareVariable(dataFieldElementsVarName, new TypeLiteral<Map<String, Element>>() {
       },
-          Stmt.invokeStatic(TemplateUtil.class, "getDataFieldElements", rootTemplateElement)));
+          Stmt.invokeStatic(TemplateUtil.class, "getDataFieldElements", templateFileName, templateFragmentName,
+              rootTemplateElement)));
 
       /*
        * Attach Widget field children Elements to the Template DOM
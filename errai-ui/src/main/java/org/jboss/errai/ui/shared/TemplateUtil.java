@@ -16,6 +16,7 @@
 package org.jboss.errai.ui.shared;
 
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.logging.Logger;
@@ -39,6 +40,11 @@ import com.google.gwt.user.client.ui.Widget;
 public final class TemplateUtil {
   private static final Logger logger = Logger.getLogger(TemplateUtil.class.getName());
 
+  /**
+   * Parsed templates by template file and root data-field, see {@link #getTemplateCacheKey(String, String)}.
+   */
+  private static final Map<String, ParsedTemplate> parsedTemplates = new HashMap<String, ParsedTemplate>();
+
   private TemplateUtil() {
   }
 
@@ -135,6 +141,62 @@ public final class TemplateUtil {
     return parserDiv.getFirstChildElement();
   }
 
+  /**
+   * Returns a new copy of the root {@link Element} of the given template. The template is only parsed (and searched for
+   * the root data-field and all other data-fields) the first time it is requested; later calls clone the cached
+   * result.
+   *
+   * @param templateContents
+   *          the contents of the template file. Only used the first time the template is requested.
+   * @param templateFile
+   *          the name of the template file.
+   * @param rootField
+   *          the data-field of the template's root element, or an empty string if the whole template is used.
+   */
+  public static Element getRootTemplateElement(String templateContents, String templateFile, String rootField) {
+    final String key = getTemplateCacheKey(templateFile, rootField);
+    ParsedTemplate template = parsedTemplates.get(key);
+    if (template == null) {
+      template = new ParsedTemplate(getRootTemplateElement(templateContents, rootField));
+      parsedTemplates.put(key, template);
+    }
+
+    final Element root = Element.as(template.root.cloneNode(true));
+    // like a freshly parsed template, the root element has a (detached) parent
+    DOM.createDiv().appendChild(root);
+    return root;
+  }
+
+  /**
+   * Returns the data-field elements of a copy of a template's root element, as obtained from
+   * {@link #getRootTemplateElement(String, String, String)}. The elements are located using the child index paths
+   * recorded when the template was parsed, rather than by searching the copy.
+   */
+  public static Map<String, Element> getDataFieldElements(String templateFile, String rootField,
+          final Element templateRoot) {
+    final ParsedTemplate template = parsedTemplates.get(getTemplateCacheKey(templateFile, rootField));
+    if (template == null) {
+      return getDataFieldElements(templateRoot);
+    }
+
+    final Map<String, Element> childTemplateElements = new LinkedHashMap<String, Element>();
+    for (Map.Entry<String, int[]> path : template.dataFieldPaths.entrySet()) {
+      Element element = templateRoot;
+      for (int index : path.getValue()) {
+        element = element.getFirstChildElement();
+        for (int i = 0; i < index; i++) {
+          element = element.getNextSiblingElement();
+        }
+      }
+      childTemplateElements.put(path.getKey(), element);
+    }
+    return childTemplateElements;
+  }
+
+  private static String getTemplateCacheKey(String templateFile, String rootField) {
+    return templateFile + "#" + rootField;
+  }
+
   public static Map<String, Element> getDataFieldElements(final Element templateRoot) {
     final Map<String, Element> childTemplateElements = new LinkedHashMap<String, Element>();
 
@@ -195,6 +257,45 @@ public final class TemplateUtil {
     return result.toString();
   }
 
+  /**
+   * A parsed template root element and the child index paths leading from it to each of its data-field elements.
+   */
+  private static class ParsedTemplate {
+    final Element root;
+    final Map<String, int[]> dataFieldPaths = new LinkedHashMap<String, int[]>();
+
+    ParsedTemplate(Element root) {
+      this.root = root;
+      for (Map.Entry<String, Element> dataField : getDataFieldElements(root).entrySet()) {
+        dataFieldPaths.put(dataField.getKey(), getChildIndexPath(root, dataField.getValue()));
+      }
+    }
+
+    /**
+     * Returns the element-child indexes leading from the ancestor to the descendant (an empty path if they are the
+     * same element).
+     */
+    private static int[] getChildIndexPath(Element ancestor, Element descendant) {
+      int depth = 0;
+      for (Element e = descendant; e != ancestor; e = e.getParentElement()) {
+        depth++;
+      }
+
+      final int[] path = new int[depth];
+      Element e = descendant;
+      for (int i = depth - 1; i >= 0; i--) {
+        final Element parent = e.getParentElement();
+        int index = 0;
+        for (Element sibling = parent.getFirstChildElement(); sibling != e; sibling = sibling.getNextSiblingElement()) {
+          index++;
+        }
+        path[i] = index;
+        e = parent;
+      }
+      return path;
+    }
+  }
+
   private static native JsArray<Node> getAttributes(Element elem) /*-{
 		return elem.attributes;
   }-*/;
@@ -2,6 +2,7 @@ package org.jboss.errai.ui.test.basic.client;
 
 import org.jboss.errai.enterprise.client.cdi.AbstractErraiCDITest;
 import org.jboss.errai.ioc.client.container.IOC;
+import org.jboss.errai.ui.test.basic.client.res.BasicComponent;
 import org.junit.Test;
 
 import com.google.gwt.dom.client.Document;
@@ -72,4 +73,20 @@ public class BasicTemplateTest extends AbstractErraiCDITest {
     assertEquals(c6.getElement(), c5.getElement().getFirstChildElement());
   }
 
-}
\ No newline at end of file
+  @Test
+  public void testEachInstanceGetsItsOwnCopyOfTheTemplate() throws Exception {
+    BasicTemplateTestApp app = IOC.getBeanManager().lookupBean(BasicTemplateTestApp.class).getInstance();
+    BasicComponent first = app.getComponent();
+    BasicComponent second = IOC.getBeanManager().lookupBean(BasicComponent.class).getInstance();
+
+    assertNotSame(first.getElement(), second.getElement());
+
+    Element c1 = second.getLabel().getElement();
+    assertEquals("something", c1.getAttribute("class"));
+    assertEquals("Added by component", c1.getInnerText());
+    assertEquals("c3", second.getTextBox().getElement().getAttribute("data-field"));
+    assertEquals(second.getC6().getElement(), second.getC5().getElement().getFirstChildElement());
+    assertNotSame(first.getC6().getElement(), second.getC6().getElement());
+  }
+
+}
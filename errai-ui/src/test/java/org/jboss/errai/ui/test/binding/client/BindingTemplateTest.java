@@ -1,6 +1,7 @@
 package org.jboss.errai.ui.test.binding.client;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 
@@ -15,6 +16,7 @@ import org.junit.Test;
 
 import com.google.gwt.user.client.ui.Label;
 import com.google.gwt.user.client.ui.TextBox;
+import com.google.gwt.view.client.ProvidesKey;
 
 /**
  * Tests for the Errai UI/DataBinding integration.
@@ -88,4 +90,40 @@ public class BindingTemplateTest extends AbstractErraiCDITest {
     assertEquals("First model object was not updated!", "0-updated", itemWidget0.getModel().getName());
     assertEquals("Second model object was not updated!", "1-updated", itemWidget1.getModel().getName());
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testKeyedListReconciliation() {
+    TestModel a = new TestModel(1, "a");
+    TestModel b = new TestModel(2, "b");
+    TestModel c = new TestModel(3, "c");
+
+    BindingListWidget listWidget = new BindingListWidget();
+    listWidget.setKeyedReconciliation(true);
+    listWidget.setItems(Arrays.asList(a, b, c));
+
+    BindingItemWidget widgetA = listWidget.getWidget(0);
+    BindingItemWidget widgetB = listWidget.getWidget(1);
+    BindingItemWidget widgetC = listWidget.getWidget(2);
+
+    // move c to the front, remove b and append d
+    TestModel d = new TestModel(4, "d");
+    listWidget.setItems(Arrays.asList(c, a, d));
+    assertSame("Widget of moved item was not reused!", widgetC, listWidget.getWidget(0));
+    assertSame("Widget of unchanged item was not reused!", widgetA, listWidget.getWidget(1));
+    assertNotSame("Widget of removed item was reused!", widgetB, listWidget.getWidget(2));
+    assertEquals("d", listWidget.getWidget(2).getTextBox().getText());
+
+    // match by id: a new instance with an existing id reuses (and updates) the existing widget
+    listWidget.setKeyProvider(new ProvidesKey<TestModel>() {
+      @Override
+      public Object getKey(TestModel item) {
+        return item.getId();
+      }
+    });
+    listWidget.setItems(Arrays.asList(new TestModel(3, "c-updated"), a, d));
+    assertSame("Widget of item with same key was not reused!", widgetC, listWidget.getWidget(0));
+    assertEquals("Widget of item with same key was not updated!", "c-updated", widgetC.getTextBox().getText());
+    assertSame(widgetA, listWidget.getWidget(1));
+    assertEquals("a", widgetA.getTextBox().getText());
+  }
+}